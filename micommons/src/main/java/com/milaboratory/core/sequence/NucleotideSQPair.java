@@ -93,6 +93,32 @@ public final class NucleotideSQPair implements Serializable {
         return new NucleotideSQPair(sequence.getReverseComplement(), quality.reverse());
     }
 
+    /**
+     * Returns a view of the whole pair. No data is copied.
+     */
+    public NucleotideSQPairView asView() {
+        return new NucleotideSQPairView(this, 0, size(), false);
+    }
+
+    /**
+     * Returns a view of the sub sequence. If to &lt; from then reverse complement will be returned. No data is copied,
+     * see {@link NucleotideSQPairView#materialize()}.
+     *
+     * @param from inclusive
+     * @param to   exclusive
+     */
+    public NucleotideSQPairView getRangeView(int from, int to) {
+        return asView().getRange(from, to);
+    }
+
+    /**
+     * Returns a reverse complement view of this pair. No data is copied, see {@link
+     * NucleotideSQPairView#materialize()}.
+     */
+    public NucleotideSQPairView getRCView() {
+        return new NucleotideSQPairView(this, 0, size(), true);
+    }
+
     public int size() {
         return sequence.size();
     }
@@ -0,0 +1,160 @@
+/*
+ * MiTCR <http://milaboratory.com>
+ *
+ * Copyright (c) 2010-2013:
+ *     Bolotin Dmitriy     <bolotin.dmitriy@gmail.com>
+ *     Chudakov Dmitriy    <chudakovdm@mail.ru>
+ *
+ * MiTCR is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License as published by the Free
+ * Software Foundation, either version 3 of the License, or (at your option)
+ * any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU General Public License for
+ * more details.
+ *
+ * You should have received a copy of the GNU General Public License along
+ * with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.milaboratory.core.sequence;
+
+import com.milaboratory.core.sequence.nucleotide.NucleotideSequence;
+import com.milaboratory.core.sequence.quality.SequenceQualityPhred;
+
+/**
+ * Lightweight view of a region of {@link NucleotideSQPair}, possibly reverse complemented. Views reference storage of
+ * the parent pair and don't copy any data, so they are cheap to create for temporary per-read processing (e.g. mapping
+ * of reverse strand). Use {@link #materialize()} to create an independent {@link NucleotideSQPair} if the result
+ * must be retained.
+ *
+ * @author Bolotin Dmitriy (bolotin.dmitriy@gmail.com)
+ */
+public final class NucleotideSQPairView {
+    private final NucleotideSQPair parent;
+    private final int offset, length;
+    private final boolean reverse;
+
+    NucleotideSQPairView(NucleotideSQPair parent, int offset, int length, boolean reverse) {
+        this.parent = parent;
+        this.offset = offset;
+        this.length = length;
+        this.reverse = reverse;
+    }
+
+    /**
+     * Returns nucleotide code at specified position.
+     *
+     * @param position position in this view
+     * @return nucleotide code
+     */
+    public byte codeAt(int position) {
+        if (reverse)
+            return (byte) (0x3 ^ parent.getSequence().codeAt(offset + length - 1 - position));
+        return parent.getSequence().codeAt(offset + position);
+    }
+
+    /**
+     * Returns quality value at specified position.
+     *
+     * @param position position in this view
+     * @return quality value
+     */
+    public byte qualityAt(int position) {
+        if (reverse)
+            return parent.getQuality().value(offset + length - 1 - position);
+        return parent.getQuality().value(offset + position);
+    }
+
+    public int size() {
+        return length;
+    }
+
+    /**
+     * Returns the pair this view references.
+     */
+    public NucleotideSQPair getParent() {
+        return parent;
+    }
+
+    /**
+     * Returns position of the first nucleotide of this view in the parent pair.
+     */
+    public int getOffset() {
+        return offset;
+    }
+
+    /**
+     * Returns true if this view is reverse complement of the region of the parent pair.
+     */
+    public boolean isReverse() {
+        return reverse;
+    }
+
+    /**
+     * Returns a view of the region of this view. If to &lt; from then reverse complement will be returned (same as
+     * {@link NucleotideSQPair#getRange(int, int)}).
+     *
+     * @param from inclusive
+     * @param to   exclusive
+     */
+    public NucleotideSQPairView getRange(int from, int to) {
+        if (from >= length || from < 0 || to > length || to < 0)
+            throw new IndexOutOfBoundsException("\"from\" or \"to\" are out of range.");
+        boolean rc = to < from;
+        if (rc) {
+            int tmp = from;
+            from = to + 1;
+            to = tmp + 1;
+        }
+        //Coordinates in the parent pair
+        int parentOffset = reverse ? offset + length - to : offset + from;
+        return new NucleotideSQPairView(parent, parentOffset, to - from, reverse ^ rc);
+    }
+
+    /**
+     * Returns reverse complement view of this view.
+     */
+    public NucleotideSQPairView getRC() {
+        return new NucleotideSQPairView(parent, offset, length, !reverse);
+    }
+
+    /**
+     * Creates a copy of the nucleotide sequence of this view.
+     */
+    public NucleotideSequence getSequence() {
+        NucleotideSequence sequence = parent.getSequence();
+        if (offset != 0 || length != sequence.size())
+            sequence = sequence.getRange(offset, offset + length);
+        return reverse ? sequence.getReverseComplement() : sequence;
+    }
+
+    /**
+     * Creates an independent {@link NucleotideSQPair} with the content of this view. If the view covers the whole
+     * parent pair in forward direction, the parent itself is returned.
+     */
+    public NucleotideSQPair materialize() {
+        if (!reverse && offset == 0 && length == parent.size())
+            return parent;
+        SequenceQualityPhred quality = parent.getQuality().getRange(offset, offset + length);
+        return new NucleotideSQPair(getSequence(), reverse ? quality.reverse() : quality);
+    }
+
+    /**
+     * Creates an independent {@link NucleotideSQPair} with the content of this view and quality values in the most
+     * compact storage (see {@link SequenceQualityPhred#compact()}). Quality values are copied from the parent only
+     * once. Intended for regions retained for a long time (e.g. CDR3s).
+     */
+    public NucleotideSQPair materializeCompact() {
+        final byte[] quality = new byte[length];
+        for (int i = 0; i < length; ++i)
+            quality[i] = qualityAt(i);
+        return new NucleotideSQPair(getSequence(), SequenceQualityPhred.wrapCompact(quality));
+    }
+
+    @Override
+    public String toString() {
+        return getSequence().toString();
+    }
+}
@@ -35,9 +35,13 @@ public class CDRAminoAcidSequence extends Sequence {
     final byte[] data;
     private final int rLength, endLength, beginLength;
     private final NucleotideSequence nCdr;
+    //-1 if unknown
+    private final int frameRemainder;
+    private final boolean containStops;
 
     public CDRAminoAcidSequence(String sequence) {
         this.nCdr = null;
+        this.frameRemainder = -1;
 
         int length = this.rLength = sequence.length();
         this.endLength = rLength / 2;
@@ -45,31 +49,35 @@ public class CDRAminoAcidSequence extends Sequence {
         this.data = new byte[length];
         for (int i = 0; i < length; ++i)
             data[i] = CDRAminoAcidAlphabet.INSTANCE.codeFromSymbol(sequence.charAt(i));
+        this.containStops = containStops(data);
     }
 
     public CDRAminoAcidSequence(NucleotideSequence cdr) {
         this.nCdr = cdr;
+        this.frameRemainder = cdr.size() % 3;
 
         int length = (cdr.size() + 2) / 3;
         this.rLength = cdr.size() / 3;
         this.endLength = rLength / 2;
         this.beginLength = rLength - endLength;
         this.data = new byte[length];
-        for (int i = 0; i < beginLength; ++i)
-            data[i] = Translator.getAminoAcid(cdr, i * 3);
-        for (int i = 0; i < endLength; ++i)
-            data[length - 1 - i] = Translator.getAminoAcid(cdr, cdr.size() - 3 - i * 3);
+        //Begin part is translated in frame of the first nucleotide, end part in frame of the last nucleotide
+        boolean stops = Translator.translate(cdr, 0, data, 0, beginLength);
+        stops |= Translator.translate(cdr, cdr.size() - endLength * 3, data, length - endLength, endLength);
         if (rLength != length)
             data[beginLength] = 21;
+        this.containStops = stops;
     }
 
     private CDRAminoAcidSequence(byte[] data) {
         this.nCdr = null;
+        this.frameRemainder = -1;
 
         this.data = data;
         this.rLength = data.length;
         this.endLength = rLength / 2;
         this.beginLength = rLength - endLength;
+        this.containStops = containStops(data);
     }
 
     @Override
@@ -115,16 +123,31 @@ public class CDRAminoAcidSequence extends Sequence {
     }
 
     public boolean containStops() {
-        for (byte b : data)
-            if (b == 0)
-                return true;
-        return false;
+        return containStops;
     }
 
     public boolean isInFrame() {
         return (nCdr.size() % 3) == 0;
     }
 
+    /**
+     * Returns remainder of division of nucleotide CDR length by 3: 0 for in-frame CDRs, 1 or 2 for out-of-frame CDRs
+     * (number of nucleotides in the frame shift marker). Returns -1 if this sequence was not created from nucleotide
+     * sequence.
+     *
+     * @return remainder of division of nucleotide CDR length by 3 or -1
+     */
+    public int getFrameRemainder() {
+        return frameRemainder;
+    }
+
+    private static boolean containStops(byte[] data) {
+        for (byte b : data)
+            if (b == Translator.STOP_CODE)
+                return true;
+        return false;
+    }
+
     public void toNucleotideSequenceCoord(int position, CDRTriplet triplet) {
         if (position < beginLength) {
             triplet.setStart(position * 3, 3);
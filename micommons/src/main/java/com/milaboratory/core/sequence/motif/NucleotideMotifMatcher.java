@@ -0,0 +1,173 @@
+/*
+ * MiTCR <http://milaboratory.com>
+ *
+ * Copyright (c) 2010-2013:
+ *     Bolotin Dmitriy     <bolotin.dmitriy@gmail.com>
+ *     Chudakov Dmitriy    <chudakovdm@mail.ru>
+ *
+ * MiTCR is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License as published by the Free
+ * Software Foundation, either version 3 of the License, or (at your option)
+ * any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU General Public License for
+ * more details.
+ *
+ * You should have received a copy of the GNU General Public License along
+ * with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.milaboratory.core.sequence.motif;
+
+/**
+ * Bit-parallel (Shift-Add) approximate matcher for {@link NucleotideMotif}s not longer than 64 nucleotides.
+ *
+ * <p>For each nucleotide code a mask of motif positions that don't accept this code is precomputed (wildcards from
+ * {@link NucleotideWildcards} are taken into account). Mismatch counters of all alignments of the motif ending at the
+ * current sequence position are stored in bit-sliced form (one {@code long} per bit of counter, bit {@code j} of each
+ * word corresponds to the alignment with {@code j + 1} motif nucleotides consumed), so processing of each sequence
+ * nucleotide takes several word operations and the whole sequence is scanned in one linear pass.</p>
+ *
+ * <p>Counters are tracked exactly up to {@code maxMismatches}, larger values are reported as {@code maxMismatches +
+ * 1}.</p>
+ *
+ * <p>This class is immutable and thread-safe. {@link State} objects are not thread-safe.</p>
+ *
+ * @author Bolotin Dmitriy (bolotin.dmitriy@gmail.com)
+ */
+public final class NucleotideMotifMatcher {
+    /**
+     * Max supported motif size.
+     */
+    public static final int MAX_MOTIF_SIZE = 64;
+    //Mismatch masks for each nucleotide code
+    private final long[] masks = new long[4];
+    private final int size, maxMismatches, planes;
+    private final long lastBit;
+
+    /**
+     * Creates matcher.
+     *
+     * @param motif         motif
+     * @param maxMismatches max number of mismatches to track
+     */
+    public NucleotideMotifMatcher(NucleotideMotif motif, int maxMismatches) {
+        if (motif.size() == 0 || motif.size() > MAX_MOTIF_SIZE)
+            throw new IllegalArgumentException("Motif size must be from 1 to " + MAX_MOTIF_SIZE + ".");
+        if (maxMismatches < 0)
+            throw new IllegalArgumentException();
+        this.size = motif.size();
+        this.maxMismatches = maxMismatches;
+        //Number of bits to store values from 0 to maxMismatches
+        this.planes = 32 - Integer.numberOfLeadingZeros(maxMismatches);
+        this.lastBit = 1L << (size - 1);
+        for (byte code = 0; code < 4; ++code)
+            for (int i = 0; i < size; ++i)
+                if (!motif.get(i, code))
+                    masks[code] |= 1L << i;
+    }
+
+    /**
+     * Returns true if motif can be processed by this class.
+     *
+     * @param motif motif
+     */
+    public static boolean isSupported(NucleotideMotif motif) {
+        return motif.size() > 0 && motif.size() <= MAX_MOTIF_SIZE;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public int getMaxMismatches() {
+        return maxMismatches;
+    }
+
+    /**
+     * Creates new empty state.
+     */
+    public State createState() {
+        return new State(planes);
+    }
+
+    /**
+     * Returns mismatch mask for nucleotide code (bit i set if i-th motif position doesn't accept this nucleotide).
+     *
+     * @param code nucleotide code
+     * @return mismatch mask
+     */
+    public long mismatchMask(byte code) {
+        return masks[code];
+    }
+
+    /**
+     * Consumes next sequence nucleotide.
+     *
+     * @param state state
+     * @param code  nucleotide code
+     * @return number of mismatches of the motif aligned to end at this nucleotide, {@code maxMismatches + 1} if there
+     *         are more mismatches or if less than {@code size()} nucleotides were consumed since last reset
+     */
+    public int next(State state, byte code) {
+        return next(state, masks[code]);
+    }
+
+    /**
+     * Consumes next sequence nucleotide. This method allows to count only some of mismatches (e.g. only mismatches in
+     * high quality positions): pass 0 as a mask for positions that must not be counted.
+     *
+     * @param state state
+     * @param mask  mismatch mask of the nucleotide (see {@link #mismatchMask(byte)})
+     * @return same as {@link #next(State, byte)}
+     */
+    public int next(State state, long mask) {
+        final long[] p = state.planes;
+        //Extending all alignments by one nucleotide, new alignment starts with zero counter
+        for (int b = 0; b < p.length; ++b)
+            p[b] <<= 1;
+        state.overflow <<= 1;
+
+        //Adding one to counters of alignments with mismatch at this position (ripple carry over bit planes)
+        long carry = mask, t;
+        for (int b = 0; b < p.length && carry != 0; ++b) {
+            t = p[b] & carry;
+            p[b] ^= carry;
+            carry = t;
+        }
+        state.overflow |= carry;
+
+        if (++state.consumed < size || (state.overflow & lastBit) != 0)
+            return maxMismatches + 1;
+
+        int value = 0;
+        for (int b = 0; b < p.length; ++b)
+            if ((p[b] & lastBit) != 0)
+                value |= 1 << b;
+        return value > maxMismatches ? maxMismatches + 1 : value;
+    }
+
+    /**
+     * Mutable state of the scanning process.
+     */
+    public static final class State {
+        final long[] planes;
+        long overflow;
+        int consumed;
+
+        State(int planes) {
+            this.planes = new long[planes];
+        }
+
+        /**
+         * Resets state to start scanning of a new sequence.
+         */
+        public void reset() {
+            for (int i = 0; i < planes.length; ++i)
+                planes[i] = 0;
+            overflow = 0;
+            consumed = 0;
+        }
+    }
+}
@@ -45,6 +45,8 @@ public class NucleotideMotifSearchAdvanced {
     private final int maxLowQualityPoints;
     //Sequencing error type
     private final SequencingErrorType errorType;
+    //Bit-parallel matchers for total and high quality mismatches (null if not applicable)
+    private final NucleotideMotifMatcher totalMatcher, highQualityMatcher;
 
     public NucleotideMotifSearchAdvanced(NucleotideMotif motif, int maxHighQualityMismatches,
                                          int maxMismatches, int maxLowQualityPoints, SequencingErrorType errorType) {
@@ -57,6 +59,13 @@ public class NucleotideMotifSearchAdvanced {
         this.maxMismatches = maxMismatches;
         this.maxLowQualityPoints = maxLowQualityPoints;
         this.errorType = errorType;
+        if (errorType == SequencingErrorType.Mismatch && NucleotideMotifMatcher.isSupported(motif)
+                && maxMismatches >= 0 && maxHighQualityMismatches >= 0) {
+            this.totalMatcher = new NucleotideMotifMatcher(motif, maxMismatches);
+            this.highQualityMatcher = new NucleotideMotifMatcher(motif,
+                    java.lang.Math.min(maxHighQualityMismatches, maxMismatches));
+        } else
+            this.totalMatcher = this.highQualityMatcher = null;
     }
 
     public NucleotideMotif getMotif() {
@@ -75,6 +84,9 @@ public class NucleotideMotifSearchAdvanced {
                 || from > to)
             throw new IllegalArgumentException();
 
+        if (totalMatcher != null)
+            return bitParallelSearch(sequence, lowQualityIndicator, from, to);
+
         //Try to find exact match
         int hit = motif.findMatch(sequence, from, to);
         //If found
@@ -102,6 +114,72 @@ public class NucleotideMotifSearchAdvanced {
         }
     }
 
+    //--------Bit-parallel Search-----------
+    //
+    //Gives the same result as exact search followed by position by position mismatched search, but in one pass.
+    private int bitParallelSearch(NucleotideSequence sequence, LowQualityIndicator lowQualityIndicator,
+                                  int from, int to) {
+        final int size = motif.size();
+        final long lastBit = 1L << (size - 1);
+        final NucleotideMotifMatcher.State total = totalMatcher.createState(),
+                high = highQualityMatcher.createState();
+
+        //Low quality points in the current window
+        int lowPoints = 0;
+        long lowHistory = 0;
+
+        int bestCoord = -1, bestHigh = 0, bestTotal = 0, bestLowPoints = 0;
+        int mismatches, highMismatches, coord;
+        long mask;
+        boolean isLowQuality;
+
+        //Same range of alignments as in position by position search
+        final int end = to - 1;
+        for (int position = from; position < end; ++position) {
+            //Point leaving the window
+            if (position - from >= size && (lowHistory & lastBit) != 0)
+                --lowPoints;
+            isLowQuality = lowQualityIndicator.isLowQuality(position);
+            lowHistory <<= 1;
+            if (isLowQuality) {
+                lowHistory |= 1;
+                ++lowPoints;
+            }
+
+            mask = totalMatcher.mismatchMask(sequence.codeAt(position));
+            mismatches = totalMatcher.next(total, mask);
+            highMismatches = highQualityMatcher.next(high, isLowQuality ? 0 : mask);
+
+            //Incomplete window or too many mismatches
+            if (mismatches > maxMismatches)
+                continue;
+
+            coord = position - size + 1;
+
+            if (mismatches == 0) { //Exact hit
+                if (lowPoints <= maxLowQualityPoints)
+                    return coord;
+                //Search is restarted after rejected exact hit
+                bestCoord = -1;
+                continue;
+            }
+
+            if (highMismatches > maxHighQualityMismatches || lowPoints > maxLowQualityPoints)
+                continue;
+
+            if (bestCoord == -1
+                    || highMismatches < bestHigh
+                    || (highMismatches == bestHigh && (mismatches < bestTotal
+                    || (mismatches == bestTotal && lowPoints < bestLowPoints)))) {
+                bestCoord = coord;
+                bestHigh = highMismatches;
+                bestTotal = mismatches;
+                bestLowPoints = lowPoints;
+            }
+        }
+        return bestCoord;
+    }
+
     //--------Mismatched Search-----------
     //
     private int mismatchedSearch(NucleotideSequence sequence, LowQualityIndicator lowQualityIndicator,
@@ -25,6 +25,7 @@ import com.milaboratory.core.sequence.Sequence;
 import com.milaboratory.util.Bit2Array;
 
 import java.io.Serializable;
+import java.util.Arrays;
 
 import static com.milaboratory.core.sequence.nucleotide.NucleotideAlphabet.INSTANCE;
 
@@ -84,6 +85,25 @@ public final class NucleotideSequence extends Sequence implements Serializable {
         return new NucleotideSequence(transformToRC(data), true);
     }
 
+    @Override
+    public boolean equals(Object obj) {
+        if (obj instanceof NucleotideSequence)
+            return data.equals(((NucleotideSequence) obj).data);
+        return super.equals(obj);
+    }
+
+    @Override
+    public int hashCode() {
+        return super.hashCode();
+    }
+
+    @Override
+    public int compareTo(Sequence o) {
+        if (o instanceof NucleotideSequence)
+            return data.compareTo(((NucleotideSequence) o).data);
+        return super.compareTo(o);
+    }
+
     public Bit2Array getInnerData() {
         return data.clone();
     }
@@ -93,24 +113,95 @@ public final class NucleotideSequence extends Sequence implements Serializable {
         return INSTANCE;
     }
 
+    /**
+     * Returns inner storage of the sequence without copying (unlike {@link #getInnerData()}). Used internally by
+     * algorithms working directly with packed nucleotides, returned array must not be modified.
+     *
+     * @param sequence nucleotide sequence
+     * @return inner storage
+     */
+    public static Bit2Array extractInnerData(NucleotideSequence sequence) {
+        return sequence.data;
+    }
+
     public static NucleotideSequence fromStorage(Bit2Array b2a) {
         return new NucleotideSequence(b2a.clone(), true);
     }
 
+    /**
+     * Creates nucleotide sequence from packed data (four nucleotides per byte, see {@link Bit2Array}). Array is used as
+     * inner storage without copying, so it must not be modified afterwards.
+     *
+     * @param packed packed nucleotides
+     * @param size   number of nucleotides
+     * @return nucleotide sequence
+     */
+    public static NucleotideSequence fromPacked(byte[] packed, int size) {
+        if (packed.length != ((size + 3) >> 2))
+            throw new IllegalArgumentException();
+        return new NucleotideSequence(Bit2Array.construct(size, packed), true);
+    }
+
+    /**
+     * Creates nucleotide sequence from a region of raw (ASCII encoded) byte buffer. Nucleotides are packed directly
+     * into the inner storage, four per byte.
+     *
+     * @param sequence buffer with ASCII encoded nucleotides
+     * @param offset   position of the first nucleotide in the buffer
+     * @param length   number of nucleotides
+     * @return nucleotide sequence
+     */
     public static NucleotideSequence fromSequence(byte[] sequence, int offset, int length) {
-        Bit2Array storage = new Bit2Array(length);
-        for (int i = 0; i < length; ++i)
-            storage.set(i, INSTANCE.codeFromSymbol((char) sequence[offset + i]));
-        return new NucleotideSequence(storage, true);
+        final byte[] packed = new byte[(length + 3) >> 2];
+        int code, i = 0, p = 0;
+        for (; p < packed.length; ++p) {
+            int b = 0;
+            for (int shift = 0; shift < 8 && i < length; shift += 2, ++i) {
+                if ((code = CODES[sequence[offset + i] & 0xFF]) == -1)
+                    INSTANCE.codeFromSymbol((char) sequence[offset + i]); //Throws exception
+                b |= code << shift;
+            }
+            packed[p] = (byte) b;
+        }
+        return new NucleotideSequence(Bit2Array.construct(length, packed), true);
     }
 
-    private static Bit2Array transformToRC(Bit2Array data) {
-        Bit2Array newData = new Bit2Array(data.size());
-        int reverseCoord;
-        for (int coord = 0; coord < data.size(); coord++) {
-            reverseCoord = data.size() - 1 - coord;
-            newData.set(coord, (~data.get(reverseCoord)) & 0x3);
+    /**
+     * Nucleotide codes for ASCII symbols (-1 for unknown symbols).
+     */
+    private static final byte[] CODES = new byte[256];
+
+    static {
+        Arrays.fill(CODES, (byte) -1);
+        for (char c : "ATGCatgc".toCharArray())
+            CODES[c] = INSTANCE.codeFromSymbol(c);
+    }
+
+    /**
+     * Reverse complement for each possible byte of packed data (four nucleotides).
+     */
+    private static final byte[] RC_BYTES = new byte[256];
+
+    static {
+        int rc;
+        for (int b = 0; b < 256; ++b) {
+            rc = 0;
+            for (int i = 0; i < 4; ++i)
+                rc |= (((b >>> (i << 1)) & 3) ^ 3) << ((3 - i) << 1);
+            RC_BYTES[b] = (byte) rc;
         }
-        return newData;
+    }
+
+    private static Bit2Array transformToRC(Bit2Array data) {
+        final byte[] packed = Bit2Array.extractRawDataArray(data);
+        final byte[] reversed = new byte[packed.length];
+        for (int i = 0, j = packed.length - 1; j >= 0; ++i, --j)
+            reversed[i] = RC_BYTES[packed[j] & 0xFF];
+
+        //Unused positions of the last byte are now at the beginning
+        final int padding = (packed.length << 2) - data.size();
+        if (padding == 0)
+            return Bit2Array.construct(data.size(), reversed);
+        return Bit2Array.construct(packed.length << 2, reversed).getRange(padding, padding + data.size());
     }
 }
@@ -0,0 +1,122 @@
+/*
+ * MiTCR <http://milaboratory.com>
+ *
+ * Copyright (c) 2010-2013:
+ *     Bolotin Dmitriy     <bolotin.dmitriy@gmail.com>
+ *     Chudakov Dmitriy    <chudakovdm@mail.ru>
+ *
+ * MiTCR is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License as published by the Free
+ * Software Foundation, either version 3 of the License, or (at your option)
+ * any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU General Public License for
+ * more details.
+ *
+ * You should have received a copy of the GNU General Public License along
+ * with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.milaboratory.core.sequence.nucleotide;
+
+import com.milaboratory.util.Bit2Array;
+import com.milaboratory.util.HashFunctions;
+
+import java.util.Arrays;
+
+/**
+ * Compact hash key for a nucleotide sequence: nucleotides packed into longs (32 nucleotides per long, the first
+ * nucleotide in the lowest bits) plus the sequence length, with precomputed hash code.
+ *
+ * <p>Typical CDR3 sequences (30-90 nucleotides) occupy two or three longs, and keys are compared long by long
+ * instead of nucleotide by nucleotide. See {@link NucleotideSequenceKeyIntMap}.</p>
+ *
+ * @author Bolotin Dmitriy (bolotin.dmitriy@gmail.com)
+ */
+public final class NucleotideSequenceKey {
+    final long[] words;
+    final int size;
+    final int hash;
+
+    /**
+     * Creates key for the sequence.
+     *
+     * @param sequence nucleotide sequence
+     */
+    public NucleotideSequenceKey(NucleotideSequence sequence) {
+        final byte[] packed = Bit2Array.extractRawDataArray(sequence.data);
+        this.size = sequence.size();
+        this.words = new long[(size + 31) >> 5];
+        for (int i = 0; i < packed.length; ++i)
+            words[i >> 3] |= (packed[i] & 0xFFL) << ((i & 7) << 3);
+        this.hash = hash(words, size);
+    }
+
+    static int hash(long[] words, int size) {
+        int hash = size;
+        for (long word : words)
+            hash = 31 * hash + HashFunctions.Wang64to32shift(word);
+        return HashFunctions.JenkinWang32shift(hash);
+    }
+
+    /**
+     * Returns the number of nucleotides.
+     *
+     * @return number of nucleotides
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Returns the number of longs used to store nucleotides.
+     *
+     * @return number of longs used to store nucleotides
+     */
+    public int wordsCount() {
+        return words.length;
+    }
+
+    /**
+     * Returns 32 packed nucleotides starting from {@code 32 * index}.
+     *
+     * @param index index of the word
+     * @return packed nucleotides
+     */
+    public long word(int index) {
+        return words[index];
+    }
+
+    /**
+     * Converts key back to the nucleotide sequence.
+     *
+     * @return nucleotide sequence
+     */
+    public NucleotideSequence toSequence() {
+        final byte[] packed = new byte[(size + 3) >> 2];
+        for (int i = 0; i < packed.length; ++i)
+            packed[i] = (byte) (words[i >> 3] >>> ((i & 7) << 3));
+        return NucleotideSequence.fromPacked(packed, size);
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o)
+            return true;
+        if (o == null || getClass() != o.getClass())
+            return false;
+        NucleotideSequenceKey that = (NucleotideSequenceKey) o;
+        return hash == that.hash && size == that.size && Arrays.equals(words, that.words);
+    }
+
+    @Override
+    public int hashCode() {
+        return hash;
+    }
+
+    @Override
+    public String toString() {
+        return toSequence().toString();
+    }
+}
@@ -0,0 +1,217 @@
+/*
+ * MiTCR <http://milaboratory.com>
+ *
+ * Copyright (c) 2010-2013:
+ *     Bolotin Dmitriy     <bolotin.dmitriy@gmail.com>
+ *     Chudakov Dmitriy    <chudakovdm@mail.ru>
+ *
+ * MiTCR is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License as published by the Free
+ * Software Foundation, either version 3 of the License, or (at your option)
+ * any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU General Public License for
+ * more details.
+ *
+ * You should have received a copy of the GNU General Public License along
+ * with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.milaboratory.core.sequence.nucleotide;
+
+import java.util.Arrays;
+
+/**
+ * Open-addressing hash map from nucleotide sequences to non-negative {@code int} values (e.g. indexes of clones in a
+ * list).
+ *
+ * <p>Keys are not stored as objects: packed nucleotides of sequences up to 64 nucleotides long are stored directly in
+ * a {@code long[]} table together with sequence lengths and hash codes (see {@link NucleotideSequenceKey}), only
+ * longer sequences keep a reference to the key object. Linear probing is used to resolve collisions.</p>
+ *
+ * <p>This class is not thread-safe.</p>
+ *
+ * @author Bolotin Dmitriy (bolotin.dmitriy@gmail.com)
+ */
+public final class NucleotideSequenceKeyIntMap {
+    /**
+     * Value returned if there is no mapping for the key
+     */
+    public static final int NO_VALUE = -1;
+    //Number of words stored inline
+    private static final int STRIDE = 2;
+    private static final float LOAD_FACTOR = 0.5f;
+    private long[] words;
+    //size + 1, 0 for empty slots
+    private int[] sizes;
+    private int[] hashes;
+    private int[] values;
+    //Keys longer than STRIDE words
+    private NucleotideSequenceKey[] longKeys;
+    private int mask, size, threshold;
+
+    /**
+     * Creates map.
+     */
+    public NucleotideSequenceKeyIntMap() {
+        this(16);
+    }
+
+    /**
+     * Creates map.
+     *
+     * @param expectedSize expected number of mappings
+     */
+    public NucleotideSequenceKeyIntMap(int expectedSize) {
+        int capacity = 16;
+        while (capacity * LOAD_FACTOR < expectedSize)
+            capacity <<= 1;
+        allocate(capacity);
+    }
+
+    private void allocate(int capacity) {
+        words = new long[capacity * STRIDE];
+        sizes = new int[capacity];
+        hashes = new int[capacity];
+        values = new int[capacity];
+        longKeys = null;
+        mask = capacity - 1;
+        threshold = (int) (capacity * LOAD_FACTOR);
+    }
+
+    /**
+     * Returns the number of mappings.
+     *
+     * @return number of mappings
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Returns value mapped to the sequence.
+     *
+     * @param sequence sequence
+     * @return value or {@link #NO_VALUE} if there is no mapping for the sequence
+     */
+    public int get(NucleotideSequence sequence) {
+        return get(new NucleotideSequenceKey(sequence));
+    }
+
+    /**
+     * Returns value mapped to the key.
+     *
+     * @param key key
+     * @return value or {@link #NO_VALUE} if there is no mapping for the key
+     */
+    public int get(NucleotideSequenceKey key) {
+        final int slot = find(key);
+        return sizes[slot] == 0 ? NO_VALUE : values[slot];
+    }
+
+    /**
+     * Maps sequence to the value.
+     *
+     * @param sequence sequence
+     * @param value    non-negative value
+     * @return previous value or {@link #NO_VALUE} if there was no mapping for the sequence
+     */
+    public int put(NucleotideSequence sequence, int value) {
+        return put(new NucleotideSequenceKey(sequence), value);
+    }
+
+    /**
+     * Maps key to the value.
+     *
+     * @param key   key
+     * @param value non-negative value
+     * @return previous value or {@link #NO_VALUE} if there was no mapping for the key
+     */
+    public int put(NucleotideSequenceKey key, int value) {
+        if (value < 0)
+            throw new IllegalArgumentException("Negative value.");
+
+        int slot = find(key);
+        if (sizes[slot] != 0) {
+            final int previous = values[slot];
+            values[slot] = value;
+            return previous;
+        }
+
+        if (size >= threshold) {
+            rehash();
+            slot = find(key);
+        }
+
+        insert(slot, key.words, key.size, key.hash, key, value);
+        ++size;
+        return NO_VALUE;
+    }
+
+    private void insert(int slot, long[] keyWords, int keySize, int hash, NucleotideSequenceKey key, int value) {
+        sizes[slot] = keySize + 1;
+        hashes[slot] = hash;
+        values[slot] = value;
+        System.arraycopy(keyWords, 0, words, slot * STRIDE, Math.min(STRIDE, keyWords.length));
+        if (keyWords.length > STRIDE) {
+            if (longKeys == null)
+                longKeys = new NucleotideSequenceKey[sizes.length];
+            longKeys[slot] = key;
+        }
+    }
+
+    /**
+     * Returns slot containing the key or the empty slot where it should be inserted.
+     */
+    private int find(NucleotideSequenceKey key) {
+        final long[] keyWords = key.words;
+        final int keySize = key.size + 1, hash = key.hash;
+        int slot = hash & mask, offset;
+        while (sizes[slot] != 0) {
+            if (sizes[slot] == keySize && hashes[slot] == hash) {
+                offset = slot * STRIDE;
+                if (keyWords.length > STRIDE) {
+                    if (longKeys[slot].equals(key))
+                        return slot;
+                } else if ((keyWords.length < 1 || words[offset] == keyWords[0]) &&
+                        (keyWords.length < 2 || words[offset + 1] == keyWords[1]))
+                    return slot;
+            }
+            slot = (slot + 1) & mask;
+        }
+        return slot;
+    }
+
+    private void rehash() {
+        final long[] oldWords = words;
+        final int[] oldSizes = sizes, oldHashes = hashes, oldValues = values;
+        final NucleotideSequenceKey[] oldLongKeys = longKeys;
+        allocate(oldSizes.length << 1);
+
+        long[] keyWords = new long[STRIDE];
+        int slot;
+        for (int i = 0; i < oldSizes.length; ++i) {
+            if (oldSizes[i] == 0)
+                continue;
+            slot = oldHashes[i] & mask;
+            while (sizes[slot] != 0)
+                slot = (slot + 1) & mask;
+            if (oldLongKeys != null && oldLongKeys[i] != null)
+                insert(slot, oldLongKeys[i].words, oldSizes[i] - 1, oldHashes[i], oldLongKeys[i], oldValues[i]);
+            else {
+                System.arraycopy(oldWords, i * STRIDE, keyWords, 0, STRIDE);
+                insert(slot, keyWords, oldSizes[i] - 1, oldHashes[i], null, oldValues[i]);
+            }
+        }
+    }
+
+    /**
+     * Removes all mappings.
+     */
+    public void clear() {
+        Arrays.fill(sizes, 0);
+        longKeys = null;
+        size = 0;
+    }
+}
@@ -0,0 +1,91 @@
+/*
+ * MiTCR <http://milaboratory.com>
+ *
+ * Copyright (c) 2010-2013:
+ *     Bolotin Dmitriy     <bolotin.dmitriy@gmail.com>
+ *     Chudakov Dmitriy    <chudakovdm@mail.ru>
+ *
+ * MiTCR is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License as published by the Free
+ * Software Foundation, either version 3 of the License, or (at your option)
+ * any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU General Public License for
+ * more details.
+ *
+ * You should have received a copy of the GNU General Public License along
+ * with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.milaboratory.core.sequence.quality;
+
+import java.util.Arrays;
+
+/**
+ * Plain storage, one byte per quality value.
+ *
+ * @author Bolotin Dmitriy (bolotin.dmitriy@gmail.com)
+ */
+final class ArrayQualityStorage extends QualityStorage {
+    private static final long serialVersionUID = 1L;
+    final byte[] data;
+
+    ArrayQualityStorage(byte[] data) {
+        this.data = data;
+    }
+
+    @Override
+    byte value(int position) {
+        return data[position];
+    }
+
+    @Override
+    int size() {
+        return data.length;
+    }
+
+    @Override
+    byte[] toArray() {
+        return data.clone();
+    }
+
+    @Override
+    QualityStorage getRange(int from, int to) {
+        return new ArrayQualityStorage(Arrays.copyOfRange(data, from, to));
+    }
+
+    @Override
+    QualityStorage reverse() {
+        return new ArrayQualityStorage(reverse(data));
+    }
+
+    @Override
+    byte minValue() {
+        byte min = Byte.MAX_VALUE;
+        for (byte b : data)
+            if (b < min)
+                min = b;
+        return min;
+    }
+
+    @Override
+    int hash() {
+        return Arrays.hashCode(data);
+    }
+
+    @Override
+    boolean contentEquals(QualityStorage other) {
+        if (other instanceof ArrayQualityStorage)
+            return Arrays.equals(data, ((ArrayQualityStorage) other).data);
+        return super.contentEquals(other);
+    }
+
+    static byte[] reverse(byte[] quality) {
+        byte[] newData = new byte[quality.length];
+        int reverseCoord = quality.length - 1;
+        for (int coord = 0; coord < quality.length; ++coord, --reverseCoord)
+            newData[coord] = quality[reverseCoord];
+        return newData;
+    }
+}
@@ -0,0 +1,75 @@
+/*
+ * MiTCR <http://milaboratory.com>
+ *
+ * Copyright (c) 2010-2013:
+ *     Bolotin Dmitriy     <bolotin.dmitriy@gmail.com>
+ *     Chudakov Dmitriy    <chudakovdm@mail.ru>
+ *
+ * MiTCR is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License as published by the Free
+ * Software Foundation, either version 3 of the License, or (at your option)
+ * any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU General Public License for
+ * more details.
+ *
+ * You should have received a copy of the GNU General Public License along
+ * with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.milaboratory.core.sequence.quality;
+
+/**
+ * Storage for quality lines with at most four distinct values (binned qualities of modern Illumina instruments). Each
+ * value is stored as a 2-bit index in the table of levels.
+ *
+ * @author Bolotin Dmitriy (bolotin.dmitriy@gmail.com)
+ */
+final class BinnedQualityStorage extends QualityStorage {
+    private static final long serialVersionUID = 1L;
+    static final int MAX_LEVELS = 4;
+    private final byte[] levels;
+    private final byte[] codes;
+    private final int size;
+
+    BinnedQualityStorage(byte[] data, byte[] levels) {
+        if (levels.length > MAX_LEVELS)
+            throw new IllegalArgumentException();
+        this.levels = levels;
+        this.size = data.length;
+        this.codes = new byte[(data.length + 3) >> 2];
+        int code;
+        for (int i = 0; i < data.length; ++i) {
+            if ((code = indexOf(levels, levels.length, data[i])) < 0)
+                throw new IllegalArgumentException("Value " + data[i] + " is not in levels.");
+            codes[i >> 2] |= code << ((i & 3) << 1);
+        }
+    }
+
+    static int bytesFor(int size, int levels) {
+        //Two references and size
+        return objectBytes(12) + arrayBytes(levels) + arrayBytes((size + 3) >> 2);
+    }
+
+    @Override
+    byte value(int position) {
+        if (position < 0 || position >= size)
+            throw new IndexOutOfBoundsException();
+        return levels[(codes[position >> 2] >>> ((position & 3) << 1)) & 3];
+    }
+
+    @Override
+    int size() {
+        return size;
+    }
+
+    @Override
+    byte minValue() {
+        byte min = Byte.MAX_VALUE;
+        for (byte b : levels)
+            if (b < min)
+                min = b;
+        return min;
+    }
+}
@@ -0,0 +1,85 @@
+/*
+ * MiTCR <http://milaboratory.com>
+ *
+ * Copyright (c) 2010-2013:
+ *     Bolotin Dmitriy     <bolotin.dmitriy@gmail.com>
+ *     Chudakov Dmitriy    <chudakovdm@mail.ru>
+ *
+ * MiTCR is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License as published by the Free
+ * Software Foundation, either version 3 of the License, or (at your option)
+ * any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU General Public License for
+ * more details.
+ *
+ * You should have received a copy of the GNU General Public License along
+ * with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.milaboratory.core.sequence.quality;
+
+import java.io.ObjectStreamException;
+
+/**
+ * Storage of quality line with all values equal (e.g. for reads from FASTA files). Instances for {@link
+ * SequenceQualityUtils#GOOD_QUALITY_VALUE} are shared flyweights.
+ *
+ * @author Bolotin Dmitriy (bolotin.dmitriy@gmail.com)
+ */
+final class ConstantQualityStorage extends QualityStorage {
+    private static final long serialVersionUID = 1L;
+    private static final int CACHE_SIZE = 1024;
+    //Lazily filled, benign race (instances are immutable)
+    private static final ConstantQualityStorage[] GOOD_CACHE = new ConstantQualityStorage[CACHE_SIZE];
+    private final byte value;
+    private final int size;
+
+    private ConstantQualityStorage(byte value, int size) {
+        this.value = value;
+        this.size = size;
+    }
+
+    static ConstantQualityStorage create(byte value, int size) {
+        if (value != SequenceQualityUtils.GOOD_QUALITY_VALUE || size >= CACHE_SIZE)
+            return new ConstantQualityStorage(value, size);
+        ConstantQualityStorage storage = GOOD_CACHE[size];
+        if (storage == null)
+            GOOD_CACHE[size] = storage = new ConstantQualityStorage(value, size);
+        return storage;
+    }
+
+    @Override
+    byte value(int position) {
+        if (position < 0 || position >= size)
+            throw new IndexOutOfBoundsException();
+        return value;
+    }
+
+    @Override
+    int size() {
+        return size;
+    }
+
+    @Override
+    QualityStorage getRange(int from, int to) {
+        if (from < 0 || to > size || from > to)
+            throw new IndexOutOfBoundsException();
+        return create(value, to - from);
+    }
+
+    @Override
+    QualityStorage reverse() {
+        return this;
+    }
+
+    @Override
+    byte minValue() {
+        return size == 0 ? Byte.MAX_VALUE : value;
+    }
+
+    private Object readResolve() throws ObjectStreamException {
+        return create(value, size);
+    }
+}
@@ -0,0 +1,156 @@
+/*
+ * MiTCR <http://milaboratory.com>
+ *
+ * Copyright (c) 2010-2013:
+ *     Bolotin Dmitriy     <bolotin.dmitriy@gmail.com>
+ *     Chudakov Dmitriy    <chudakovdm@mail.ru>
+ *
+ * MiTCR is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License as published by the Free
+ * Software Foundation, either version 3 of the License, or (at your option)
+ * any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU General Public License for
+ * more details.
+ *
+ * You should have received a copy of the GNU General Public License along
+ * with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.milaboratory.core.sequence.quality;
+
+import java.io.Serializable;
+import java.util.Arrays;
+
+/**
+ * Backing storage of {@link SequenceQualityPhred} values. Storages are immutable.
+ *
+ * @author Bolotin Dmitriy (bolotin.dmitriy@gmail.com)
+ */
+abstract class QualityStorage implements Serializable {
+    private static final long serialVersionUID = 1L;
+    /**
+     * Estimated size of object header in bytes (compressed references)
+     */
+    static final int OBJECT_HEADER = 12;
+    /**
+     * Estimated size of array header in bytes (compressed references)
+     */
+    static final int ARRAY_HEADER = 16;
+
+    abstract byte value(int position);
+
+    abstract int size();
+
+    /**
+     * Returns a new array with quality values.
+     */
+    byte[] toArray() {
+        byte[] result = new byte[size()];
+        for (int i = result.length - 1; i >= 0; --i)
+            result[i] = value(i);
+        return result;
+    }
+
+    QualityStorage getRange(int from, int to) {
+        if (from < 0 || to > size() || from > to)
+            throw new IndexOutOfBoundsException();
+        return compact(Arrays.copyOfRange(toArray(), from, to));
+    }
+
+    QualityStorage reverse() {
+        return compact(ArrayQualityStorage.reverse(toArray()));
+    }
+
+    byte minValue() {
+        byte min = Byte.MAX_VALUE, v;
+        for (int i = size() - 1; i >= 0; --i)
+            if ((v = value(i)) < min)
+                min = v;
+        return min;
+    }
+
+    /**
+     * Same as {@link Arrays#hashCode(byte[])} for the array of values.
+     */
+    int hash() {
+        int result = 1;
+        for (int i = 0, size = size(); i < size; ++i)
+            result = 31 * result + value(i);
+        return result;
+    }
+
+    boolean contentEquals(QualityStorage other) {
+        int size = size();
+        if (size != other.size())
+            return false;
+        for (int i = 0; i < size; ++i)
+            if (value(i) != other.value(i))
+                return false;
+        return true;
+    }
+
+    /**
+     * Selects the smallest storage that holds exactly the same values. Array is used as is (without copying) by array
+     * storage. Sizes of storages are compared including object and array headers, so plain array is kept for short
+     * lines (e.g. CDR3s) unless all values are equal.
+     *
+     * @param data quality values
+     * @return storage
+     */
+    static QualityStorage compact(byte[] data) {
+        if (data.length == 0)
+            return new ArrayQualityStorage(data);
+
+        //Counting runs and distinct values (up to 5)
+        byte[] levels = new byte[BinnedQualityStorage.MAX_LEVELS + 1];
+        int levelsCount = 0, runs = 1;
+        for (int i = 0; i < data.length; ++i) {
+            if (i > 0 && data[i] != data[i - 1])
+                ++runs;
+            if (levelsCount <= BinnedQualityStorage.MAX_LEVELS && indexOf(levels, levelsCount, data[i]) < 0)
+                levels[levelsCount++] = data[i];
+        }
+
+        if (runs == 1)
+            return ConstantQualityStorage.create(data[0], data.length);
+
+        //Plain array is referenced directly by quality object, so there is no storage object
+        int arraySize = arrayBytes(data.length),
+                rleSize = RunLengthQualityStorage.bytesFor(runs),
+                binnedSize = levelsCount <= BinnedQualityStorage.MAX_LEVELS ?
+                        BinnedQualityStorage.bytesFor(data.length, levelsCount) : Integer.MAX_VALUE;
+
+        if (rleSize < arraySize && rleSize <= binnedSize)
+            return new RunLengthQualityStorage(data, runs);
+        if (binnedSize < arraySize)
+            return new BinnedQualityStorage(data, Arrays.copyOf(levels, levelsCount));
+        return new ArrayQualityStorage(data);
+    }
+
+    /**
+     * Returns estimated heap size of object with given size of fields.
+     */
+    static int objectBytes(int fieldsBytes) {
+        return align(OBJECT_HEADER + fieldsBytes);
+    }
+
+    /**
+     * Returns estimated heap size of array with given size of elements.
+     */
+    static int arrayBytes(int elementsBytes) {
+        return align(ARRAY_HEADER + elementsBytes);
+    }
+
+    private static int align(int bytes) {
+        return (bytes + 7) & ~7;
+    }
+
+    static int indexOf(byte[] levels, int count, byte value) {
+        for (int i = 0; i < count; ++i)
+            if (levels[i] == value)
+                return i;
+        return -1;
+    }
+}
@@ -0,0 +1,84 @@
+/*
+ * MiTCR <http://milaboratory.com>
+ *
+ * Copyright (c) 2010-2013:
+ *     Bolotin Dmitriy     <bolotin.dmitriy@gmail.com>
+ *     Chudakov Dmitriy    <chudakovdm@mail.ru>
+ *
+ * MiTCR is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License as published by the Free
+ * Software Foundation, either version 3 of the License, or (at your option)
+ * any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU General Public License for
+ * more details.
+ *
+ * You should have received a copy of the GNU General Public License along
+ * with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.milaboratory.core.sequence.quality;
+
+import java.util.Arrays;
+
+/**
+ * Run-length encoded storage. Efficient for quality lines with long stretches of equal values (e.g. binned qualities
+ * of high quality reads).
+ *
+ * @author Bolotin Dmitriy (bolotin.dmitriy@gmail.com)
+ */
+final class RunLengthQualityStorage extends QualityStorage {
+    private static final long serialVersionUID = 1L;
+    //Exclusive ends of runs
+    private final int[] ends;
+    private final byte[] values;
+
+    RunLengthQualityStorage(byte[] data, int runs) {
+        this.ends = new int[runs];
+        this.values = new byte[runs];
+        int run = 0;
+        for (int i = 1; i < data.length; ++i)
+            if (data[i] != data[i - 1]) {
+                ends[run] = i;
+                values[run++] = data[i - 1];
+            }
+        ends[run] = data.length;
+        values[run] = data[data.length - 1];
+    }
+
+    static int bytesFor(int runs) {
+        //Two references
+        return objectBytes(8) + arrayBytes(4 * runs) + arrayBytes(runs);
+    }
+
+    @Override
+    byte value(int position) {
+        if (position < 0 || position >= size())
+            throw new IndexOutOfBoundsException();
+        int run = Arrays.binarySearch(ends, position);
+        return values[run < 0 ? -run - 1 : run + 1];
+    }
+
+    @Override
+    int size() {
+        return ends[ends.length - 1];
+    }
+
+    @Override
+    byte[] toArray() {
+        byte[] result = new byte[size()];
+        for (int run = 0, from = 0; run < ends.length; from = ends[run++])
+            Arrays.fill(result, from, ends[run], values[run]);
+        return result;
+    }
+
+    @Override
+    byte minValue() {
+        byte min = Byte.MAX_VALUE;
+        for (byte b : values)
+            if (b < min)
+                min = b;
+        return min;
+    }
+}
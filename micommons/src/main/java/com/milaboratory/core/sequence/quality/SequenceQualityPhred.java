@@ -28,12 +28,19 @@ import java.util.Arrays;
  *
  * <p>Phred sequence quality scores.</p>
  *
+ * <p>Values are stored in a plain byte array by default, so the common case of value access is a plain array load.
+ * {@link #compact()} selects a more compact backing storage (constant, 2-bit binned or run-length encoded) if it holds
+ * the same values in less memory.</p>
+ *
  * @author Bolotin Dmitriy (bolotin.dmitriy@gmail.com)
  * @author Shugay Mikhail (mikhail.shugay@gmail.com)
  */
 public final class SequenceQualityPhred implements Serializable {
     private static final long serialVersionUID = 1L;
+    //Plain values, null if values are held by compact storage
     private final byte[] data;
+    //Compact storage, null for plain values
+    private final QualityStorage storage;
 
     /**
      * Creates a phred sequence quality from a Sanger formatted quality string (33 based).
@@ -50,9 +57,11 @@ public final class SequenceQualityPhred implements Serializable {
      * @param string
      */
     public SequenceQualityPhred(String string, int offset) {
-        this.data = string.getBytes();
-        for (int i = this.data.length - 1; i >= 0; --i)
-            this.data[i] -= offset;
+        byte[] data = string.getBytes();
+        for (int i = data.length - 1; i >= 0; --i)
+            data[i] -= offset;
+        this.data = data;
+        this.storage = null;
     }
 
     /**
@@ -65,7 +74,7 @@ public final class SequenceQualityPhred implements Serializable {
     }
 
     public byte[] getInnerData() {
-        return data.clone();
+        return data != null ? data.clone() : storage.toArray();
     }
 
     /**
@@ -75,8 +84,8 @@ public final class SequenceQualityPhred implements Serializable {
      * @param length size of quality string
      */
     public SequenceQualityPhred(byte value, int length) {
-        data = new byte[length];
-        Arrays.fill(data, value);
+        this.data = null;
+        this.storage = ConstantQualityStorage.create(value, length);
     }
 
     /**
@@ -86,6 +95,7 @@ public final class SequenceQualityPhred implements Serializable {
      */
     public SequenceQualityPhred(byte[] data) {
         this.data = data.clone();
+        this.storage = null;
     }
 
     /**
@@ -93,6 +103,17 @@ public final class SequenceQualityPhred implements Serializable {
      */
     private SequenceQualityPhred(byte[] data, boolean unsafe) {
         this.data = data;
+        this.storage = null;
+    }
+
+    private SequenceQualityPhred(QualityStorage storage) {
+        if (storage instanceof ArrayQualityStorage) {
+            this.data = ((ArrayQualityStorage) storage).data;
+            this.storage = null;
+        } else {
+            this.data = null;
+            this.storage = storage;
+        }
     }
 
     /**
@@ -102,7 +123,7 @@ public final class SequenceQualityPhred implements Serializable {
      * @return log10 of probability of error
      */
     public float log10ProbabilityOfErrorAt(int coord) {
-        return -((float) data[coord]) / 10;
+        return -((float) value(coord)) / 10;
     }
 
     /**
@@ -112,7 +133,7 @@ public final class SequenceQualityPhred implements Serializable {
      * @return probability of error
      */
     public float probabilityOfErrorAt(int coord) {
-        return (float) Math.pow(10.0, -(data[coord]) / 10);
+        return (float) Math.pow(10.0, -(value(coord)) / 10);
     }
 
     /**
@@ -122,7 +143,7 @@ public final class SequenceQualityPhred implements Serializable {
      * @return raw sequence quality value
      */
     public byte value(int coord) {
-        return data[coord];
+        return data != null ? data[coord] : storage.value(coord);
     }
 
     /**
@@ -131,6 +152,8 @@ public final class SequenceQualityPhred implements Serializable {
      * @return worst sequence quality value
      */
     public byte minValue() {
+        if (data == null)
+            return storage.minValue();
         byte min = Byte.MAX_VALUE;
         for (byte b : data)
             if (b < min)
@@ -144,22 +167,9 @@ public final class SequenceQualityPhred implements Serializable {
      * @return quality values in reverse order
      */
     public SequenceQualityPhred reverse() {
-        return new SequenceQualityPhred(reverseTransformQualityStorage(data));
-    }
-
-    /**
-     * Helper method.
-     */
-    private static byte[] reverseTransformQualityStorage(byte[] quality) {
-        byte[] newData = new byte[quality.length];
-        int reverseCoord = quality.length - 1;
-        for (int coord = 0; coord < quality.length; ++coord, --reverseCoord)
-            //reverseCoord = quality.length - 1 - coord;
-            newData[coord] = quality[reverseCoord];
-
-        assert reverseCoord == -1;
-
-        return newData;
+        if (data != null)
+            return new SequenceQualityPhred(ArrayQualityStorage.reverse(data), true);
+        return new SequenceQualityPhred(storage.reverse());
     }
 
     /**
@@ -170,7 +180,9 @@ public final class SequenceQualityPhred implements Serializable {
      * @return substring of current quality scores line
      */
     public SequenceQualityPhred getRange(int from, int to) {
-        return new SequenceQualityPhred(Arrays.copyOfRange(data, from, to), true);
+        if (data != null)
+            return new SequenceQualityPhred(Arrays.copyOfRange(data, from, to), true);
+        return new SequenceQualityPhred(storage.getRange(from, to));
     }
 
     /**
@@ -179,7 +191,49 @@ public final class SequenceQualityPhred implements Serializable {
      * @return size of quality array
      */
     public int size() {
-        return data.length;
+        return data != null ? data.length : storage.size();
+    }
+
+    /**
+     * Returns quality object with the same values and the most compact backing storage for them: constant value,
+     * 2-bit codes for lines with at most four distinct values (binned qualities), run-length encoding or plain array.
+     *
+     * <p>Access to values of compact objects is slower, so this method is intended for objects retained for a long
+     * time or serialized in large amounts (e.g. CDR3 qualities).</p>
+     *
+     * @return quality object with the same values
+     */
+    public SequenceQualityPhred compact() {
+        if (data == null)
+            return this;
+        QualityStorage compact = QualityStorage.compact(data);
+        //Plain array is already the most compact storage
+        return compact instanceof ArrayQualityStorage ? this : new SequenceQualityPhred(compact);
+    }
+
+    /**
+     * Returns quality object with values rounded down to the nearest of the given levels (binning, as performed by
+     * modern Illumina instruments) and stored with 2-bit per value. Values less than the lowest level are set to the
+     * lowest level.
+     *
+     * @param levels up to four quality levels
+     * @return binned quality
+     */
+    public SequenceQualityPhred bin(byte... levels) {
+        if (levels.length == 0 || levels.length > BinnedQualityStorage.MAX_LEVELS)
+            throw new IllegalArgumentException("From 1 to " + BinnedQualityStorage.MAX_LEVELS + " levels expected.");
+        levels = levels.clone();
+        Arrays.sort(levels);
+        byte[] values = getInnerData();
+        byte v;
+        for (int i = 0; i < values.length; ++i) {
+            v = levels[0];
+            for (int j = 1; j < levels.length; ++j)
+                if (levels[j] <= values[i])
+                    v = levels[j];
+            values[i] = v;
+        }
+        return new SequenceQualityPhred(QualityStorage.compact(values));
     }
 
     @Override
@@ -194,9 +248,10 @@ public final class SequenceQualityPhred implements Serializable {
 
         SequenceQualityPhred that = (SequenceQualityPhred) o;
 
-        if (!Arrays.equals(data, that.data)) return false;
+        if (data != null && that.data != null)
+            return Arrays.equals(data, that.data);
 
-        return true;
+        return storage().contentEquals(that.storage());
     }
 
     /**
@@ -209,9 +264,9 @@ public final class SequenceQualityPhred implements Serializable {
         if (offset < 0 || offset > 70)
             throw new IllegalArgumentException();
 
-        byte[] copy = new byte[data.length];
+        byte[] copy = getInnerData();
         for (int i = copy.length - 1; i >= 0; --i)
-            copy[i] += data[i] + offset;
+            copy[i] += offset;
         return copy;
     }
 
@@ -227,7 +282,14 @@ public final class SequenceQualityPhred implements Serializable {
 
     @Override
     public int hashCode() {
-        return Arrays.hashCode(data) * 31 + 17;
+        return (data != null ? Arrays.hashCode(data) : storage.hash()) * 31 + 17;
+    }
+
+    /**
+     * Returns storage of values (plain values are wrapped, used only for operations outside of the hot path).
+     */
+    private QualityStorage storage() {
+        return data != null ? new ArrayQualityStorage(data) : storage;
     }
 
     /**
@@ -237,19 +299,57 @@ public final class SequenceQualityPhred implements Serializable {
      * @return values
      */
     public static byte[] getContent(SequenceQualityPhred quality) {
-        return quality.data.clone();
+        return quality.getInnerData();
+    }
+
+    /**
+     * Creates quality object from raw quality score values. Array is used as inner storage without copying, so it must
+     * not be modified afterwards.
+     *
+     * @param data raw quality score values
+     * @return quality
+     */
+    public static SequenceQualityPhred wrap(byte[] data) {
+        return new SequenceQualityPhred(data, true);
+    }
+
+    /**
+     * Creates quality object from raw quality score values with the most compact backing storage for them (see {@link
+     * #compact()}). If plain storage is selected, array is used without copying, so it must not be modified
+     * afterwards.
+     *
+     * @param data raw quality score values
+     * @return quality
+     */
+    public static SequenceQualityPhred wrapCompact(byte[] data) {
+        return new SequenceQualityPhred(QualityStorage.compact(data));
     }
 
     public static byte[] parse(QualityFormat format, byte[] data, boolean check) {
+        return parse(format, data, 0, data.length, check);
+    }
+
+    /**
+     * Decodes quality values from a region of raw byte buffer (e.g. a block of FASTQ file).
+     *
+     * @param format format of encoded quality values
+     * @param data   buffer with encoded quality values
+     * @param from   position of the first quality value in the buffer
+     * @param length number of quality values
+     * @param check  determines whether range check is required
+     * @return decoded quality values
+     * @throws WrongQualityStringException if encoded value are out of range and checking is enabled
+     */
+    public static byte[] parse(QualityFormat format, byte[] data, int from, int length, boolean check) {
         //For performance
-        final byte offset = format.getOffset(), from = format.getMinValue(), to = format.getMaxValue();
-        byte[] res = new byte[data.length];
-        for (int i = 0; i < data.length; i++) {
-            res[i] = (byte) (data[i] - offset);
+        final byte offset = format.getOffset(), min = format.getMinValue(), max = format.getMaxValue();
+        byte[] res = new byte[length];
+        for (int i = 0; i < length; i++) {
+            res[i] = (byte) (data[from + i] - offset);
 
             if (check &&
-                    (res[i] < from || res[i] > to))
-                throw new WrongQualityStringException(((char) (data[i])) + " [" + res[i] + "]");
+                    (res[i] < min || res[i] > max))
+                throw new WrongQualityStringException(((char) (data[from + i])) + " [" + res[i] + "]");
 
             //if (data[i] < qualityCodeFrom)
             //    if (!lowerUnSafe)
@@ -272,4 +372,20 @@ public final class SequenceQualityPhred implements Serializable {
     public static SequenceQualityPhred create(QualityFormat format, byte[] data, boolean check) {
         return new SequenceQualityPhred(parse(format, data, check), true);
     }
+
+    /**
+     * Factory method for the SequenceQualityPhred object, decoding values directly from a region of raw byte buffer.
+     * It performs all necessary range checks if required.
+     *
+     * @param format format of encoded quality values
+     * @param data   buffer with encoded quality values
+     * @param from   position of the first quality value in the buffer
+     * @param length number of quality values
+     * @param check  determines whether range check is required
+     * @return quality line object
+     * @throws WrongQualityStringException if encoded value are out of range and checking is enabled
+     */
+    public static SequenceQualityPhred create(QualityFormat format, byte[] data, int from, int length, boolean check) {
+        return new SequenceQualityPhred(parse(format, data, from, length, check), true);
+    }
 }
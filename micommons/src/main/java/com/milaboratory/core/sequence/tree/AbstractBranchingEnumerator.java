@@ -0,0 +1,236 @@
+/*
+ * MiTCR <http://milaboratory.com>
+ *
+ * Copyright (c) 2010-2013:
+ *     Bolotin Dmitriy     <bolotin.dmitriy@gmail.com>
+ *     Chudakov Dmitriy    <chudakovdm@mail.ru>
+ *
+ * MiTCR is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License as published by the Free
+ * Software Foundation, either version 3 of the License, or (at your option)
+ * any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU General Public License for
+ * more details.
+ *
+ * You should have received a copy of the GNU General Public License along
+ * with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.milaboratory.core.sequence.tree;
+
+import com.milaboratory.core.sequence.Sequence;
+
+/**
+ * Enumerates tree nodes reachable from a given node by introducing a single mutation (see {@link SequenceTreeMap} for
+ * mutation types) into the reference sequence at or after a given position. Common part of neighbourhood search in
+ * {@link SequenceTreeMap} and {@link FrozenSequenceTreeMap}, which differ only in the representation of tree nodes,
+ * so nodes are accessed by implementations through abstract methods.
+ *
+ * @author Bolotin Dmitriy (bolotin.dmitriy@gmail.com)
+ */
+abstract class AbstractBranchingEnumerator {
+    //reference sequence
+    final Sequence reference;
+    final MutationGuide guide;
+    final int codesCount;
+
+    //Setup parameters
+    byte mode;
+    boolean autoMove1;
+
+    //Runtime fields
+    byte code;
+    int position;
+
+    AbstractBranchingEnumerator(Sequence reference, MutationGuide guide, int codesCount) {
+        this.reference = reference;
+        this.guide = guide;
+        this.codesCount = codesCount;
+    }
+
+    /**
+     * Returns true if there is no current node (enumeration is finished).
+     */
+    abstract boolean isEmpty();
+
+    /**
+     * Removes current node.
+     */
+    abstract void clear();
+
+    /**
+     * Replaces current node with its child.
+     *
+     * @return false if there is no such child (current node is removed)
+     */
+    abstract boolean step(int code);
+
+    /**
+     * Sets found node to the child of current node.
+     *
+     * @return false if there is no such child
+     */
+    abstract boolean branch(int code);
+
+    /**
+     * Sets found node to the current node.
+     */
+    abstract void stay();
+
+    /**
+     * @param mode
+     * @param autoMove1 used to prevent mutually compensating mutations
+     */
+    public void setup(byte mode, boolean autoMove1) {
+        this.mode = mode;
+        this.autoMove1 = autoMove1;
+        clear();
+    }
+
+    /**
+     * Starts enumeration from current node (must be set by implementation before this call).
+     *
+     * @param position position in the reference sequence corresponding to current node
+     */
+    final void start(int position) {
+        this.position = position;
+        this.code = -1;
+
+        if (autoMove1)
+            move1();
+
+        checkIterationEnd();
+    }
+
+    /**
+     * Move the pointer one step forward. Move is made exactly matching the corresponding nucleotide in the
+     * reference sequence, so this method prevents branching in the current position.
+     */
+    private void move1() {
+        if (isEmpty())
+            return;
+
+        if (reference.size() >= position) {
+            clear();
+            return;
+        }
+
+        step(reference.codeAt(position++));
+    }
+
+    public void checkIterationEnd() {
+        switch (mode) {
+            case 0:
+                if (position >= reference.size())
+                    clear();
+                return;
+            case 1:
+                if (position >= reference.size() - 1 && code != -1)
+                    clear();
+                return;
+            case 2:
+                if (position >= reference.size() + 1)
+                    clear();
+                return;
+        }
+
+        throw new IllegalStateException();
+    }
+
+    /**
+     * Finds next node.
+     *
+     * @return true if next node was found (see {@link #branch(int)} and {@link #stay()}), false if there are no more
+     * nodes
+     */
+    final boolean advance() {
+        if (isEmpty())
+            return false;
+
+        switch (mode) {
+            case 0:
+                while (true) {
+                    ++code;
+
+                    if (code == codesCount) {
+                        if (position >= reference.size() - 1) {
+                            clear();
+                            return false;
+                        }
+
+                        code = 0;
+                        if (!step(reference.codeAt(position++)))
+                            return false;
+                    }
+
+                    if (code == reference.codeAt(position))
+                        continue;
+
+                    if (branch(code) &&
+                            (guide == null || guide.allowMutation(reference, position, (byte) 0, code)))
+                        return true;
+                }
+            case 1:
+                do {
+                    if (position >= reference.size() - 1 && code != -1 || // ?
+                            position >= reference.size()) { //Out of sequence range
+                        clear();
+                        return false;
+                    }
+
+                    if (code != -1)
+                        step(reference.codeAt(position++));
+                    else
+                        code = 0;
+
+                    if (guide == null || guide.allowMutation(reference, position, (byte) 1, (byte) -1)) {
+                        stay();
+                        return !isEmpty();
+                    }
+                } while (!isEmpty());
+                return false;
+            case 2:
+                while (true) {
+                    ++code;
+
+                    if (code == codesCount) {
+                        if (position >= reference.size()) {
+                            clear();
+                            return false;
+                        }
+
+                        code = 0;
+                        step(reference.codeAt(position++));
+                    }
+
+                    if (isEmpty())
+                        return false;
+
+                    if (branch(code) &&
+                            (guide == null || guide.allowMutation(reference, position, (byte) 2, code)))
+                        return true;
+                }
+        }
+
+        return false;
+    }
+
+    /**
+     * Returns the position of next nucleotide after branching.
+     *
+     * @return
+     */
+    public int getPosition() {
+        switch (mode) {
+            case 0:
+                return position + 1;
+            case 1:
+                return position + 1;
+            case 2:
+                return position;
+        }
+        return -1;
+    }
+}
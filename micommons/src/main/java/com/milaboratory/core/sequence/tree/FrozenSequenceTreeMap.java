@@ -0,0 +1,475 @@
+/*
+ * MiTCR <http://milaboratory.com>
+ *
+ * Copyright (c) 2010-2013:
+ *     Bolotin Dmitriy     <bolotin.dmitriy@gmail.com>
+ *     Chudakov Dmitriy    <chudakovdm@mail.ru>
+ *
+ * MiTCR is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License as published by the Free
+ * Software Foundation, either version 3 of the License, or (at your option)
+ * any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU General Public License for
+ * more details.
+ *
+ * You should have received a copy of the GNU General Public License along
+ * with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.milaboratory.core.sequence.tree;
+
+import com.milaboratory.core.sequence.Alphabet;
+import com.milaboratory.core.sequence.Sequence;
+
+import java.util.ArrayDeque;
+import java.util.Arrays;
+
+/**
+ * Read-only compact version of {@link SequenceTreeMap}.
+ *
+ * <p>Nodes are laid out in breadth-first order in a single flat {@code int[]} table of child indices ({@code
+ * alphabet.codesCount()} entries per node, -1 for absent child) with values in a parallel array. This requires several
+ * times less memory than object nodes of {@link SequenceTreeMap} and gives better memory locality for neighbourhood
+ * search in large dictionaries.</p>
+ *
+ * <p>Neighbourhood search semantics is exactly the same as in {@link SequenceTreeMap}. Instances are immutable and can
+ * be used from several threads concurrently (iterators are not thread-safe).</p>
+ *
+ * @param <S> - key type (must be a sequence)
+ * @param <O> - value type
+ * @author Bolotin Dmitriy (bolotin.dmitriy@gmail.com)
+ */
+public final class FrozenSequenceTreeMap<S extends Sequence, O> {
+    private static final int NULL = -1;
+
+    final Alphabet alphabet;
+    final int codesCount;
+    //links[node * codesCount + code] = child node index or -1
+    final int[] links;
+    final Object[] values;
+    final int size;
+
+    /**
+     * Creates frozen copy of the map. Root has index 0, nodes are numbered in breadth-first order.
+     *
+     * @param map map
+     */
+    public FrozenSequenceTreeMap(SequenceTreeMap<S, O> map) {
+        this.alphabet = map.alphabet;
+        this.codesCount = alphabet.codesCount();
+
+        //Counting nodes
+        int nodes = 0;
+        ArrayDeque<SequenceTreeMap.Node> queue = new ArrayDeque<>();
+        queue.add(map.root);
+        SequenceTreeMap.Node node;
+        while ((node = queue.poll()) != null) {
+            ++nodes;
+            for (SequenceTreeMap.Node child : node.links)
+                if (child != null)
+                    queue.add(child);
+        }
+
+        this.links = new int[nodes * codesCount];
+        this.values = new Object[nodes];
+        Arrays.fill(links, NULL);
+
+        //Breadth-first numbering: index of a node = order of its polling from the queue
+        int index = 0, next = 1, size = 0;
+        queue.add(map.root);
+        while ((node = queue.poll()) != null) {
+            if ((values[index] = node.object) != null)
+                ++size;
+            for (int code = 0; code < codesCount; ++code)
+                if (node.links[code] != null) {
+                    links[index * codesCount + code] = next++;
+                    queue.add(node.links[code]);
+                }
+            ++index;
+        }
+        assert index == nodes && next == nodes;
+        this.size = size;
+    }
+
+    /**
+     * Returns child node index or -1 if there is no such child.
+     */
+    int child(int node, int code) {
+        return links[node * codesCount + code];
+    }
+
+    public Alphabet getAlphabet() {
+        return alphabet;
+    }
+
+    /**
+     * Returns number of values in this map.
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Returns number of tree nodes.
+     */
+    public int nodesCount() {
+        return values.length;
+    }
+
+    @SuppressWarnings("unchecked")
+    public O get(S sequence) {
+        final int size = sequence.size();
+        int node = 0;
+        for (int i = 0; i < size; ++i)
+            if ((node = child(node, sequence.codeAt(i))) == NULL)
+                return null;
+        return (O) values[node];
+    }
+
+    public Iterable<O> values() {
+        return new Iterable<O>() {
+            @Override
+            public java.util.Iterator<O> iterator() {
+                return new java.util.Iterator<O>() {
+                    int index = -1;
+
+                    {
+                        moveNext();
+                    }
+
+                    private void moveNext() {
+                        while (++index < values.length && values[index] == null) ;
+                    }
+
+                    @Override
+                    public boolean hasNext() {
+                        return index < values.length;
+                    }
+
+                    @Override
+                    @SuppressWarnings("unchecked")
+                    public O next() {
+                        O value = (O) values[index];
+                        moveNext();
+                        return value;
+                    }
+
+                    @Override
+                    public void remove() {
+                        throw new UnsupportedOperationException();
+                    }
+                };
+            }
+        };
+    }
+
+    public NeighborhoodIterator<O> getNeighborhoodIterator(Sequence reference, int mismatches, int deletions,
+                                                           int insertions, int totalErrors) {
+        return getNeighborhoodIterator(reference, SequenceTreeMap.UniformPenaltyValue * totalErrors,
+                SequenceTreeMap.UniformPenalty, new int[]{mismatches, deletions, insertions}, null);
+    }
+
+    public Iterable<O> getNeighborhood(final Sequence reference, final int mismatches, final int deletions,
+                                       final int insertions, final int totalErrors, final MutationGuide guide) {
+        return new Iterable<O>() {
+            @Override
+            public java.util.Iterator<O> iterator() {
+                final NeighborhoodIterator<O> iterator = getNeighborhoodIterator(reference, mismatches, deletions,
+                        insertions, totalErrors, guide);
+                return new java.util.Iterator<O>() {
+                    O next;
+
+                    @Override
+                    public boolean hasNext() {
+                        return (next = iterator.next()) != null;
+                    }
+
+                    @Override
+                    public O next() {
+                        return next;
+                    }
+
+                    @Override
+                    public void remove() {
+                        throw new UnsupportedOperationException();
+                    }
+                };
+            }
+        };
+    }
+
+    public NeighborhoodIterator<O> getNeighborhoodIterator(Sequence reference, int mismatches, int deletions,
+                                                           int insertions, int totalErrors, MutationGuide guide) {
+        return getNeighborhoodIterator(reference, SequenceTreeMap.UniformPenaltyValue * totalErrors,
+                SequenceTreeMap.UniformPenalty, new int[]{mismatches, deletions, insertions}, guide);
+    }
+
+    public NeighborhoodIterator<O> getNeighborhoodIterator(Sequence reference, int mismatches, int deletions,
+                                                           int insertions) {
+        double maxPenalty = .1;
+        maxPenalty += mismatches * SequenceTreeMap.DefaultPenalty[0];
+        maxPenalty += deletions * SequenceTreeMap.DefaultPenalty[1];
+        maxPenalty += insertions * SequenceTreeMap.DefaultPenalty[2];
+
+        return getNeighborhoodIterator(reference, maxPenalty, SequenceTreeMap.DefaultPenalty,
+                new int[]{mismatches, deletions, insertions}, null);
+    }
+
+    public NeighborhoodIterator<O> getNeighborhoodIterator(Sequence reference, double maxPenalty,
+                                                           double[] penalties, int[] maxErrors, MutationGuide guide) {
+        if (penalties.length != 3)
+            throw new IllegalArgumentException();
+
+        return new NeighborhoodIterator<>(this, reference, penalties, maxErrors, guide, maxPenalty);
+    }
+
+    /**
+     * Same as {@link SequenceTreeMap.NeighborhoodIterator}, but nodes are represented by their indices.
+     */
+    public final static class NeighborhoodIterator<O> {
+        //Map
+        final FrozenSequenceTreeMap<?, O> map;
+
+        //Reference sequence
+        final Sequence reference;
+
+        //Penalty & other restrictions
+        final double[] penalties;
+        final byte[][] branchingSequences;
+        final MutationGuide guide;
+        double maxPenalty;
+
+        //Runtime data
+        int branchingSequenceIndex = 0, lastEnumerator;
+        BranchingEnumerator[] branchingEnumerators = new BranchingEnumerator[1];
+
+        NeighborhoodIterator(FrozenSequenceTreeMap<?, O> map, Sequence reference, double[] penalties,
+                             int[] maxErrors, MutationGuide guide, double maxPenalty) {
+            this.map = map;
+            this.penalties = penalties.clone();
+            this.guide = guide;
+            this.maxPenalty = maxPenalty;
+            this.reference = reference;
+            this.branchingSequences = PenaltyUtils.getDifferencesCombination(maxPenalty, penalties, maxErrors);
+            this.branchingEnumerators[0] = new BranchingEnumerator(map, reference, guide);
+
+            setupBranchingEnumerators();
+        }
+
+        /**
+         * Ensures capacity for storing BranchingEnumerators.
+         *
+         * @param newSize desired size
+         */
+        private void ensureCapacity(int newSize) {
+            int oldSize;
+            if ((oldSize = branchingEnumerators.length) < newSize) {
+                branchingEnumerators = Arrays.copyOfRange(branchingEnumerators, 0, newSize);
+                for (int i = oldSize; i < newSize; ++i)
+                    branchingEnumerators[i] = new BranchingEnumerator(map, reference, guide);
+            }
+        }
+
+        /**
+         * Setts up BranchingEnumerators for current branching sequence
+         */
+        private void setupBranchingEnumerators() {
+            //Getting required sequence of differences (mutations)
+            final byte[] bSequence = branchingSequences[branchingSequenceIndex];
+
+            //Ensure number of branching enumerators
+            ensureCapacity(bSequence.length);
+
+            //Setting up initial branching enumerators
+            byte previous = -1, current;
+            for (int i = 0; i < bSequence.length; ++i) {
+                current = bSequence[i];
+
+                branchingEnumerators[i].setup(current,
+                        (previous == 1 && current == 2) || // prevents insertion right after deletion
+                                (previous == 2 && current == 1) || // prevents deletion right after insertion
+                                (previous == 2 && current == 0)); // prevents mismatch right after insertion
+
+                previous = bSequence[i];
+            }
+
+            branchingEnumerators[0].reset(0, 0);
+
+            lastEnumerator = bSequence.length - 1;
+        }
+
+        @SuppressWarnings("unchecked")
+        public O next() {
+            int n;
+            if ((n = nextNode()) == NULL)
+                return null;
+
+            return (O) map.values[n];
+        }
+
+        /**
+         * Returns index of the next found node or -1 if there are no more nodes.
+         */
+        public int nextNode() {
+            if (branchingSequenceIndex == branchingSequences.length)
+                return NULL;
+
+            int n;
+
+            while (true) {
+
+                if (lastEnumerator == -1) {
+                    --lastEnumerator;
+                    if ((n = traverseToTheEnd(0, 0)) != NULL && map.values[n] != null)
+                        return n;
+                }
+
+                int i = lastEnumerator;
+
+                INNER:
+                while (i >= 0) {
+                    for (; i < lastEnumerator; ++i)
+                        if ((n = branchingEnumerators[i].next()) != NULL)
+                            branchingEnumerators[i + 1].reset(branchingEnumerators[i].getPosition(), n);
+                        else {
+                            --i;
+                            continue INNER;
+                        }
+
+                    assert i == lastEnumerator;
+
+                    if ((n = branchingEnumerators[i].next()) != NULL)
+                        if ((n = traverseToTheEnd(n, branchingEnumerators[i].getPosition())) != NULL &&
+                                map.values[n] != null)
+                            return n;
+                        else
+                            continue;
+                    else
+                        --i;
+                }
+
+                if ((++branchingSequenceIndex) >= branchingSequences.length ||
+                        getPenalty() > maxPenalty) {
+                    branchingSequenceIndex = branchingSequences.length;
+                    return NULL;
+                } else
+                    setupBranchingEnumerators();
+
+            }
+        }
+
+        private int traverseToTheEnd(int node, int position) {
+            while (position < reference.size())
+                if ((node = map.child(node, reference.codeAt(position++))) == NULL)
+                    break;
+
+            return node;
+        }
+
+        public byte[] getDiffModeSequence() {
+            return branchingSequences[branchingSequenceIndex];
+        }
+
+        public int getMutationsCount() {
+            return branchingSequences[branchingSequenceIndex].length;
+        }
+
+        public byte getType(int i) {
+            return branchingSequences[branchingSequenceIndex][i];
+        }
+
+        public int getPosition(int i) {
+            return branchingEnumerators[i].getPosition() - 1;
+        }
+
+        public byte getCode(int i) {
+            return branchingEnumerators[i].code;
+        }
+
+        public int getMismatches() {
+            return getIntroducedDifferences()[0];
+        }
+
+        public int getDeletions() {
+            return getIntroducedDifferences()[1];
+        }
+
+        public int getInsertions() {
+            return getIntroducedDifferences()[2];
+        }
+
+        public int[] getIntroducedDifferences() {
+            int[] ret = new int[3];
+
+            for (byte b : getDiffModeSequence())
+                ++ret[b];
+
+            return ret;
+        }
+
+        public double getPenalty() {
+            double p = 0.0;
+
+            //Getting required sequence of differences (mutations)
+            final byte[] bSequence = branchingSequences[branchingSequenceIndex];
+
+            //Calculating penalty
+            for (int i = bSequence.length - 1; i >= 0; --i)
+                p += penalties[bSequence[i]];
+
+            return p;
+        }
+    }
+
+    /**
+     * Same as {@link SequenceTreeMap.BranchingEnumerator}, but nodes are represented by their indices.
+     */
+    final static class BranchingEnumerator extends AbstractBranchingEnumerator {
+        //map
+        final FrozenSequenceTreeMap<?, ?> map;
+
+        //Runtime fields
+        int node, found;
+
+        BranchingEnumerator(FrozenSequenceTreeMap<?, ?> map, Sequence reference, MutationGuide guide) {
+            super(reference, guide, map.codesCount);
+            this.map = map;
+        }
+
+        public void reset(int position, int node) {
+            this.node = node;
+            start(position);
+        }
+
+        public int next() {
+            return advance() ? found : NULL;
+        }
+
+        @Override
+        boolean isEmpty() {
+            return node == NULL;
+        }
+
+        @Override
+        void clear() {
+            node = NULL;
+        }
+
+        @Override
+        boolean step(int code) {
+            return (node = map.child(node, code)) != NULL;
+        }
+
+        @Override
+        boolean branch(int code) {
+            return (found = map.child(node, code)) != NULL;
+        }
+
+        @Override
+        void stay() {
+            found = node;
+        }
+    }
+}
@@ -26,25 +26,33 @@ import com.milaboratory.core.sequence.nucleotide.NucleotideSequence;
 import com.milaboratory.core.sequence.quality.SequenceQualityPhred;
 import com.milaboratory.core.sequence.util.SequencesUtils;
 
-import java.util.HashMap;
-import java.util.Iterator;
-import java.util.Map;
-import java.util.Set;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.concurrent.atomic.AtomicLong;
 
+/**
+ * Set of sequence variants that aggregates PCR and sequencing error variants of the same sequence.
+ *
+ * <p>This class is thread-safe. Variants can only be aggregated with variants of the same length, so they are stored
+ * in per-length shards, each guarded by its own lock. Concurrent {@link #add(NucleotideSQPair)} invocations with
+ * sequences of different lengths don't block each other.</p>
+ *
+ * <p>For each variant the set keeps "max" quality values and number of aggregated sequences.</p>
+ */
 public class NucleotideSQPairSet implements Iterable<NucleotideSQPair> {
     //For debugging purpose
     private static final AtomicLong counter = new AtomicLong(0);
     private final long id = counter.getAndIncrement();
-    private NucleotideSQPairSetListener listener = null;
+    private volatile NucleotideSQPairSetListener listener = null;
 
-    //TODO add read-write locking here to make this class thread-safe
     private final Penalty penalty;
-    private int count = 0, filtered = 0, total = 0;
-    //TODO idea: store {byte[] qual, int counter} to count aggregated sequences
-    //TODO and not to remove good sequence if better sequenced PCR-error variant was passed to add() method
+    private final AtomicInteger count = new AtomicInteger(),
+            filtered = new AtomicInteger(), total = new AtomicInteger();
     private final float fFactor;
-    private final Map<NucleotideSequence, byte[]> map = new HashMap<>();
+    //Sequence length -> shard
+    private final ConcurrentMap<Integer, Shard> shards = new ConcurrentHashMap<>();
 
     /**
      * Main constructor.
@@ -66,20 +74,18 @@ public class NucleotideSQPairSet implements Iterable<NucleotideSQPair> {
         if (pair == null)
             throw new NullPointerException("Null sequence was added to the set.");
 
-        total++;
+        total.incrementAndGet();
 
         float penaltyThreshold = penalty.threshold(pair.size());
 
-        //For compatibility
-        //if (pair == null)
-        //    return;
-
         //Pre-filtering
         float t = fFactor * penaltyThreshold;
 
         for (int i = 0; i < pair.size() && t >= 0.0f; ++i)
             t -= penalty.penalty(40, pair.getQuality().value(i));
 
+        final NucleotideSQPairSetListener listener = this.listener;
+
         if (t >= 0.0f) {
             //Debug
             if (listener != null)
@@ -87,113 +93,156 @@ public class NucleotideSQPairSet implements Iterable<NucleotideSQPair> {
             return;
         }
 
-        filtered++;
+        filtered.incrementAndGet();
 
-        //~ type cast. Only NucleotideSequenceImpl has right implementation for hashCode and equals
-        //final NucleotideSequence sequence = NucleotideSequence.fromSequence(pair.getSequence());
         final NucleotideSequence sequence = pair.getSequence();
 
-        //~~~~~~~~~~~~~ Search for exact hit ~~~~~~~~~~~~~
-        byte[] qualities = map.get(sequence);
-
-        if (qualities != null) { //Exact hit found!
-            //Debug
-            if (listener != null)
-                listener.event(this, NucleotideSQPairSetEventType.ExactMatchFound, pair, new NucleotideSQPair(sequence, new SequenceQualityPhred(qualities)));
-
-            byte qual;
-            //Updating quality values from new sequence
-            //Setting "max" quality.
-            for (int i = 0; i < qualities.length; ++i)
-                if ((qual = pair.getQuality().value(i)) > qualities[i])
-                    qualities[i] = qual;
-            //This sequence is already in the map, so, return. (No count++ is needed)
-            return;
-        }
-
-        //~~~~~~~~~~~~~     Penalty search    ~~~~~~~~~~~~~
-        float p;
-        boolean found = false;
-
-        //Iterating through whole map
-        Iterator<Map.Entry<NucleotideSequence, byte[]>> it = map.entrySet().iterator(); //Iterator here is used to be abel to remove entries
-        Map.Entry<NucleotideSequence, byte[]> e;
-        while (it.hasNext()) {
-            //Getting entry
-            e = it.next();
-
-            //Extracting quality and sequence
-            final byte[] qualsInMap = e.getValue();
-            final NucleotideSequence sequenceInMap = e.getKey();
-
-            //Just in case...
-            if (qualsInMap.length != sequence.size())
-                continue;
-
-            //Calculating penalty
-            p = 0.0f;
-            for (int i = 0; i < qualsInMap.length; ++i)
-                if (sequence.codeAt(i) != sequenceInMap.codeAt(i)) {
-                    p += penalty.penalty(qualsInMap[i], pair.getQuality().value(i));
-                    if (p > penaltyThreshold) //Not a hit, break.
-                        break;
-                }
-
-            if (p <= penaltyThreshold) { //Hit found!
-                found = true;
-
-                //Who is the best?
-                int sum = 0;
-                for (int i = 0; i < pair.size(); ++i) {
-                    sum += pair.getQuality().value(i);
-                    sum -= e.getValue()[i];
-                }
+        final Shard shard = getShard(sequence.size());
+        synchronized (shard) {
+            //~~~~~~~~~~~~~ Search for exact hit ~~~~~~~~~~~~~
+            Variant variant = shard.map.get(sequence);
 
+            if (variant != null) { //Exact hit found!
                 //Debug
                 if (listener != null)
-                    listener.event(this,
-                            sum <= 0 ? NucleotideSQPairSetEventType.MatchFoundAndPairDropped :
-                                    NucleotideSQPairSetEventType.MatchFoundAndReplaced,
-                            pair, new NucleotideSQPair(sequenceInMap, new SequenceQualityPhred(qualsInMap)));
-
-                if (sum <= 0) // e is the best
-                    pair = null; //will not be putted to map
-                else // pair is the best
-                    it.remove(); //removing e, pair will be putted to the map
+                    listener.event(this, NucleotideSQPairSetEventType.ExactMatchFound, pair,
+                            new NucleotideSQPair(sequence, new SequenceQualityPhred(variant.quality)));
+
+                byte qual;
+                //Updating quality values from new sequence
+                //Setting "max" quality.
+                for (int i = 0; i < variant.quality.length; ++i)
+                    if ((qual = pair.getQuality().value(i)) > variant.quality[i])
+                        variant.quality[i] = qual;
+                ++variant.count;
+                //This sequence is already in the map, so, return. (No diversity count++ is needed)
+                return;
+            }
 
-                break;
+            //~~~~~~~~~~~~~     Penalty search    ~~~~~~~~~~~~~
+            float p;
+            boolean found = false;
+            int aggregated = 1;
+
+            //Iterating through whole shard (all sequences in the shard have the same length)
+            Iterator<Map.Entry<NucleotideSequence, Variant>> it = shard.map.entrySet().iterator(); //Iterator here is used to be abel to remove entries
+            Map.Entry<NucleotideSequence, Variant> e;
+            while (it.hasNext()) {
+                //Getting entry
+                e = it.next();
+
+                //Extracting quality and sequence
+                final byte[] qualsInMap = e.getValue().quality;
+                final NucleotideSequence sequenceInMap = e.getKey();
+
+                //Calculating penalty
+                p = 0.0f;
+                for (int i = 0; i < qualsInMap.length; ++i)
+                    if (sequence.codeAt(i) != sequenceInMap.codeAt(i)) {
+                        p += penalty.penalty(qualsInMap[i], pair.getQuality().value(i));
+                        if (p > penaltyThreshold) //Not a hit, break.
+                            break;
+                    }
+
+                if (p <= penaltyThreshold) { //Hit found!
+                    found = true;
+
+                    //Who is the best?
+                    int sum = 0;
+                    for (int i = 0; i < pair.size(); ++i) {
+                        sum += pair.getQuality().value(i);
+                        sum -= qualsInMap[i];
+                    }
+
+                    //Variant confirmed by several sequences is not replaced by a single better sequenced
+                    //(e.g. PCR-error) variant
+                    boolean replace = sum > 0 && e.getValue().count == 1;
+
+                    //Debug
+                    if (listener != null)
+                        listener.event(this,
+                                replace ? NucleotideSQPairSetEventType.MatchFoundAndReplaced :
+                                        NucleotideSQPairSetEventType.MatchFoundAndPairDropped,
+                                pair, new NucleotideSQPair(sequenceInMap, new SequenceQualityPhred(qualsInMap)));
+
+                    if (replace) { // pair is the best
+                        it.remove(); //removing e, pair will be putted to the map
+                        aggregated += e.getValue().count;
+                    } else { // e is the best
+                        pair = null; //will not be putted to map
+                        ++e.getValue().count;
+                    }
+
+                    break;
+                }
             }
-        }
 
-        //Adding this read if needed (hit was found, but removed due to lower quality OR no hits was found)
-        if (pair != null)
-            map.put(sequence, SequencesUtils.extractRawQualityValues(pair.getQuality()));
+            //Adding this read if needed (hit was found, but removed due to lower quality OR no hits was found)
+            if (pair != null)
+                shard.map.put(sequence, new Variant(SequencesUtils.extractRawQualityValues(pair.getQuality()), aggregated));
 
-        //Debug
-        if (listener != null && !found)
-            listener.event(this,
-                    NucleotideSQPairSetEventType.NewRecordCreated,
-                    pair, null);
+            //Debug
+            if (listener != null && !found)
+                listener.event(this,
+                        NucleotideSQPairSetEventType.NewRecordCreated,
+                        pair, null);
+
+            //If no hits was found add one to the diversity count
+            if (!found)
+                count.incrementAndGet();
+        }
+    }
 
-        //If no hits was found add one to the diversity count
-        if (!found)
-            count++;
+    private Shard getShard(int length) {
+        Shard shard = shards.get(length);
+        if (shard == null) {
+            Shard newShard = new Shard();
+            if ((shard = shards.putIfAbsent(length, newShard)) == null)
+                shard = newShard;
+        }
+        return shard;
     }
 
+    /**
+     * Returns a snapshot of variants stored in this set.
+     *
+     * @return variants
+     */
     public Set<NucleotideSequence> getVariants() {
-        return ((Set<NucleotideSequence>) ((Object) map.keySet()));
+        Set<NucleotideSequence> variants = new HashSet<>();
+        for (Shard shard : shards.values())
+            synchronized (shard) {
+                variants.addAll(shard.map.keySet());
+            }
+        return variants;
+    }
+
+    /**
+     * Returns number of sequences aggregated by the variant (exact and penalty hits).
+     *
+     * @param variant variant sequence
+     * @return number of aggregated sequences or 0 if there is no such variant in the set
+     */
+    public int getCount(NucleotideSequence variant) {
+        Shard shard = shards.get(variant.size());
+        if (shard == null)
+            return 0;
+        synchronized (shard) {
+            Variant v = shard.map.get(variant);
+            return v == null ? 0 : v.count;
+        }
     }
 
     public int getDiversityEstimate() {
-        return count;
+        return count.get();
     }
 
     public int getFiltered() {
-        return filtered;
+        return filtered.get();
     }
 
     public int getTotal() {
-        return total;
+        return total.get();
     }
 
     public Penalty getPenalty() {
@@ -204,9 +253,18 @@ public class NucleotideSQPairSet implements Iterable<NucleotideSQPair> {
         this.listener = listener;
     }
 
+    /**
+     * Iterates over a snapshot of variants stored in this set.
+     */
     @Override
     public Iterator<NucleotideSQPair> iterator() {
-        return new It(map.entrySet().iterator());
+        List<NucleotideSQPair> pairs = new ArrayList<>();
+        for (Shard shard : shards.values())
+            synchronized (shard) {
+                for (Map.Entry<NucleotideSequence, Variant> n : shard.map.entrySet())
+                    pairs.add(new NucleotideSQPair(n.getKey(), new SequenceQualityPhred(n.getValue().quality)));
+            }
+        return Collections.unmodifiableList(pairs).iterator();
     }
 
     /**
@@ -232,27 +290,23 @@ public class NucleotideSQPairSet implements Iterable<NucleotideSQPair> {
         return new NucleotideSQPairSet(LinearMinPenalty.INSTANCE_V2, 4.0f);
     }
 
-    private static class It implements Iterator<NucleotideSQPair> {
-        private final Iterator<Map.Entry<NucleotideSequence, byte[]>> innerIt;
-
-        private It(Iterator<Map.Entry<NucleotideSequence, byte[]>> innerIt) {
-            this.innerIt = innerIt;
-        }
-
-        @Override
-        public boolean hasNext() {
-            return innerIt.hasNext();
-        }
+    /**
+     * Sequences of the same length. Guarded by its own monitor.
+     */
+    private static final class Shard {
+        final Map<NucleotideSequence, Variant> map = new HashMap<>();
+    }
 
-        @Override
-        public NucleotideSQPair next() {
-            Map.Entry<NucleotideSequence, byte[]> n = innerIt.next();
-            return new NucleotideSQPair(n.getKey(), new SequenceQualityPhred(n.getValue()));
-        }
+    /**
+     * {qual, count} record of a variant.
+     */
+    private static final class Variant {
+        final byte[] quality;
+        int count;
 
-        @Override
-        public void remove() {
-            throw new UnsupportedOperationException();
+        Variant(byte[] quality, int count) {
+            this.quality = quality;
+            this.count = count;
         }
     }
 }
@@ -19,12 +19,12 @@ import java.util.Arrays;
  * @param <O> - value type
  */
 public class SequenceTreeMap<S extends Sequence, O> {
-    private static final double[] DefaultPenalty = {0.1, // Mismatch penalty
+    static final double[] DefaultPenalty = {0.1, // Mismatch penalty
             0.21, // Deletion penalty
             0.32}; // Insertion penalty
 
-    private static final double UniformPenaltyValue = 0.1;
-    private static final double[] UniformPenalty = {0.1, // Mismatch penalty
+    static final double UniformPenaltyValue = 0.1;
+    static final double[] UniformPenalty = {0.1, // Mismatch penalty
             0.1, // Deletion penalty
             0.1}; // Insertion penalty
 
@@ -67,6 +67,15 @@ public class SequenceTreeMap<S extends Sequence, O> {
         return node.object;
     }
 
+    /**
+     * Creates compact read-only copy of this map, see {@link FrozenSequenceTreeMap}.
+     *
+     * @return frozen copy of this map
+     */
+    public FrozenSequenceTreeMap<S, O> freeze() {
+        return new FrozenSequenceTreeMap<>(this);
+    }
+
     public Iterable<O> values() {
         return new Iterable<O>() {
             @Override
@@ -362,161 +371,46 @@ public class SequenceTreeMap<S extends Sequence, O> {
         }
     }
 
-    final static class BranchingEnumerator<O> {
-        //reference sequence
-        final Sequence reference;
-        final MutationGuide guide;
-
-        //Setup parameters
-        byte mode;
-        boolean autoMove1;
-
+    final static class BranchingEnumerator<O> extends AbstractBranchingEnumerator {
         //Runtime fields
-        byte code;
-        int position;
-        Node<O> node;
+        Node<O> node, found;
 
         BranchingEnumerator(Sequence reference, MutationGuide guide) {
-            this.reference = reference;
-            this.guide = guide;
-        }
-
-        /**
-         * @param mode
-         * @param autoMove1 used to prevent mutually compensating mutations
-         */
-        public void setup(byte mode, boolean autoMove1) {
-            this.mode = mode;
-            this.autoMove1 = autoMove1;
-            this.node = null;
+            super(reference, guide, reference.getAlphabet().codesCount());
         }
 
         public void reset(int position, Node<O> node) {
-            this.position = position;
             this.node = node;
-            this.code = -1;
-
-            if (autoMove1)
-                move1();
-
-            checkIterationEnd();
-        }
-
-        /**
-         * Move the pointer one step forward. Move is made exactly matching the corresponding nucleotide in the
-         * reference sequence, so this method prevents branching in the current position.
-         */
-        private void move1() {
-            if (node == null)
-                return;
-
-            if (reference.size() >= position) {
-                node = null;
-                return;
-            }
-
-            node = node.links[reference.codeAt(position++)];
-        }
-
-        public void checkIterationEnd() {
-            switch (mode) {
-                case 0:
-                    if (position >= reference.size())
-                        node = null;
-                    return;
-                case 1:
-                    if (position >= reference.size() - 1 && code != -1)
-                        node = null;
-                    return;
-                case 2:
-                    if (position >= reference.size() + 1)
-                        node = null;
-                    return;
-            }
-
-            throw new IllegalStateException();
+            start(position);
         }
 
         public Node<O> next() {
-            if (node == null)
-                return null;
-
-            switch (mode) {
-                case 0:
-                    while (true) {
-                        ++code;
-
-                        if (code == reference.getAlphabet().codesCount()) {
-                            if (position >= reference.size() - 1)
-                                return node = null;
-
-                            code = 0;
-                            node = node.links[reference.codeAt(position++)];
-
-                            if (node == null)
-                                return null;
-                        }
-
-                        if (code == reference.codeAt(position))
-                            continue;
+            return advance() ? found : null;
+        }
 
-                        if (node.links[code] != null &&
-                                (guide == null || guide.allowMutation(reference, position, (byte) 0, code)))
-                            return node.links[code];
-                    }
-                case 1:
-                    do {
-                        if (position >= reference.size() - 1 && code != -1 || // ?
-                                position >= reference.size()) //Out of sequence range
-                            return node = null;
-
-                        if (code != -1) {
-                            node = node.links[reference.codeAt(position++)];
-                        } else
-                            code = 0;
-
-                        if (guide == null || guide.allowMutation(reference, position, (byte) 1, (byte) -1))
-                            return node;
-                    } while (node != null);
-                case 2:
-                    while (true) {
-                        ++code;
-
-                        if (code == reference.getAlphabet().codesCount()) {
-                            if (position >= reference.size())
-                                return node = null;
-
-                            code = 0;
-                            node = node.links[reference.codeAt(position++)];
-                        }
+        @Override
+        boolean isEmpty() {
+            return node == null;
+        }
 
-                        if (node == null)
-                            return null;
+        @Override
+        void clear() {
+            node = null;
+        }
 
-                        if (node.links[code] != null &&
-                                (guide == null || guide.allowMutation(reference, position, (byte) 2, code)))
-                            return node.links[code];
-                    }
-            }
+        @Override
+        boolean step(int code) {
+            return (node = node.links[code]) != null;
+        }
 
-            return null;
+        @Override
+        boolean branch(int code) {
+            return (found = node.links[code]) != null;
         }
 
-        /**
-         * Returns the position of next nucleotide after branching.
-         *
-         * @return
-         */
-        public int getPosition() {
-            switch (mode) {
-                case 0:
-                    return position + 1;
-                case 1:
-                    return position + 1;
-                case 2:
-                    return position;
-            }
-            return -1;
+        @Override
+        void stay() {
+            found = node;
         }
     }
 
@@ -27,14 +27,21 @@ import com.milaboratory.core.sequence.SequenceBuilderFactory;
 import com.milaboratory.util.Factory;
 
 import java.util.Map;
-import java.util.concurrent.atomic.AtomicReference;
 import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.atomic.AtomicReferenceFieldUpdater;
 
 /**
  * Semi-thread-safe, fast map with Sequence as key.
  *
  * <p>Implementation based on lexical tree.</p>
  *
+ * <p>Children of tree nodes and values are published with CAS operations, so {@link #get(Sequence)}, {@link
+ * #getOrCreate(Sequence, com.milaboratory.util.Factory)}, {@link #put(Sequence, Object)}, {@link
+ * #putIfAbsent(Sequence, Object)} and {@link #removeDirty(Sequence)} are lock-free. Branches are never detached by
+ * these methods, so iteration is safe concurrently with them (iterator reflects some state of the map at or after its
+ * creation). Only {@link #getOrCreateSync(Sequence, com.milaboratory.util.Factory)} and {@link
+ * #removeDirtySync(Sequence)} take node monitors.</p>
+ *
  * @author Bolotin Dmitriy (bolotin.dmitriy@gmail.com)
  */
 public class TSSequenceTreeMap<S extends Sequence, T> implements Iterable<T> {
@@ -133,6 +140,24 @@ public class TSSequenceTreeMap<S extends Sequence, T> implements Iterable<T> {
         return node.setValue(value);
     }
 
+    /**
+     * Associates a value with specified key if there is no value associated with it. Lock-free.
+     *
+     * @param key   key
+     * @param value value
+     * @return value associated with the key before invocation (and left unchanged) or null if the value was associated
+     */
+    public T putIfAbsent(S key, T value) {
+        if (key.getAlphabet() != alphabet)
+            throw new IllegalArgumentException("Sequence with different alphabet.");
+        if (value == null)
+            throw new NullPointerException();
+        Node<T> node = root;
+        for (int i = 0; i < key.size(); ++i)
+            node = node.getOrCreateNode(key.codeAt(i));
+        return node.setValueIfAbsent(value);
+    }
+
     /**
      * Removes a value with specified key. <b>Use this method if removing elements synchronously.</b><br/><br/>
      * <b>Important:</b> this method is thread-<b>un</b>safe. Must be invoked invoked synchronously.
@@ -209,7 +234,7 @@ public class TSSequenceTreeMap<S extends Sequence, T> implements Iterable<T> {
      */
     public int removeEmptyBranches() {
         final int codesCount = alphabet.codesCount(); //For performance
-        Node<T> node = root; //Current node
+        Node<T> node = root, next; //Current node
         int i = 0; //Pointer to current branch of the node
         int removed = 0;
         while (node != null) {
@@ -229,11 +254,11 @@ public class TSSequenceTreeMap<S extends Sequence, T> implements Iterable<T> {
                 }
                 continue;
             }
-            if (node.next.get(i) == null)
+            if ((next = node.next.get(i)) == null)
                 ++i; //Next branch
             else {
                 //Step forward
-                node = node.next.get(i);
+                node = next;
                 i = 0;
             }
         }
@@ -329,6 +354,7 @@ public class TSSequenceTreeMap<S extends Sequence, T> implements Iterable<T> {
         public final Map.Entry<S, T> _next() {
             byte i = (byte) (node.code + 1);
             node = node.parent;
+            Node<T> next;
             while (node != null) {
                 if (i == codesCount)
                     if (node.getValue() != null)
@@ -338,10 +364,11 @@ public class TSSequenceTreeMap<S extends Sequence, T> implements Iterable<T> {
                         node = node.parent;
                         continue;
                     }
-                if (node.next.get(i) == null)
+                //Single volatile read, child could be published concurrently
+                if ((next = node.next.get(i)) == null)
                     ++i;
                 else {
-                    node = node.next.get(i);
+                    node = next;
                     i = 0;
                 }
             }
@@ -427,10 +454,13 @@ public class TSSequenceTreeMap<S extends Sequence, T> implements Iterable<T> {
     }
 
     private final static class Node<T> {
+        //Field updater instead of AtomicReference saves an object per node
+        private static final AtomicReferenceFieldUpdater<Node, Object> VALUE_UPDATER =
+                AtomicReferenceFieldUpdater.newUpdater(Node.class, Object.class, "value");
         public final byte code;
         public final Node<T> parent;
         public final AtomicReferenceArray<Node<T>> next;
-        private final AtomicReference<T> value = new AtomicReference<>(null);
+        private volatile T value;
 
         public Node(byte nucleotide, Node<T> parent, int codesCount) {
             this.code = nucleotide;
@@ -439,7 +469,7 @@ public class TSSequenceTreeMap<S extends Sequence, T> implements Iterable<T> {
         }
 
         public boolean isFree() {
-            if (value.get() != null)
+            if (value != null)
                 return false;
             for (int i = 0; i < next.length(); ++i)
                 if (next.get(i) != null)
@@ -448,11 +478,21 @@ public class TSSequenceTreeMap<S extends Sequence, T> implements Iterable<T> {
         }
 
         public T getValue() {
-            return value.get();
+            return value;
         }
 
+        @SuppressWarnings("unchecked")
         public T setValue(T value) {
-            return this.value.getAndSet(value);
+            return (T) VALUE_UPDATER.getAndSet(this, value);
+        }
+
+        public T setValueIfAbsent(T value) {
+            T v;
+            do {
+                if ((v = this.value) != null)
+                    return v;
+            } while (!VALUE_UPDATER.compareAndSet(this, null, value));
+            return null;
         }
 
         /**
@@ -488,13 +528,13 @@ public class TSSequenceTreeMap<S extends Sequence, T> implements Iterable<T> {
 
         public T getOrCreateValue(Factory<T> factory) {
             T v;
-            if ((v = value.get()) == null)
+            if ((v = value) == null)
                 do {
                     T _v;
-                    if (value.compareAndSet(null, _v = factory.create())) //Some created by factory objects will be left to GC.
+                    if (VALUE_UPDATER.compareAndSet(this, null, _v = factory.create())) //Some created by factory objects will be left to GC.
                         v = _v;
                     else
-                        v = value.get(); //if object was removed v == null
+                        v = value; //if object was removed v == null
                 } while (v == null); //race with remove
             return v; //v never == null, but value.get() could be null, if it was removed between previous and current lines
         }
@@ -502,10 +542,10 @@ public class TSSequenceTreeMap<S extends Sequence, T> implements Iterable<T> {
         public T getOrCreateValueSync(Factory<T> factory) {
             T v;
             //Double check
-            if ((v = value.get()) == null)
+            if ((v = value) == null)
                 synchronized (this) {
-                    if ((v = value.get()) == null)
-                        value.set(v = factory.create());
+                    if ((v = value) == null)
+                        value = v = factory.create();
                 }
             //v never == null, but value.get() could be null, if it was removed between previous and current lines
             //synchronization only for factory.createInputStream()
@@ -25,46 +25,96 @@ import com.milaboratory.core.sequence.aminoacid.AminoAcidSequence;
 import com.milaboratory.core.sequence.aminoacid.AminoAcidSequenceImpl;
 import com.milaboratory.core.sequence.nucleotide.NucleotideAlphabet;
 import com.milaboratory.core.sequence.nucleotide.NucleotideSequence;
+import com.milaboratory.util.Bit2Array;
 
+/**
+ * Translation of nucleotide sequences.
+ *
+ * <p>Batch methods ({@link #translate(NucleotideSequence, int, byte[], int, int)} and methods based on it) work
+ * directly on packed {@link Bit2Array} data: nucleotides are read from the packed bytes six bits (one codon) at a time
+ * and translated with a single lookup in a 64-entry codon table.</p>
+ */
 public final class Translator {
-    private static byte[] code = null;
+    /**
+     * Code of stop codon in {@link AminoAcidAlphabet}.
+     */
+    public static final byte STOP_CODE = 0;
+    //Indexed by (b0 << 4) | (b1 << 2) | b2
+    private static final byte[] code = new byte[64];
+    //Indexed by (b2 << 4) | (b1 << 2) | b0 (order of nucleotides in packed data)
+    private static final byte[] packedCode = new byte[64];
 
-    private static synchronized void init() {
-        if (code != null)
-            return;
+    static {
         char[] Base1 = "ttttttttttttttttccccccccccccccccaaaaaaaaaaaaaaaagggggggggggggggg".toCharArray();
         char[] Base2 = "ttttccccaaaaggggttttccccaaaaggggttttccccaaaaggggttttccccaaaagggg".toCharArray();
         char[] Base3 = "tcagtcagtcagtcagtcagtcagtcagtcagtcagtcagtcagtcagtcagtcagtcagtcag".toCharArray();
         char[] AA = "FFLLSSSSYY**CC*WLLLLPPPPHHQQRRRRIIIMTTTTNNKKSSRRVVVVAAAADDEEGGGG".toCharArray();
-        code = new byte[Base1.length];
-        int triplet;
-        byte b0, b1, b2;
+        byte b0, b1, b2, aa;
         for (int i = 0; i < Base1.length; ++i) {
             b0 = NucleotideAlphabet.INSTANCE.codeFromSymbol(Base1[i]);
             b1 = NucleotideAlphabet.INSTANCE.codeFromSymbol(Base2[i]);
             b2 = NucleotideAlphabet.INSTANCE.codeFromSymbol(Base3[i]);
-            triplet = (b0 << 4) | (b1 << 2) | b2;
-            code[triplet] = AminoAcidAlphabet.get().codeFromSymbol(AA[i]);
+            aa = AminoAcidAlphabet.get().codeFromSymbol(AA[i]);
+            code[(b0 << 4) | (b1 << 2) | b2] = aa;
+            packedCode[(b2 << 4) | (b1 << 2) | b0] = aa;
         }
     }
 
+    private Translator() {
+    }
+
     public static int getTriplet(NucleotideSequence nSequence, int tripletStart) {
         int triplet = (nSequence.codeAt(tripletStart) << 4) | (nSequence.codeAt(tripletStart + 1) << 2) | nSequence.codeAt(tripletStart + 2);
         return triplet;
     }
 
     public static byte getAminoAcid(int triplet) {
-        init();
         return code[triplet];
     }
 
     public static byte getAminoAcid(NucleotideSequence nSequence, int tripletStart) {
-        init();
         return code[getTriplet(nSequence, tripletStart)];
     }
 
+    /**
+     * Translates {@code count} codons starting from nucleotide {@code from} and writes amino acid codes to {@code
+     * target}.
+     *
+     * @param nSequence sequence to translate
+     * @param from      position of the first nucleotide of the first codon
+     * @param target    target array
+     * @param offset    position in target array to write first amino acid to
+     * @param count     number of codons to translate
+     * @return true if at least one stop codon was encountered
+     */
+    public static boolean translate(NucleotideSequence nSequence, int from, byte[] target, int offset, int count) {
+        if (from < 0 || count < 0 || from + count * 3 > nSequence.size()
+                || offset < 0 || offset + count > target.length)
+            throw new IndexOutOfBoundsException();
+        if (count == 0)
+            return false;
+
+        final byte[] packed = Bit2Array.extractRawDataArray(NucleotideSequence.extractInnerData(nSequence));
+        int index = from >> 2;
+        //Nucleotides are taken from the lowest bits of the buffer
+        int buffer = (packed[index++] & 0xFF) >>> ((from & 3) << 1);
+        int bits = 8 - ((from & 3) << 1);
+        boolean stops = false;
+        byte aa;
+        for (int i = 0; i < count; ++i) {
+            if (bits < 6) {
+                buffer |= (packed[index++] & 0xFF) << bits;
+                bits += 8;
+            }
+            target[offset + i] = aa = packedCode[buffer & 0x3F];
+            stops |= aa == STOP_CODE;
+            buffer >>>= 6;
+            bits -= 6;
+        }
+        return stops;
+    }
+
     public static AminoAcidSequence translate(NucleotideSequence nSequence, byte frame) {
-        init();
         if (frame > 3 || frame < -3 || frame == 0)
             throw new IllegalArgumentException();
         if (frame < 0)
@@ -72,11 +122,7 @@ public final class Translator {
         frame -= 1;
         int size = (nSequence.size() - frame) / 3;
         byte[] aaData = new byte[size];
-        int triplet;
-        for (int i = 0; i < size; i++) {
-            triplet = (nSequence.codeAt(i * 3 + frame) << 4) | (nSequence.codeAt(i * 3 + frame + 1) << 2) | nSequence.codeAt(i * 3 + frame + 2);
-            aaData[i] = code[triplet];
-        }
+        translate(nSequence, frame, aaData, 0, size);
         return AminoAcidSequenceImpl.createFromData(aaData);
     }
 
@@ -88,7 +134,6 @@ public final class Translator {
      * @return Amino acid sequence or null, if stop codon is encountered
      */
     public static AminoAcidSequence translateWithoutStops(NucleotideSequence nSequence, byte frame) {
-        init();
         if (frame > 3 || frame < -3 || frame == 0)
             throw new IllegalArgumentException();
         if (frame < 0)
@@ -96,13 +141,8 @@ public final class Translator {
         frame -= 1;
         int size = (nSequence.size() - frame) / 3;
         byte[] aaData = new byte[size];
-        int triplet;
-        for (int i = 0; i < size; i++) {
-            triplet = (nSequence.codeAt(i * 3 + frame) << 4) | (nSequence.codeAt(i * 3 + frame + 1) << 2) | nSequence.codeAt(i * 3 + frame + 2);
-            aaData[i] = code[triplet];
-            if (aaData[i] == (byte) 0)
-                return null;
-        }
+        if (translate(nSequence, frame, aaData, 0, size))
+            return null;
         return AminoAcidSequenceImpl.createFromData(aaData);
     }
 }
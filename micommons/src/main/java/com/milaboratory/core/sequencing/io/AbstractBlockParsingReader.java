@@ -0,0 +1,209 @@
+/*
+ * MiTCR <http://milaboratory.com>
+ *
+ * Copyright (c) 2010-2013:
+ *     Bolotin Dmitriy     <bolotin.dmitriy@gmail.com>
+ *     Chudakov Dmitriy    <chudakovdm@mail.ru>
+ *
+ * MiTCR is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License as published by the Free
+ * Software Foundation, either version 3 of the License, or (at your option)
+ * any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU General Public License for
+ * more details.
+ *
+ * You should have received a copy of the GNU General Public License along
+ * with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.milaboratory.core.sequencing.io;
+
+import com.milaboratory.core.sequencing.read.SequencingRead;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Arrays;
+
+/**
+ * Base class for readers which read input stream by large blocks and parse records in threads calling {@link
+ * #take()}.
+ *
+ * <p>Reading of the next block is the only synchronized operation: block is split at the last record boundary (the
+ * rest is moved to the next block) and records in it are counted to assign sequential ids. Then the calling thread
+ * takes exclusive ownership of the block and parses its records without any synchronization. So, reads are returned
+ * in the file order only if reader is used from a single thread, but ids always correspond to the record index in
+ * the file.</p>
+ *
+ * @param <R> read type
+ * @author Bolotin Dmitriy (bolotin.dmitriy@gmail.com)
+ */
+public abstract class AbstractBlockParsingReader<R extends SequencingRead> implements SequencingDataReader<R> {
+    /**
+     * Default size of the block
+     */
+    public static final int DEFAULT_BLOCK_SIZE = 1 << 20;
+    private final InputStream stream;
+    private final int blockSize;
+    private final ThreadLocal<Block> currentBlock = new ThreadLocal<>();
+    //Unparsed data from the previous block
+    private byte[] leftover = new byte[0];
+    //Position of leftover[0] in the stream
+    private long offset;
+    private long nextId = 0;
+    private boolean eof = false, finished = false;
+    private volatile boolean closed = false;
+
+    /**
+     * Creates reader.
+     *
+     * @param stream    input stream
+     * @param offset    number of bytes already read from stream (e.g. file header)
+     * @param blockSize minimal size of block
+     */
+    protected AbstractBlockParsingReader(InputStream stream, long offset, int blockSize) {
+        if (blockSize <= 0)
+            throw new IllegalArgumentException();
+        this.stream = stream;
+        this.offset = offset;
+        this.blockSize = blockSize;
+    }
+
+    /**
+     * Returns the end of the last complete record in {@code data}. Called under the reader lock.
+     *
+     * @param data   data
+     * @param limit  end of meaningful data in the array
+     * @param offset position of data[0] in the stream
+     * @param eof    true if there is no more data in the stream
+     * @return end of the last complete record; 0 if there is no complete record in the data; -1 if there are no more
+     * records in the stream
+     */
+    protected abstract int split(byte[] data, int limit, long offset, boolean eof);
+
+    /**
+     * Counts records in {@code data}. Called under the reader lock.
+     *
+     * @param data   data
+     * @param end    end of the last record (as returned by {@link #split(byte[], int, long, boolean)})
+     * @param offset position of data[0] in the stream
+     * @return number of records
+     */
+    protected abstract int count(byte[] data, int end, long offset);
+
+    /**
+     * Parses the next record from the block and advances {@link Block#position} and {@link Block#id}.
+     *
+     * @param block block
+     * @return parsed read or null if there are no more records in the block
+     */
+    protected abstract R parse(Block block);
+
+    @Override
+    public final R take() {
+        if (closed)
+            return null;
+
+        Block block = currentBlock.get();
+        R read;
+        while (true) {
+            if (block != null && (read = parse(block)) != null)
+                return read;
+
+            if ((block = nextBlock()) == null) {
+                currentBlock.remove();
+                return null;
+            }
+            currentBlock.set(block);
+        }
+    }
+
+    private synchronized Block nextBlock() {
+        if (finished || closed)
+            return null;
+
+        byte[] data = new byte[Math.max(blockSize, 2 * leftover.length)];
+        System.arraycopy(leftover, 0, data, 0, leftover.length);
+        int limit = leftover.length, end, read;
+
+        try {
+            while (true) {
+                //Bulk read
+                while (!eof && limit < data.length)
+                    if ((read = stream.read(data, limit, data.length - limit)) == -1)
+                        eof = true;
+                    else
+                        limit += read;
+
+                if ((end = split(data, limit, offset, eof)) < 0) {
+                    finished = true;
+                    leftover = new byte[0];
+                    return null;
+                }
+
+                if (end > 0)
+                    break;
+
+                if (eof)
+                    throw new RuntimeException("Unexpected end of file.");
+
+                //Record is larger than the buffer
+                data = Arrays.copyOf(data, data.length * 2);
+            }
+        } catch (IOException e) {
+            throw new RuntimeException(e);
+        }
+
+        Block block = new Block(data, end, offset, nextId);
+        nextId += count(data, end, offset);
+        leftover = Arrays.copyOfRange(data, end, limit);
+        offset += end;
+        return block;
+    }
+
+    @Override
+    public void close() {
+        closed = true;
+        synchronized (this) {
+            try {
+                stream.close();
+            } catch (IOException e) {
+                throw new RuntimeException(e);
+            }
+        }
+    }
+
+    /**
+     * Block of data aligned to record boundaries. Only one thread works with block at a time.
+     */
+    protected static final class Block {
+        /**
+         * Data
+         */
+        public final byte[] data;
+        /**
+         * End of the last record
+         */
+        public final int end;
+        /**
+         * Position of data[0] in the stream
+         */
+        public final long offset;
+        /**
+         * Position of the next record
+         */
+        public int position = 0;
+        /**
+         * Id of the next record
+         */
+        public long id;
+
+        Block(byte[] data, int end, long offset, long id) {
+            this.data = data;
+            this.end = end;
+            this.offset = offset;
+            this.id = id;
+        }
+    }
+}
@@ -0,0 +1,161 @@
+/*
+ * MiTCR <http://milaboratory.com>
+ *
+ * Copyright (c) 2010-2013:
+ *     Bolotin Dmitriy     <bolotin.dmitriy@gmail.com>
+ *     Chudakov Dmitriy    <chudakovdm@mail.ru>
+ *
+ * MiTCR is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License as published by the Free
+ * Software Foundation, either version 3 of the License, or (at your option)
+ * any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU General Public License for
+ * more details.
+ *
+ * You should have received a copy of the GNU General Public License along
+ * with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.milaboratory.core.sequencing.io;
+
+import cc.redberry.pipe.CUtils;
+import cc.redberry.pipe.OutputPort;
+import cc.redberry.pipe.Processor;
+import cc.redberry.pipe.blocks.Merger;
+import com.milaboratory.core.sequencing.read.SSequencingRead;
+import com.milaboratory.core.sequencing.read.SSequencingReadImpl;
+import com.milaboratory.util.BatchingOutputPort;
+import com.milaboratory.util.CanReportProgress;
+import com.milaboratory.util.ProgressReporterFactory;
+
+/**
+ * Reads several single-end read sources (e.g. per-lane files of one sample) concurrently and merges them into one
+ * stream. Each source is read by its own thread, so decompression and parsing of several files are performed in
+ * parallel. Reads are moved from reader threads in batches, and the order of reads from different sources is not
+ * defined.
+ *
+ * <p>Read ids are reassigned, so they are globally unique and don't depend on the order reads are delivered by reader
+ * threads: read with id {@code i} from source {@code k} gets id {@code i * getSourcesCount() + k}.</p>
+ *
+ * <p>Progress is calculated as the mean progress of all sources (sources that can't report progress are treated as
+ * finished once the merged stream is finished).</p>
+ *
+ * <p>This reader is thread-safe.</p>
+ *
+ * @author Bolotin Dmitriy (bolotin.dmitriy@gmail.com)
+ */
+public final class MergedSSequencingDataReader implements SSequencingDataReader, CanReportProgress {
+    /**
+     * Number of reads moved from reader threads at once
+     */
+    public static final int BATCH_SIZE = 256;
+    private final OutputPort<SSequencingRead>[] sources;
+    private final CanReportProgress[] progress;
+    private final Merger<SSequencingRead[]> merger;
+    private boolean started = false;
+    private volatile boolean finished = false;
+    private SSequencingRead[] batch;
+    private int position;
+
+    /**
+     * Creates merged reader.
+     *
+     * @param sources sources of reads
+     */
+    @SafeVarargs
+    public MergedSSequencingDataReader(OutputPort<SSequencingRead>... sources) {
+        if (sources.length == 0)
+            throw new IllegalArgumentException("No sources.");
+        this.sources = sources.clone();
+        this.progress = new CanReportProgress[sources.length];
+        this.merger = new Merger<>(4 * sources.length);
+        for (int i = 0; i < sources.length; ++i) {
+            if (sources[i] == null)
+                throw new NullPointerException();
+            progress[i] = ProgressReporterFactory.create(sources[i]);
+            merger.merge(new BatchingOutputPort<>(CUtils.wrap(sources[i], new IdMapper(i, sources.length)),
+                    SSequencingRead.class, BATCH_SIZE));
+        }
+    }
+
+    /**
+     * Returns the number of merged sources.
+     *
+     * @return number of merged sources
+     */
+    public int getSourcesCount() {
+        return sources.length;
+    }
+
+    @Override
+    public synchronized SSequencingRead take() {
+        if (finished)
+            return null;
+
+        //Reader threads are started on the first request
+        if (!started) {
+            merger.start();
+            started = true;
+        }
+
+        try {
+            if (batch == null || position == batch.length) {
+                if ((batch = ((OutputPort<SSequencingRead[]>) merger).take()) == null) {
+                    finished = true;
+                    //Rethrows exceptions from reader threads
+                    merger.join();
+                    return null;
+                }
+                position = 0;
+            }
+        } catch (InterruptedException e) {
+            throw new RuntimeException(e);
+        }
+
+        SSequencingRead read = batch[position];
+        batch[position++] = null;
+        return read;
+    }
+
+    @Override
+    public double getProgress() {
+        if (finished)
+            return 1.0;
+        double sum = 0.0;
+        for (CanReportProgress p : progress)
+            if (p != null)
+                sum += p.getProgress();
+        return sum / progress.length;
+    }
+
+    @Override
+    public boolean isFinished() {
+        return finished;
+    }
+
+    @Override
+    public void close() {
+        for (OutputPort<SSequencingRead> source : sources)
+            source.close();
+    }
+
+    /**
+     * Interleaves ids of reads from different sources.
+     */
+    private static final class IdMapper implements Processor<SSequencingRead, SSequencingRead> {
+        private final int sourceIndex, sourcesCount;
+
+        IdMapper(int sourceIndex, int sourcesCount) {
+            this.sourceIndex = sourceIndex;
+            this.sourcesCount = sourcesCount;
+        }
+
+        @Override
+        public SSequencingRead process(SSequencingRead read) {
+            return new SSequencingReadImpl(read.getDescription(), read.getData(),
+                    read.id() * sourcesCount + sourceIndex);
+        }
+    }
+}
@@ -20,20 +20,24 @@
  */
 package com.milaboratory.core.sequencing.io.fasta;
 
-import cc.redberry.pipe.blocks.AbstractOutputPortUninterruptible;
 import com.milaboratory.core.sequence.NucleotideSQPair;
 import com.milaboratory.core.sequence.nucleotide.NucleotideAlphabetWithN;
 import com.milaboratory.core.sequence.nucleotide.NucleotideSequence;
 import com.milaboratory.core.sequence.quality.SequenceQualityPhred;
+import com.milaboratory.core.sequence.quality.SequenceQualityUtils;
+import com.milaboratory.core.sequencing.WrongStructureException;
+import com.milaboratory.core.sequencing.io.AbstractBlockParsingReader;
 import com.milaboratory.core.sequencing.io.SSequencingDataReader;
 import com.milaboratory.core.sequencing.read.SSequencingRead;
 import com.milaboratory.core.sequencing.read.SSequencingReadImpl;
 import com.milaboratory.util.Bit2Array;
+import com.milaboratory.util.CompressionType;
 
 import java.io.File;
 import java.io.FileInputStream;
 import java.io.FileNotFoundException;
 import java.io.IOException;
+import java.io.InputStream;
 import java.util.Arrays;
 
 import static com.milaboratory.core.sequence.quality.SequenceQualityUtils.BAD_QUALITY_VALUE;
@@ -41,92 +45,144 @@ import static com.milaboratory.core.sequence.quality.SequenceQualityUtils.GOOD_Q
 
 /**
  * Reads sequences from a FASTA file
+ *
+ * <p>File is read by large blocks, and records are parsed directly from bytes in threads calling {@link #take()} (see
+ * {@link AbstractBlockParsingReader}).</p>
  */
-public class FastaReader extends AbstractOutputPortUninterruptible<SSequencingRead> implements SSequencingDataReader {
-    private final FastaItemsReader innerReader;
-    private long counter = 0;
-    //private FileChannel channel;
-    //private volatile int percentRed = 0;
-
+public class FastaReader extends AbstractBlockParsingReader<SSequencingRead> implements SSequencingDataReader {
     /**
      * Creates the reader
      *
      * @param file file in FASTA format
      */
     public FastaReader(File file) throws FileNotFoundException {
-        FileInputStream stream = new FileInputStream(file);
-        //channel = stream.getChannel();
-        innerReader = new FastaItemsReader(stream);
+        super(new FileInputStream(file), 0, DEFAULT_BLOCK_SIZE);
+    }
+
+    /**
+     * Creates the reader
+     *
+     * @param file file in FASTA format
+     * @param ct   type of compression
+     */
+    public FastaReader(File file, CompressionType ct) throws IOException {
+        this(new FileInputStream(file), ct);
+    }
+
+    /**
+     * Creates the reader
+     *
+     * @param stream stream with data in FASTA format
+     * @param ct     type of compression
+     */
+    public FastaReader(InputStream stream, CompressionType ct) throws IOException {
+        this(stream, ct, DEFAULT_BLOCK_SIZE);
     }
 
     /**
-     * Closes the reader
+     * Creates the reader
+     *
+     * @param stream    stream with data in FASTA format
+     * @param ct        type of compression
+     * @param blockSize size of data blocks
      */
+    public FastaReader(InputStream stream, CompressionType ct, int blockSize) throws IOException {
+        super(ct.createInputStream(stream), 0, blockSize);
+    }
+
     @Override
-    public void _close() {
-        //is synchronized with itself and _next calls,
-        //so no synchronization on innerReader is needed
-        try {
-            innerReader.close();
-        } catch (IOException ex) {
-            throw new RuntimeException(ex);
+    protected int split(byte[] data, int limit, long offset, boolean eof) {
+        if (eof) {
+            for (int i = 0; i < limit; ++i)
+                if (!isWhitespace(data[i]))
+                    return limit;
+            return -1;
         }
+        //Last record is possibly incomplete
+        for (int i = limit - 1; i > 0; --i)
+            if (isRecordStart(data, i))
+                return i;
+        return 0;
+    }
+
+    @Override
+    protected int count(byte[] data, int end, long offset) {
+        int count = 0;
+        for (int i = 0; i < end; ++i)
+            if (isRecordStart(data, i))
+                ++count;
+        return count;
     }
 
     /**
-     * Takes next read
+     * Parses next record
      *
      * @return single-end sequencing read with all quality set to "good"
      */
     @Override
-    public SSequencingRead _take() {
-        FastaItem item;
-        final long id;
-        synchronized (innerReader) {
-            try {
-                item = innerReader.read();
-            } catch (IOException ex) {
-                throw new RuntimeException(ex);
-            }
-            id = counter++;
-        }
+    protected SSequencingRead parse(Block block) {
+        final byte[] data = block.data;
+        final int end = block.end;
+        int position = block.position;
+
+        //Skipping empty lines
+        while (position < end && isWhitespace(data[position]))
+            ++position;
 
-        if (item == null)
+        if (position == end) {
+            block.position = end;
             return null;
+        }
+
+        if (data[position] != '>')
+            throw new WrongStructureException();
+
+        int descriptionEnd = position;
+        while (descriptionEnd < end && data[descriptionEnd] != '\n')
+            ++descriptionEnd;
+        String description = new String(data, position + 1,
+                (descriptionEnd > position + 1 && data[descriptionEnd - 1] == '\r' ?
+                        descriptionEnd - 1 : descriptionEnd) - position - 1);
+
+        //Sequence may be split into several lines
+        final int sequenceFrom = Math.min(descriptionEnd + 1, end);
+        int recordEnd = sequenceFrom, length = 0;
+        for (; recordEnd < end && !isRecordStart(data, recordEnd); ++recordEnd)
+            if (!isWhitespace(data[recordEnd]))
+                ++length;
 
-        char[] chars = item.getSequence();
-        //No quality in FAST format, so use good string
-        //SequenceQualityPhred quality = SequenceQualityUtils.createGoodQualityObject(chars.length);//new SequenceQualityPhred(SequenceQuality.Constants.goodQuality, chars.length);
-        byte[] quality = new byte[chars.length];
-        Arrays.fill(quality, GOOD_QUALITY_VALUE);
-        Bit2Array seqData = new Bit2Array(chars.length);
-        for (int i = 0; i < chars.length; ++i) {
-            byte base = NucleotideAlphabetWithN.INSTANCE.codeFromSymbol(chars[i]);
-            if (base == 4)
+        //No quality in FASTA format, so use good quality (shared object if there are no undefined nucleotides)
+        byte[] quality = null;
+        Bit2Array seqData = new Bit2Array(length);
+        byte base;
+        for (int i = sequenceFrom, j = 0; i < recordEnd; ++i) {
+            if (isWhitespace(data[i]))
+                continue;
+            base = NucleotideAlphabetWithN.INSTANCE.codeFromSymbol((char) data[i]);
+            if (base == 4) {
+                if (quality == null) {
+                    quality = new byte[length];
+                    Arrays.fill(quality, GOOD_QUALITY_VALUE);
+                }
                 //The letter will be "A"
-                quality[i] = BAD_QUALITY_VALUE;
-            else
-                seqData.set(i, base);
+                quality[j] = BAD_QUALITY_VALUE;
+            } else
+                seqData.set(j, base);
+            ++j;
         }
-        //setPercentRed();
-        return new SSequencingReadImpl(item.getDescription(),
+
+        block.position = recordEnd;
+        return new SSequencingReadImpl(description,
                 new NucleotideSQPair(new NucleotideSequence(seqData),
-                        new SequenceQualityPhred(quality)), id);
+                        quality == null ? SequenceQualityUtils.createGoodQualityObject(length) :
+                                SequenceQualityPhred.wrap(quality)), block.id++);
     }
 
-    /*public void setPercentRed() {
-        try {
-            percentRed = (int) (channel.position() * 100 / channel.size());
-        } catch (IOException ex) {
-            Logger.getLogger(FastaReader.class.getName()).log(Level.SEVERE, null, ex);
-            throw new RuntimeException();
-        }
+    private static boolean isRecordStart(byte[] data, int position) {
+        return data[position] == '>' && (position == 0 || data[position - 1] == '\n');
     }
 
-    @Override
-    public Status getStatus() {
-        if (ended)
-            return new Status();
-        return new Status("Reading sequences", percentRed);
-    }*/
+    private static boolean isWhitespace(byte b) {
+        return b == ' ' || b == '\n' || b == '\r' || b == '\t';
+    }
 }
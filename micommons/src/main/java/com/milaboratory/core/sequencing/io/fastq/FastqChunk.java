@@ -0,0 +1,86 @@
+/*
+ * MiTCR <http://milaboratory.com>
+ *
+ * Copyright (c) 2010-2013:
+ *     Bolotin Dmitriy     <bolotin.dmitriy@gmail.com>
+ *     Chudakov Dmitriy    <chudakovdm@mail.ru>
+ *
+ * MiTCR is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License as published by the Free
+ * Software Foundation, either version 3 of the License, or (at your option)
+ * any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU General Public License for
+ * more details.
+ *
+ * You should have received a copy of the GNU General Public License along
+ * with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.milaboratory.core.sequencing.io.fastq;
+
+/**
+ * Record-aligned block of raw FASTQ data. Contains a whole number of FASTQ records, so chunks can be parsed
+ * independently of each other (see {@link FastqChunkParser}).
+ *
+ * @author Bolotin Dmitriy (bolotin.dmitriy@gmail.com)
+ */
+public final class FastqChunk {
+    private final byte[] buffer;
+    private final int size;
+    private final long firstId;
+    private final int recordsCount;
+
+    /**
+     * Creates FASTQ chunk.
+     *
+     * @param buffer       raw data
+     * @param size         number of meaningful bytes in the buffer
+     * @param firstId      id of the first read in the chunk
+     * @param recordsCount number of FASTQ records in the chunk
+     */
+    public FastqChunk(byte[] buffer, int size, long firstId, int recordsCount) {
+        this.buffer = buffer;
+        this.size = size;
+        this.firstId = firstId;
+        this.recordsCount = recordsCount;
+    }
+
+    /**
+     * Returns inner buffer with raw FASTQ data.
+     *
+     * @return inner buffer with raw FASTQ data
+     */
+    public byte[] getBuffer() {
+        return buffer;
+    }
+
+    /**
+     * Returns number of meaningful bytes in the buffer.
+     *
+     * @return number of meaningful bytes in the buffer
+     */
+    public int getSize() {
+        return size;
+    }
+
+    /**
+     * Returns id of the first read in the chunk. Reads in the chunk are numbered sequentially starting from this
+     * value.
+     *
+     * @return id of the first read in the chunk
+     */
+    public long getFirstId() {
+        return firstId;
+    }
+
+    /**
+     * Returns number of FASTQ records in the chunk.
+     *
+     * @return number of FASTQ records in the chunk
+     */
+    public int getRecordsCount() {
+        return recordsCount;
+    }
+}
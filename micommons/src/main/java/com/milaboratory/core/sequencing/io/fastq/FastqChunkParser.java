@@ -0,0 +1,115 @@
+/*
+ * MiTCR <http://milaboratory.com>
+ *
+ * Copyright (c) 2010-2013:
+ *     Bolotin Dmitriy     <bolotin.dmitriy@gmail.com>
+ *     Chudakov Dmitriy    <chudakovdm@mail.ru>
+ *
+ * MiTCR is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License as published by the Free
+ * Software Foundation, either version 3 of the License, or (at your option)
+ * any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU General Public License for
+ * more details.
+ *
+ * You should have received a copy of the GNU General Public License along
+ * with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.milaboratory.core.sequencing.io.fastq;
+
+import cc.redberry.pipe.Processor;
+import cc.redberry.pipe.ThreadSafe;
+import com.milaboratory.core.sequence.quality.QualityFormat;
+import com.milaboratory.core.sequencing.read.SSequencingRead;
+
+import java.util.Arrays;
+
+/**
+ * Parses {@link FastqChunk}s into batches of reads. This processor is stateless, so it can be used in several
+ * threads simultaneously (e.g. in {@link cc.redberry.pipe.blocks.ParallelProcessor}).
+ *
+ * @author Bolotin Dmitriy (bolotin.dmitriy@gmail.com)
+ */
+public final class FastqChunkParser implements Processor<FastqChunk, SSequencingRead[]>, ThreadSafe {
+    private final QualityFormat format;
+    private final ReadInfoProvider infoProvider;
+    private final RawSequenceFilter filter;
+
+    /**
+     * Creates chunk parser.
+     *
+     * @param format quality values format
+     */
+    public FastqChunkParser(QualityFormat format) {
+        this(format, null);
+    }
+
+    /**
+     * Creates chunk parser.
+     *
+     * @param format       quality values format
+     * @param infoProvider if not null, only reads that are not marked by 'filtered' flag in their header will be
+     *                     returned
+     */
+    public FastqChunkParser(QualityFormat format, ReadInfoProvider infoProvider) {
+        this(format, infoProvider, null);
+    }
+
+    /**
+     * Creates chunk parser.
+     *
+     * @param format       quality values format
+     * @param infoProvider if not null, only reads that are not marked by 'filtered' flag in their header will be
+     *                     returned
+     * @param filter       if not null, only reads with sequences accepted by the filter will be parsed and returned
+     */
+    public FastqChunkParser(QualityFormat format, ReadInfoProvider infoProvider, RawSequenceFilter filter) {
+        if (format == null)
+            throw new NullPointerException();
+        this.format = format;
+        this.infoProvider = infoProvider;
+        this.filter = filter;
+    }
+
+    @Override
+    public SSequencingRead[] process(FastqChunk chunk) {
+        final byte[] buffer = chunk.getBuffer();
+        final SSequencingRead[] reads = new SSequencingRead[chunk.getRecordsCount()];
+        long id = chunk.getFirstId();
+        int pointer = 0, recordEnd, count = 0, sequenceFrom, sequenceEnd;
+        SSequencingRead read;
+
+        for (int i = 0; i < reads.length; ++i) {
+            recordEnd = FastqParser.recordEnd(buffer, pointer, chunk.getSize());
+
+            if (filter != null) {
+                sequenceFrom = FastqParser.lineEnd(buffer, pointer, recordEnd) + 1;
+                sequenceEnd = FastqParser.lineEnd(buffer, sequenceFrom, recordEnd);
+                if (sequenceEnd > sequenceFrom && buffer[sequenceEnd - 1] == '\r')
+                    --sequenceEnd;
+                if (!filter.accept(buffer, sequenceFrom, sequenceEnd - sequenceFrom)) {
+                    //Id is reserved for filtered read
+                    ++id;
+                    pointer = recordEnd;
+                    continue;
+                }
+            }
+
+            read = FastqParser.parse(format, buffer, pointer, recordEnd, id++);
+            pointer = recordEnd;
+
+            if (infoProvider != null && infoProvider.getInfo(read.getDescription()).isFiltered())
+                continue;
+
+            reads[count++] = read;
+        }
+
+        if (count != reads.length)
+            return Arrays.copyOf(reads, count);
+
+        return reads;
+    }
+}
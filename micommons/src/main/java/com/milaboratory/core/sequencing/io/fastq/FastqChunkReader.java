@@ -0,0 +1,254 @@
+/*
+ * MiTCR <http://milaboratory.com>
+ *
+ * Copyright (c) 2010-2013:
+ *     Bolotin Dmitriy     <bolotin.dmitriy@gmail.com>
+ *     Chudakov Dmitriy    <chudakovdm@mail.ru>
+ *
+ * MiTCR is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License as published by the Free
+ * Software Foundation, either version 3 of the License, or (at your option)
+ * any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU General Public License for
+ * more details.
+ *
+ * You should have received a copy of the GNU General Public License along
+ * with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.milaboratory.core.sequencing.io.fastq;
+
+import cc.redberry.pipe.blocks.AbstractOutputPortUninterruptible;
+import com.milaboratory.core.sequence.quality.QualityFormat;
+import com.milaboratory.util.CanReportProgress;
+import com.milaboratory.util.CompressionType;
+import com.milaboratory.util.CountingInputStream;
+
+import java.io.*;
+import java.util.Arrays;
+
+/**
+ * FASTQ reader that only slices (decompressed) input into record-aligned {@link FastqChunk}s of several megabytes.
+ * Parsing of chunks ({@link FastqChunkParser}) can be then performed in several threads. Reads are numbered
+ * sequentially (in the same way as {@link SFastqReader} does), so read ids doesn't depend on the number of parsing
+ * threads.
+ *
+ * @author Bolotin Dmitriy (bolotin.dmitriy@gmail.com)
+ */
+public final class FastqChunkReader extends AbstractOutputPortUninterruptible<FastqChunk> implements CanReportProgress {
+    public static final int DEFAULT_CHUNK_SIZE = 4 << 20;
+    private static final int GUESS_BUFFER_SIZE = 32768;
+
+    //Main Input
+    private final InputStream stream;
+    //The total size of input stream if known.
+    private final long totalSize;
+    //Bytes read counting IS
+    private final CountingInputStream countingStream;
+    //FASTQ format
+    private final QualityFormat format;
+    //Target chunk size
+    private final int chunkSize;
+    //Next chunk
+    private byte[] buffer;
+    private int bufferLimit = 0;
+    private boolean eof = false;
+    //Reads read
+    private long counter = 0;
+
+    /**
+     * Creates a {@link FastqChunk} stream from a FASTQ file with single-end read data. Quality format will be guessed
+     * automatically.
+     *
+     * @param file file with reads
+     * @param ct   type of compression (NONE, GZIP, etc)
+     * @throws IOException in case there is problem with reading from files
+     */
+    public FastqChunkReader(File file, CompressionType ct) throws IOException {
+        this(new FileInputStream(file), null, ct, true, DEFAULT_CHUNK_SIZE);
+    }
+
+    /**
+     * Creates a {@link FastqChunk} stream from a FASTQ file with single-end read data
+     *
+     * @param file   file with reads
+     * @param format read quality encoding format
+     * @param ct     type of compression (NONE, GZIP, etc)
+     * @throws IOException in case there is problem with reading from files
+     */
+    public FastqChunkReader(File file, QualityFormat format, CompressionType ct) throws IOException {
+        this(new FileInputStream(file), format, ct, false, DEFAULT_CHUNK_SIZE);
+    }
+
+    /**
+     * Creates a {@link FastqChunk} stream from a FASTQ stream with single-end read data
+     *
+     * @param stream             stream with reads
+     * @param format             read quality encoding format, if {@code guessQualityFormat} is true this value is used
+     *                           as a default format
+     * @param ct                 type of compression (NONE, GZIP, etc)
+     * @param guessQualityFormat if true reader will try to guess quality string format, if guess fails {@code format}
+     *                           will be used as a default quality string format, if {@code format==null} exception will
+     *                           be thrown
+     * @param chunkSize          approximate size of chunks in bytes
+     * @throws IOException in case there is problem with reading from files
+     */
+    public FastqChunkReader(InputStream stream, QualityFormat format, CompressionType ct,
+                            boolean guessQualityFormat, int chunkSize) throws IOException {
+        //Check for null
+        if (stream == null)
+            throw new NullPointerException();
+
+        if (chunkSize <= 0)
+            throw new IllegalArgumentException();
+
+        if (stream instanceof FileInputStream)
+            totalSize = ((FileInputStream) stream).getChannel().size();
+        else
+            totalSize = -1L;
+
+        //Initialization
+        this.countingStream = new CountingInputStream(stream);
+
+        //Wrapping stream if un-compression needed
+        this.stream = ct.createInputStream(countingStream);
+
+        this.chunkSize = chunkSize;
+
+        //Guessing needs at least GUESS_BUFFER_SIZE bytes, so the first chunk may be larger than others
+        this.buffer = new byte[guessQualityFormat ? Math.max(chunkSize, GUESS_BUFFER_SIZE) : chunkSize];
+
+        //Guessing quality format
+        if (guessQualityFormat) {
+            fillBuffer();
+
+            QualityFormat f = QualityFormatChecker.guessFormat(buffer, bufferLimit, GUESS_BUFFER_SIZE - 3072); //Buffer minus ~ one read.
+
+            if (f != null)
+                format = f;
+        }
+
+        if (format == null)
+            if (guessQualityFormat)
+                throw new RuntimeException("Format guess failed.");
+            else
+                throw new NullPointerException();
+
+        this.format = format;
+    }
+
+    @Override
+    public FastqChunk _take() {
+        synchronized (stream) {
+            try {
+                while (true) {
+                    fillBuffer();
+
+                    //Searching for the end of the last complete record
+                    int pointer = 0, recordEnd, records = 0;
+                    while ((recordEnd = FastqParser.recordEnd(buffer, pointer, bufferLimit)) != -1) {
+                        pointer = recordEnd;
+                        ++records;
+                    }
+
+                    if (records == 0) {
+                        if (eof) {
+                            //Close condition
+                            for (int i = 0; i < bufferLimit; ++i)
+                                if (!Character.isWhitespace(buffer[i]))
+                                    throw new RuntimeException("Wrong file format");
+                            stream.close();
+                            return null;
+                        }
+
+                        //Record is longer than the buffer
+                        buffer = Arrays.copyOf(buffer, buffer.length * 2);
+                        continue;
+                    }
+
+                    //Moving the tail (beginning of incomplete record) to the new buffer
+                    final byte[] newBuffer = new byte[Math.max(chunkSize, bufferLimit - pointer)];
+                    System.arraycopy(buffer, pointer, newBuffer, 0, bufferLimit - pointer);
+
+                    final FastqChunk chunk = new FastqChunk(buffer, pointer, counter, records);
+                    counter += records;
+                    buffer = newBuffer;
+                    bufferLimit -= pointer;
+                    return chunk;
+                }
+            } catch (IOException e) {
+                throw new RuntimeException(e);
+            }
+        }
+    }
+
+    /**
+     * Fills the buffer from the input stream.
+     */
+    private void fillBuffer() throws IOException {
+        int read;
+        while (!eof && bufferLimit < buffer.length)
+            if ((read = stream.read(buffer, bufferLimit, buffer.length - bufferLimit)) == -1) {
+                eof = true;
+
+                //Adding new line symbol at the end of the last record if absent
+                if (bufferLimit != 0 && buffer[bufferLimit - 1] != '\n') {
+                    if (bufferLimit == buffer.length)
+                        buffer = Arrays.copyOf(buffer, buffer.length + 1);
+                    buffer[bufferLimit++] = '\n';
+                }
+            } else
+                bufferLimit += read;
+    }
+
+    /**
+     * Returns quality format of the input data
+     *
+     * @return quality format of the input data
+     */
+    public QualityFormat getQualityFormat() {
+        return format;
+    }
+
+    /**
+     * Creates parser for chunks produced by this reader.
+     *
+     * @return parser for chunks produced by this reader
+     */
+    public FastqChunkParser createParser() {
+        return new FastqChunkParser(format);
+    }
+
+    /**
+     * Creates parser for chunks produced by this reader, that parses only reads accepted by the filter.
+     *
+     * @param filter raw sequence filter
+     * @return parser for chunks produced by this reader
+     */
+    public FastqChunkParser createParser(RawSequenceFilter filter) {
+        return new FastqChunkParser(format, null, filter);
+    }
+
+    @Override
+    public void _close() {
+        try {
+            stream.close();
+        } catch (IOException ex) {
+            throw new RuntimeException(ex);
+        }
+    }
+
+    @Override
+    public double getProgress() {
+        if (totalSize == -1L)
+            return Double.NaN;
+        return ((double) countingStream.getBytesRead()) / totalSize;
+    }
+
+    @Override
+    public boolean isFinished() {
+        return closed;
+    }
+}
@@ -0,0 +1,173 @@
+/*
+ * MiTCR <http://milaboratory.com>
+ *
+ * Copyright (c) 2010-2013:
+ *     Bolotin Dmitriy     <bolotin.dmitriy@gmail.com>
+ *     Chudakov Dmitriy    <chudakovdm@mail.ru>
+ *
+ * MiTCR is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License as published by the Free
+ * Software Foundation, either version 3 of the License, or (at your option)
+ * any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU General Public License for
+ * more details.
+ *
+ * You should have received a copy of the GNU General Public License along
+ * with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.milaboratory.core.sequencing.io.fastq;
+
+import com.milaboratory.core.sequence.NucleotideSQPair;
+import com.milaboratory.core.sequence.nucleotide.NucleotideSequence;
+import com.milaboratory.core.sequence.quality.QualityFormat;
+import com.milaboratory.core.sequence.quality.SequenceQualityPhred;
+import com.milaboratory.core.sequence.quality.SequenceQualityUtils;
+import com.milaboratory.core.sequence.quality.WrongQualityStringException;
+import com.milaboratory.core.sequencing.read.SSequencingRead;
+import com.milaboratory.core.sequencing.read.SSequencingReadImpl;
+
+import java.nio.charset.Charset;
+
+/**
+ * Byte-level FASTQ parsing routines. Records are parsed directly from raw {@code byte[]} blocks: nucleotides are packed
+ * straight into {@link com.milaboratory.util.Bit2Array} storage and quality values are decoded straight into the
+ * {@link SequenceQualityPhred} array, without intermediate {@link String} objects.
+ *
+ * <p>Both "\n" and "\r\n" line endings are supported.</p>
+ *
+ * @author Bolotin Dmitriy (bolotin.dmitriy@gmail.com)
+ */
+public final class FastqParser {
+    private static final Charset DESCRIPTION_CHARSET = Charset.forName("ISO-8859-1");
+
+    private FastqParser() {
+    }
+
+    /**
+     * Returns position of the first '\n' symbol in the buffer region.
+     *
+     * @param buffer buffer
+     * @param from   inclusive
+     * @param to     exclusive
+     * @return position of the first '\n' symbol or -1 if there is no such symbol in the region
+     */
+    public static int lineEnd(byte[] buffer, int from, int to) {
+        for (; from < to; ++from)
+            if (buffer[from] == '\n')
+                return from;
+        return -1;
+    }
+
+    /**
+     * Returns position of the first byte after the FASTQ record (four lines) starting at {@code from}.
+     *
+     * @param buffer buffer
+     * @param from   position of the first byte of the record
+     * @param to     end of the meaningful data in the buffer (exclusive)
+     * @return position of the first byte after the record or -1 if the region doesn't contain the whole record
+     */
+    public static int recordEnd(byte[] buffer, int from, int to) {
+        for (int i = 0; i < 4; ++i) {
+            if ((from = lineEnd(buffer, from, to)) == -1)
+                return -1;
+            ++from;
+        }
+        return from;
+    }
+
+    /**
+     * Parses a single FASTQ record. The region {@code [from, to)} must contain exactly one record, as returned by
+     * {@link #recordEnd(byte[], int, int)}.
+     *
+     * <p>Undefined nucleotides ('.', 'n' and 'N') are substituted by 'A' with {@link
+     * SequenceQualityUtils#BAD_QUALITY_VALUE} quality.</p>
+     *
+     * @param format quality values format
+     * @param buffer buffer
+     * @param from   position of the first byte of the record ('@' symbol)
+     * @param to     position of the first byte after the record
+     * @param id     read id
+     * @return parsed read
+     */
+    public static SSequencingRead parse(QualityFormat format, byte[] buffer, int from, int to, long id) {
+        //Error check...
+        if (buffer[from] != '@')
+            throw new RuntimeException("Wrong file format");
+
+        final int descriptionEnd = lineEnd(buffer, from, to);
+        final int sequenceFrom = descriptionEnd + 1;
+        final int sequenceEnd = lineEnd(buffer, sequenceFrom, to);
+        if (sequenceEnd == -1)
+            throw new RuntimeException("Wrong file format");
+        final int plusFrom = sequenceEnd + 1;
+        final int plusEnd = lineEnd(buffer, plusFrom, to);
+        if (plusEnd == -1 || plusEnd == plusFrom || buffer[plusFrom] != '+')
+            throw new RuntimeException("Wrong file format");
+        final int qualityFrom = plusEnd + 1;
+        final int qualityEnd = lineEnd(buffer, qualityFrom, to);
+        if (qualityEnd == -1)
+            throw new RuntimeException("Wrong file format");
+
+        final int sequenceLength = trim(buffer, sequenceFrom, sequenceEnd) - sequenceFrom;
+
+        //Additional check
+        if (sequenceLength != trim(buffer, qualityFrom, qualityEnd) - qualityFrom)
+            throw new RuntimeException("Wrong file format. Different sequence and quality sizes.");
+
+        //Remove '@' from description
+        final String description = new String(buffer, from + 1,
+                trim(buffer, from, descriptionEnd) - from - 1, DESCRIPTION_CHARSET);
+
+        NucleotideSequence sequence;
+        SequenceQualityPhred quality;
+
+        try {
+            if (hasUndefinedNucleotides(buffer, sequenceFrom, sequenceLength)) {
+                //Rare case, slow path
+                byte[] seq = new byte[sequenceLength];
+                byte[] qualityValues = SequenceQualityPhred.parse(format, buffer, qualityFrom, sequenceLength, true);
+                for (int i = 0; i < sequenceLength; ++i)
+                    if (isUndefined(seq[i] = buffer[sequenceFrom + i])) {
+                        //Substituting '.'/'n'/'N' with A
+                        seq[i] = 'A';
+                        //and setting bad quality to this nucleotide
+                        qualityValues[i] = SequenceQualityUtils.BAD_QUALITY_VALUE;
+                    }
+                quality = new SequenceQualityPhred(qualityValues);
+                sequence = NucleotideSequence.fromSequence(seq, 0, sequenceLength);
+            } else {
+                quality = SequenceQualityPhred.create(format, buffer, qualityFrom, sequenceLength, true);
+                sequence = NucleotideSequence.fromSequence(buffer, sequenceFrom, sequenceLength);
+            }
+        } catch (WrongQualityStringException ex) {
+            throw new RuntimeException("Error while parsing quality", ex);
+        } catch (RuntimeException re) {
+            throw new RuntimeException("Error while parsing sequence.", re);
+        }
+
+        return new SSequencingReadImpl(description, new NucleotideSQPair(sequence, quality), id);
+    }
+
+    private static boolean hasUndefinedNucleotides(byte[] buffer, int from, int length) {
+        for (int i = from + length - 1; i >= from; --i)
+            if (isUndefined(buffer[i]))
+                return true;
+        return false;
+    }
+
+    private static boolean isUndefined(byte b) {
+        return b == '.' || b == 'n' || b == 'N';
+    }
+
+    /**
+     * Excludes trailing '\r' from the line.
+     */
+    private static int trim(byte[] buffer, int from, int lineEnd) {
+        if (lineEnd > from && buffer[lineEnd - 1] == '\r')
+            return lineEnd - 1;
+        return lineEnd;
+    }
+}
@@ -0,0 +1,374 @@
+/*
+ * MiTCR <http://milaboratory.com>
+ *
+ * Copyright (c) 2010-2013:
+ *     Bolotin Dmitriy     <bolotin.dmitriy@gmail.com>
+ *     Chudakov Dmitriy    <chudakovdm@mail.ru>
+ *
+ * MiTCR is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License as published by the Free
+ * Software Foundation, either version 3 of the License, or (at your option)
+ * any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU General Public License for
+ * more details.
+ *
+ * You should have received a copy of the GNU General Public License along
+ * with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.milaboratory.core.sequencing.io.fastq;
+
+import com.milaboratory.core.sequence.quality.QualityFormat;
+import com.milaboratory.core.sequencing.io.SSequencingDataReader;
+import com.milaboratory.core.sequencing.read.SSequencingRead;
+import com.milaboratory.util.CanReportProgress;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Reader of uncompressed FASTQ files based on memory mapping ({@link FileChannel#map(FileChannel.MapMode, long,
+ * long)}).
+ *
+ * <p>File is split into several byte ranges aligned to the FASTQ record boundaries. Each thread calling {@link #take()}
+ * takes exclusive ownership of one range and parses it independently of other threads (without any
+ * synchronization), when the range is exhausted thread takes the next free range. So, reads are returned in the file
+ * order only if this reader is used from a single thread.</p>
+ *
+ * <p>Read id is equal to the ordinal number of the record in the file, as in other readers. To find the id of the first
+ * record in a range, thread taking the range counts records in all preceding ranges (each range is counted only once,
+ * so counting is shared between threads).</p>
+ *
+ * @author Bolotin Dmitriy (bolotin.dmitriy@gmail.com)
+ */
+public final class MappedFastqReader implements SSequencingDataReader, CanReportProgress {
+    private static final int BUFFER_SIZE = 1 << 20;
+    private static final int GUESS_BUFFER_SIZE = 32768;
+    private static final long MAX_RANGE_SIZE = 1L << 30;
+
+    private final RandomAccessFile file;
+    private final FileChannel channel;
+    private final long size;
+    private final QualityFormat format;
+    private final Range[] ranges;
+    //Index of the next free range
+    private final AtomicInteger nextRange = new AtomicInteger();
+    //Number of exhausted ranges
+    private final AtomicInteger finishedRanges = new AtomicInteger();
+    private final ThreadLocal<Range> currentRange = new ThreadLocal<>();
+    private volatile boolean closed = false;
+
+    /**
+     * Creates reader splitting file into {@code 4 * availableProcessors} ranges. Quality format will be guessed
+     * automatically.
+     *
+     * @param file file with reads
+     * @throws IOException in case there is problem with reading from file
+     */
+    public MappedFastqReader(File file) throws IOException {
+        this(file, null, 4 * Runtime.getRuntime().availableProcessors());
+    }
+
+    /**
+     * Creates reader splitting file into {@code 4 * availableProcessors} ranges.
+     *
+     * @param file   file with reads
+     * @param format read quality encoding format, if null, format will be guessed automatically
+     * @throws IOException in case there is problem with reading from file
+     */
+    public MappedFastqReader(File file, QualityFormat format) throws IOException {
+        this(file, format, 4 * Runtime.getRuntime().availableProcessors());
+    }
+
+    /**
+     * Creates reader.
+     *
+     * @param file       file with reads
+     * @param format     read quality encoding format, if null, format will be guessed automatically
+     * @param rangeCount number of ranges to split file into (actual number of ranges may be larger for big files and
+     *                   smaller for small files)
+     * @throws IOException in case there is problem with reading from file
+     */
+    public MappedFastqReader(File file, QualityFormat format, int rangeCount) throws IOException {
+        if (rangeCount <= 0)
+            throw new IllegalArgumentException();
+
+        this.file = new RandomAccessFile(file, "r");
+        this.channel = this.file.getChannel();
+        this.size = channel.size();
+
+        //Guessing quality format
+        if (format == null) {
+            byte[] buffer = new byte[(int) Math.min(size, GUESS_BUFFER_SIZE)];
+            channel.map(FileChannel.MapMode.READ_ONLY, 0, buffer.length).get(buffer);
+            format = QualityFormatChecker.guessFormat(buffer, buffer.length, GUESS_BUFFER_SIZE - 3072);
+            if (format == null) {
+                this.file.close();
+                throw new RuntimeException("Format guess failed.");
+            }
+        }
+        this.format = format;
+
+        //Each range must be mappable
+        rangeCount = (int) Math.max(rangeCount, (size + MAX_RANGE_SIZE - 1) / MAX_RANGE_SIZE);
+
+        //Splitting file into record-aligned ranges
+        List<Range> ranges = new ArrayList<>();
+        long from = 0, to;
+        for (int i = 1; i <= rangeCount && from < size; ++i) {
+            to = i == rangeCount ? size : resync(channel, Math.max(from, size * i / rangeCount), size);
+            if (to > from)
+                ranges.add(new Range(from, to));
+            from = to;
+        }
+        this.ranges = ranges.toArray(new Range[ranges.size()]);
+    }
+
+    /**
+     * Returns position of the first FASTQ record starting at or after the specified position. Record start is a line
+     * starting with '@' followed by a line starting with '+' two lines later.
+     */
+    static long resync(FileChannel channel, long position, long size) throws IOException {
+        if (position == 0)
+            return 0;
+
+        int window = 65536;
+        while (true) {
+            //Starting from position - 1 to detect line start at position
+            final long from = position - 1;
+            final long length = Math.min(size - from, window);
+            final MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, from, length);
+            final boolean toEnd = from + length == size;
+
+            int lineStart = nextLine(buffer, 0);
+            int line1, line2;
+            while (lineStart != -1 && lineStart < length) {
+                if (buffer.get(lineStart) == '@') {
+                    line1 = nextLine(buffer, lineStart);
+                    line2 = line1 == -1 ? -1 : nextLine(buffer, line1);
+                    if (line2 == -1 || line2 == length) {
+                        if (toEnd)
+                            return size;
+                        break;
+                    }
+                    if (buffer.get(line2) == '+')
+                        return from + lineStart;
+                }
+                lineStart = nextLine(buffer, lineStart);
+            }
+
+            if (toEnd)
+                return size;
+
+            //Window is too small
+            window *= 2;
+        }
+    }
+
+    /**
+     * Returns position of the next line start or -1 if there is no '\n' after position.
+     */
+    private static int nextLine(MappedByteBuffer buffer, int position) {
+        for (int i = position, limit = buffer.limit(); i < limit; ++i)
+            if (buffer.get(i) == '\n')
+                return i + 1;
+        return -1;
+    }
+
+    @Override
+    public SSequencingRead take() {
+        if (closed)
+            return null;
+
+        Range range = currentRange.get();
+        SSequencingRead read;
+        try {
+            while (true) {
+                if (range != null && (read = range.take()) != null)
+                    return read;
+
+                if (range != null)
+                    finishedRanges.incrementAndGet();
+
+                final int index = nextRange.getAndIncrement();
+                if (index >= ranges.length) {
+                    currentRange.remove();
+                    return null;
+                }
+
+                range = ranges[index];
+                range.map(firstId(index));
+                currentRange.set(range);
+            }
+        } catch (IOException e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    /**
+     * Returns id of the first record in the range, i.e. total number of records in preceding ranges.
+     */
+    private long firstId(int index) throws IOException {
+        long id = 0;
+        //Counting from the nearest range, ranges farther from the end are more likely already counted by other threads
+        for (int i = index - 1; i >= 0; --i)
+            id += ranges[i].count();
+        return id;
+    }
+
+    /**
+     * Returns quality format of the input data
+     *
+     * @return quality format of the input data
+     */
+    public QualityFormat getQualityFormat() {
+        return format;
+    }
+
+    /**
+     * Returns number of byte ranges the file was split into.
+     *
+     * @return number of byte ranges the file was split into
+     */
+    public int getRangesCount() {
+        return ranges.length;
+    }
+
+    @Override
+    public double getProgress() {
+        if (size == 0)
+            return 1.0;
+        long processed = 0;
+        for (Range range : ranges)
+            processed += range.processed;
+        return ((double) processed) / size;
+    }
+
+    @Override
+    public boolean isFinished() {
+        return closed || finishedRanges.get() == ranges.length;
+    }
+
+    @Override
+    public void close() {
+        closed = true;
+        try {
+            file.close();
+        } catch (IOException e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    /**
+     * Record-aligned byte range of the file. Only one thread works with range at a time.
+     */
+    private final class Range {
+        final long from, to;
+        MappedByteBuffer data;
+        //Unparsed data
+        byte[] buffer;
+        int bufferPointer, bufferLimit;
+        //Id of the next record
+        long nextId;
+        //Number of records in the range, -1 if not counted yet
+        long records = -1;
+        volatile long processed = 0;
+
+        Range(long from, long to) {
+            this.from = from;
+            this.to = to;
+        }
+
+        void map(long firstId) throws IOException {
+            data = channel.map(FileChannel.MapMode.READ_ONLY, from, to - from);
+            buffer = new byte[(int) Math.min(BUFFER_SIZE, to - from + 1)];
+            nextId = firstId;
+        }
+
+        /**
+         * Counts records in the range the same way they are split by {@link #take()} (the last record may have no
+         * trailing new line symbol).
+         */
+        synchronized long count() throws IOException {
+            if (records != -1)
+                return records;
+
+            final MappedByteBuffer mapped = channel.map(FileChannel.MapMode.READ_ONLY, from, to - from);
+            long count = 0;
+            int newLines = 0;
+            boolean content = false;
+            byte b;
+            for (int i = 0, limit = mapped.limit(); i < limit; ++i) {
+                b = mapped.get(i);
+                if (b == '\n') {
+                    if (++newLines == 4) {
+                        ++count;
+                        newLines = 0;
+                        content = false;
+                    }
+                } else if (!content && !Character.isWhitespace(b))
+                    content = true;
+            }
+            if (content)
+                ++count;
+
+            return records = count;
+        }
+
+        SSequencingRead take() {
+            int recordEnd;
+            while (true) {
+                recordEnd = FastqParser.recordEnd(buffer, bufferPointer, bufferLimit);
+
+                if (recordEnd != -1) {
+                    SSequencingRead read = FastqParser.parse(format, buffer, bufferPointer, recordEnd, nextId++);
+                    bufferPointer = recordEnd;
+                    return read;
+                }
+
+                if (!data.hasRemaining()) {
+                    //All range data is in the buffer
+                    if (bufferLimit != bufferPointer && buffer[bufferLimit - 1] != '\n') {
+                        //Adding new line symbol at the end of the last record if absent
+                        if (bufferLimit == buffer.length)
+                            buffer = Arrays.copyOf(buffer, buffer.length + 1);
+                        buffer[bufferLimit++] = '\n';
+                        continue;
+                    }
+
+                    for (int i = bufferPointer; i < bufferLimit; ++i)
+                        if (!Character.isWhitespace(buffer[i]))
+                            throw new RuntimeException("Wrong file format");
+
+                    //Releasing resources
+                    data = null;
+                    buffer = null;
+                    return null;
+                }
+
+                //Compacting
+                if (bufferPointer != 0) {
+                    System.arraycopy(buffer, bufferPointer, buffer, 0, bufferLimit - bufferPointer);
+                    bufferLimit -= bufferPointer;
+                    bufferPointer = 0;
+                } else if (bufferLimit == buffer.length)
+                    //Record is longer than the buffer
+                    buffer = Arrays.copyOf(buffer, buffer.length * 2);
+
+                final int length = Math.min(data.remaining(), buffer.length - bufferLimit);
+                data.get(buffer, bufferLimit, length);
+                bufferLimit += length;
+                processed += length;
+            }
+        }
+    }
+}
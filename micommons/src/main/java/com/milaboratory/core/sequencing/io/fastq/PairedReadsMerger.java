@@ -0,0 +1,165 @@
+/*
+ * MiTCR <http://milaboratory.com>
+ *
+ * Copyright (c) 2010-2013:
+ *     Bolotin Dmitriy     <bolotin.dmitriy@gmail.com>
+ *     Chudakov Dmitriy    <chudakovdm@mail.ru>
+ *
+ * MiTCR is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License as published by the Free
+ * Software Foundation, either version 3 of the License, or (at your option)
+ * any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU General Public License for
+ * more details.
+ *
+ * You should have received a copy of the GNU General Public License along
+ * with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.milaboratory.core.sequencing.io.fastq;
+
+import cc.redberry.pipe.Processor;
+import cc.redberry.pipe.ThreadSafe;
+import com.milaboratory.core.sequence.NucleotideSQPair;
+import com.milaboratory.core.sequence.nucleotide.NucleotideSequence;
+import com.milaboratory.core.sequence.quality.SequenceQualityPhred;
+import com.milaboratory.core.sequence.quality.SequenceQualityUtils;
+import com.milaboratory.core.sequencing.read.PSequencingRead;
+import com.milaboratory.core.sequencing.read.SSequencingRead;
+import com.milaboratory.core.sequencing.read.SSequencingReadImpl;
+import com.milaboratory.util.Bit2Array;
+
+/**
+ * Merges overlapping mates of paired-end reads into a single read. The second mate is reverse complemented and all
+ * possible overlaps with the first mate are scored. Mismatches are counted by comparing 32 nucleotides at a time, using
+ * packed (2 bits per nucleotide) sequences. In the overlap region, consensus nucleotide and quality are calculated
+ * from both mates: matching nucleotides get the maximal quality, for mismatching ones the nucleotide with higher
+ * quality is taken, and the quality is decreased by the quality of other nucleotide.
+ *
+ * <p>Merged read has the same orientation, id and description as the first mate. If mates don't overlap {@link
+ * #process(PSequencingRead)} returns {@code null}, such pairs should be processed in some other way.</p>
+ *
+ * <p>This class is immutable and thread-safe.</p>
+ *
+ * @author Bolotin Dmitriy (bolotin.dmitriy@gmail.com)
+ */
+public final class PairedReadsMerger implements Processor<PSequencingRead, SSequencingRead>, ThreadSafe {
+    /**
+     * Default minimal overlap length
+     */
+    public static final int DEFAULT_MIN_OVERLAP = 15;
+    /**
+     * Default maximal ratio of mismatches in the overlap
+     */
+    public static final double DEFAULT_MAX_MISMATCHES_RATIO = 0.1;
+    private final int minOverlap;
+    private final double maxMismatchesRatio;
+
+    /**
+     * Creates merger with default parameters.
+     */
+    public PairedReadsMerger() {
+        this(DEFAULT_MIN_OVERLAP, DEFAULT_MAX_MISMATCHES_RATIO);
+    }
+
+    /**
+     * Creates merger.
+     *
+     * @param minOverlap         minimal length of the overlap
+     * @param maxMismatchesRatio maximal ratio of mismatches in the overlap
+     */
+    public PairedReadsMerger(int minOverlap, double maxMismatchesRatio) {
+        if (minOverlap <= 0 || maxMismatchesRatio < 0 || maxMismatchesRatio >= 1)
+            throw new IllegalArgumentException();
+        this.minOverlap = minOverlap;
+        this.maxMismatchesRatio = maxMismatchesRatio;
+    }
+
+    /**
+     * Merges mates.
+     *
+     * @param input paired-end read
+     * @return merged read or {@code null} if mates don't overlap
+     */
+    @Override
+    public SSequencingRead process(PSequencingRead input) {
+        final NucleotideSQPair data0 = input.getData(0), data1 = input.getData(1).getRC();
+        final int size0 = data0.size(), size1 = data1.size();
+
+        if (size0 < minOverlap || size1 < minOverlap)
+            return null;
+
+        final Bit2Array packed0 = NucleotideSequence.extractInnerData(data0.getSequence()),
+                packed1 = NucleotideSequence.extractInnerData(data1.getSequence());
+
+        //Searching for the best offset of the second mate relative to the first one
+        int bestOffset = Integer.MIN_VALUE, bestScore = Integer.MIN_VALUE;
+        int overlap, maxMismatches, mismatches, score;
+        for (int offset = size0 - minOverlap; offset >= minOverlap - size1; --offset) {
+            overlap = Math.min(size0, offset + size1) - Math.max(0, offset);
+            if ((offset <= 0 || overlap == Math.min(size0, size1)) && overlap <= bestScore)
+                //Overlap doesn't grow any more, so no subsequent offset can beat the best score
+                break;
+            maxMismatches = (int) (overlap * maxMismatchesRatio);
+            mismatches = packed0.mismatches(Math.max(0, offset), packed1, Math.max(0, -offset),
+                    overlap, maxMismatches);
+            if (mismatches > maxMismatches)
+                continue;
+            //Each mismatch decreases the score by 4 (as it also isn't counted in matches)
+            score = overlap - 5 * mismatches;
+            if (score > bestScore) {
+                bestScore = score;
+                bestOffset = offset;
+            }
+        }
+
+        if (bestOffset == Integer.MIN_VALUE)
+            return null;
+
+        return new SSequencingReadImpl(input.getSingleRead(0).getDescription(),
+                merge(data0, data1, bestOffset), input.id());
+    }
+
+    /**
+     * Builds consensus of two overlapping sequences.
+     *
+     * @param data0  first mate
+     * @param data1  reverse complement of second mate
+     * @param offset position of the first nucleotide of {@code data1} in {@code data0}
+     * @return merged sequence
+     */
+    private static NucleotideSQPair merge(NucleotideSQPair data0, NucleotideSQPair data1, int offset) {
+        final int size0 = data0.size(), size1 = data1.size();
+        //Part of the second mate before the first mate (offset < 0) is a read-through, so it is dropped
+        final int size = offset < 0 ? Math.min(size0, offset + size1) : Math.max(size0, offset + size1);
+        final NucleotideSequence sequence0 = data0.getSequence(), sequence1 = data1.getSequence();
+        final SequenceQualityPhred quality0 = data0.getQuality(), quality1 = data1.getQuality();
+        final Bit2Array sequence = new Bit2Array(size);
+        final byte[] quality = new byte[size];
+
+        byte q0, q1;
+        for (int i = 0, j = -offset; i < size; ++i, ++j)
+            if (j < 0 || j >= size1) {
+                sequence.set(i, sequence0.codeAt(i));
+                quality[i] = quality0.value(i);
+            } else if (i >= size0) {
+                sequence.set(i, sequence1.codeAt(j));
+                quality[i] = quality1.value(j);
+            } else {
+                q0 = quality0.value(i);
+                q1 = quality1.value(j);
+                if (sequence0.codeAt(i) == sequence1.codeAt(j)) {
+                    sequence.set(i, sequence0.codeAt(i));
+                    quality[i] = (byte) Math.max(q0, q1);
+                } else {
+                    sequence.set(i, q0 >= q1 ? sequence0.codeAt(i) : sequence1.codeAt(j));
+                    quality[i] = (byte) Math.max(SequenceQualityUtils.BAD_QUALITY_VALUE, Math.abs(q0 - q1));
+                }
+            }
+
+        return new NucleotideSQPair(NucleotideSequence.fromPacked(Bit2Array.extractRawDataArray(sequence), size),
+                SequenceQualityPhred.wrap(quality));
+    }
+}
@@ -3,7 +3,9 @@ package com.milaboratory.core.sequencing.io.fastq;
 import com.milaboratory.core.sequence.quality.QualityFormat;
 
 import java.io.BufferedReader;
+import java.io.ByteArrayInputStream;
 import java.io.IOException;
+import java.io.InputStreamReader;
 
 import static com.milaboratory.core.sequence.quality.QualityFormat.Phred33;
 import static com.milaboratory.core.sequence.quality.QualityFormat.Phred64;
@@ -12,6 +14,19 @@ import static com.milaboratory.core.sequence.quality.QualityFormat.Phred64;
  * This class contains methods to infer quality string format from FASTQ data.
  */
 public final class QualityFormatChecker {
+    /**
+     * Infers quality string format from the beginning of raw FASTQ data.
+     *
+     * @param buffer   buffer with raw FASTQ data
+     * @param length   number of meaningful bytes in the buffer
+     * @param maxBytes maximal number of bytes to analyse
+     * @return quality format or null if format can't be inferred
+     */
+    public static QualityFormat guessFormat(byte[] buffer, int length, int maxBytes) throws IOException {
+        return guessFormat(new BufferedReader(new InputStreamReader(
+                new ByteArrayInputStream(buffer, 0, length))), maxBytes);
+    }
+
     public static QualityFormat guessFormat(BufferedReader reader, int maxBytes) throws IOException {
         String line;
         int k, chr;
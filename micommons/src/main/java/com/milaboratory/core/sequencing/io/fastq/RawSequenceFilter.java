@@ -0,0 +1,39 @@
+/*
+ * MiTCR <http://milaboratory.com>
+ *
+ * Copyright (c) 2010-2013:
+ *     Bolotin Dmitriy     <bolotin.dmitriy@gmail.com>
+ *     Chudakov Dmitriy    <chudakovdm@mail.ru>
+ *
+ * MiTCR is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License as published by the Free
+ * Software Foundation, either version 3 of the License, or (at your option)
+ * any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU General Public License for
+ * more details.
+ *
+ * You should have received a copy of the GNU General Public License along
+ * with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.milaboratory.core.sequencing.io.fastq;
+
+/**
+ * Filter applied to raw (ASCII encoded) read sequences before any objects are created for the read (see {@link
+ * FastqChunkParser}). Implementations must be thread-safe.
+ *
+ * @author Bolotin Dmitriy (bolotin.dmitriy@gmail.com)
+ */
+public interface RawSequenceFilter {
+    /**
+     * Returns true if read should be parsed and processed further.
+     *
+     * @param buffer buffer with ASCII encoded nucleotides
+     * @param from   position of the first nucleotide in the buffer
+     * @param length number of nucleotides
+     * @return true if read should be parsed and processed further
+     */
+    boolean accept(byte[] buffer, int from, int length);
+}
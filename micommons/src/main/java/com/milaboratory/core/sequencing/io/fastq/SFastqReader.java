@@ -35,9 +35,13 @@ import com.milaboratory.util.CompressionType;
 import com.milaboratory.util.CountingInputStream;
 
 import java.io.*;
+import java.util.Arrays;
 
 /**
- * FASTQ files reader, using BufferedReader.readLine() method.
+ * FASTQ files reader.
+ *
+ * <p>By default records are parsed directly from large raw byte blocks (see {@link FastqParser}), legacy parsing mode
+ * using BufferedReader.readLine() method can be turned on using the root constructor.</p>
  *
  * @author Bolotin Dmitriy (bolotin.dmitriy@gmail.com)
  * @author Shugay Mikhail (mikhail.shugay@gmail.com)
@@ -45,9 +49,15 @@ import java.io.*;
 // TODO: _close() and _take()
 public class SFastqReader extends AbstractOutputPortUninterruptible<SSequencingRead> implements SSequencingDataReader, CanReportProgress {
     private static final int BUFFER_SIZE = 32768;
+    private static final int RAW_BUFFER_SIZE = 1 << 20;
 
-    //Main Input
+    //Main Input (legacy parsing mode)
     private final BufferedReader reader;
+    //Main Input (byte-level parsing mode)
+    private final InputStream rawStream;
+    private byte[] buffer;
+    private int bufferPointer = 0, bufferLimit = 0;
+    private boolean eof = false;
     //The total size of input stream if known.
     private final long totalSize;
     //Reads read
@@ -168,6 +178,28 @@ public class SFastqReader extends AbstractOutputPortUninterruptible<SSequencingR
      */
     public SFastqReader(InputStream stream, QualityFormat format, CompressionType ct,
                         boolean guessQualityFormat, ReadInfoProvider infoProvider, boolean notFilteredOnly) throws IOException {
+        this(stream, format, ct, guessQualityFormat, infoProvider, notFilteredOnly, false);
+    }
+
+    /**
+     * Creates a {@link SSequencingRead} stream from a FASTQ files with single-end read data
+     *
+     * @param stream             stream with reads
+     * @param format             read quality encoding format, if {@code guessQualityFormat} is true this value is used
+     *                           as a default format
+     * @param ct                 type of compression (NONE, GZIP, etc)
+     * @param guessQualityFormat if true reader will try to guess quality string format, if guess fails {@code format}
+     *                           will be used as a default quality string format, if {@code format==null} exception will
+     *                           be thrown
+     * @param infoProvider       read info provider
+     * @param notFilteredOnly    outputs only reads that are not marked by 'filtered' flag in their header
+     * @param legacyParsing      if true, records will be read line by line using BufferedReader.readLine() method
+     *                           instead of byte-level parsing
+     * @throws IOException
+     */
+    public SFastqReader(InputStream stream, QualityFormat format, CompressionType ct,
+                        boolean guessQualityFormat, ReadInfoProvider infoProvider, boolean notFilteredOnly,
+                        boolean legacyParsing) throws IOException {
         //Check for null
         if (stream == null)
             throw new NullPointerException();
@@ -187,18 +219,36 @@ public class SFastqReader extends AbstractOutputPortUninterruptible<SSequencingR
         //Wrapping stream if un-compression needed
         is = ct.createInputStream(is);
 
-        //Creating main reder
-        this.reader = new BufferedReader(new InputStreamReader(is), BUFFER_SIZE);
+        if (legacyParsing) {
+            //Creating main reder
+            this.reader = new BufferedReader(new InputStreamReader(is), BUFFER_SIZE);
+            this.rawStream = null;
+
+            //Guessing quality format
+            if (guessQualityFormat) {
+                reader.mark(BUFFER_SIZE);
+                QualityFormat f = QualityFormatChecker.guessFormat(reader, BUFFER_SIZE - 3072); //Buffer minus ~ one read.
 
-        //Guessing quality format
-        if (guessQualityFormat) {
-            reader.mark(BUFFER_SIZE);
-            QualityFormat f = QualityFormatChecker.guessFormat(reader, BUFFER_SIZE - 3072); //Buffer minus ~ one read.
+                if (f != null)
+                    format = f;
 
-            if (f != null)
-                format = f;
+                reader.reset();
+            }
+        } else {
+            this.reader = null;
+            this.rawStream = is;
+            this.buffer = new byte[RAW_BUFFER_SIZE];
 
-            reader.reset();
+            //Guessing quality format
+            if (guessQualityFormat) {
+                //Reading first bytes of input
+                while (bufferLimit < BUFFER_SIZE && fillBuffer()) ;
+
+                QualityFormat f = QualityFormatChecker.guessFormat(buffer, bufferLimit, BUFFER_SIZE - 3072); //Buffer minus ~ one read.
+
+                if (f != null)
+                    format = f;
+            }
         }
 
         if (format == null)
@@ -212,6 +262,9 @@ public class SFastqReader extends AbstractOutputPortUninterruptible<SSequencingR
 
     @Override
     public SSequencingRead _take() {
+        if (reader == null)
+            return takeRaw();
+
         //Read serial id
         long id;
         SSequencingRead read;
@@ -251,6 +304,79 @@ public class SFastqReader extends AbstractOutputPortUninterruptible<SSequencingR
         }
     }
 
+    private SSequencingRead takeRaw() {
+        SSequencingRead read;
+
+        while (true) {
+            //Records are parsed right inside the buffer, so parsing is performed in synchronized block
+            synchronized (rawStream) {
+                try {
+                    int recordEnd;
+                    while ((recordEnd = FastqParser.recordEnd(buffer, bufferPointer, bufferLimit)) == -1)
+                        if (!fillBuffer()) {
+                            //Close condition
+                            for (int i = bufferPointer; i < bufferLimit; ++i)
+                                if (!Character.isWhitespace(buffer[i]))
+                                    throw new RuntimeException("Wrong file format");
+                            rawStream.close();
+                            return null;
+                        }
+
+                    read = FastqParser.parse(format, buffer, bufferPointer, recordEnd, counter++);
+                    bufferPointer = recordEnd;
+                } catch (IOException ex) {
+                    throw new RuntimeException(ex);
+                }
+            }
+
+            if (infoProvider != null) {
+                ReadInfo info = infoProvider.getInfo(read.getDescription());
+
+                if (info.isFiltered())
+                    continue;
+            }
+
+            return read;
+        }
+    }
+
+    /**
+     * Reads next block of data from the input stream. Unprocessed bytes are moved to the beginning of the buffer,
+     * buffer is enlarged if it is completely filled with a single unprocessed record.
+     *
+     * @return false if end of stream reached and there is no more data
+     */
+    private boolean fillBuffer() throws IOException {
+        if (eof)
+            return false;
+
+        final int tail = bufferLimit - bufferPointer;
+        if (tail == buffer.length)
+            buffer = Arrays.copyOf(buffer, buffer.length * 2);
+        else if (bufferPointer != 0)
+            System.arraycopy(buffer, bufferPointer, buffer, 0, tail);
+        bufferPointer = 0;
+        bufferLimit = tail;
+
+        final int read = rawStream.read(buffer, bufferLimit, buffer.length - bufferLimit);
+
+        if (read == -1) {
+            eof = true;
+
+            //Adding new line symbol at the end of the last record if absent
+            if (bufferLimit == 0 || buffer[bufferLimit - 1] == '\n')
+                return false;
+
+            if (bufferLimit == buffer.length)
+                buffer = Arrays.copyOf(buffer, buffer.length + 1);
+            buffer[bufferLimit++] = '\n';
+            return true;
+        }
+
+        bufferLimit += read;
+        return true;
+    }
+
     public static SSequencingRead parse(QualityFormat format, String[] lines, long id) {
         String descriptionLine = lines[0];
 
@@ -324,7 +450,10 @@ public class SFastqReader extends AbstractOutputPortUninterruptible<SSequencingR
         //is synchronized with itself and _next calls,
         //so no synchronization on innerReader is needed
         try {
-            reader.close();
+            if (reader == null)
+                rawStream.close();
+            else
+                reader.close();
         } catch (IOException ex) {
             throw new RuntimeException(ex);
         }
@@ -0,0 +1,95 @@
+/*
+ * MiTCR <http://milaboratory.com>
+ *
+ * Copyright (c) 2010-2013:
+ *     Bolotin Dmitriy     <bolotin.dmitriy@gmail.com>
+ *     Chudakov Dmitriy    <chudakovdm@mail.ru>
+ *
+ * MiTCR is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License as published by the Free
+ * Software Foundation, either version 3 of the License, or (at your option)
+ * any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU General Public License for
+ * more details.
+ *
+ * You should have received a copy of the GNU General Public License along
+ * with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.milaboratory.core.sequencing.io.packed;
+
+/**
+ * Constants and utility methods for the packed reads format. This compact binary format is intended to be used as a
+ * cache of single-end reads for repeated analysis of the same data (see {@link PackedReadsWriter} and {@link
+ * PackedReadsReader}).
+ *
+ * <p>File layout (all numbers are big-endian):</p>
+ *
+ * <pre>
+ * header:  magic "MIPR" | int version | int flags
+ * record:  int record size (excluding this field) | int length
+ *          | [int description size | description (ISO-8859-1)]  if {@link #FLAG_DESCRIPTIONS} is set
+ *          | sequence, four nucleotides per byte ({@link com.milaboratory.util.Bit2Array} layout)
+ *          | quality, one value per byte or two {@link #binQuality(byte) bin indices} per byte if {@link
+ * #FLAG_BINNED_QUALITY} is set
+ * </pre>
+ *
+ * @author Bolotin Dmitriy (bolotin.dmitriy@gmail.com)
+ */
+public final class PackedReads {
+    /**
+     * Recommended extension for packed reads files
+     */
+    public static final String FILE_EXTENSION = ".mipr";
+    static final byte[] MAGIC = {'M', 'I', 'P', 'R'};
+    static final int VERSION = 1;
+    static final int HEADER_SIZE = 12;
+    /**
+     * Quality values are binned (lossy)
+     */
+    public static final int FLAG_BINNED_QUALITY = 1;
+    /**
+     * Read descriptions are stored
+     */
+    public static final int FLAG_DESCRIPTIONS = 2;
+
+    //Illumina 8-level quality binning, lower bounds of bins
+    private static final byte[] BIN_LOWER_BOUNDS = {0, 3, 10, 20, 25, 30, 35, 40};
+    //Quality values representing bins
+    private static final byte[] BIN_VALUES = {2, 6, 15, 22, 27, 33, 37, 40};
+    private static final byte[] BINS = new byte[128];
+
+    static {
+        for (int q = 0, bin = 0; q < BINS.length; ++q) {
+            if (bin + 1 < BIN_LOWER_BOUNDS.length && q >= BIN_LOWER_BOUNDS[bin + 1])
+                ++bin;
+            BINS[q] = (byte) bin;
+        }
+    }
+
+    private PackedReads() {
+    }
+
+    /**
+     * Returns index of the bin for a quality value. Bins are: 0-2, 3-9, 10-19, 20-24, 25-29, 30-34, 35-39, 40+. Bin
+     * boundaries are chosen to preserve commonly used quality thresholds (e.g. 20, 25 and 30).
+     *
+     * @param quality quality value
+     * @return bin index
+     */
+    public static byte binQuality(byte quality) {
+        return quality < 0 ? 0 : BINS[quality];
+    }
+
+    /**
+     * Returns quality value representing the bin.
+     *
+     * @param bin bin index
+     * @return quality value
+     */
+    public static byte binValue(int bin) {
+        return BIN_VALUES[bin];
+    }
+}
@@ -0,0 +1,202 @@
+/*
+ * MiTCR <http://milaboratory.com>
+ *
+ * Copyright (c) 2010-2013:
+ *     Bolotin Dmitriy     <bolotin.dmitriy@gmail.com>
+ *     Chudakov Dmitriy    <chudakovdm@mail.ru>
+ *
+ * MiTCR is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License as published by the Free
+ * Software Foundation, either version 3 of the License, or (at your option)
+ * any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU General Public License for
+ * more details.
+ *
+ * You should have received a copy of the GNU General Public License along
+ * with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.milaboratory.core.sequencing.io.packed;
+
+import com.milaboratory.core.sequence.NucleotideSQPair;
+import com.milaboratory.core.sequence.nucleotide.NucleotideSequence;
+import com.milaboratory.core.sequence.quality.SequenceQualityPhred;
+import com.milaboratory.core.sequencing.io.SSequencingDataReader;
+import com.milaboratory.core.sequencing.read.SSequencingRead;
+import com.milaboratory.core.sequencing.read.SSequencingReadImpl;
+import com.milaboratory.util.CanReportProgress;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.util.Arrays;
+
+/**
+ * Reader of packed reads files (see {@link PackedReads}). File is read through memory mapped windows, reads don't
+ * require any parsing.
+ *
+ * <p>Reads are numbered sequentially starting from 0 (as in {@link
+ * com.milaboratory.core.sequencing.io.fastq.SFastqReader}).</p>
+ *
+ * @author Bolotin Dmitriy (bolotin.dmitriy@gmail.com)
+ */
+public final class PackedReadsReader implements SSequencingDataReader, CanReportProgress {
+    private static final Charset DESCRIPTION_CHARSET = Charset.forName("ISO-8859-1");
+    private static final int WINDOW_SIZE = 1 << 28;
+    private final RandomAccessFile file;
+    private final FileChannel channel;
+    private final long size;
+    private final int flags;
+    //Current window
+    private MappedByteBuffer window;
+    private long windowOffset;
+    //Position of the next record in file
+    private volatile long position;
+    private long counter = 0;
+    private boolean closed = false;
+
+    /**
+     * Creates reader of packed reads file
+     *
+     * @param file file with reads
+     * @throws IOException in case there is problem with reading from file
+     */
+    public PackedReadsReader(File file) throws IOException {
+        this.file = new RandomAccessFile(file, "r");
+        this.channel = this.file.getChannel();
+        this.size = channel.size();
+
+        if (size < PackedReads.HEADER_SIZE) {
+            this.file.close();
+            throw new RuntimeException("Not a packed reads file.");
+        }
+
+        map(0, PackedReads.HEADER_SIZE);
+        byte[] magic = new byte[PackedReads.MAGIC.length];
+        window.get(magic);
+        if (!Arrays.equals(magic, PackedReads.MAGIC)) {
+            this.file.close();
+            throw new RuntimeException("Not a packed reads file.");
+        }
+        if (window.getInt() != PackedReads.VERSION) {
+            this.file.close();
+            throw new RuntimeException("Unsupported packed reads file version.");
+        }
+        this.flags = window.getInt();
+        this.position = PackedReads.HEADER_SIZE;
+    }
+
+    /**
+     * Returns true if quality values are binned in this file (see {@link PackedReads#binQuality(byte)})
+     *
+     * @return true if quality values are binned in this file
+     */
+    public boolean isQualityBinned() {
+        return (flags & PackedReads.FLAG_BINNED_QUALITY) != 0;
+    }
+
+    /**
+     * Returns true if read descriptions are stored in this file
+     *
+     * @return true if read descriptions are stored in this file
+     */
+    public boolean hasDescriptions() {
+        return (flags & PackedReads.FLAG_DESCRIPTIONS) != 0;
+    }
+
+    @Override
+    public synchronized SSequencingRead take() {
+        if (closed)
+            return null;
+
+        try {
+            if (position == size) {
+                close();
+                return null;
+            }
+
+            ensure(4);
+            final int recordSize = window.getInt();
+            ensure(4 + recordSize);
+            window.position(window.position() + 4);
+
+            final int length = window.getInt();
+
+            String description = "";
+            if (hasDescriptions()) {
+                final byte[] bytes = new byte[window.getInt()];
+                window.get(bytes);
+                description = new String(bytes, DESCRIPTION_CHARSET);
+            }
+
+            final byte[] sequence = new byte[(length + 3) >> 2];
+            window.get(sequence);
+
+            final byte[] quality = new byte[length];
+            if (isQualityBinned()) {
+                int b = 0;
+                for (int i = 0; i < length; ++i) {
+                    if ((i & 1) == 0)
+                        b = window.get();
+                    quality[i] = PackedReads.binValue((b >>> ((i & 1) << 2)) & 0xF);
+                }
+            } else
+                window.get(quality);
+
+            position += 4 + recordSize;
+            if (windowOffset + window.position() != position)
+                throw new RuntimeException("Wrong record size.");
+
+            return new SSequencingReadImpl(description,
+                    new NucleotideSQPair(NucleotideSequence.fromPacked(sequence, length), SequenceQualityPhred.wrap(quality)),
+                    counter++);
+        } catch (IOException e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    /**
+     * Makes at least {@code bytes} bytes starting from {@link #position} available in the window and sets window
+     * position to {@link #position}.
+     */
+    private void ensure(int bytes) throws IOException {
+        if (position + bytes > size)
+            throw new RuntimeException("Unexpected end of file.");
+        if (position + bytes > windowOffset + window.limit())
+            map(position, Math.max(bytes, WINDOW_SIZE));
+        window.position((int) (position - windowOffset));
+    }
+
+    private void map(long offset, long length) throws IOException {
+        windowOffset = offset;
+        window = channel.map(FileChannel.MapMode.READ_ONLY, offset, Math.min(length, size - offset));
+    }
+
+    @Override
+    public double getProgress() {
+        return ((double) position) / size;
+    }
+
+    @Override
+    public synchronized boolean isFinished() {
+        return closed;
+    }
+
+    @Override
+    public synchronized void close() {
+        if (closed)
+            return;
+        closed = true;
+        window = null;
+        try {
+            file.close();
+        } catch (IOException e) {
+            throw new RuntimeException(e);
+        }
+    }
+}
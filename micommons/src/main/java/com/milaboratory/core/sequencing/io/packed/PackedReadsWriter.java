@@ -0,0 +1,133 @@
+/*
+ * MiTCR <http://milaboratory.com>
+ *
+ * Copyright (c) 2010-2013:
+ *     Bolotin Dmitriy     <bolotin.dmitriy@gmail.com>
+ *     Chudakov Dmitriy    <chudakovdm@mail.ru>
+ *
+ * MiTCR is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License as published by the Free
+ * Software Foundation, either version 3 of the License, or (at your option)
+ * any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU General Public License for
+ * more details.
+ *
+ * You should have received a copy of the GNU General Public License along
+ * with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.milaboratory.core.sequencing.io.packed;
+
+import com.milaboratory.core.sequence.NucleotideSQPair;
+import com.milaboratory.core.sequence.nucleotide.NucleotideSequence;
+import com.milaboratory.core.sequencing.read.SSequencingRead;
+import com.milaboratory.util.Bit2Array;
+
+import java.io.*;
+import java.nio.charset.Charset;
+import java.util.Collection;
+
+/**
+ * File writer in packed reads format (see {@link PackedReads}) for single-end reads
+ *
+ * @author Bolotin Dmitriy (bolotin.dmitriy@gmail.com)
+ */
+public final class PackedReadsWriter {
+    private static final Charset DESCRIPTION_CHARSET = Charset.forName("ISO-8859-1");
+    private static final byte[] EMPTY = new byte[0];
+    private final DataOutputStream output;
+    private final boolean binQuality, saveDescriptions;
+
+    /**
+     * Creates file writer in packed reads format. Quality values are stored as is, descriptions are saved.
+     *
+     * @param file file to store reads
+     */
+    public PackedReadsWriter(File file) throws IOException {
+        this(new FileOutputStream(file), false, true);
+    }
+
+    /**
+     * Creates file writer in packed reads format
+     *
+     * @param file             file to store reads
+     * @param binQuality       if true quality values will be binned (see {@link PackedReads#binQuality(byte)})
+     * @param saveDescriptions if false read descriptions will not be saved
+     */
+    public PackedReadsWriter(File file, boolean binQuality, boolean saveDescriptions) throws IOException {
+        this(new FileOutputStream(file), binQuality, saveDescriptions);
+    }
+
+    /**
+     * Creates writer in packed reads format
+     *
+     * @param outputStream     stream for output
+     * @param binQuality       if true quality values will be binned (see {@link PackedReads#binQuality(byte)})
+     * @param saveDescriptions if false read descriptions will not be saved
+     */
+    public PackedReadsWriter(OutputStream outputStream, boolean binQuality, boolean saveDescriptions) throws IOException {
+        this.output = new DataOutputStream(new BufferedOutputStream(outputStream, 65536));
+        this.binQuality = binQuality;
+        this.saveDescriptions = saveDescriptions;
+
+        output.write(PackedReads.MAGIC);
+        output.writeInt(PackedReads.VERSION);
+        output.writeInt((binQuality ? PackedReads.FLAG_BINNED_QUALITY : 0) |
+                (saveDescriptions ? PackedReads.FLAG_DESCRIPTIONS : 0));
+    }
+
+    /**
+     * Writes a {@link SSequencingRead} to output
+     *
+     * @param read {@link SSequencingRead} to write
+     */
+    public void write(SSequencingRead read) throws IOException {
+        final NucleotideSQPair data = read.getData();
+        final int length = data.size();
+        final byte[] sequence = Bit2Array.extractRawDataArray(NucleotideSequence.extractInnerData(data.getSequence()));
+        final byte[] quality = data.getQuality().getInnerData();
+        final byte[] description = saveDescriptions ? read.getDescription().getBytes(DESCRIPTION_CHARSET) : EMPTY;
+        final int sequenceSize = (length + 3) >> 2;
+        final int qualitySize = binQuality ? (length + 1) >> 1 : length;
+
+        output.writeInt(4 + (saveDescriptions ? 4 + description.length : 0) + sequenceSize + qualitySize);
+        output.writeInt(length);
+        if (saveDescriptions) {
+            output.writeInt(description.length);
+            output.write(description);
+        }
+        output.write(sequence, 0, sequenceSize);
+        if (binQuality) {
+            for (int i = 0; i < length; i += 2)
+                output.write(PackedReads.binQuality(quality[i]) |
+                        (i + 1 < length ? PackedReads.binQuality(quality[i + 1]) << 4 : 0));
+        } else
+            output.write(quality);
+    }
+
+    /**
+     * Writes a collection of {@link SSequencingRead}
+     *
+     * @param reads a collection of {@link SSequencingRead}s to write
+     */
+    public void write(Collection<? extends SSequencingRead> reads) throws IOException {
+        for (SSequencingRead sr : reads)
+            write(sr);
+    }
+
+    /**
+     * Flushes the buffer
+     */
+    public void flush() throws IOException {
+        output.flush();
+    }
+
+    /**
+     * Closes the writer
+     */
+    public void close() throws IOException {
+        output.close();
+    }
+}
@@ -27,6 +27,7 @@ import com.milaboratory.core.sequence.nucleotide.NucleotideSequence;
  */
 public class SFFHeader {
     private char[] version;
+    private int headerLength;
     private long indexOffset;
     private int indexLength;
     private int numberOfReads;
@@ -38,7 +39,14 @@ public class SFFHeader {
     private NucleotideSequence flowsSequence;
 
     public SFFHeader(char[] version, long indexOffset, int indexLength, int numberOfReads, int keyLength, int flowgramFormatCode, int numberOfFlows, char[] flowChars, char[] keySequence) {
+        //Header is padded to 8 bytes
+        this(version, ((31 + numberOfFlows + keyLength + 7) / 8) * 8, indexOffset, indexLength, numberOfReads, keyLength,
+                flowgramFormatCode, numberOfFlows, flowChars, keySequence);
+    }
+
+    public SFFHeader(char[] version, int headerLength, long indexOffset, int indexLength, int numberOfReads, int keyLength, int flowgramFormatCode, int numberOfFlows, char[] flowChars, char[] keySequence) {
         this.version = version;
+        this.headerLength = headerLength;
         this.indexOffset = indexOffset;
         this.indexLength = indexLength;
         this.numberOfReads = numberOfReads;
@@ -58,6 +66,10 @@ public class SFFHeader {
         return flowgramFormatCode;
     }
 
+    public int getHeaderLength() {
+        return headerLength;
+    }
+
     public int getIndexLength() {
         return indexLength;
     }
@@ -94,6 +106,7 @@ public class SFFHeader {
     public String toString() {
         return "SFFHeader{" +
                 "version=" + version +
+                ", headerLength=" + headerLength +
                 ", indexOffset=" + indexOffset +
                 ", indexLength=" + indexLength +
                 ", numberOfReads=" + numberOfReads +
@@ -20,25 +20,33 @@
  */
 package com.milaboratory.core.sequencing.io.sff;
 
-import cc.redberry.pipe.blocks.AbstractOutputPortUninterruptible;
 import com.milaboratory.core.sequence.NucleotideSQPair;
 import com.milaboratory.core.sequence.nucleotide.NucleotideAlphabet;
 import com.milaboratory.core.sequence.nucleotide.NucleotideSequence;
 import com.milaboratory.core.sequence.quality.SequenceQualityPhred;
+import com.milaboratory.core.sequencing.io.AbstractBlockParsingReader;
 import com.milaboratory.core.sequencing.io.SSequencingDataReaderWithFlowgram;
 import com.milaboratory.core.sequencing.read.SSequencingReadWithFlowgram;
-import com.milaboratory.util.*;
+import com.milaboratory.util.Bit2Array;
+import com.milaboratory.util.CompressionType;
+import com.milaboratory.util.IndexRange;
 
 import java.io.*;
+import java.util.Arrays;
 
 /**
+ * Reader of SFF files.
+ *
+ * <p>File is read by large blocks. Blocks are split at read boundaries using lengths from read headers, and the index
+ * section (its position is taken from the file header) is skipped. Reads are decoded directly from bytes in threads
+ * calling {@link #take()} (see {@link AbstractBlockParsingReader}).</p>
+ *
  * @author Bolotin Dmitriy (bolotin.dmitriy@gmail.com)
  */
-public class SFFReader extends AbstractOutputPortUninterruptible<SSequencingReadWithFlowgram> implements SSequencingDataReaderWithFlowgram {
-    private long counter = 0;
-    private final DataInputStream stream;
-    private SFFHeader header;
-    private final ByteBufferHolderCache bufferHolderCache = new ByteBufferHolderCache();
+public class SFFReader extends AbstractBlockParsingReader<SSequencingReadWithFlowgram> implements SSequencingDataReaderWithFlowgram {
+    private final SFFHeader header;
+    //Fields accessed under the reader lock
+    private int readsLeft, lastCount;
 
     public SFFReader(File file) throws IOException {
         this(new FileInputStream(file), CompressionType.None);
@@ -49,25 +57,35 @@ public class SFFReader extends AbstractOutputPortUninterruptible<SSequencingRead
     }
 
     public SFFReader(InputStream is, CompressionType ct) throws IOException {
-        is = ct.createInputStream(is);
-        BufferedInputStream bis = new BufferedInputStream(is);
-        stream = new DataInputStream(bis);
-        readHeader();
+        this(is, ct, DEFAULT_BLOCK_SIZE);
+    }
+
+    public SFFReader(InputStream is, CompressionType ct, int blockSize) throws IOException {
+        this(ct.createInputStream(is), blockSize);
+    }
+
+    private SFFReader(InputStream is, int blockSize) throws IOException {
+        this(is, readHeader(is), blockSize);
+    }
+
+    private SFFReader(InputStream is, SFFHeader header, int blockSize) {
+        super(is, header.getHeaderLength(), blockSize);
+        this.header = header;
+        this.readsLeft = header.getNumberOfReads();
     }
 
-    private void readHeader() throws IOException {
+    private static SFFHeader readHeader(InputStream is) throws IOException {
+        //Not buffered, so no data is read beyond the header
+        DataInputStream stream = new DataInputStream(is);
+
         //Checking magic number
         int magicNumber = stream.readInt();
         if (magicNumber != 0x2E736666)
             throw new IOException("Wrong magic number.");
-        //Creating buffer holder
-        ByteBufferHolder bufferHolder = bufferHolderCache.get();
 
         char[] version = new char[4];
-        byte[] buf = bufferHolder.getBuffer(4);
-        stream.read(buf, 0, 4);
         for (int i = 0; i < 4; ++i)
-            version[i] = (char) buf[i];
+            version[i] = (char) stream.readUnsignedByte();
         if (version[0] != 0 || version[1] != 0 || version[2] != 0 || version[3] != 1)
             throw new IOException("Unsupported version.");
         long indexOffset = stream.readLong();
@@ -75,8 +93,9 @@ public class SFFReader extends AbstractOutputPortUninterruptible<SSequencingRead
         int numberOfReads = stream.readInt();
         int headerLength = stream.readUnsignedShort();
 
-        bufferHolder.readToBuffer(stream, headerLength - 26);
-        DataInputStream bufferStream = bufferHolder.getDataInputStream();
+        byte[] buffer = new byte[headerLength - 26];
+        stream.readFully(buffer);
+        DataInputStream bufferStream = new DataInputStream(new ByteArrayInputStream(buffer));
         int keyLength = bufferStream.readUnsignedShort();
         int numberOfFlows = bufferStream.readUnsignedShort();
         int flowgramFormatCode = bufferStream.readUnsignedByte();
@@ -88,94 +107,116 @@ public class SFFReader extends AbstractOutputPortUninterruptible<SSequencingRead
             keySequence[i] = (char) bufferStream.readUnsignedByte();
         if (numberOfFlows < 0 || numberOfReads < 0)
             throw new IOException("Unsigned to signed overflow.");
-        header = new SFFHeader(version, indexOffset, indexLength, numberOfReads, keyLength, flowgramFormatCode, numberOfFlows, flowChars, keySequence);
+        return new SFFHeader(version, headerLength, indexOffset, indexLength, numberOfReads, keyLength,
+                flowgramFormatCode, numberOfFlows, flowChars, keySequence);
     }
 
     @Override
-    public SFFRAWRead _take() {
-        if (counter == header.getNumberOfReads() - 1) {
-            synchronized (stream) {
-                try {
-                    stream.close();
-                } catch (IOException ex) {
-                    throw new RuntimeException(ex);
-                }
-            }
-            return null;
+    protected int split(byte[] data, int limit, long offset, boolean eof) {
+        if (readsLeft == 0)
+            return -1;
+
+        int position = 0, next, count = 0;
+        while (count < readsLeft) {
+            if ((next = skipIndex(position, offset)) > limit)
+                break;
+            position = next;
+            if (position + 8 > limit || (next = position + recordLength(data, position)) > limit)
+                break;
+            position = next;
+            ++count;
         }
 
-        //Getting buffer holder
-        ByteBufferHolder bufferHolder = bufferHolderCache.get();
-
-        //Buffer stream and byte buffer
-        DataInputStream bufferStream;
-        byte[] buff;
-
-        //Read metadata
-        int numberOfBases, clipQualLeft,
-                clipQualRight, clipAdapterLeft,
-                clipAdapterRight;
-        String name;
-
-        //id
-        long id;
-
-        //Accessing stream
-        synchronized (stream) {
-            try {
-                //Reading Read Header
-                int headerLength = stream.readUnsignedShort();
-                buff = bufferHolder.readToBuffer(stream, headerLength - 2);
-                bufferStream = bufferHolder.getDataInputStream();
-                int nameLength = bufferStream.readUnsignedShort();
-                numberOfBases = bufferStream.readInt();
-                if (numberOfBases < 0)
-                    throw new IOException("Unsigned to signed overflow.");
-
-                //Indexing in file is 1-based
-                clipQualLeft = bufferStream.readUnsignedShort() - 1;
-                clipQualRight = bufferStream.readUnsignedShort() - 1;
-                clipAdapterLeft = bufferStream.readUnsignedShort() - 1;
-                clipAdapterRight = bufferStream.readUnsignedShort() - 1;
-
-                //Direct array to String convertion
-                name = new String(buff, 14, nameLength);
-
-                //Readin Read data
-                int mainPartLength = 2 * header.getNumberOfFlows() + 3 * numberOfBases;
-                mainPartLength = (((mainPartLength - 1) / 8) + 1) * 8;
-                buff = bufferHolder.readToBuffer(stream, mainPartLength);
-                id = counter++;
-            } catch (IOException ex) {
-                throw new RuntimeException(ex);
-            }
-        }
+        readsLeft -= count;
+        lastCount = count;
+        return position;
+    }
 
-        bufferStream = bufferHolder.getDataInputStream();
-        int[] flowgramValues = new int[header.getNumberOfFlows()];
-        try {
-            for (int i = 0; i < header.getNumberOfFlows(); ++i)
-                flowgramValues[i] = bufferStream.readUnsignedShort();
-        } catch (IOException ex) {
-            throw new RuntimeException("Impossible exception.", ex);
-        }
-        byte[] flowIndexPerBaseIncrements = new byte[numberOfBases];
-        System.arraycopy(buff, 2 * header.getNumberOfFlows(), flowIndexPerBaseIncrements, 0, numberOfBases);
-        flowIndexPerBaseIncrements[0] = 0; // Correction for 0-based indexing
+    @Override
+    protected int count(byte[] data, int end, long offset) {
+        return lastCount;
+    }
+
+    @Override
+    protected SFFRAWRead parse(Block block) {
+        if (block.position < block.end)
+            block.position = skipIndex(block.position, block.offset);
+        if (block.position >= block.end)
+            return null;
+
+        final byte[] buff = block.data;
+        final int from = block.position;
+        final int numberOfFlows = header.getNumberOfFlows();
+
+        //Read header
+        int headerLength = readUnsignedShort(buff, from);
+        int nameLength = readUnsignedShort(buff, from + 2);
+        int numberOfBases = readInt(buff, from + 4);
+        if (numberOfBases < 0)
+            throw new RuntimeException("Unsigned to signed overflow.");
+
+        //Indexing in file is 1-based
+        int clipQualLeft = readUnsignedShort(buff, from + 8) - 1;
+        int clipQualRight = readUnsignedShort(buff, from + 10) - 1;
+        int clipAdapterLeft = readUnsignedShort(buff, from + 12) - 1;
+        int clipAdapterRight = readUnsignedShort(buff, from + 14) - 1;
+
+        //Direct array to String convertion
+        String name = new String(buff, from + 16, nameLength);
+
+        //Read data
+        final int data = from + headerLength;
+        int[] flowgramValues = new int[numberOfFlows];
+        for (int i = 0; i < numberOfFlows; ++i)
+            flowgramValues[i] = readUnsignedShort(buff, data + 2 * i);
+        final int indexes = data + 2 * numberOfFlows, bases = indexes + numberOfBases, qualities = bases + numberOfBases;
         Bit2Array sequenceData = new Bit2Array(numberOfBases);
         for (int i = 0; i < numberOfBases; ++i)
-            sequenceData.set(i, NucleotideAlphabet.INSTANCE.codeFromSymbol((char) (buff[2 * header.getNumberOfFlows() + numberOfBases + i])));
-        byte[] qualityData = new byte[numberOfBases];
+            sequenceData.set(i, NucleotideAlphabet.INSTANCE.codeFromSymbol((char) buff[bases + i]));
         NucleotideSequence sequence = new NucleotideSequence(sequenceData);
-        System.arraycopy(buff, 2 * header.getNumberOfFlows() + 2 * numberOfBases, qualityData, 0, numberOfBases);
-        NucleotideSQPair sqData = new NucleotideSQPair(sequence, new SequenceQualityPhred(qualityData));
+        NucleotideSQPair sqData = new NucleotideSQPair(sequence,
+                new SequenceQualityPhred(Arrays.copyOfRange(buff, qualities, qualities + numberOfBases)));
         int[] flowgramIndexes = new int[numberOfBases];
-        int index = 0;
-        for (int i = 0; i < numberOfBases; ++i)
-            flowgramIndexes[i] = (index += flowIndexPerBaseIncrements[i]);
-        return new SFFRAWRead(name, sqData, new IndexRange(0, header.getNumberOfFlows()),
+        //First increment is ignored (correction for 0-based indexing)
+        for (int i = 1, index = 0; i < numberOfBases; ++i)
+            flowgramIndexes[i] = (index += buff[indexes + i] & 0xFF);
+
+        block.position = from + recordLength(buff, from);
+        return new SFFRAWRead(name, sqData, new IndexRange(0, numberOfFlows),
                 flowgramValues, flowgramIndexes, header.getFlowsSequence(),
-                clipQualLeft, clipQualRight, clipAdapterLeft, clipAdapterRight, id);
+                clipQualLeft, clipQualRight, clipAdapterLeft, clipAdapterRight, block.id++);
+    }
+
+    /**
+     * Returns position after index section if it starts at the specified position.
+     */
+    private int skipIndex(int position, long offset) {
+        if (header.getIndexLength() > 0 && offset + position == header.getIndexOffset())
+            return position + pad8(header.getIndexLength());
+        return position;
+    }
+
+    /**
+     * Returns length of the read record (header and data) starting at the specified position.
+     */
+    private int recordLength(byte[] data, int position) {
+        int numberOfBases = readInt(data, position + 4);
+        if (numberOfBases < 0)
+            throw new RuntimeException("Unsigned to signed overflow.");
+        return readUnsignedShort(data, position) + pad8(2 * header.getNumberOfFlows() + 3 * numberOfBases);
+    }
+
+    private static int pad8(int length) {
+        return ((length + 7) / 8) * 8;
+    }
+
+    private static int readUnsignedShort(byte[] data, int position) {
+        return ((data[position] & 0xFF) << 8) | (data[position + 1] & 0xFF);
+    }
+
+    private static int readInt(byte[] data, int position) {
+        return ((data[position] & 0xFF) << 24) | ((data[position + 1] & 0xFF) << 16) |
+                ((data[position + 2] & 0xFF) << 8) | (data[position + 3] & 0xFF);
     }
 
     public SFFHeader getHeader() {
@@ -187,22 +228,6 @@ public class SFFReader extends AbstractOutputPortUninterruptible<SSequencingRead
         return header.getFlowsSequence();
     }
 
-    @Override
-    public void _close() {
-        synchronized (stream) {
-            try {
-                stream.close();
-            } catch (IOException ex) {
-                throw new RuntimeException(ex);
-            }
-        }
-    }
-
-    /*@Override
-    public Status getStatus() {
-        return new Status("Reading SFF", 100 * readsRed / header.getNumberOfReads());
-    }*/
-
     /*public static SSequencingDataReaderWithFlowgram create(InputStream is, CompressionType ct) throws IOException {
         return SequencindDad.wrap(new SFFReader(is, ct), new SFFClipper());
     }
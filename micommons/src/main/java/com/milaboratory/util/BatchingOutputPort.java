@@ -0,0 +1,101 @@
+/*
+ * MiTCR <http://milaboratory.com>
+ *
+ * Copyright (c) 2010-2013:
+ *     Bolotin Dmitriy     <bolotin.dmitriy@gmail.com>
+ *     Chudakov Dmitriy    <chudakovdm@mail.ru>
+ *
+ * MiTCR is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License as published by the Free
+ * Software Foundation, either version 3 of the License, or (at your option)
+ * any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU General Public License for
+ * more details.
+ *
+ * You should have received a copy of the GNU General Public License along
+ * with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.milaboratory.util;
+
+import cc.redberry.pipe.OutputPort;
+
+import java.lang.reflect.Array;
+import java.util.Arrays;
+
+/**
+ * Groups objects from the inner port into arrays of fixed size (the last array may be smaller). Moving arrays instead
+ * of single objects between pipeline blocks ({@link cc.redberry.pipe.blocks.Merger}, {@link
+ * cc.redberry.pipe.blocks.ParallelProcessor}, etc.) reduces the number of synchronization operations per object.
+ *
+ * <p>This port is thread-safe.</p>
+ *
+ * @param <T> type of objects
+ * @author Bolotin Dmitriy (bolotin.dmitriy@gmail.com)
+ */
+public final class BatchingOutputPort<T> implements OutputPort<T[]> {
+    /**
+     * Default number of objects in one batch
+     */
+    public static final int DEFAULT_BATCH_SIZE = 1024;
+    private final OutputPort<? extends T> input;
+    private final Class<T> type;
+    private final int batchSize;
+    private boolean finished = false;
+
+    /**
+     * Creates batching output port with {@link #DEFAULT_BATCH_SIZE}.
+     *
+     * @param input inner port
+     * @param type  type of objects (to create arrays)
+     */
+    public BatchingOutputPort(OutputPort<? extends T> input, Class<T> type) {
+        this(input, type, DEFAULT_BATCH_SIZE);
+    }
+
+    /**
+     * Creates batching output port.
+     *
+     * @param input     inner port
+     * @param type      type of objects (to create arrays)
+     * @param batchSize maximal number of objects in one batch
+     */
+    public BatchingOutputPort(OutputPort<? extends T> input, Class<T> type, int batchSize) {
+        if (input == null || type == null)
+            throw new NullPointerException();
+        if (batchSize <= 0)
+            throw new IllegalArgumentException();
+        this.input = input;
+        this.type = type;
+        this.batchSize = batchSize;
+    }
+
+    @Override
+    public synchronized T[] take() throws InterruptedException {
+        if (finished)
+            return null;
+
+        @SuppressWarnings("unchecked")
+        T[] batch = (T[]) Array.newInstance(type, batchSize);
+        int size = 0;
+        T object;
+        while (size < batchSize)
+            if ((object = input.take()) == null) {
+                finished = true;
+                break;
+            } else
+                batch[size++] = object;
+
+        if (size == 0)
+            return null;
+
+        return size == batchSize ? batch : Arrays.copyOf(batch, size);
+    }
+
+    @Override
+    public void close() {
+        input.close();
+    }
+}
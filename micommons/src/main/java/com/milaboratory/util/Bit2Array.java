@@ -63,15 +63,126 @@ public final class Bit2Array implements Serializable {
                 otherOffset < 0 || otherOffset + length > other.size)
             throw new IndexOutOfBoundsException();
 
-        //TODO optimize
-        for (int i = 0; i < length; ++i)
-            set(thisOffset + i, other.get(otherOffset + i));
+        //Leading elements till the byte boundary
+        for (; length > 0 && (thisOffset & 3) != 0; --length)
+            set(thisOffset++, other.get(otherOffset++));
+
+        //Whole bytes
+        for (; length >= 4; length -= 4, thisOffset += 4, otherOffset += 4)
+            data[thisOffset >> 2] = (byte) other.getByte(otherOffset);
+
+        //Trailing elements
+        for (; length > 0; --length)
+            set(thisOffset++, other.get(otherOffset++));
+    }
+
+    /**
+     * Returns four elements starting from {@code index} packed into one byte (elements after the end of array are
+     * zeros).
+     */
+    private int getByte(int index) {
+        final int i = index >> 2, shift = (index & 3) << 1;
+        int value = (data[i] & 0xFF) >>> shift;
+        if (shift != 0 && i + 1 < data.length)
+            value |= (data[i + 1] & 0xFF) << (8 - shift);
+        return value & 0xFF;
+    }
+
+    /**
+     * Returns 32 elements starting from {@code index} packed into long (the first element in the lowest bits, elements
+     * after the end of array are zeros).
+     */
+    private long getLong(int index) {
+        final int from = index >> 2, shift = (index & 3) << 1;
+        long value = 0;
+        for (int i = 0, to = java.lang.Math.min(8, data.length - from); i < to; ++i)
+            value |= (data[from + i] & 0xFFL) << (i << 3);
+        value >>>= shift;
+        if (shift != 0 && from + 8 < data.length)
+            value |= (data[from + 8] & 0xFFL) << (64 - shift);
+        return value;
+    }
+
+    /**
+     * Returns the number of positions in the specified regions where elements of this and other arrays are different.
+     *
+     * @param thisOffset  start of the region in this array
+     * @param other       other array
+     * @param otherOffset start of the region in other array
+     * @param length      length of the regions
+     * @return number of mismatches
+     */
+    public int mismatches(int thisOffset, Bit2Array other, int otherOffset, int length) {
+        return mismatches(thisOffset, other, otherOffset, length, Integer.MAX_VALUE);
+    }
+
+    /**
+     * Returns the number of positions in the specified regions where elements of this and other arrays are different.
+     * Comparison is performed 32 elements at a time and stops as soon as {@code maxMismatches} is exceeded.
+     *
+     * @param thisOffset    start of the region in this array
+     * @param other         other array
+     * @param otherOffset   start of the region in other array
+     * @param length        length of the regions
+     * @param maxMismatches maximal number of mismatches of interest
+     * @return number of mismatches or any value greater than {@code maxMismatches} if there are more mismatches
+     */
+    public int mismatches(int thisOffset, Bit2Array other, int otherOffset, int length, int maxMismatches) {
+        if (thisOffset < 0 || thisOffset + length > size ||
+                otherOffset < 0 || otherOffset + length > other.size)
+            throw new IndexOutOfBoundsException();
+
+        int mismatches = 0, rest;
+        long x;
+        for (int i = 0; i < length; i += 32) {
+            x = getLong(thisOffset + i) ^ other.getLong(otherOffset + i);
+            //One bit per mismatching element
+            x = (x | (x >>> 1)) & 0x5555555555555555L;
+            if ((rest = length - i) < 32)
+                x &= (1L << (rest << 1)) - 1;
+            if ((mismatches += Long.bitCount(x)) > maxMismatches)
+                break;
+        }
+        return mismatches;
+    }
+
+    /**
+     * Compares arrays by size, and then lexicographically by elements (the same order as {@link
+     * com.milaboratory.core.sequence.Sequence#compareTo(com.milaboratory.core.sequence.Sequence)}). Elements are
+     * compared 32 at a time.
+     *
+     * @param other other array
+     * @return a negative integer, zero, or a positive integer as this array is less than, equal to, or greater than the
+     * other array
+     */
+    public int compareTo(Bit2Array other) {
+        if (size != other.size)
+            return size < other.size ? -1 : 1;
+
+        long a, b, x;
+        int shift;
+        for (int i = 0; i < size; i += 32) {
+            a = getLong(i);
+            b = other.getLong(i);
+            if ((x = a ^ b) != 0) {
+                //First different element
+                shift = Long.numberOfTrailingZeros(x) & ~1;
+                if (i + (shift >> 1) >= size)
+                    return 0;
+                return ((a >>> shift) & 3) < ((b >>> shift) & 3) ? -1 : 1;
+            }
+        }
+        return 0;
     }
 
     @Override
     public int hashCode() {
         int hash = 7;
-        hash = 47 * hash + Arrays.hashCode(this.data);
+        final int bytes = (size + 3) >> 2;
+        for (int i = 0; i < bytes - 1; ++i)
+            hash = 47 * hash + data[i];
+        if (bytes != 0)
+            hash = 47 * hash + lastByte();
         hash = 47 * hash + this.size;
         return hash;
     }
@@ -85,22 +196,40 @@ public final class Bit2Array implements Serializable {
         final Bit2Array other = (Bit2Array) obj;
         if (this.size != other.size)
             return false;
-        if (!Arrays.equals(this.data, other.data))
-            return false;
-        return true;
+        //Padding bits after the last element are ignored (data may be constructed from outside)
+        final int bytes = (size + 3) >> 2;
+        for (int i = 0; i < bytes - 1; ++i)
+            if (data[i] != other.data[i])
+                return false;
+        return bytes == 0 || lastByte() == other.lastByte();
+    }
+
+    /**
+     * Returns last byte of the storage with unused bits cleared.
+     */
+    private int lastByte() {
+        final int b = data[(size - 1) >> 2] & 0xFF;
+        return (size & 3) == 0 ? b : b & ((1 << ((size & 3) << 1)) - 1);
     }
 
-    //TODO optimize
     public Bit2Array getRange(int from, int to) {
         if (from < 0 || (from >= size && size != 0)
                 || to < from || to > size)
             throw new IndexOutOfBoundsException();
 
-        Bit2Array ret = new Bit2Array(to - from);
-        int i = 0;
-        for (int j = from; j < to; ++j, ++i)
-            ret.set(i, get(j));
-        return ret;
+        final int length = to - from;
+        final byte[] range = new byte[(length + 3) >> 2];
+        if ((from & 3) == 0)
+            System.arraycopy(data, from >> 2, range, 0, range.length);
+        else
+            for (int i = 0; i < range.length; ++i)
+                range[i] = (byte) getByte(from + (i << 2));
+
+        //Clearing elements after the end of range
+        if ((length & 3) != 0)
+            range[range.length - 1] &= (1 << ((length & 3) << 1)) - 1;
+
+        return new Bit2Array(length, range);
     }
 
     /*public static Bit2Array wrap(byte[] data, int size) {
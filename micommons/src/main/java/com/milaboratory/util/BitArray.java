@@ -23,34 +23,42 @@ package com.milaboratory.util;
 import java.io.Serializable;
 import java.util.Arrays;
 
+/**
+ * Fixed size array of bits backed by {@code long} words (bit {@code i} is stored in word {@code i >> 6}). Bits after
+ * {@link #size()} in the last word are always zero.
+ *
+ * <p>Arrays with not more than 64 bits (e.g. barcodes of most segment groups) are stored in a single word and have
+ * dedicated fast paths in bulk operations.</p>
+ *
+ * <p>Set bits can be iterated without allocations using {@link #nextSetBit(int)} or {@link
+ * #forEachSetBit(BitProcessor)}.</p>
+ */
 public class BitArray implements Serializable {
-    private static final long serialVersionUID = 1L;
+    private static final long serialVersionUID = 2L;
 
-    byte[] data;
+    long[] data;
     int size;
 
     public BitArray(int size) {
         this.size = size;
-        this.data = new byte[(size + 7) >> 3];
+        this.data = new long[(size + 63) >> 6];
     }
 
-    BitArray(byte[] data, int size) {
-        //if(data.length != ((size + 7) >> 3))
-        //    throw new IllegalStateException();
+    BitArray(long[] data, int size) {
         this.data = data;
         this.size = size;
     }
 
     public boolean get(int i) {
-        return (data[i >> 3] & (1 << (i & 7))) != 0;
+        return (data[i >> 6] & (1L << i)) != 0;
     }
 
     public void set(int i) {
-        data[i >> 3] |= (1 << (i & 7));
+        data[i >> 6] |= (1L << i);
     }
 
     public void clear(int i) {
-        data[i >> 3] &= ~(1 << (i & 7));
+        data[i >> 6] &= ~(1L << i);
     }
 
     public void set(int i, boolean value) {
@@ -62,23 +70,20 @@ public class BitArray implements Serializable {
 
     //TODO Equals to load values
     public void set(BitArray ba) {
-        if (ba.size != this.size)
-            throw new IllegalArgumentException();
-        for (int i = 0; i < this.data.length; ++i)
-            this.data[i] = ba.data[i];
+        loadValueFrom(ba);
     }
 
     public void setAll() {
-        //for (int i = 0; i < data.length; ++i)
-        //    data[i] = 0xFFFFFFFF;
-        Arrays.fill(data, (byte) 0xFF);
-        if ((size & 7) != 0)
-            data[data.length - 1] = (byte) (0xFF >>> (8 - (size & 0x7)));
+        Arrays.fill(data, -1L);
+        if ((size & 63) != 0)
+            data[data.length - 1] = -1L >>> (64 - (size & 63));
     }
 
     public boolean intersects(BitArray bitArray) {
         if (bitArray.size != this.size)
             throw new IllegalArgumentException();
+        if (data.length == 1)
+            return (data[0] & bitArray.data[0]) != 0;
         for (int i = 0; i < this.data.length; ++i)
             if ((this.data[i] & bitArray.data[i]) != 0)
                 return true;
@@ -86,17 +91,22 @@ public class BitArray implements Serializable {
     }
 
     public int bitCount() {
+        if (data.length == 1)
+            return Long.bitCount(data[0]);
         int count = 0;
         for (int i = 0; i < data.length; ++i)
-            count += Integer.bitCount(0xFF & data[i]);
+            count += Long.bitCount(data[i]);
         return count;
     }
 
     public void or(BitArray bitArray) {
         if (size != bitArray.size)
             throw new IllegalArgumentException();
-        for (int i = 0; i < data.length; ++i)
-            data[i] |= bitArray.data[i];
+        if (data.length == 1)
+            data[0] |= bitArray.data[0];
+        else
+            for (int i = 0; i < data.length; ++i)
+                data[i] |= bitArray.data[i];
     }
 
     public void xor(BitArray bitArray) {
@@ -109,14 +119,20 @@ public class BitArray implements Serializable {
     public void and(BitArray bitArray) {
         if (size != bitArray.size)
             throw new IllegalArgumentException();
-        for (int i = 0; i < data.length; ++i)
-            data[i] &= bitArray.data[i];
+        if (data.length == 1)
+            data[0] &= bitArray.data[0];
+        else
+            for (int i = 0; i < data.length; ++i)
+                data[i] &= bitArray.data[i];
     }
 
     public void loadValueFrom(BitArray bitArray) {
         if (size != bitArray.size)
             throw new IllegalArgumentException();
-        System.arraycopy(bitArray.data, 0, data, 0, bitArray.data.length);
+        if (data.length == 1)
+            data[0] = bitArray.data[0];
+        else
+            System.arraycopy(bitArray.data, 0, data, 0, bitArray.data.length);
     }
 
     /**
@@ -125,24 +141,69 @@ public class BitArray implements Serializable {
      * @return false if some bits are set
      */
     public boolean isClean() {
-        for (byte d : data)
+        for (long d : data)
             if (d != 0)
                 return false;
         return true;
     }
 
     public void clearAll() {
-        //for (int i = 0; i < data.length; ++i)
-        //    data[i] = 0;
-        Arrays.fill(data, (byte) 0);
+        Arrays.fill(data, 0L);
+    }
+
+    /**
+     * Returns index of the first set bit starting from {@code from} (inclusive).
+     *
+     * <pre>
+     * for (int i = ba.nextSetBit(0); i &gt;= 0; i = ba.nextSetBit(i + 1))
+     *     ...
+     * </pre>
+     *
+     * @param from index to start search from
+     * @return index of the first set bit or -1 if there are no set bits after {@code from}
+     */
+    public int nextSetBit(int from) {
+        if (from >= size)
+            return -1;
+        int index = from >> 6;
+        long word = data[index] & (-1L << from);
+        while (true) {
+            if (word != 0)
+                return (index << 6) + Long.numberOfTrailingZeros(word);
+            if (++index == data.length)
+                return -1;
+            word = data[index];
+        }
+    }
+
+    /**
+     * Calls processor for each set bit in ascending order.
+     *
+     * @param processor processor
+     */
+    public void forEachSetBit(BitProcessor processor) {
+        long word;
+        for (int i = 0; i < data.length; ++i) {
+            word = data[i];
+            while (word != 0) {
+                processor.process((i << 6) + Long.numberOfTrailingZeros(word));
+                //Clearing lowest set bit
+                word &= word - 1;
+            }
+        }
     }
 
     public int[] getBits() {
         int[] bits = new int[bitCount()];
         int n = 0;
-        for (int i = 0; i < size; ++i)
-            if (get(i))
-                bits[n++] = i;
+        long word;
+        for (int i = 0; i < data.length; ++i) {
+            word = data[i];
+            while (word != 0) {
+                bits[n++] = (i << 6) + Long.numberOfTrailingZeros(word);
+                word &= word - 1;
+            }
+        }
         return bits;
     }
 
@@ -151,7 +212,7 @@ public class BitArray implements Serializable {
     }
 
     public BitArray clone() {
-        return new BitArray(Arrays.copyOf(data, data.length), size);
+        return new BitArray(data.clone(), size);
     }
 
     public boolean equals(Object obj) {
@@ -160,10 +221,10 @@ public class BitArray implements Serializable {
         if (getClass() != obj.getClass())
             return false;
         final BitArray other = (BitArray) obj;
-        if (!Arrays.equals(this.data, other.data))
-            return false;
         if (this.size != other.size)
             return false;
+        if (!Arrays.equals(this.data, other.data))
+            return false;
         return true;
     }
 
@@ -185,11 +246,40 @@ public class BitArray implements Serializable {
         return new String(c);
     }
 
-    public static byte[] extractRawDataArray(BitArray array) {
-        return array.data;
+    /**
+     * Returns content of the array packed into bytes (eight bits per byte, bit {@code i} is stored in byte {@code i >>
+     * 3}).
+     *
+     * @param array array
+     * @return packed bits
+     */
+    public static byte[] toBytes(BitArray array) {
+        final byte[] bytes = new byte[(array.size + 7) >> 3];
+        for (int i = 0; i < bytes.length; ++i)
+            bytes[i] = (byte) (array.data[i >> 3] >>> ((i & 7) << 3));
+        return bytes;
+    }
+
+    /**
+     * Creates array from bits packed with {@link #toBytes(BitArray)}.
+     *
+     * @param bytes packed bits
+     * @param size  size of array
+     * @return array
+     */
+    public static BitArray fromBytes(byte[] bytes, int size) {
+        final BitArray array = new BitArray(size);
+        for (int i = 0, to = java.lang.Math.min(bytes.length, (size + 7) >> 3); i < to; ++i)
+            array.data[i >> 3] |= (bytes[i] & 0xFFL) << ((i & 7) << 3);
+        if ((size & 63) != 0 && array.data.length > 0)
+            array.data[array.data.length - 1] &= -1L >>> (64 - (size & 63));
+        return array;
     }
 
-    public static BitArray construct(byte[] data, int size) {
-        return new BitArray(data, size);
+    /**
+     * Callback for {@link #forEachSetBit(BitProcessor)}.
+     */
+    public interface BitProcessor {
+        void process(int bit);
     }
 }
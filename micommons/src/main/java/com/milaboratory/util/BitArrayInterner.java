@@ -0,0 +1,62 @@
+/*
+ * MiTCR <http://milaboratory.com>
+ *
+ * Copyright (c) 2010-2013:
+ *     Bolotin Dmitriy     <bolotin.dmitriy@gmail.com>
+ *     Chudakov Dmitriy    <chudakovdm@mail.ru>
+ *
+ * MiTCR is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License as published by the Free
+ * Software Foundation, either version 3 of the License, or (at your option)
+ * any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU General Public License for
+ * more details.
+ *
+ * You should have received a copy of the GNU General Public License along
+ * with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.milaboratory.util;
+
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Pool of shared {@link BitArray}s. Returns one instance for all equal arrays, so e.g. thousands of clones with the
+ * same allele barcode reference a single object.
+ *
+ * <p>Interned arrays are shared and must not be modified.</p>
+ *
+ * <p>This class is thread-safe.</p>
+ *
+ * @author Bolotin Dmitriy (bolotin.dmitriy@gmail.com)
+ */
+public final class BitArrayInterner {
+    private final ConcurrentHashMap<BitArray, BitArray> pool = new ConcurrentHashMap<>();
+
+    /**
+     * Returns shared instance equal to the given array. If there is no such instance, a copy of the array is added to
+     * the pool, so the argument itself never becomes shared.
+     *
+     * @param array array
+     * @return shared instance equal to {@code array} or null if {@code array} is null
+     */
+    public BitArray intern(BitArray array) {
+        if (array == null)
+            return null;
+        BitArray shared = pool.get(array);
+        if (shared != null)
+            return shared;
+        shared = array.clone();
+        BitArray previous = pool.putIfAbsent(shared, shared);
+        return previous == null ? shared : previous;
+    }
+
+    /**
+     * Returns number of distinct arrays in the pool.
+     */
+    public int size() {
+        return pool.size();
+    }
+}
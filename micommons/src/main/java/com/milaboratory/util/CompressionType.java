@@ -24,7 +24,6 @@ import org.apache.commons.compress.compressors.CompressorException;
 import org.apache.commons.compress.compressors.CompressorStreamFactory;
 
 import java.io.*;
-import java.util.zip.GZIPInputStream;
 import java.util.zip.GZIPOutputStream;
 
 public enum CompressionType {
@@ -43,7 +42,7 @@ public enum CompressionType {
             case None:
                 return is;
             case GZIP:
-                return new GZIPInputStream(is, 2048);
+                return new ParallelGZIPInputStream(is);
             case BZIP2:
                 CompressorStreamFactory factory = new CompressorStreamFactory();
                 try {
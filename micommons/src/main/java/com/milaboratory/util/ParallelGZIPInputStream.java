@@ -0,0 +1,358 @@
+/*
+ * MiTCR <http://milaboratory.com>
+ *
+ * Copyright (c) 2010-2013:
+ *     Bolotin Dmitriy     <bolotin.dmitriy@gmail.com>
+ *     Chudakov Dmitriy    <chudakovdm@mail.ru>
+ *
+ * MiTCR is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License as published by the Free
+ * Software Foundation, either version 3 of the License, or (at your option)
+ * any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU General Public License for
+ * more details.
+ *
+ * You should have received a copy of the GNU General Public License along
+ * with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.milaboratory.util;
+
+import java.io.*;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.*;
+import java.util.zip.*;
+
+/**
+ * GZIP input stream that performs decompression in background.
+ *
+ * <p>Data is inflated on a dedicated thread into a ring of large buffers, so the consumer thread never waits for the
+ * inflater while there is decompressed data available.</p>
+ *
+ * <p>If the input is in BGZF format (blocked gzip with compressed block sizes stored in the "BC" extra subfield of each
+ * member header, as produced by bgzip), independent members are inflated concurrently by several threads. Plain
+ * (single- or multi-member) gzip is inflated sequentially, because member boundaries can't be found without
+ * inflating.</p>
+ *
+ * @author Bolotin Dmitriy (bolotin.dmitriy@gmail.com)
+ */
+public final class ParallelGZIPInputStream extends InputStream {
+    /**
+     * Size of decompressed data buffers
+     */
+    public static final int BUFFER_SIZE = 1 << 20;
+    private static final int RING_SIZE = 4;
+    private static final int INPUT_BUFFER_SIZE = 65536;
+    private static final int BGZF_MAX_BLOCK_SIZE = 65536;
+    private static final Object END = new Object();
+
+    //Shared thread pool for BGZF blocks inflation
+    private static volatile ExecutorService inflaters;
+
+    //Compressed input
+    private final InputStream input;
+    //Filled buffers (Chunk or Future<Chunk>), END or exception
+    private final BlockingQueue<Object> filled;
+    //Recycled buffers
+    private final BlockingQueue<byte[]> free = new ArrayBlockingQueue<>(RING_SIZE);
+    private final Thread reader;
+    private volatile boolean closed = false;
+    private boolean eof = false;
+    //Current buffer
+    private Chunk current = null;
+    private int pointer = 0;
+
+    public ParallelGZIPInputStream(InputStream input) throws IOException {
+        this.input = new BufferedInputStream(input, INPUT_BUFFER_SIZE);
+
+        //Checking the header of the first member
+        this.input.mark(18);
+        byte[] header = new byte[18];
+        int size = readFully(this.input, header, 0, header.length);
+        this.input.reset();
+
+        if (size < 2)
+            throw new EOFException();
+
+        if ((header[0] & 0xFF) != 0x1F || (header[1] & 0xFF) != 0x8B)
+            throw new ZipException("Not in GZIP format");
+
+        final boolean bgzf = size == header.length && isBGZFHeader(header);
+
+        this.filled = new ArrayBlockingQueue<>(bgzf ?
+                java.lang.Math.max(RING_SIZE, 2 * Runtime.getRuntime().availableProcessors()) : RING_SIZE);
+        this.reader = new Thread(bgzf ? new BGZFReader() : new SequentialReader(), "GZIP reader");
+        this.reader.setDaemon(true);
+        this.reader.start();
+    }
+
+    @Override
+    public int read() throws IOException {
+        if (!ensureData())
+            return -1;
+        return current.data[pointer++] & 0xFF;
+    }
+
+    @Override
+    public int read(byte[] b, int off, int len) throws IOException {
+        if (len == 0)
+            return 0;
+        if (!ensureData())
+            return -1;
+        len = java.lang.Math.min(len, current.size - pointer);
+        System.arraycopy(current.data, pointer, b, off, len);
+        pointer += len;
+        return len;
+    }
+
+    @Override
+    public int available() throws IOException {
+        return current == null ? 0 : current.size - pointer;
+    }
+
+    @Override
+    public void close() throws IOException {
+        if (closed)
+            return;
+        closed = true;
+        reader.interrupt();
+        input.close();
+    }
+
+    /**
+     * Makes current buffer non empty.
+     *
+     * @return false if end of stream reached
+     */
+    private boolean ensureData() throws IOException {
+        if (closed)
+            throw new IOException("Stream closed");
+
+        while (current == null || pointer == current.size) {
+            if (eof)
+                return false;
+
+            if (current != null)
+                //Recycling
+                free.offer(current.data);
+            current = null;
+
+            Object o;
+            try {
+                o = filled.take();
+                if (o instanceof Future)
+                    o = ((Future<?>) o).get();
+            } catch (InterruptedException e) {
+                throw new InterruptedIOException();
+            } catch (ExecutionException e) {
+                o = e.getCause();
+            }
+
+            if (o == END) {
+                eof = true;
+                return false;
+            }
+
+            if (o instanceof IOException)
+                throw (IOException) o;
+            if (o instanceof Throwable)
+                throw new IOException((Throwable) o);
+
+            current = (Chunk) o;
+            pointer = 0;
+        }
+        return true;
+    }
+
+    private byte[] takeBuffer() {
+        byte[] buffer = free.poll();
+        return buffer == null ? new byte[BUFFER_SIZE] : buffer;
+    }
+
+    private void put(Object o) {
+        try {
+            filled.put(o);
+        } catch (InterruptedException e) {
+            //Stream was closed
+        }
+    }
+
+    private static ExecutorService getInflaters() {
+        if (inflaters == null)
+            synchronized (ParallelGZIPInputStream.class) {
+                if (inflaters == null)
+                    inflaters = Executors.newFixedThreadPool(Runtime.getRuntime().availableProcessors(),
+                            new ThreadFactory() {
+                                @Override
+                                public Thread newThread(Runnable r) {
+                                    Thread thread = new Thread(r, "BGZF inflater");
+                                    thread.setDaemon(true);
+                                    return thread;
+                                }
+                            });
+            }
+        return inflaters;
+    }
+
+    private static boolean isBGZFHeader(byte[] header) {
+        return header[2] == 8 && header[3] == 4 //Deflate, FEXTRA only
+                && getUInt16(header, 10) == 6 //XLEN
+                && header[12] == 'B' && header[13] == 'C' && getUInt16(header, 14) == 2;
+    }
+
+    private static int getUInt16(byte[] data, int offset) {
+        return (data[offset] & 0xFF) | ((data[offset + 1] & 0xFF) << 8);
+    }
+
+    private static int getInt32(byte[] data, int offset) {
+        return getUInt16(data, offset) | (getUInt16(data, offset + 2) << 16);
+    }
+
+    private static int readFully(InputStream stream, byte[] buffer, int offset, int length) throws IOException {
+        int read, total = 0;
+        while (total < length && (read = stream.read(buffer, offset + total, length - total)) != -1)
+            total += read;
+        return total;
+    }
+
+    private static final class Chunk {
+        final byte[] data;
+        final int size;
+
+        Chunk(byte[] data, int size) {
+            this.data = data;
+            this.size = size;
+        }
+    }
+
+    /**
+     * Inflates the whole stream with {@link GZIPInputStream} (supports multi-member files).
+     */
+    private final class SequentialReader implements Runnable {
+        @Override
+        public void run() {
+            try {
+                GZIPInputStream gzip = new GZIPInputStream(input, INPUT_BUFFER_SIZE);
+                int size;
+                do {
+                    byte[] buffer = takeBuffer();
+                    size = readFully(gzip, buffer, 0, buffer.length);
+                    if (size > 0)
+                        filled.put(new Chunk(buffer, size));
+                } while (size == BUFFER_SIZE && !closed);
+                put(END);
+            } catch (InterruptedException e) {
+                //Stream was closed
+            } catch (Throwable e) {
+                if (!closed)
+                    put(e);
+            }
+        }
+    }
+
+    /**
+     * Splits BGZF stream into groups of blocks, which are inflated in the shared thread pool.
+     */
+    private final class BGZFReader implements Runnable {
+        @Override
+        public void run() {
+            try {
+                List<byte[]> blocks = new ArrayList<>();
+                int uncompressedSize = 0;
+                byte[] block;
+                while (!closed) {
+                    block = readBlock();
+
+                    if (block == null || uncompressedSize + getInt32(block, block.length - 4) > BUFFER_SIZE) {
+                        if (!blocks.isEmpty())
+                            filled.put(getInflaters().submit(new BlocksInflater(blocks)));
+                        blocks = new ArrayList<>();
+                        uncompressedSize = 0;
+                    }
+
+                    if (block == null)
+                        break;
+
+                    blocks.add(block);
+                    uncompressedSize += getInt32(block, block.length - 4);
+                }
+                put(END);
+            } catch (InterruptedException e) {
+                //Stream was closed
+            } catch (Throwable e) {
+                if (!closed)
+                    put(e);
+            }
+        }
+
+        /**
+         * Reads one BGZF block.
+         *
+         * @return block or null if end of stream reached
+         */
+        private byte[] readBlock() throws IOException {
+            byte[] header = new byte[18];
+            int size = readFully(input, header, 0, header.length);
+            if (size == 0)
+                return null;
+            if (size != header.length || (header[0] & 0xFF) != 0x1F || (header[1] & 0xFF) != 0x8B
+                    || !isBGZFHeader(header))
+                throw new ZipException("Wrong BGZF block header.");
+
+            int blockSize = getUInt16(header, 16) + 1;
+            if (blockSize < header.length + 8)
+                throw new ZipException("Wrong BGZF block size.");
+
+            byte[] block = new byte[blockSize];
+            System.arraycopy(header, 0, block, 0, header.length);
+            if (readFully(input, block, header.length, blockSize - header.length) != blockSize - header.length)
+                throw new EOFException("Unexpected end of BGZF block.");
+
+            if (getInt32(block, blockSize - 4) > BGZF_MAX_BLOCK_SIZE || getInt32(block, blockSize - 4) < 0)
+                throw new ZipException("Wrong BGZF block size.");
+
+            return block;
+        }
+    }
+
+    private final class BlocksInflater implements Callable<Chunk> {
+        final List<byte[]> blocks;
+
+        BlocksInflater(List<byte[]> blocks) {
+            this.blocks = blocks;
+        }
+
+        @Override
+        public Chunk call() throws Exception {
+            byte[] buffer = takeBuffer();
+            Inflater inflater = new Inflater(true);
+            CRC32 crc = new CRC32();
+            byte[] probe = new byte[1];
+            int size = 0, blockUncompressedSize;
+            try {
+                for (byte[] block : blocks) {
+                    blockUncompressedSize = getInt32(block, block.length - 4);
+
+                    inflater.reset();
+                    inflater.setInput(block, 18, block.length - 18 - 8);
+                    if (inflater.inflate(buffer, size, blockUncompressedSize) != blockUncompressedSize
+                            || (!inflater.finished() && (inflater.inflate(probe) != 0 || !inflater.finished())))
+                        throw new ZipException("Corrupt BGZF block.");
+
+                    crc.reset();
+                    crc.update(buffer, size, blockUncompressedSize);
+                    if ((int) crc.getValue() != getInt32(block, block.length - 8))
+                        throw new ZipException("Corrupt BGZF block (CRC mismatch).");
+
+                    size += blockUncompressedSize;
+                }
+            } finally {
+                inflater.end();
+            }
+            return new Chunk(buffer, size);
+        }
+    }
+}
@@ -0,0 +1,86 @@
+/*
+ * MiTCR <http://milaboratory.com>
+ *
+ * Copyright (c) 2010-2013:
+ *     Bolotin Dmitriy     <bolotin.dmitriy@gmail.com>
+ *     Chudakov Dmitriy    <chudakovdm@mail.ru>
+ *
+ * MiTCR is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License as published by the Free
+ * Software Foundation, either version 3 of the License, or (at your option)
+ * any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU General Public License for
+ * more details.
+ *
+ * You should have received a copy of the GNU General Public License along
+ * with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.milaboratory.core.sequence;
+
+import com.milaboratory.core.sequence.nucleotide.NucleotideSequence;
+import com.milaboratory.core.sequence.quality.SequenceQualityPhred;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.Random;
+
+public class NucleotideSQPairViewTest {
+    @Test
+    public void testRC() throws Exception {
+        NucleotideSQPair pair = new NucleotideSQPair("ATTAGACA", "ABCDEFGH");
+        NucleotideSQPairView rc = pair.getRCView();
+        Assert.assertEquals(pair.getRC(), rc.materialize());
+        Assert.assertEquals("TGTCTAAT", rc.toString());
+        Assert.assertEquals('H' - 33, rc.qualityAt(0));
+        Assert.assertSame(pair, rc.getRC().materialize());
+    }
+
+    @Test
+    public void testRandom() throws Exception {
+        Random random = new Random(1);
+        for (int i = 0; i < 1000; ++i) {
+            NucleotideSQPair pair = randomPair(random, 1 + random.nextInt(100));
+            NucleotideSQPair expected = pair;
+            NucleotideSQPairView view = pair.asView();
+            //Chain of nested ranges / reverse complements
+            for (int j = 0; j < 4 && expected.size() > 1; ++j) {
+                if (random.nextBoolean()) {
+                    expected = expected.getRC();
+                    view = view.getRC();
+                }
+                int from = random.nextInt(expected.size());
+                int to = random.nextInt(expected.size() + 1);
+                if (to == from)
+                    continue;
+                if (to < from && from == 0)
+                    continue;
+                expected = expected.getRange(from, to);
+                view = view.getRange(from, to);
+                assertEquals(expected, view);
+            }
+        }
+    }
+
+    private static void assertEquals(NucleotideSQPair expected, NucleotideSQPairView view) {
+        Assert.assertEquals(expected.size(), view.size());
+        for (int i = 0; i < expected.size(); ++i) {
+            Assert.assertEquals(expected.getSequence().codeAt(i), view.codeAt(i));
+            Assert.assertEquals(expected.getQuality().value(i), view.qualityAt(i));
+        }
+        Assert.assertEquals(expected.getSequence(), view.getSequence());
+        Assert.assertEquals(expected, view.materialize());
+    }
+
+    private static NucleotideSQPair randomPair(Random random, int length) {
+        char[] chars = new char[length];
+        byte[] quality = new byte[length];
+        for (int i = 0; i < length; ++i) {
+            chars[i] = "ACGT".charAt(random.nextInt(4));
+            quality[i] = (byte) random.nextInt(40);
+        }
+        return new NucleotideSQPair(new NucleotideSequence(chars), new SequenceQualityPhred(quality));
+    }
+}
@@ -0,0 +1,95 @@
+/*
+ * MiTCR <http://milaboratory.com>
+ *
+ * Copyright (c) 2010-2013:
+ *     Bolotin Dmitriy     <bolotin.dmitriy@gmail.com>
+ *     Chudakov Dmitriy    <chudakovdm@mail.ru>
+ *
+ * MiTCR is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License as published by the Free
+ * Software Foundation, either version 3 of the License, or (at your option)
+ * any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU General Public License for
+ * more details.
+ *
+ * You should have received a copy of the GNU General Public License along
+ * with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.milaboratory.core.sequence.motif;
+
+import com.milaboratory.core.sequence.nucleotide.NucleotideSequence;
+import org.junit.Test;
+
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+
+/**
+ * @author Bolotin Dmitriy (bolotin.dmitriy@gmail.com)
+ */
+public class NucleotideMotifMatcherTest {
+    private static final String MOTIF_LETTERS = "ATGCATGCATGCRYKMN";
+
+    @Test
+    public void testSimple() {
+        NucleotideMotif motif = new NucleotideMotif("ATTG");
+        NucleotideMotifMatcher matcher = new NucleotideMotifMatcher(motif, 1);
+        NucleotideSequence sequence = new NucleotideSequence("CATTGACTG");
+        NucleotideMotifMatcher.State state = matcher.createState();
+        int[] expected = {2, 2, 2, 2, 0, 2, 2, 2, 1};
+        for (int i = 0; i < sequence.size(); ++i)
+            assertEquals(expected[i], matcher.next(state, sequence.codeAt(i)));
+    }
+
+    @Test
+    public void testRandom() {
+        Random random = new Random(12345);
+        for (int t = 0; t < 1000; ++t) {
+            NucleotideMotif motif = randomMotif(random, 1 + random.nextInt(NucleotideMotifMatcher.MAX_MOTIF_SIZE));
+            int maxMismatches = random.nextInt(6);
+            NucleotideMotifMatcher matcher = new NucleotideMotifMatcher(motif, maxMismatches);
+            NucleotideSequence sequence = randomSequence(random, random.nextInt(200));
+            NucleotideMotifMatcher.State state = matcher.createState();
+            for (int i = 0; i < sequence.size(); ++i) {
+                int expected = maxMismatches + 1;
+                if (i >= motif.size() - 1)
+                    expected = java.lang.Math.min(expected, mismatches(motif, sequence, i - motif.size() + 1));
+                assertEquals(expected, matcher.next(state, sequence.codeAt(i)));
+            }
+            //State reuse
+            state.reset();
+            for (int i = 0; i < sequence.size(); ++i)
+                if (i >= motif.size() - 1)
+                    assertEquals(java.lang.Math.min(maxMismatches + 1,
+                            mismatches(motif, sequence, i - motif.size() + 1)),
+                            matcher.next(state, sequence.codeAt(i)));
+                else
+                    matcher.next(state, sequence.codeAt(i));
+        }
+    }
+
+    static int mismatches(NucleotideMotif motif, NucleotideSequence sequence, int from) {
+        int mm = 0;
+        for (int i = 0; i < motif.size(); ++i)
+            if (!motif.get(i, sequence.codeAt(from + i)))
+                ++mm;
+        return mm;
+    }
+
+    static NucleotideMotif randomMotif(Random random, int size) {
+        char[] chars = new char[size];
+        for (int i = 0; i < size; ++i)
+            chars[i] = MOTIF_LETTERS.charAt(random.nextInt(MOTIF_LETTERS.length()));
+        return new NucleotideMotif(new String(chars));
+    }
+
+    static NucleotideSequence randomSequence(Random random, int size) {
+        char[] chars = new char[size];
+        for (int i = 0; i < size; ++i)
+            chars[i] = "ATGC".charAt(random.nextInt(4));
+        return new NucleotideSequence(new String(chars));
+    }
+}
@@ -27,6 +27,8 @@ import com.milaboratory.core.sequence.SequencingErrorType;
 import com.milaboratory.core.sequence.nucleotide.NucleotideSequence;
 import org.junit.Test;
 
+import java.util.Random;
+
 import static org.junit.Assert.assertEquals;
 
 /**
@@ -103,4 +105,76 @@ public class NucleotideMotifSearchAdvancedTest {
                 LowQualityIndicator.Utils.wrap(qf0));
         assertEquals(result, -1);
     }
+
+    @Test
+    public void randomEquivalenceTest() {
+        Random random = new Random(54321);
+        for (int t = 0; t < 3000; ++t) {
+            NucleotideMotif motif = NucleotideMotifMatcherTest.randomMotif(random, 4 + random.nextInt(20));
+            int maxHigh = random.nextInt(3), maxTotal = random.nextInt(4), maxLow = random.nextInt(5);
+            NucleotideMotifSearchAdvanced s = new NucleotideMotifSearchAdvanced(motif, maxHigh, maxTotal, maxLow,
+                    SequencingErrorType.Mismatch);
+            int size = motif.size() + 1 + random.nextInt(60);
+            NucleotideSequence sequence = NucleotideMotifMatcherTest.randomSequence(random, size);
+            //Plant some motif occurrences
+            for (int k = random.nextInt(3); k > 0; --k) {
+                int from = random.nextInt(size - motif.size() + 1);
+                char[] chars = sequence.toString().toCharArray();
+                for (int i = 0; i < motif.size(); ++i) {
+                    byte code;
+                    do
+                        code = (byte) random.nextInt(4);
+                    while (!motif.get(i, code) && random.nextInt(8) != 0);
+                    chars[from + i] = "AGCT".charAt(code);
+                }
+                sequence = new NucleotideSequence(new String(chars));
+            }
+            char[] quality = new char[size];
+            for (int i = 0; i < size; ++i)
+                quality[i] = random.nextInt(6) == 0 ? '.' : '-';
+            LowQualityIndicator lqi = LowQualityIndicator.Utils.wrap(new String(quality));
+            int from = random.nextInt(size), to = from + random.nextInt(size - from + 1);
+            assertEquals(referenceSearch(motif, maxHigh, maxTotal, maxLow, sequence, lqi, from, to),
+                    s.search(sequence, lqi, from, to));
+        }
+    }
+
+    //Exact search followed by position by position mismatched search
+    private static int referenceSearch(NucleotideMotif motif, int maxHigh, int maxTotal, int maxLow,
+                                       NucleotideSequence sequence, LowQualityIndicator lqi, int from, int to) {
+        int hit = motif.findMatch(sequence, from, to);
+        if (hit >= 0) {
+            int lowPoints = 0;
+            for (int i = 0; i < motif.size(); ++i)
+                if (lqi.isLowQuality(hit + i))
+                    ++lowPoints;
+            if (lowPoints > maxLow)
+                return referenceSearch(motif, maxHigh, maxTotal, maxLow, sequence, lqi, hit + 1, to);
+            return hit;
+        }
+        int best = -1, bestHigh = 0, bestTotal = 0, bestLow = 0;
+        for (int c = from; c < to - motif.size(); ++c) {
+            int high = 0, total = 0, low = 0;
+            for (int i = 0; i < motif.size(); ++i) {
+                boolean isLow = lqi.isLowQuality(c + i);
+                if (isLow)
+                    ++low;
+                if (!motif.get(i, sequence.codeAt(c + i))) {
+                    ++total;
+                    if (!isLow)
+                        ++high;
+                }
+            }
+            if (total > maxTotal || high > maxHigh || low > maxLow)
+                continue;
+            if (best == -1 || high < bestHigh || (high == bestHigh
+                    && (total < bestTotal || (total == bestTotal && low < bestLow)))) {
+                best = c;
+                bestHigh = high;
+                bestTotal = total;
+                bestLow = low;
+            }
+        }
+        return best;
+    }
 }
@@ -0,0 +1,73 @@
+/*
+ * MiTCR <http://milaboratory.com>
+ *
+ * Copyright (c) 2010-2013:
+ *     Bolotin Dmitriy     <bolotin.dmitriy@gmail.com>
+ *     Chudakov Dmitriy    <chudakovdm@mail.ru>
+ *
+ * MiTCR is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License as published by the Free
+ * Software Foundation, either version 3 of the License, or (at your option)
+ * any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU General Public License for
+ * more details.
+ *
+ * You should have received a copy of the GNU General Public License along
+ * with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.milaboratory.core.sequence.nucleotide;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+
+public class NucleotideSequenceKeyIntMapTest {
+    @Test
+    public void testKey() throws Exception {
+        Random random = new Random(1);
+        for (int i = 0; i < 1000; ++i) {
+            NucleotideSequence sequence = randomSequence(random, random.nextInt(150));
+            NucleotideSequenceKey key = new NucleotideSequenceKey(sequence);
+            Assert.assertEquals(sequence.size(), key.size());
+            Assert.assertEquals(sequence, key.toSequence());
+            Assert.assertEquals(key, new NucleotideSequenceKey(key.toSequence()));
+            Assert.assertEquals(key.hashCode(), new NucleotideSequenceKey(key.toSequence()).hashCode());
+        }
+    }
+
+    @Test
+    public void testMap() throws Exception {
+        Random random = new Random(2);
+        Map<NucleotideSequence, Integer> expected = new HashMap<>();
+        NucleotideSequenceKeyIntMap map = new NucleotideSequenceKeyIntMap();
+        for (int i = 0; i < 100000; ++i) {
+            //Short sequences to have repeats
+            NucleotideSequence sequence = randomSequence(random,
+                    random.nextInt(10) == 0 ? random.nextInt(150) : random.nextInt(9));
+            Integer previous = expected.put(sequence, i);
+            Assert.assertEquals(previous == null ? NucleotideSequenceKeyIntMap.NO_VALUE : (int) previous,
+                    map.put(sequence, i));
+        }
+        Assert.assertEquals(expected.size(), map.size());
+        for (Map.Entry<NucleotideSequence, Integer> entry : expected.entrySet())
+            Assert.assertEquals((int) entry.getValue(), map.get(entry.getKey()));
+        for (int i = 0; i < 1000; ++i) {
+            NucleotideSequence sequence = randomSequence(random, 10 + random.nextInt(150));
+            if (!expected.containsKey(sequence))
+                Assert.assertEquals(NucleotideSequenceKeyIntMap.NO_VALUE, map.get(sequence));
+        }
+    }
+
+    private static NucleotideSequence randomSequence(Random random, int length) {
+        char[] chars = new char[length];
+        for (int i = 0; i < length; ++i)
+            chars[i] = "ACGT".charAt(random.nextInt(4));
+        return new NucleotideSequence(chars);
+    }
+}
@@ -20,6 +20,7 @@
  */
 package com.milaboratory.core.sequence.nucleotide;
 
+import com.milaboratory.util.Bit2Array;
 import org.junit.Assert;
 import org.junit.Test;
 
@@ -39,4 +40,22 @@ public class NucleotideSequencesTest {
         Assert.assertEquals(subSequence1.hashCode(), sequence1.hashCode());
         Assert.assertEquals(subSequence1, sequence1);
     }
+
+    @Test
+    public void testDirtyPadding() {
+        NucleotideSequence sequence = new NucleotideSequence("ATTAGACATAGACA");
+        byte[] packed = Bit2Array.extractRawDataArray(sequence.getInnerData());
+        //Setting unused bits after the last nucleotide
+        packed[packed.length - 1] |= 0xF0;
+        NucleotideSequence dirty = NucleotideSequence.fromPacked(packed, sequence.size());
+
+        Assert.assertEquals(sequence, dirty);
+        Assert.assertEquals(dirty, sequence);
+        Assert.assertEquals(sequence.hashCode(), dirty.hashCode());
+        Assert.assertEquals(0, sequence.compareTo(dirty));
+        Assert.assertEquals(NucleotideSequence.extractInnerData(sequence),
+                NucleotideSequence.extractInnerData(dirty));
+        Assert.assertEquals(NucleotideSequence.extractInnerData(sequence).hashCode(),
+                NucleotideSequence.extractInnerData(dirty).hashCode());
+    }
 }
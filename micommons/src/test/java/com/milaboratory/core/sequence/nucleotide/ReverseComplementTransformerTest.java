@@ -22,6 +22,8 @@ package com.milaboratory.core.sequence.nucleotide;
 
 import org.junit.Test;
 
+import java.util.Random;
+
 import static org.hamcrest.CoreMatchers.not;
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertThat;
@@ -37,4 +39,20 @@ public class ReverseComplementTransformerTest {
         assertThat(rc, not(ns));
         assertThat(rc.hashCode(), not(ns.hashCode()));
     }
-}
\ No newline at end of file
+
+    @Test
+    public void testRandom() {
+        Random r = new Random(1);
+        for (int n = 0; n < 1000; ++n) {
+            char[] chars = new char[r.nextInt(100)];
+            for (int i = 0; i < chars.length; ++i)
+                chars[i] = "ACGT".charAt(r.nextInt(4));
+            NucleotideSequence ns = new NucleotideSequence(chars), rc = ns.getReverseComplement();
+            assertEquals(ns.size(), rc.size());
+            for (int i = 0; i < ns.size(); ++i)
+                assertEquals(ns.codeAt(i) ^ 3, rc.codeAt(ns.size() - 1 - i));
+            //Unused bits must be cleared
+            assertEquals(new NucleotideSequence(rc.toString()), rc);
+        }
+    }
+}
@@ -0,0 +1,126 @@
+/*
+ * MiTCR <http://milaboratory.com>
+ *
+ * Copyright (c) 2010-2013:
+ *     Bolotin Dmitriy     <bolotin.dmitriy@gmail.com>
+ *     Chudakov Dmitriy    <chudakovdm@mail.ru>
+ *
+ * MiTCR is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License as published by the Free
+ * Software Foundation, either version 3 of the License, or (at your option)
+ * any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU General Public License for
+ * more details.
+ *
+ * You should have received a copy of the GNU General Public License along
+ * with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.milaboratory.core.sequence.quality;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.io.*;
+import java.util.Arrays;
+import java.util.Random;
+
+public class SequenceQualityPhredTest {
+    @Test
+    public void testCompactStorages() throws Exception {
+        byte[] binned = new byte[200], levels = {2, 14, 21, 27};
+        for (int i = 0; i < binned.length; ++i)
+            binned[i] = levels[(i * 7 + i / 3) % 4];
+        Assert.assertTrue(compactStorage(binned) instanceof BinnedQualityStorage);
+        //Headers of binned storage outweigh savings for short lines
+        Assert.assertTrue(compactStorage(Arrays.copyOf(binned, 12)) instanceof ArrayQualityStorage);
+        byte[] runs = new byte[100];
+        Arrays.fill(runs, 0, 90, (byte) 30);
+        Arrays.fill(runs, 90, 100, (byte) 12);
+        Assert.assertTrue(compactStorage(runs) instanceof RunLengthQualityStorage);
+        //Typical CDR3 with 8 runs
+        byte[] cdr3 = new byte[45];
+        for (int i = 0; i < cdr3.length; ++i)
+            cdr3[i] = (byte) (i < 40 ? 34 - 2 * (i / 6) : 12);
+        Assert.assertTrue(compactStorage(cdr3) instanceof ArrayQualityStorage);
+        SequenceQualityPhred plain = new SequenceQualityPhred(cdr3);
+        Assert.assertSame(plain, plain.compact());
+        Assert.assertTrue(compactStorage(new byte[]{7, 7, 7}) instanceof ConstantQualityStorage);
+        Assert.assertTrue(compactStorage(new byte[]{1, 2, 3, 4, 5}) instanceof ArrayQualityStorage);
+        Assert.assertSame(compactStorage(new byte[]{34, 34}), compactStorage(new byte[]{34, 34}));
+    }
+
+    @Test
+    public void testRandom() throws Exception {
+        Random random = new Random(1);
+        for (int i = 0; i < 1000; ++i) {
+            byte[] values = randomValues(random);
+            SequenceQualityPhred plain = new SequenceQualityPhred(values);
+            SequenceQualityPhred compact = plain.compact();
+            assertSame(plain, compact);
+            int from = random.nextInt(values.length), to = from + random.nextInt(values.length - from + 1);
+            assertSame(plain.getRange(from, to), compact.getRange(from, to));
+            assertSame(plain.reverse(), compact.reverse());
+            Assert.assertEquals(plain.minValue(), compact.minValue());
+        }
+    }
+
+    @Test
+    public void testBin() throws Exception {
+        SequenceQualityPhred quality = new SequenceQualityPhred(new byte[]{0, 5, 15, 20, 25, 40});
+        Assert.assertArrayEquals(new byte[]{2, 2, 14, 14, 21, 37},
+                quality.bin((byte) 37, (byte) 2, (byte) 14, (byte) 21).getInnerData());
+    }
+
+    @Test
+    public void testSerialization() throws Exception {
+        Random random = new Random(2);
+        for (int i = 0; i < 100; ++i) {
+            SequenceQualityPhred quality = new SequenceQualityPhred(randomValues(random)).compact();
+            ByteArrayOutputStream bos = new ByteArrayOutputStream();
+            ObjectOutputStream oos = new ObjectOutputStream(bos);
+            oos.writeObject(quality);
+            oos.close();
+            ObjectInputStream ois = new ObjectInputStream(new ByteArrayInputStream(bos.toByteArray()));
+            assertSame(quality, (SequenceQualityPhred) ois.readObject());
+        }
+    }
+
+    private static void assertSame(SequenceQualityPhred expected, SequenceQualityPhred actual) {
+        Assert.assertEquals(expected, actual);
+        Assert.assertEquals(actual, expected);
+        Assert.assertEquals(expected.hashCode(), actual.hashCode());
+        Assert.assertEquals(expected.size(), actual.size());
+        for (int i = 0; i < expected.size(); ++i)
+            Assert.assertEquals(expected.value(i), actual.value(i));
+        Assert.assertArrayEquals(expected.getInnerData(), actual.getInnerData());
+        Assert.assertEquals(expected.toString(), actual.toString());
+    }
+
+    private static QualityStorage compactStorage(byte[] values) {
+        return QualityStorage.compact(values);
+    }
+
+    private static byte[] randomValues(Random random) {
+        byte[] values = new byte[1 + random.nextInt(150)];
+        byte[] levels = {2, 14, 21, 27, 34, 40};
+        int mode = random.nextInt(4);
+        for (int i = 0; i < values.length; ++i)
+            switch (mode) {
+                case 0: //Binned
+                    values[i] = levels[random.nextInt(4)];
+                    break;
+                case 1: //Runs
+                    values[i] = i == 0 || random.nextInt(20) == 0 ? levels[random.nextInt(6)] : values[i - 1];
+                    break;
+                case 2: //Constant
+                    values[i] = 34;
+                    break;
+                default:
+                    values[i] = (byte) random.nextInt(41);
+            }
+        return values;
+    }
+}
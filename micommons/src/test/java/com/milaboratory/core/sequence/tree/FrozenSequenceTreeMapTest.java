@@ -0,0 +1,145 @@
+/*
+ * MiTCR <http://milaboratory.com>
+ *
+ * Copyright (c) 2010-2013:
+ *     Bolotin Dmitriy     <bolotin.dmitriy@gmail.com>
+ *     Chudakov Dmitriy    <chudakovdm@mail.ru>
+ *
+ * MiTCR is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License as published by the Free
+ * Software Foundation, either version 3 of the License, or (at your option)
+ * any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU General Public License for
+ * more details.
+ *
+ * You should have received a copy of the GNU General Public License along
+ * with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.milaboratory.core.sequence.tree;
+
+import com.milaboratory.core.sequence.nucleotide.NucleotideAlphabet;
+import com.milaboratory.core.sequence.nucleotide.NucleotideSequence;
+import org.junit.Ignore;
+import org.junit.Test;
+
+import java.util.*;
+
+import static org.junit.Assert.*;
+
+public class FrozenSequenceTreeMapTest {
+    @Test
+    public void testGetAndValues() throws Exception {
+        Random random = new Random(1);
+        SequenceTreeMap<NucleotideSequence, Integer> map = new SequenceTreeMap<>(NucleotideAlphabet.INSTANCE);
+        List<NucleotideSequence> keys = new ArrayList<>();
+        for (int i = 0; i < 1000; ++i) {
+            NucleotideSequence key = randomSequence(random, 1 + random.nextInt(20));
+            keys.add(key);
+            map.put(key, i);
+        }
+        FrozenSequenceTreeMap<NucleotideSequence, Integer> frozen = map.freeze();
+        for (NucleotideSequence key : keys)
+            assertEquals(map.get(key), frozen.get(key));
+        assertNull(frozen.get(new NucleotideSequence("ACGTACGTACGTACGTACGTACGT")));
+
+        Set<Integer> expected = new HashSet<>();
+        for (NucleotideSequence key : keys)
+            expected.add(map.get(key));
+        Set<Integer> actual = new HashSet<>();
+        for (Integer value : frozen.values())
+            assertTrue(actual.add(value));
+        assertEquals(expected, actual);
+        assertEquals(expected.size(), frozen.size());
+    }
+
+    @Test
+    public void testNeighborhoodSameAsInSequenceTreeMap() throws Exception {
+        Random random = new Random(2);
+        SequenceTreeMap<NucleotideSequence, Integer> map = new SequenceTreeMap<>(NucleotideAlphabet.INSTANCE);
+        NucleotideSequence base = randomSequence(random, 12);
+        //Keys concentrated around base sequence
+        for (int i = 0; i < 3000; ++i)
+            map.put(mutate(random, base), i);
+        FrozenSequenceTreeMap<NucleotideSequence, Integer> frozen = map.freeze();
+
+        for (int i = 0; i < 200; ++i) {
+            NucleotideSequence reference = mutate(random, base);
+            int mismatches = random.nextInt(3), deletions = random.nextInt(3), insertions = random.nextInt(3);
+
+            SequenceTreeMap.NeighborhoodIterator<Integer> expected =
+                    map.getNeighborhoodIterator(reference, mismatches, deletions, insertions);
+            FrozenSequenceTreeMap.NeighborhoodIterator<Integer> actual =
+                    frozen.getNeighborhoodIterator(reference, mismatches, deletions, insertions);
+
+            Integer e;
+            do {
+                e = expected.next();
+                assertEquals(e, actual.next());
+                if (e != null) {
+                    assertArrayEquals(expected.getDiffModeSequence(), actual.getDiffModeSequence());
+                    assertEquals(expected.getPenalty(), actual.getPenalty(), 0.0);
+                }
+            } while (e != null);
+        }
+    }
+
+    @Ignore
+    @Test
+    public void benchmark() throws Exception {
+        Random random = new Random(3);
+        SequenceTreeMap<NucleotideSequence, Integer> map = new SequenceTreeMap<>(NucleotideAlphabet.INSTANCE);
+        NucleotideSequence[] keys = new NucleotideSequence[200000];
+        for (int i = 0; i < keys.length; ++i)
+            map.put(keys[i] = randomSequence(random, 30 + random.nextInt(20)), i);
+        FrozenSequenceTreeMap<NucleotideSequence, Integer> frozen = map.freeze();
+        System.out.println("Nodes: " + frozen.nodesCount());
+
+        for (int attempt = 0; attempt < 5; ++attempt) {
+            long start = System.nanoTime(), found = 0;
+            for (int i = 0; i < 10000; ++i) {
+                SequenceTreeMap.NeighborhoodIterator<Integer> it = map.getNeighborhoodIterator(keys[i], 2, 1, 1);
+                while (it.next() != null)
+                    ++found;
+            }
+            System.out.println("SequenceTreeMap: " + (System.nanoTime() - start) / 1000000 + "ms (" + found + ")");
+
+            start = System.nanoTime();
+            found = 0;
+            for (int i = 0; i < 10000; ++i) {
+                FrozenSequenceTreeMap.NeighborhoodIterator<Integer> it = frozen.getNeighborhoodIterator(keys[i], 2, 1, 1);
+                while (it.next() != null)
+                    ++found;
+            }
+            System.out.println("FrozenSequenceTreeMap: " + (System.nanoTime() - start) / 1000000 + "ms (" + found + ")");
+        }
+    }
+
+    private static NucleotideSequence mutate(Random random, NucleotideSequence base) {
+        StringBuilder builder = new StringBuilder(base.toString());
+        for (int i = random.nextInt(3); i > 0; --i) {
+            int position = random.nextInt(builder.length());
+            switch (random.nextInt(3)) {
+                case 0:
+                    builder.setCharAt(position, "ACGT".charAt(random.nextInt(4)));
+                    break;
+                case 1:
+                    if (builder.length() > 1)
+                        builder.deleteCharAt(position);
+                    break;
+                default:
+                    builder.insert(position, "ACGT".charAt(random.nextInt(4)));
+            }
+        }
+        return new NucleotideSequence(builder.toString());
+    }
+
+    private static NucleotideSequence randomSequence(Random random, int length) {
+        char[] chars = new char[length];
+        for (int i = 0; i < length; ++i)
+            chars[i] = "ACGT".charAt(random.nextInt(4));
+        return new NucleotideSequence(chars);
+    }
+}
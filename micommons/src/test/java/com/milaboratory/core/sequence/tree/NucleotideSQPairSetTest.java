@@ -0,0 +1,112 @@
+/*
+ * MiTCR <http://milaboratory.com>
+ *
+ * Copyright (c) 2010-2013:
+ *     Bolotin Dmitriy     <bolotin.dmitriy@gmail.com>
+ *     Chudakov Dmitriy    <chudakovdm@mail.ru>
+ *
+ * MiTCR is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License as published by the Free
+ * Software Foundation, either version 3 of the License, or (at your option)
+ * any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU General Public License for
+ * more details.
+ *
+ * You should have received a copy of the GNU General Public License along
+ * with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.milaboratory.core.sequence.tree;
+
+import com.milaboratory.core.sequence.NucleotideSQPair;
+import com.milaboratory.core.sequence.nucleotide.NucleotideSequence;
+import com.milaboratory.core.sequence.quality.SequenceQualityPhred;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.Assert.assertEquals;
+
+public class NucleotideSQPairSetTest {
+    private static final String SEQUENCE = "ATTAGACAATTAGACAATTAGACAATTAGA",
+            VARIANT = "ATTAGACAATTAGTCAATTAGACAATTAGA";
+
+    @Test
+    public void testCounts() throws Exception {
+        NucleotideSQPairSet set = NucleotideSQPairSet.createV1();
+        for (int i = 0; i < 3; ++i)
+            set.add(pair(SEQUENCE, 35));
+        assertEquals(3, set.getCount(new NucleotideSequence(SEQUENCE)));
+        assertEquals(1, set.getDiversityEstimate());
+        assertEquals(3, set.getTotal());
+    }
+
+    @Test
+    public void testConfirmedVariantIsKept() throws Exception {
+        NucleotideSQPairSet set = NucleotideSQPairSet.createV1();
+        set.add(pair(SEQUENCE, 35));
+        set.add(pair(SEQUENCE, 35));
+        //Better sequenced error variant
+        set.add(pair(VARIANT, 40));
+        assertEquals(3, set.getCount(new NucleotideSequence(SEQUENCE)));
+        assertEquals(0, set.getCount(new NucleotideSequence(VARIANT)));
+        assertEquals(1, set.getDiversityEstimate());
+    }
+
+    @Test
+    public void testBetterVariantWins() throws Exception {
+        NucleotideSQPairSet set = NucleotideSQPairSet.createV1();
+        set.add(pair(SEQUENCE, 35));
+        set.add(pair(VARIANT, 40));
+        assertEquals(0, set.getCount(new NucleotideSequence(SEQUENCE)));
+        assertEquals(2, set.getCount(new NucleotideSequence(VARIANT)));
+        assertEquals(1, set.getDiversityEstimate());
+        for (NucleotideSQPair p : set)
+            assertEquals(new NucleotideSequence(VARIANT), p.getSequence());
+    }
+
+    @Test
+    public void testConcurrentAdd() throws Exception {
+        final int N = 1000, K = 32;
+        Random random = new Random(1);
+        final List<NucleotideSQPair> pairs = new ArrayList<>();
+        for (int i = 0; i < N; ++i) {
+            char[] chars = new char[25 + random.nextInt(16)];
+            for (int j = 0; j < chars.length; ++j)
+                chars[j] = "ACGT".charAt(random.nextInt(4));
+            pairs.add(pair(new String(chars), 40));
+        }
+        final NucleotideSQPairSet set = NucleotideSQPairSet.createV1();
+        Thread[] threads = new Thread[K];
+        for (int i = 0; i < K; ++i) {
+            final List<NucleotideSQPair> shuffled = new ArrayList<>(pairs);
+            Collections.shuffle(shuffled, new Random(i));
+            threads[i] = new Thread() {
+                @Override
+                public void run() {
+                    for (NucleotideSQPair pair : shuffled)
+                        set.add(pair);
+                }
+            };
+        }
+        for (Thread thread : threads)
+            thread.start();
+        for (Thread thread : threads)
+            thread.join();
+        assertEquals(N * K, set.getTotal());
+        assertEquals(N, set.getDiversityEstimate());
+        assertEquals(N, set.getVariants().size());
+        for (NucleotideSQPair pair : pairs)
+            assertEquals(K, set.getCount(pair.getSequence()));
+    }
+
+    private static NucleotideSQPair pair(String sequence, int quality) {
+        return new NucleotideSQPair(new NucleotideSequence(sequence),
+                new SequenceQualityPhred((byte) quality, sequence.length()));
+    }
+}
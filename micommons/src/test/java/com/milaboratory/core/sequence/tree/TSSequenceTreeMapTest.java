@@ -24,6 +24,7 @@ import com.milaboratory.core.sequence.nucleotide.NucleotideAlphabet;
 import com.milaboratory.core.sequence.nucleotide.NucleotideSequence;
 import com.milaboratory.core.sequence.util.NucleotideSequenceGenerator;
 import com.milaboratory.util.Factory;
+import org.junit.Ignore;
 import org.junit.Test;
 
 import java.util.HashSet;
@@ -199,6 +200,70 @@ public class TSSequenceTreeMapTest {
         assertEquals(0, created);
     }
 
+    @Test
+    public void concurrentPutIfAbsentAndIterate() throws InterruptedException {
+        final int N = 10000;
+        final int K = 32;
+        final NucleotideSequence[] sequences = NucleotideSequenceGenerator.generate(12, N);
+        final TSSequenceTreeMap<NucleotideSequence, Integer> map = new TSSequenceTreeMap<>(NucleotideAlphabet.INSTANCE);
+        final AtomicInteger associated = new AtomicInteger();
+        Thread[] writers = new Thread[K];
+        for (int i = 0; i < K; ++i) {
+            final Integer value = i;
+            writers[i] = new Thread() {
+                @Override
+                public void run() {
+                    for (NucleotideSequence sequence : sequences)
+                        if (map.putIfAbsent(sequence, value) == null)
+                            associated.incrementAndGet();
+                }
+            };
+        }
+        for (Thread writer : writers)
+            writer.start();
+        //Concurrent iteration
+        int iterated;
+        do {
+            iterated = 0;
+            for (Map.Entry<NucleotideSequence, Integer> e : map.entrySet()) {
+                assertEquals(e.getValue(), map.get(e.getKey()));
+                ++iterated;
+            }
+        } while (iterated < N && writers[0].isAlive());
+        for (Thread writer : writers)
+            writer.join();
+        Set<NucleotideSequence> unique = new HashSet<>();
+        for (NucleotideSequence seq : sequences)
+            unique.add(seq);
+        assertEquals(unique.size(), associated.get());
+        iterated = 0;
+        for (Integer ignored : map)
+            ++iterated;
+        assertEquals(unique.size(), iterated);
+    }
+
+    @Ignore
+    @Test
+    public void contentionBenchmark() throws InterruptedException {
+        final int N = 100000;
+        final int K = 32;
+        final NucleotideSequence[] sequences = NucleotideSequenceGenerator.generate(8, N);
+        for (int sync = 0; sync < 2; ++sync)
+            for (int attempt = 0; attempt < 5; ++attempt) {
+                TSSequenceTreeMap<NucleotideSequence, Integer> map = new TSSequenceTreeMap<>(NucleotideAlphabet.INSTANCE);
+                AbstractWorker[] creators = new AbstractWorker[K];
+                for (int i = 0; i < K; ++i)
+                    creators[i] = sync == 1 ? new CreatorSync(sequences, map) : new Creator(sequences, map);
+                long start = System.nanoTime();
+                for (AbstractWorker creator : creators)
+                    creator.start();
+                for (AbstractWorker creator : creators)
+                    creator.join();
+                System.out.println((sync == 1 ? "getOrCreateSync: " : "getOrCreate: ") +
+                        ((System.nanoTime() - start) / 1000000) + "ms for " + K + " threads x " + N + " keys");
+            }
+    }
+
     public static class IntFactory implements Factory<Integer> {
         private final AtomicInteger ai = new AtomicInteger(0);
         private Integer lastValue;
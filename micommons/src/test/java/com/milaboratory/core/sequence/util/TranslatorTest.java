@@ -0,0 +1,94 @@
+/*
+ * MiTCR <http://milaboratory.com>
+ *
+ * Copyright (c) 2010-2013:
+ *     Bolotin Dmitriy     <bolotin.dmitriy@gmail.com>
+ *     Chudakov Dmitriy    <chudakovdm@mail.ru>
+ *
+ * MiTCR is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License as published by the Free
+ * Software Foundation, either version 3 of the License, or (at your option)
+ * any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU General Public License for
+ * more details.
+ *
+ * You should have received a copy of the GNU General Public License along
+ * with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.milaboratory.core.sequence.util;
+
+import com.milaboratory.core.sequence.aminoacid.AminoAcidSequence;
+import com.milaboratory.core.sequence.aminoacid.CDRAminoAcidSequence;
+import com.milaboratory.core.sequence.nucleotide.NucleotideSequence;
+import org.junit.Test;
+
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+/**
+ * @author Bolotin Dmitriy (bolotin.dmitriy@gmail.com)
+ */
+public class TranslatorTest {
+    @Test
+    public void testTranslate() {
+        AminoAcidSequence aa = Translator.translate(new NucleotideSequence("TGTGCCAGCAGTTAGGGACAGTTT"), (byte) 1);
+        assertEquals("CASS*GQF", aa.toString());
+        assertNull(Translator.translateWithoutStops(new NucleotideSequence("TGTGCCAGCAGTTAGGGACAGTTT"), (byte) 1));
+        assertEquals("VPAVRDS", Translator.translate(new NucleotideSequence("TGTGCCAGCAGTTAGGGACAGTTT"),
+                (byte) 2).toString());
+    }
+
+    @Test
+    public void testRandomOffsets() {
+        Random random = new Random(1234);
+        for (int t = 0; t < 1000; ++t) {
+            NucleotideSequence sequence = randomSequence(random, random.nextInt(100));
+            int from = random.nextInt(sequence.size() + 1);
+            int count = random.nextInt((sequence.size() - from) / 3 + 1);
+            byte[] target = new byte[count + 2];
+            boolean stops = Translator.translate(sequence, from, target, 1, count), expectedStops = false;
+            for (int i = 0; i < count; ++i) {
+                byte aa = Translator.getAminoAcid(sequence, from + i * 3);
+                assertEquals(aa, target[i + 1]);
+                expectedStops |= aa == Translator.STOP_CODE;
+            }
+            assertEquals(expectedStops, stops);
+        }
+    }
+
+    @Test
+    public void testCDRAminoAcidSequence() {
+        Random random = new Random(4321);
+        for (int t = 0; t < 1000; ++t) {
+            NucleotideSequence sequence = randomSequence(random, random.nextInt(60));
+            CDRAminoAcidSequence aa = new CDRAminoAcidSequence(sequence);
+
+            int length = (sequence.size() + 2) / 3, rLength = sequence.size() / 3,
+                    endLength = rLength / 2, beginLength = rLength - endLength;
+            assertEquals(length, aa.size());
+            boolean stops = false;
+            for (int i = 0; i < beginLength; ++i) {
+                assertEquals(Translator.getAminoAcid(sequence, i * 3), aa.codeAt(i));
+                stops |= aa.codeAt(i) == Translator.STOP_CODE;
+            }
+            for (int i = 0; i < endLength; ++i) {
+                assertEquals(Translator.getAminoAcid(sequence, sequence.size() - 3 - i * 3),
+                        aa.codeAt(length - 1 - i));
+                stops |= aa.codeAt(length - 1 - i) == Translator.STOP_CODE;
+            }
+            assertEquals(stops, aa.containStops());
+            assertEquals(sequence.size() % 3, aa.getFrameRemainder());
+        }
+    }
+
+    private static NucleotideSequence randomSequence(Random random, int size) {
+        char[] chars = new char[size];
+        for (int i = 0; i < size; ++i)
+            chars[i] = "ATGC".charAt(random.nextInt(4));
+        return new NucleotideSequence(new String(chars));
+    }
+}
@@ -0,0 +1,98 @@
+/*
+ * MiTCR <http://milaboratory.com>
+ *
+ * Copyright (c) 2010-2013:
+ *     Bolotin Dmitriy     <bolotin.dmitriy@gmail.com>
+ *     Chudakov Dmitriy    <chudakovdm@mail.ru>
+ *
+ * MiTCR is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License as published by the Free
+ * Software Foundation, either version 3 of the License, or (at your option)
+ * any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU General Public License for
+ * more details.
+ *
+ * You should have received a copy of the GNU General Public License along
+ * with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.milaboratory.core.sequencing.io;
+
+import com.milaboratory.core.sequence.NucleotideSQPair;
+import com.milaboratory.core.sequencing.io.fastq.SFastqReader;
+import com.milaboratory.core.sequencing.read.SSequencingRead;
+import com.milaboratory.util.CompressionType;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+
+public class MergedSSequencingDataReaderTest {
+    @Test
+    public void test1() throws Exception {
+        String[] files = {"sample_r1.fastq.gz", "sample_r2.fastq.gz", "solexa1.fastq.gz"};
+
+        Map<NucleotideSQPair, Integer> expected = new HashMap<>();
+        SSequencingDataReader[] readers = new SSequencingDataReader[files.length];
+        SSequencingRead read;
+        for (int i = 0; i < files.length; ++i) {
+            SFastqReader reader = new SFastqReader(ClassLoader.getSystemResource(files[i]).openStream(),
+                    CompressionType.GZIP);
+            while ((read = reader.take()) != null)
+                add(expected, read.getData(), 1);
+            readers[i] = new SFastqReader(ClassLoader.getSystemResource(files[i]).openStream(),
+                    CompressionType.GZIP);
+        }
+
+        MergedSSequencingDataReader merged = new MergedSSequencingDataReader(readers);
+        Set<Long> ids = new HashSet<>();
+        while ((read = merged.take()) != null) {
+            Assert.assertTrue(ids.add(read.id()));
+            add(expected, read.getData(), -1);
+        }
+        Assert.assertNull(merged.take());
+        Assert.assertTrue(merged.isFinished());
+        Assert.assertEquals(1.0, merged.getProgress(), 0.0);
+
+        for (Integer count : expected.values())
+            Assert.assertEquals(0, (int) count);
+    }
+
+    @Test
+    public void testDeterministicIds() throws Exception {
+        Map<Long, NucleotideSQPair> first = readAll("sample_r1.fastq.gz", "sample_r2.fastq.gz"),
+                second = readAll("sample_r1.fastq.gz", "sample_r2.fastq.gz");
+        Assert.assertFalse(first.isEmpty());
+        Assert.assertEquals(first, second);
+
+        SFastqReader reader = new SFastqReader(ClassLoader.getSystemResource("sample_r2.fastq.gz").openStream(),
+                CompressionType.GZIP);
+        SSequencingRead read;
+        while ((read = reader.take()) != null)
+            Assert.assertEquals(read.getData(), first.get(read.id() * 2 + 1));
+    }
+
+    private static Map<Long, NucleotideSQPair> readAll(String... files) throws IOException {
+        SSequencingDataReader[] readers = new SSequencingDataReader[files.length];
+        for (int i = 0; i < files.length; ++i)
+            readers[i] = new SFastqReader(ClassLoader.getSystemResource(files[i]).openStream(),
+                    CompressionType.GZIP);
+        MergedSSequencingDataReader merged = new MergedSSequencingDataReader(readers);
+        Map<Long, NucleotideSQPair> result = new HashMap<>();
+        SSequencingRead read;
+        while ((read = merged.take()) != null)
+            Assert.assertNull(result.put(read.id(), read.getData()));
+        return result;
+    }
+
+    private static void add(Map<NucleotideSQPair, Integer> map, NucleotideSQPair key, int value) {
+        Integer count = map.get(key);
+        map.put(key, count == null ? value : count + value);
+    }
+}
@@ -0,0 +1,73 @@
+/*
+ * MiTCR <http://milaboratory.com>
+ *
+ * Copyright (c) 2010-2013:
+ *     Bolotin Dmitriy     <bolotin.dmitriy@gmail.com>
+ *     Chudakov Dmitriy    <chudakovdm@mail.ru>
+ *
+ * MiTCR is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License as published by the Free
+ * Software Foundation, either version 3 of the License, or (at your option)
+ * any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU General Public License for
+ * more details.
+ *
+ * You should have received a copy of the GNU General Public License along
+ * with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.milaboratory.core.sequencing.io.fasta;
+
+import com.milaboratory.core.sequence.quality.SequenceQualityUtils;
+import com.milaboratory.core.sequencing.read.SSequencingRead;
+import com.milaboratory.util.CompressionType;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+public class FastaReaderTest {
+    @Test
+    public void test1() throws Exception {
+        Random random = new Random(1);
+        List<String> descriptions = new ArrayList<>(), sequences = new ArrayList<>();
+        StringBuilder fasta = new StringBuilder("\n");
+        for (int i = 0; i < 1000; ++i) {
+            descriptions.add("read" + i + " some description");
+            StringBuilder sequence = new StringBuilder();
+            for (int j = random.nextInt(300); j >= 0; --j)
+                sequence.append("ACGTN".charAt(random.nextInt(5)));
+            sequences.add(sequence.toString());
+
+            String lineEnd = i % 2 == 0 ? "\n" : "\r\n";
+            fasta.append('>').append(descriptions.get(i)).append(lineEnd);
+            //Splitting sequence into lines
+            for (int from = 0; from < sequence.length(); from += 60)
+                fasta.append(sequence, from, Math.min(sequence.length(), from + 60)).append(lineEnd);
+        }
+        byte[] data = fasta.toString().getBytes();
+
+        for (int blockSize : new int[]{16, 1000, FastaReader.DEFAULT_BLOCK_SIZE}) {
+            FastaReader reader = new FastaReader(new ByteArrayInputStream(data), CompressionType.None, blockSize);
+            SSequencingRead read;
+            int count = 0;
+            while ((read = reader.take()) != null) {
+                Assert.assertEquals(count, read.id());
+                Assert.assertEquals(descriptions.get(count), read.getDescription());
+                String sequence = sequences.get(count);
+                Assert.assertEquals(sequence.replace('N', 'A'), read.getData().getSequence().toString());
+                for (int i = 0; i < sequence.length(); ++i)
+                    Assert.assertEquals(sequence.charAt(i) == 'N' ? SequenceQualityUtils.BAD_QUALITY_VALUE :
+                            SequenceQualityUtils.GOOD_QUALITY_VALUE, read.getData().getQuality().value(i));
+                ++count;
+            }
+            Assert.assertEquals(sequences.size(), count);
+            Assert.assertNull(reader.take());
+        }
+    }
+}
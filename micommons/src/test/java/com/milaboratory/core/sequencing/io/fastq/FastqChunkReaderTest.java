@@ -0,0 +1,56 @@
+/*
+ * MiTCR <http://milaboratory.com>
+ *
+ * Copyright (c) 2010-2013:
+ *     Bolotin Dmitriy     <bolotin.dmitriy@gmail.com>
+ *     Chudakov Dmitriy    <chudakovdm@mail.ru>
+ *
+ * MiTCR is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License as published by the Free
+ * Software Foundation, either version 3 of the License, or (at your option)
+ * any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU General Public License for
+ * more details.
+ *
+ * You should have received a copy of the GNU General Public License along
+ * with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.milaboratory.core.sequencing.io.fastq;
+
+import com.milaboratory.core.sequencing.read.SSequencingRead;
+import com.milaboratory.util.CompressionType;
+import org.junit.Assert;
+import org.junit.Test;
+
+public class FastqChunkReaderTest {
+    @Test
+    public void test1() throws Exception {
+        String[] files = {"solexa1.fastq.gz", "sample_r1.fastq.gz", "sample_r2.fastq.gz"};
+
+        for (String file : files)
+            for (int chunkSize : new int[]{100, 1000, FastqChunkReader.DEFAULT_CHUNK_SIZE}) {
+                SFastqReader reader = new SFastqReader(ClassLoader.getSystemResource(file).openStream(),
+                        CompressionType.GZIP);
+                FastqChunkReader chunkReader = new FastqChunkReader(ClassLoader.getSystemResource(file).openStream(),
+                        null, CompressionType.GZIP, true, chunkSize);
+                Assert.assertEquals(reader.getQualityFormat(), chunkReader.getQualityFormat());
+
+                FastqChunkParser parser = chunkReader.createParser();
+                FastqChunk chunk;
+                SSequencingRead read;
+                while ((chunk = chunkReader.take()) != null)
+                    for (SSequencingRead actual : parser.process(chunk)) {
+                        read = reader.take();
+                        Assert.assertEquals(read.id(), actual.id());
+                        Assert.assertEquals(read.getDescription(), actual.getDescription());
+                        Assert.assertEquals(read.getData(), actual.getData());
+                    }
+
+                Assert.assertNull(reader.take());
+                Assert.assertTrue(chunkReader.isClosed());
+            }
+    }
+}
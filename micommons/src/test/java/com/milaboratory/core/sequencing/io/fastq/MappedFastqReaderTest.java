@@ -0,0 +1,137 @@
+/*
+ * MiTCR <http://milaboratory.com>
+ *
+ * Copyright (c) 2010-2013:
+ *     Bolotin Dmitriy     <bolotin.dmitriy@gmail.com>
+ *     Chudakov Dmitriy    <chudakovdm@mail.ru>
+ *
+ * MiTCR is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License as published by the Free
+ * Software Foundation, either version 3 of the License, or (at your option)
+ * any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU General Public License for
+ * more details.
+ *
+ * You should have received a copy of the GNU General Public License along
+ * with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.milaboratory.core.sequencing.io.fastq;
+
+import com.milaboratory.core.sequence.quality.QualityFormat;
+import com.milaboratory.core.sequencing.read.SSequencingRead;
+import com.milaboratory.util.CompressionType;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.InputStream;
+import java.util.*;
+import java.util.concurrent.ConcurrentLinkedQueue;
+
+public class MappedFastqReaderTest {
+    @Test
+    public void testSingleThread() throws Exception {
+        for (String resource : new String[]{"sample_r1.fastq.gz", "solexa1.fastq.gz", "solexa2.fastq.gz"}) {
+            File file = decompress(resource);
+            for (int ranges : new int[]{1, 3, 17, 1000}) {
+                SFastqReader expected = new SFastqReader(file);
+                MappedFastqReader actual = new MappedFastqReader(file, null, ranges);
+                Assert.assertEquals(expected.getQualityFormat(), actual.getQualityFormat());
+
+                SSequencingRead read, actualRead;
+                while ((read = expected.take()) != null) {
+                    actualRead = actual.take();
+                    Assert.assertEquals(read.getDescription(), actualRead.getDescription());
+                    Assert.assertEquals(read.getData(), actualRead.getData());
+                    Assert.assertEquals(read.id(), actualRead.id());
+                }
+                Assert.assertNull(actual.take());
+                Assert.assertTrue(actual.isFinished());
+                Assert.assertEquals(1.0, actual.getProgress(), 0.0);
+                actual.close();
+            }
+            file.delete();
+        }
+    }
+
+    @Test
+    public void testMultiThread() throws Exception {
+        File file = decompress("sample_r1.fastq.gz");
+
+        List<String> expected = new ArrayList<>();
+        SFastqReader reader = new SFastqReader(file);
+        SSequencingRead read;
+        while ((read = reader.take()) != null)
+            expected.add(read.id() + read.getDescription() + read.getData().getSequence());
+
+        final MappedFastqReader mappedReader = new MappedFastqReader(file, null, 16);
+        final Queue<String> actual = new ConcurrentLinkedQueue<>();
+        Thread[] threads = new Thread[4];
+        for (int i = 0; i < threads.length; ++i) {
+            threads[i] = new Thread(new Runnable() {
+                @Override
+                public void run() {
+                    SSequencingRead read;
+                    while ((read = mappedReader.take()) != null)
+                        actual.add(read.id() + read.getDescription() + read.getData().getSequence());
+                }
+            });
+            threads[i].start();
+        }
+        for (Thread thread : threads)
+            thread.join();
+
+        List<String> actualList = new ArrayList<>(actual);
+        Collections.sort(expected);
+        Collections.sort(actualList);
+        Assert.assertEquals(expected, actualList);
+        Assert.assertTrue(mappedReader.isFinished());
+        mappedReader.close();
+        file.delete();
+    }
+
+    @Test
+    public void testIdsWithoutTrailingNewLine() throws Exception {
+        File file = File.createTempFile("mapped", ".fastq");
+        file.deleteOnExit();
+        StringBuilder builder = new StringBuilder();
+        for (int i = 0; i < 100; ++i)
+            builder.append("@read").append(i).append("\nATTAGACA\n+\nIIIIIIII\n");
+        //Last record without new line symbol
+        builder.setLength(builder.length() - 1);
+        FileOutputStream fos = new FileOutputStream(file);
+        fos.write(builder.toString().getBytes());
+        fos.close();
+
+        for (int ranges : new int[]{1, 7, 100}) {
+            MappedFastqReader reader = new MappedFastqReader(file, QualityFormat.Phred33, ranges);
+            SSequencingRead read;
+            int count = 0;
+            while ((read = reader.take()) != null) {
+                Assert.assertEquals("read" + read.id(), read.getDescription());
+                ++count;
+            }
+            Assert.assertEquals(100, count);
+            reader.close();
+        }
+        file.delete();
+    }
+
+    private static File decompress(String resource) throws Exception {
+        File file = File.createTempFile("mapped", ".fastq");
+        file.deleteOnExit();
+        InputStream is = CompressionType.GZIP.createInputStream(ClassLoader.getSystemResourceAsStream(resource));
+        FileOutputStream fos = new FileOutputStream(file);
+        byte[] buffer = new byte[65536];
+        int read;
+        while ((read = is.read(buffer)) != -1)
+            fos.write(buffer, 0, read);
+        fos.close();
+        is.close();
+        return file;
+    }
+}
@@ -0,0 +1,113 @@
+/*
+ * MiTCR <http://milaboratory.com>
+ *
+ * Copyright (c) 2010-2013:
+ *     Bolotin Dmitriy     <bolotin.dmitriy@gmail.com>
+ *     Chudakov Dmitriy    <chudakovdm@mail.ru>
+ *
+ * MiTCR is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License as published by the Free
+ * Software Foundation, either version 3 of the License, or (at your option)
+ * any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU General Public License for
+ * more details.
+ *
+ * You should have received a copy of the GNU General Public License along
+ * with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.milaboratory.core.sequencing.io.fastq;
+
+import com.milaboratory.core.sequence.NucleotideSQPair;
+import com.milaboratory.core.sequence.nucleotide.NucleotideSequence;
+import com.milaboratory.core.sequence.quality.SequenceQualityPhred;
+import com.milaboratory.core.sequencing.read.PSequencingRead;
+import com.milaboratory.core.sequencing.read.PSequencingReadImpl;
+import com.milaboratory.core.sequencing.read.SSequencingRead;
+import com.milaboratory.util.Bit2Array;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.Random;
+
+public class PairedReadsMergerTest {
+    @Test
+    public void testMerge() throws Exception {
+        Random random = new Random(2);
+        PairedReadsMerger merger = new PairedReadsMerger();
+        int readLength = 100;
+        for (int t = 0; t < 1000; ++t) {
+            int insertLength = readLength + random.nextInt(readLength - PairedReadsMerger.DEFAULT_MIN_OVERLAP);
+            NucleotideSQPair insert = randomInsert(random, insertLength);
+            NucleotideSQPair read0 = insert.getRange(0, readLength),
+                    read1 = insert.getRC().getRange(0, readLength);
+
+            //Introducing low quality error into the first mate
+            int errorPosition = insertLength - readLength + random.nextInt(2 * readLength - insertLength);
+            byte[] sequence = new byte[readLength], quality = read0.getQuality().getInnerData().clone();
+            for (int i = 0; i < readLength; ++i)
+                sequence[i] = (byte) read0.getSequence().codeAt(i);
+            sequence[errorPosition] ^= 1;
+            quality[errorPosition] = 5;
+            Bit2Array packed = new Bit2Array(readLength);
+            for (int i = 0; i < readLength; ++i)
+                packed.set(i, sequence[i]);
+            read0 = new NucleotideSQPair(new NucleotideSequence(packed), new SequenceQualityPhred(quality));
+
+            PSequencingRead pair = new PSequencingReadImpl(t, "r0", "r1", read0, read1);
+            SSequencingRead merged = merger.process(pair);
+            Assert.assertNotNull(merged);
+            Assert.assertEquals(t, merged.id());
+            Assert.assertEquals("r0", merged.getDescription());
+            Assert.assertEquals(insert.getSequence(), merged.getData().getSequence());
+        }
+    }
+
+    @Test
+    public void testNoOverlap() throws Exception {
+        Random random = new Random(3);
+        PairedReadsMerger merger = new PairedReadsMerger();
+        int merged = 0;
+        for (int t = 0; t < 1000; ++t) {
+            NucleotideSQPair insert = randomInsert(random, 300);
+            PSequencingRead pair = new PSequencingReadImpl(t, "r0", "r1", insert.getRange(0, 100),
+                    insert.getRC().getRange(0, 100));
+            if (merger.process(pair) != null)
+                ++merged;
+        }
+        Assert.assertTrue(merged < 10);
+    }
+
+    @Test
+    public void testTandemRepeat() throws Exception {
+        //Both mates end inside the CA repeat, so short shifted overlaps match exactly too
+        String insertString = "GTTAGCGTTGGATCTAGGTT" + repeat("CA", 20) + "TTG" + repeat("CA", 18) + "C" +
+                "TGGTAACGGTATTGCGTTAG";
+        NucleotideSQPair insert = new NucleotideSQPair(insertString);
+        Assert.assertEquals(120, insert.size());
+        PSequencingRead pair = new PSequencingReadImpl(0, "r0", "r1", insert.getRange(0, 100),
+                insert.getRC().getRange(0, 100));
+        SSequencingRead merged = new PairedReadsMerger().process(pair);
+        Assert.assertNotNull(merged);
+        Assert.assertEquals(insert.getSequence(), merged.getData().getSequence());
+    }
+
+    private static String repeat(String unit, int times) {
+        StringBuilder builder = new StringBuilder();
+        for (int i = 0; i < times; ++i)
+            builder.append(unit);
+        return builder.toString();
+    }
+
+    private static NucleotideSQPair randomInsert(Random random, int length) {
+        Bit2Array sequence = new Bit2Array(length);
+        byte[] quality = new byte[length];
+        for (int i = 0; i < length; ++i) {
+            sequence.set(i, random.nextInt(4));
+            quality[i] = (byte) (20 + random.nextInt(20));
+        }
+        return new NucleotideSQPair(new NucleotideSequence(sequence), new SequenceQualityPhred(quality));
+    }
+}
@@ -26,6 +26,7 @@ import com.milaboratory.util.CompressionType;
 import org.junit.Assert;
 import org.junit.Test;
 
+import java.io.ByteArrayInputStream;
 import java.io.File;
 import java.io.IOException;
 import java.io.InputStream;
@@ -65,4 +66,40 @@ public class SFastqReaderTest {
             Assert.assertEquals(n, reads[i]);
         }
     }
+
+    @Test
+    public void testByteLevelParsing() throws Exception {
+        String[] files = {"solexa1.fastq.gz", "solexa2.fastq.gz", "solexa3.fastq.gz", "sample_r1.fastq.gz", "sample_r2.fastq.gz"};
+
+        for (String file : files) {
+            SFastqReader legacy = new SFastqReader(ClassLoader.getSystemResource(file).openStream(), null,
+                    CompressionType.GZIP, true, null, false, true);
+            SFastqReader raw = new SFastqReader(ClassLoader.getSystemResource(file).openStream(), null,
+                    CompressionType.GZIP, true, null, false, false);
+            Assert.assertEquals(legacy.getQualityFormat(), raw.getQualityFormat());
+            assertSameReads(legacy, raw);
+        }
+    }
+
+    @Test
+    public void testByteLevelParsingLineEndings() throws Exception {
+        String fastq = "@r0\nATNGC\n+\nIIIII\n@r1 x\r\nAT.GCA\r\n+r1 x\r\nIIIII#\r\n@r2\nACGT\n+\nIIII";
+        SFastqReader legacy = new SFastqReader(new ByteArrayInputStream(fastq.getBytes()), QualityFormat.Phred33,
+                CompressionType.None, false, null, false, true);
+        SFastqReader raw = new SFastqReader(new ByteArrayInputStream(fastq.getBytes()), QualityFormat.Phred33,
+                CompressionType.None, false, null, false, false);
+        assertSameReads(legacy, raw);
+    }
+
+    private static void assertSameReads(SFastqReader expected, SFastqReader actual) {
+        SSequencingRead read, actualRead;
+        while ((read = expected.take()) != null) {
+            actualRead = actual.take();
+            Assert.assertEquals(read.id(), actualRead.id());
+            Assert.assertEquals(read.getDescription(), actualRead.getDescription());
+            Assert.assertEquals(read.getData(), actualRead.getData());
+        }
+        Assert.assertNull(actual.take());
+        Assert.assertTrue(actual.isClosed());
+    }
 }
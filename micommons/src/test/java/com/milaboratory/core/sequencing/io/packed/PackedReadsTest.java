@@ -0,0 +1,87 @@
+/*
+ * MiTCR <http://milaboratory.com>
+ *
+ * Copyright (c) 2010-2013:
+ *     Bolotin Dmitriy     <bolotin.dmitriy@gmail.com>
+ *     Chudakov Dmitriy    <chudakovdm@mail.ru>
+ *
+ * MiTCR is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License as published by the Free
+ * Software Foundation, either version 3 of the License, or (at your option)
+ * any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU General Public License for
+ * more details.
+ *
+ * You should have received a copy of the GNU General Public License along
+ * with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.milaboratory.core.sequencing.io.packed;
+
+import com.milaboratory.core.sequencing.io.fastq.SFastqReader;
+import com.milaboratory.core.sequencing.read.SSequencingRead;
+import com.milaboratory.util.CompressionType;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.List;
+
+public class PackedReadsTest {
+    @Test
+    public void testWriteRead() throws Exception {
+        List<SSequencingRead> reads = readAll("sample_r1.fastq.gz");
+
+        for (boolean binQuality : new boolean[]{false, true})
+            for (boolean descriptions : new boolean[]{false, true}) {
+                File file = File.createTempFile("reads", PackedReads.FILE_EXTENSION);
+                file.deleteOnExit();
+                PackedReadsWriter writer = new PackedReadsWriter(file, binQuality, descriptions);
+                writer.write(reads);
+                writer.close();
+
+                PackedReadsReader reader = new PackedReadsReader(file);
+                Assert.assertEquals(binQuality, reader.isQualityBinned());
+                Assert.assertEquals(descriptions, reader.hasDescriptions());
+
+                SSequencingRead actual;
+                for (SSequencingRead expected : reads) {
+                    actual = reader.take();
+                    Assert.assertEquals(expected.id(), actual.id());
+                    Assert.assertEquals(descriptions ? expected.getDescription() : "", actual.getDescription());
+                    Assert.assertEquals(expected.getData().getSequence(), actual.getData().getSequence());
+                    for (int i = 0; i < expected.getData().size(); ++i) {
+                        byte quality = expected.getData().getQuality().value(i);
+                        Assert.assertEquals(binQuality ? PackedReads.binValue(PackedReads.binQuality(quality)) : quality,
+                                actual.getData().getQuality().value(i));
+                    }
+                }
+                Assert.assertNull(reader.take());
+                Assert.assertTrue(reader.isFinished());
+                Assert.assertEquals(1.0, reader.getProgress(), 0.0);
+                file.delete();
+            }
+    }
+
+    @Test
+    public void testBins() throws Exception {
+        for (byte q = 0; q < 50; ++q) {
+            byte value = PackedReads.binValue(PackedReads.binQuality(q));
+            //Commonly used thresholds are preserved
+            for (int threshold : new int[]{3, 10, 20, 25, 30})
+                Assert.assertEquals(q >= threshold, value >= threshold);
+        }
+    }
+
+    private static List<SSequencingRead> readAll(String resource) throws Exception {
+        SFastqReader reader = new SFastqReader(ClassLoader.getSystemResourceAsStream(resource), CompressionType.GZIP);
+        List<SSequencingRead> reads = new ArrayList<>();
+        SSequencingRead read;
+        while ((read = reader.take()) != null)
+            reads.add(read);
+        return reads;
+    }
+}
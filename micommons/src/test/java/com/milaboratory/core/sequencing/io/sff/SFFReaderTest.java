@@ -0,0 +1,142 @@
+/*
+ * MiTCR <http://milaboratory.com>
+ *
+ * Copyright (c) 2010-2013:
+ *     Bolotin Dmitriy     <bolotin.dmitriy@gmail.com>
+ *     Chudakov Dmitriy    <chudakovdm@mail.ru>
+ *
+ * MiTCR is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License as published by the Free
+ * Software Foundation, either version 3 of the License, or (at your option)
+ * any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU General Public License for
+ * more details.
+ *
+ * You should have received a copy of the GNU General Public License along
+ * with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.milaboratory.core.sequencing.io.sff;
+
+import com.milaboratory.core.sequencing.read.SSequencingReadWithFlowgram;
+import com.milaboratory.util.CompressionType;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.Random;
+
+public class SFFReaderTest {
+    private static final String FLOWS = "TACG";
+    private static final int NUMBER_OF_FLOWS = 40;
+
+    @Test
+    public void test1() throws Exception {
+        Random random = new Random(1);
+        int readsCount = 500;
+        String[] sequences = new String[readsCount];
+        byte[][] qualities = new byte[readsCount][];
+        for (int i = 0; i < readsCount; ++i) {
+            int length = 1 + random.nextInt(100);
+            StringBuilder sequence = new StringBuilder();
+            qualities[i] = new byte[length];
+            for (int j = 0; j < length; ++j) {
+                sequence.append("ACGT".charAt(random.nextInt(4)));
+                qualities[i][j] = (byte) random.nextInt(41);
+            }
+            sequences[i] = sequence.toString();
+        }
+
+        byte[] data = write(sequences, qualities, readsCount / 2);
+
+        for (int blockSize : new int[]{64, 5000, SFFReader.DEFAULT_BLOCK_SIZE}) {
+            SFFReader reader = new SFFReader(new ByteArrayInputStream(data), CompressionType.None, blockSize);
+            Assert.assertEquals(readsCount, reader.getHeader().getNumberOfReads());
+            Assert.assertEquals(NUMBER_OF_FLOWS, reader.getFlowgramSequence().size());
+            SSequencingReadWithFlowgram read;
+            int count = 0;
+            while ((read = reader.take()) != null) {
+                SFFRAWRead raw = (SFFRAWRead) read;
+                Assert.assertEquals(count, read.id());
+                Assert.assertEquals("read" + count, read.getDescription());
+                Assert.assertEquals(sequences[count], read.getData().getSequence().toString());
+                Assert.assertArrayEquals(qualities[count], read.getData().getQuality().getInnerData());
+                Assert.assertEquals(count % 5, raw.getClipQualLeft());
+                Assert.assertEquals(-1, raw.getClipAdapterRight());
+                ++count;
+            }
+            Assert.assertEquals(readsCount, count);
+            Assert.assertNull(reader.take());
+        }
+    }
+
+    /**
+     * Writes SFF file with index section placed after {@code indexPosition} reads.
+     */
+    private static byte[] write(String[] sequences, byte[][] qualities, int indexPosition) throws IOException {
+        final int keyLength = 4, indexLength = 21;
+        ByteArrayOutputStream bos = new ByteArrayOutputStream();
+        DataOutputStream os = new DataOutputStream(bos);
+
+        //Calculating index offset
+        int headerLength = pad8(31 + NUMBER_OF_FLOWS + keyLength);
+        long indexOffset = headerLength;
+        for (int i = 0; i < indexPosition; ++i)
+            indexOffset += pad8(16 + ("read" + i).length()) + pad8(2 * NUMBER_OF_FLOWS + 3 * sequences[i].length());
+
+        os.writeInt(0x2E736666);
+        os.write(new byte[]{0, 0, 0, 1});
+        os.writeLong(indexOffset);
+        os.writeInt(indexLength);
+        os.writeInt(sequences.length);
+        os.writeShort(headerLength);
+        os.writeShort(keyLength);
+        os.writeShort(NUMBER_OF_FLOWS);
+        os.writeByte(1);
+        for (int i = 0; i < NUMBER_OF_FLOWS; ++i)
+            os.writeByte(FLOWS.charAt(i % 4));
+        os.writeBytes("TCAG");
+        pad(os);
+
+        for (int i = 0; i < sequences.length; ++i) {
+            if (i == indexPosition) {
+                Assert.assertEquals(indexOffset, os.size());
+                os.write(new byte[indexLength]);
+                pad(os);
+            }
+            String name = "read" + i;
+            os.writeShort(pad8(16 + name.length()));
+            os.writeShort(name.length());
+            os.writeInt(sequences[i].length());
+            os.writeShort(i % 5 + 1);
+            os.writeShort(sequences[i].length());
+            os.writeShort(0);
+            os.writeShort(0);
+            os.writeBytes(name);
+            pad(os);
+            for (int j = 0; j < NUMBER_OF_FLOWS; ++j)
+                os.writeShort(j * 10);
+            for (int j = 0; j < sequences[i].length(); ++j)
+                os.writeByte(1);
+            os.writeBytes(sequences[i]);
+            os.write(qualities[i]);
+            pad(os);
+        }
+        os.close();
+        return bos.toByteArray();
+    }
+
+    private static void pad(DataOutputStream os) throws IOException {
+        while (os.size() % 8 != 0)
+            os.writeByte(0);
+    }
+
+    private static int pad8(int length) {
+        return ((length + 7) / 8) * 8;
+    }
+}
@@ -25,6 +25,7 @@
  */
 package com.milaboratory.util;
 
+import org.junit.Ignore;
 import org.junit.Test;
 
 import java.util.Random;
@@ -74,6 +75,136 @@ public class Bit2ArrayTest {
         }
     }
 
+    @Test
+    public void testGetRange() {
+        Random r = new Random(1);
+        for (int n = 0; n < 1000; ++n) {
+            Bit2Array ba = random(r, 1 + r.nextInt(200));
+            int from = r.nextInt(ba.size()), to = from + r.nextInt(ba.size() - from + 1);
+            assertEquals(getRangeByElement(ba, from, to), ba.getRange(from, to));
+        }
+    }
+
+    @Test
+    public void testCopyFrom() {
+        Random r = new Random(2);
+        for (int n = 0; n < 1000; ++n) {
+            Bit2Array source = random(r, 1 + r.nextInt(200)), target = random(r, 1 + r.nextInt(200)),
+                    expected = target.clone();
+            int length = r.nextInt(java.lang.Math.min(source.size(), target.size()) + 1),
+                    sourceOffset = r.nextInt(source.size() - length + 1),
+                    targetOffset = r.nextInt(target.size() - length + 1);
+            for (int i = 0; i < length; ++i)
+                expected.set(targetOffset + i, source.get(sourceOffset + i));
+            target.copyFrom(source, sourceOffset, targetOffset, length);
+            assertEquals(expected, target);
+        }
+    }
+
+    @Test
+    public void testMismatches() {
+        Random r = new Random(3);
+        for (int n = 0; n < 1000; ++n) {
+            Bit2Array a = random(r, 1 + r.nextInt(200)), b = random(r, 1 + r.nextInt(200));
+            int length = r.nextInt(java.lang.Math.min(a.size(), b.size()) + 1),
+                    aOffset = r.nextInt(a.size() - length + 1),
+                    bOffset = r.nextInt(b.size() - length + 1);
+            //Making regions similar
+            for (int i = 0; i < length; ++i)
+                if (r.nextInt(10) != 0)
+                    b.set(bOffset + i, a.get(aOffset + i));
+            int expected = 0;
+            for (int i = 0; i < length; ++i)
+                if (a.get(aOffset + i) != b.get(bOffset + i))
+                    ++expected;
+            assertEquals(expected, a.mismatches(aOffset, b, bOffset, length));
+            assertTrue(a.mismatches(aOffset, b, bOffset, length, expected / 2) > expected / 2 || expected == 0);
+        }
+    }
+
+    @Test
+    public void testCompare() {
+        Random r = new Random(4);
+        for (int n = 0; n < 10000; ++n) {
+            Bit2Array a = random(r, r.nextInt(70)), b = a.clone();
+            if (r.nextBoolean() && b.size() > 0)
+                b.set(r.nextInt(b.size()), r.nextInt(4));
+            if (r.nextInt(10) == 0)
+                b = random(r, r.nextInt(70));
+            assertEquals(compareByElement(a, b), a.compareTo(b));
+            assertEquals(compareByElement(b, a), b.compareTo(a));
+        }
+    }
+
+    @Ignore
+    @Test
+    public void benchmark() {
+        Random r = new Random(5);
+        Bit2Array[] arrays = new Bit2Array[1000];
+        for (int i = 0; i < arrays.length; ++i)
+            arrays[i] = random(r, 100 + r.nextInt(100));
+
+        for (int iteration = 0; iteration < 5; ++iteration) {
+            int hash = 0;
+            long start = System.nanoTime();
+            for (int k = 0; k < 1000; ++k)
+                for (Bit2Array array : arrays)
+                    hash += getRangeByElement(array, 13, 91).hashCode();
+            long byElement = System.nanoTime() - start;
+            start = System.nanoTime();
+            for (int k = 0; k < 1000; ++k)
+                for (Bit2Array array : arrays)
+                    hash += array.getRange(13, 91).hashCode();
+            long packed = System.nanoTime() - start;
+            System.out.println("getRange: " + (byElement / 1000000) + " ms (by element) / " + (packed / 1000000) +
+                    " ms " + hash);
+
+            start = System.nanoTime();
+            for (int k = 0; k < 1000; ++k)
+                for (int i = 1; i < arrays.length; ++i)
+                    hash += mismatchesByElement(arrays[i - 1], arrays[i], 100);
+            byElement = System.nanoTime() - start;
+            start = System.nanoTime();
+            for (int k = 0; k < 1000; ++k)
+                for (int i = 1; i < arrays.length; ++i)
+                    hash += arrays[i - 1].mismatches(0, arrays[i], 0, 100);
+            packed = System.nanoTime() - start;
+            System.out.println("mismatches: " + (byElement / 1000000) + " ms (by element) / " + (packed / 1000000) +
+                    " ms " + hash);
+        }
+    }
+
+    private static Bit2Array random(Random r, int length) {
+        Bit2Array ba = new Bit2Array(length);
+        for (int i = 0; i < length; ++i)
+            ba.set(i, r.nextInt(4));
+        return ba;
+    }
+
+    private static Bit2Array getRangeByElement(Bit2Array ba, int from, int to) {
+        Bit2Array ret = new Bit2Array(to - from);
+        for (int i = 0; i < ret.size(); ++i)
+            ret.set(i, ba.get(from + i));
+        return ret;
+    }
+
+    private static int mismatchesByElement(Bit2Array a, Bit2Array b, int length) {
+        int mismatches = 0;
+        for (int i = 0; i < length; ++i)
+            if (a.get(i) != b.get(i))
+                ++mismatches;
+        return mismatches;
+    }
+
+    private static int compareByElement(Bit2Array a, Bit2Array b) {
+        if (a.size() != b.size())
+            return a.size() < b.size() ? -1 : 1;
+        for (int i = 0; i < a.size(); ++i)
+            if (a.get(i) != b.get(i))
+                return a.get(i) < b.get(i) ? -1 : 1;
+        return 0;
+    }
+
     /*@Test
     public void generalTestPlusIO() throws IOException {
         Random r = new Random();
@@ -22,9 +22,11 @@ package com.milaboratory.util;
 
 import org.junit.Test;
 
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Random;
 
-import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.*;
 
 public class BitArrayTest {
     @Test
@@ -92,4 +94,70 @@ public class BitArrayTest {
             assertEquals(ba.bitCount(), i);
         }
     }
-}
\ No newline at end of file
+
+    @Test
+    public void iterationTest() {
+        Random r = new Random(123);
+        for (int n = 0; n < 1000; ++n) {
+            int size = r.nextInt(200) + 1;
+            BitArray ba = new BitArray(size);
+            for (int j = r.nextInt(size); j > 0; --j)
+                ba.set(r.nextInt(size));
+
+            final List<Integer> expected = new ArrayList<>();
+            for (int i = 0; i < size; ++i)
+                if (ba.get(i))
+                    expected.add(i);
+
+            List<Integer> actual = new ArrayList<>();
+            for (int i = ba.nextSetBit(0); i >= 0; i = ba.nextSetBit(i + 1))
+                actual.add(i);
+            assertEquals(expected, actual);
+
+            final List<Integer> processed = new ArrayList<>();
+            ba.forEachSetBit(new BitArray.BitProcessor() {
+                @Override
+                public void process(int bit) {
+                    processed.add(bit);
+                }
+            });
+            assertEquals(expected, processed);
+
+            int[] bits = ba.getBits();
+            assertEquals(expected.size(), bits.length);
+            for (int i = 0; i < bits.length; ++i)
+                assertEquals((int) expected.get(i), bits[i]);
+
+            assertEquals(ba, BitArray.fromBytes(BitArray.toBytes(ba), size));
+        }
+    }
+
+    @Test
+    public void setAllTest() {
+        for (int i = 1; i < 200; ++i) {
+            BitArray ba = new BitArray(i), other = new BitArray(i);
+            ba.setAll();
+            for (int j = 0; j < i; ++j)
+                other.set(j);
+            assertEquals(other, ba);
+            assertEquals(-1, ba.nextSetBit(i));
+        }
+    }
+
+    @Test
+    public void internerTest() {
+        BitArrayInterner interner = new BitArrayInterner();
+        BitArray a = new BitArray(70), b = new BitArray(70);
+        a.set(3);
+        a.set(66);
+        b.set(3);
+        b.set(66);
+        BitArray ia = interner.intern(a);
+        assertNotSame(a, ia);
+        assertSame(ia, interner.intern(b));
+        b.clear(3);
+        assertNotSame(ia, interner.intern(b));
+        assertEquals(2, interner.size());
+        assertNull(interner.intern(null));
+    }
+}
@@ -0,0 +1,128 @@
+/*
+ * MiTCR <http://milaboratory.com>
+ *
+ * Copyright (c) 2010-2013:
+ *     Bolotin Dmitriy     <bolotin.dmitriy@gmail.com>
+ *     Chudakov Dmitriy    <chudakovdm@mail.ru>
+ *
+ * MiTCR is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License as published by the Free
+ * Software Foundation, either version 3 of the License, or (at your option)
+ * any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU General Public License for
+ * more details.
+ *
+ * You should have received a copy of the GNU General Public License along
+ * with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.milaboratory.util;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.io.*;
+import java.util.Random;
+import java.util.zip.CRC32;
+import java.util.zip.Deflater;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+public class ParallelGZIPInputStreamTest {
+    @Test
+    public void testSamples() throws Exception {
+        for (String file : new String[]{"sample_r1.fastq.gz", "solexa1.fastq.gz", "solexa2.fastq.gz"}) {
+            byte[] expected = readAll(new GZIPInputStream(ClassLoader.getSystemResource(file).openStream()));
+            byte[] actual = readAll(CompressionType.GZIP.createInputStream(ClassLoader.getSystemResource(file).openStream()));
+            Assert.assertArrayEquals(expected, actual);
+        }
+    }
+
+    @Test
+    public void testMultiMember() throws Exception {
+        byte[] data = randomData(3 * ParallelGZIPInputStream.BUFFER_SIZE + 117);
+        ByteArrayOutputStream bos = new ByteArrayOutputStream();
+        for (int i = 0; i < data.length; i += 100000) {
+            GZIPOutputStream gzip = new GZIPOutputStream(bos);
+            gzip.write(data, i, java.lang.Math.min(100000, data.length - i));
+            gzip.finish();
+        }
+        Assert.assertArrayEquals(data, readAll(new ParallelGZIPInputStream(new ByteArrayInputStream(bos.toByteArray()))));
+    }
+
+    @Test
+    public void testBGZF() throws Exception {
+        for (int size : new int[]{0, 1, 65536, 5 * ParallelGZIPInputStream.BUFFER_SIZE + 1234}) {
+            byte[] data = randomData(size);
+            byte[] bgzf = bgzf(data);
+            Assert.assertArrayEquals(data, readAll(new GZIPInputStream(new ByteArrayInputStream(bgzf))));
+            Assert.assertArrayEquals(data, readAll(new ParallelGZIPInputStream(new ByteArrayInputStream(bgzf))));
+        }
+    }
+
+    @Test(expected = IOException.class)
+    public void testCorruptedBGZF() throws Exception {
+        byte[] bgzf = bgzf(randomData(100000));
+        bgzf[bgzf.length - 28 - 10] ^= 0x55; //CRC of the last data block
+        readAll(new ParallelGZIPInputStream(new ByteArrayInputStream(bgzf)));
+    }
+
+    private static byte[] randomData(int size) {
+        Random random = new Random(size);
+        byte[] data = new byte[size];
+        //Compressible data
+        for (int i = 0; i < size; ++i)
+            data[i] = (byte) "ACGT\n".charAt(random.nextInt(5));
+        return data;
+    }
+
+    private static byte[] readAll(InputStream stream) throws IOException {
+        ByteArrayOutputStream bos = new ByteArrayOutputStream();
+        byte[] buffer = new byte[10000];
+        int read;
+        while ((read = stream.read(buffer)) != -1)
+            bos.write(buffer, 0, read);
+        stream.close();
+        return bos.toByteArray();
+    }
+
+    /**
+     * Writes data in BGZF format, including terminating empty block.
+     */
+    private static byte[] bgzf(byte[] data) throws IOException {
+        ByteArrayOutputStream bos = new ByteArrayOutputStream();
+        int blockSize;
+        for (int i = 0; i < data.length; i += blockSize) {
+            blockSize = java.lang.Math.min(60000, data.length - i);
+            writeBlock(bos, data, i, blockSize);
+        }
+        writeBlock(bos, data, 0, 0);
+        return bos.toByteArray();
+    }
+
+    private static void writeBlock(ByteArrayOutputStream bos, byte[] data, int offset, int length) {
+        Deflater deflater = new Deflater(Deflater.DEFAULT_COMPRESSION, true);
+        deflater.setInput(data, offset, length);
+        deflater.finish();
+        byte[] compressed = new byte[length + 1024];
+        int compressedSize = deflater.deflate(compressed);
+        deflater.end();
+
+        CRC32 crc = new CRC32();
+        crc.update(data, offset, length);
+
+        int bsize = 18 + compressedSize + 8 - 1;
+        bos.write(new byte[]{0x1F, (byte) 0x8B, 8, 4, 0, 0, 0, 0, 0, (byte) 0xFF, 6, 0, 'B', 'C', 2, 0,
+                (byte) bsize, (byte) (bsize >>> 8)}, 0, 18);
+        bos.write(compressed, 0, compressedSize);
+        writeInt(bos, (int) crc.getValue());
+        writeInt(bos, length);
+    }
+
+    private static void writeInt(ByteArrayOutputStream bos, int value) {
+        for (int i = 0; i < 4; ++i)
+            bos.write(value >>> (i * 8));
+    }
+}
@@ -25,6 +25,7 @@ import com.milaboratory.core.segment.SegmentGroupType;
 import com.milaboratory.core.segment.SegmentSet;
 import com.milaboratory.core.sequence.NucleotideSQPair;
 import com.milaboratory.core.sequence.aminoacid.CDRAminoAcidSequence;
+import com.milaboratory.core.sequence.nucleotide.NucleotideSequence;
 import com.milaboratory.mitcr.clonegenerator.SequencingReadLink;
 import com.milaboratory.util.BitArray;
 
@@ -46,6 +47,8 @@ public class CloneImpl implements Clone {
     protected long count = 0;
     protected List<SequencingReadLink> links;
     protected CloneSet cloneSet;
+    //Memoized translation of cdr3 (recalculated if cdr3 was replaced)
+    private volatile CDRAminoAcidSequence cdr3AA;
 
     /**
      * Creates a clone based on id and CDR3 sequence
@@ -170,7 +173,11 @@ public class CloneImpl implements Clone {
 
     @Override
     public CDRAminoAcidSequence getCDR3AA() {
-        return new CDRAminoAcidSequence(cdr3.getSequence());
+        CDRAminoAcidSequence aa = cdr3AA;
+        final NucleotideSequence sequence = cdr3.getSequence();
+        if (aa == null || aa.getNucleotideSequence() != sequence)
+            cdr3AA = aa = new CDRAminoAcidSequence(sequence);
+        return aa;
     }
 
     @Override
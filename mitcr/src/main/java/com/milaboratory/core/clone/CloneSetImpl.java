@@ -25,6 +25,7 @@ import com.milaboratory.core.segment.SegmentGroupContainer;
 import com.milaboratory.core.segment.SegmentGroupType;
 import com.milaboratory.core.segment.Species;
 import com.milaboratory.core.sequence.nucleotide.NucleotideSequence;
+import com.milaboratory.core.sequence.nucleotide.NucleotideSequenceKeyIntMap;
 
 import java.util.*;
 
@@ -38,7 +39,8 @@ import java.util.*;
 public class CloneSetImpl<C extends Clone> implements CloneSet {
     final SegmentGroupContainer[] segmentContainers = new SegmentGroupContainer[3];
     final List<C> clones;
-    Map<NucleotideSequence, C> cdr3ToClone;
+    //CDR3 sequence -> index of clone in the list (created on the first request)
+    volatile NucleotideSequenceKeyIntMap cdr3ToClone;
     final long totalCount;
     final Gene gene;
     final Species species;
@@ -71,12 +73,15 @@ public class CloneSetImpl<C extends Clone> implements CloneSet {
 
     @Override
     public Clone getCloneByCDR3(NucleotideSequence sequence) {
-        if (cdr3ToClone == null) {
-            cdr3ToClone = new HashMap<>(cdr3ToClone.size());
-            for (C c : clones)
-                cdr3ToClone.put(c.getCDR3().getSequence(), c);
+        NucleotideSequenceKeyIntMap map = cdr3ToClone;
+        if (map == null) {
+            map = new NucleotideSequenceKeyIntMap(clones.size());
+            for (int i = 0; i < clones.size(); ++i)
+                map.put(clones.get(i).getCDR3().getSequence(), i);
+            cdr3ToClone = map;
         }
-        return cdr3ToClone.get(sequence);
+        final int index = map.get(sequence);
+        return index == NucleotideSequenceKeyIntMap.NO_VALUE ? null : clones.get(index);
     }
 
     @Override
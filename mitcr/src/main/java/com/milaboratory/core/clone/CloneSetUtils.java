@@ -0,0 +1,80 @@
+/*
+ * MiTCR <http://milaboratory.com>
+ *
+ * Copyright (c) 2010-2013:
+ *     Bolotin Dmitriy     <bolotin.dmitriy@gmail.com>
+ *     Chudakov Dmitriy    <chudakovdm@mail.ru>
+ *
+ * MiTCR is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License as published by the Free
+ * Software Foundation, either version 3 of the License, or (at your option)
+ * any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU General Public License for
+ * more details.
+ *
+ * You should have received a copy of the GNU General Public License along
+ * with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.milaboratory.core.clone;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+
+/**
+ * Utility methods for clone sets.
+ *
+ * @author Bolotin Dmitriy (bolotin.dmitriy@gmail.com)
+ */
+public final class CloneSetUtils {
+    private CloneSetUtils() {
+    }
+
+    /**
+     * Translates CDR3s of all clones of the clone set in several threads. Translations are memoized by clones (see
+     * {@link CloneImpl#getCDR3AA()}), so subsequent calls of {@link Clone#getCDR3AA()} (e.g. during export or quality
+     * control) don't translate anything.
+     *
+     * @param cloneSet        clone set
+     * @param threads         number of threads
+     * @param executorService executor service to run translation tasks
+     * @throws InterruptedException if interrupted while waiting for translation tasks
+     */
+    public static void translateCDR3s(CloneSet cloneSet, int threads, ExecutorService executorService)
+            throws InterruptedException {
+        final List<? extends Clone> clones = cloneSet.getClones();
+        if (threads <= 1 || clones.size() < threads) {
+            translateCDR3s(clones, 0, clones.size());
+            return;
+        }
+
+        final int chunk = (clones.size() + threads - 1) / threads;
+        final List<Future<?>> futures = new ArrayList<>(threads);
+        for (int from = 0; from < clones.size(); from += chunk) {
+            final int f = from, t = java.lang.Math.min(from + chunk, clones.size());
+            futures.add(executorService.submit(new Runnable() {
+                @Override
+                public void run() {
+                    translateCDR3s(clones, f, t);
+                }
+            }));
+        }
+
+        for (Future<?> future : futures)
+            try {
+                future.get();
+            } catch (ExecutionException e) {
+                throw new RuntimeException(e.getCause());
+            }
+    }
+
+    private static void translateCDR3s(List<? extends Clone> clones, int from, int to) {
+        for (int i = from; i < to; ++i)
+            clones.get(i).getCDR3AA();
+    }
+}
@@ -181,9 +181,8 @@ public final class SegmentGroupContainer {
         if (allelesBarcode.size() != alleles.length)
             throw new IllegalArgumentException();
         BitArray result = new BitArray(segments.length);
-        for (int i = 0; i < alleles.length; ++i)
-            if (allelesBarcode.get(i))
-                result.set(alleles[i].getSegment().getIndex());
+        for (int i = allelesBarcode.nextSetBit(0); i >= 0; i = allelesBarcode.nextSetBit(i + 1))
+            result.set(alleles[i].getSegment().getIndex());
         return result;
     }
 
@@ -198,9 +197,8 @@ public final class SegmentGroupContainer {
             throw new IllegalArgumentException();
         Allele[] result = new Allele[barcode.bitCount()];
         int n = 0;
-        for (int i = 0; i < alleles.length; ++i)
-            if (barcode.get(i))
-                result[n++] = alleles[i];
+        for (int i = barcode.nextSetBit(0); i >= 0; i = barcode.nextSetBit(i + 1))
+            result[n++] = alleles[i];
         return result;
     }
 
@@ -215,9 +213,8 @@ public final class SegmentGroupContainer {
             throw new IllegalArgumentException();
         Segment[] result = new Segment[barcode.bitCount()];
         int n = 0;
-        for (int i = 0; i < segments.length; ++i)
-            if (barcode.get(i))
-                result[n++] = segments[i];
+        for (int i = barcode.nextSetBit(0); i >= 0; i = barcode.nextSetBit(i + 1))
+            result[n++] = segments[i];
         return result;
     }
 
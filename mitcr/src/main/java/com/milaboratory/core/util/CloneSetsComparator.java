@@ -2,30 +2,37 @@ package com.milaboratory.core.util;
 
 import com.milaboratory.core.clone.Clone;
 import com.milaboratory.core.clone.CloneSet;
-import com.milaboratory.core.sequence.nucleotide.NucleotideSequence;
+import com.milaboratory.core.sequence.nucleotide.NucleotideSequenceKeyIntMap;
+import com.milaboratory.util.BitArray;
 
-import java.util.HashMap;
+import java.util.List;
 
 public class CloneSetsComparator {
     public static final CloneSetsComparisonResult compare(CloneSet csFrom, CloneSet csTo) {
         int mClones = 0, nClones = 0, mSequences = 0, nSequences = 0;
-        Clone cFrom;
+        int cFrom;
 
-        //Adding all from clone to has map
-        HashMap<NucleotideSequence, Clone> fromClones = new HashMap<>(csFrom.getClones().size());
-        for (Clone clone : csFrom)
-            fromClones.put(clone.getCDR3().getSequence(), clone);
+        //Adding all from clones to hash map (CDR3 -> index)
+        final List<? extends Clone> from = csFrom.getClones();
+        final NucleotideSequenceKeyIntMap fromClones = new NucleotideSequenceKeyIntMap(from.size());
+        for (int i = 0; i < from.size(); ++i)
+            fromClones.put(from.get(i).getCDR3().getSequence(), i);
 
+        //Clones from csFrom found in csTo
+        final BitArray matched = new BitArray(from.size());
         for (Clone cTo : csTo) {
-            cFrom = fromClones.remove(cTo.getCDR3().getSequence());
-            if (cFrom == null) {
+            cFrom = fromClones.get(cTo.getCDR3().getSequence());
+            if (cFrom == NucleotideSequenceKeyIntMap.NO_VALUE || matched.get(cFrom)) {
                 ++nClones;
                 nSequences += cTo.getCount();
-            }
+            } else
+                matched.set(cFrom);
         }
-        mClones = fromClones.size();
-        for (Clone clone : fromClones.values())
-            mSequences += clone.getCount();
+        for (int i = 0; i < from.size(); ++i)
+            if (!matched.get(i)) {
+                ++mClones;
+                mSequences += from.get(i).getCount();
+            }
 
         assert csFrom.getClones().size() + nClones - mClones == csTo.getClones().size();
         assert csFrom.getTotalCount() + nSequences - mSequences == csTo.getTotalCount();
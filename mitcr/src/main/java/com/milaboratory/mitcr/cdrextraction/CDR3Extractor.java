@@ -25,10 +25,11 @@ import com.milaboratory.core.segment.Gene;
 import com.milaboratory.core.segment.SegmentLibrary;
 import com.milaboratory.core.segment.Species;
 import com.milaboratory.core.sequence.NucleotideSQPair;
+import com.milaboratory.core.sequence.NucleotideSQPairView;
 import com.milaboratory.mitcr.pipeline.AnalysisListener;
 import com.milaboratory.mitcr.qualitystrategy.QualityInterpretationStrategy;
 import com.milaboratory.mitcr.vdjmapping.VDJSegmentsMapper;
-import com.milaboratory.mitcr.vdjmapping.VDJSegmentsMapperFactory;
+import com.milaboratory.mitcr.vdjmapping.VDJSegmentsMapperIndex;
 import com.milaboratory.mitcr.vdjmapping.VDJSegmentsMappingResult;
 import com.milaboratory.mitcr.vdjmapping.VJSegmentMappingResult;
 
@@ -50,9 +51,17 @@ abstract class CDR3Extractor<I> implements Processor<I, CDR3ExtractionResult<I>>
                          SegmentLibrary segmentLibrary,
                          QualityInterpretationStrategy qStrategy,
                          AnalysisListener listener) {
+        this(parameters, new VDJSegmentsMapperIndex(species, gene, parameters, segmentLibrary), qStrategy, listener);
+    }
+
+    CDR3Extractor(CDR3ExtractorParameters parameters,
+                  VDJSegmentsMapperIndex mapperIndex,
+                  QualityInterpretationStrategy qStrategy,
+                  AnalysisListener listener) {
         this.strand = parameters.getStrand();
         this.extractor = new CoreCDR3Extractor(parameters.getLowerCDR3LengthThreshold(), parameters.getUpperCDR3LengthThreshold(), parameters.getIncludeCysPhe());
-        this.vdjMapper = VDJSegmentsMapperFactory.createVDJMapper(species, gene, parameters, segmentLibrary, qStrategy, listener);
+        //Index is shared, mapper holds only per-thread scratch state
+        this.vdjMapper = mapperIndex.createMapper(qStrategy, listener);
         this.listener = listener == null ? null : listener.getCDR3ExtractorListener();
     }
 
@@ -70,12 +79,17 @@ abstract class CDR3Extractor<I> implements Processor<I, CDR3ExtractionResult<I>>
             return result;
         }
 
-        NucleotideSQPair rcData = null;
-        final VDJSegmentsMappingResult[] mappingResults = new VDJSegmentsMappingResult[2];
-        if (strand.isForward())
-            mappingResults[0] = vdjMapper.map(data);
-        if (strand.isReverse())
-            mappingResults[1] = vdjMapper.map(rcData = data.getRC());
+        //Views don't copy read data, only CDR3 region is materialized
+        final NucleotideSQPairView view = data.asView();
+        NucleotideSQPairView rcView = null;
+        VDJSegmentsMappingResult[] mappingResults = new VDJSegmentsMappingResult[2];
+        if (strand.isForward() && strand.isReverse())
+            //Both strands are seeded in one pass
+            mappingResults = vdjMapper.mapBothStrands(view, rcView = view.getRC());
+        else if (strand.isForward())
+            mappingResults[0] = vdjMapper.map(view);
+        else if (strand.isReverse())
+            mappingResults[1] = vdjMapper.map(rcView = view.getRC());
 
         VDJSegmentsMappingResult bestResult = mappingResults[0];
         if (bestResult == null || (mappingResults[1] != null && mappingResults[1].score() > bestResult.score()))
@@ -84,7 +98,7 @@ abstract class CDR3Extractor<I> implements Processor<I, CDR3ExtractionResult<I>>
         boolean isRC = (bestResult == mappingResults[1]);
         NucleotideSQPair cdr = null;
         if (bestResult.isGood())
-            cdr = extractor.extract(bestResult, isRC ? rcData : data);
+            cdr = extractor.extract(bestResult, isRC ? rcView : view);
 
         final CDR3ExtractionResult result = new CDR3ExtractionResult<I>(input, bestResult.getVJResultsArray(), bestResult.getDResult(), cdr, isRC, readIndex);
 
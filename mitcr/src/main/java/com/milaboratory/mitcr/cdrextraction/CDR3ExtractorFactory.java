@@ -26,6 +26,7 @@ import com.milaboratory.core.segment.SegmentLibrary;
 import com.milaboratory.core.segment.Species;
 import com.milaboratory.mitcr.pipeline.AnalysisListener;
 import com.milaboratory.mitcr.qualitystrategy.QualityInterpretationStrategy;
+import com.milaboratory.mitcr.vdjmapping.VDJSegmentsMapperIndex;
 
 /**
  * Non-public class.
@@ -41,6 +42,8 @@ abstract class CDR3ExtractorFactory<I> implements ProcessorFactory<I, CDR3Extrac
     public final SegmentLibrary segmentLibrary;
     public final QualityInterpretationStrategy qStrategy;
     public final AnalysisListener listener;
+    //Shared by extractors of all threads
+    final VDJSegmentsMapperIndex mapperIndex;
 
     public CDR3ExtractorFactory(Species species, Gene gene, CDR3ExtractorParameters parameters,
                                 SegmentLibrary segmentLibrary, QualityInterpretationStrategy qStrategy,
@@ -51,5 +54,6 @@ abstract class CDR3ExtractorFactory<I> implements ProcessorFactory<I, CDR3Extrac
         this.segmentLibrary = segmentLibrary;
         this.qStrategy = qStrategy;
         this.listener = listener;
+        this.mapperIndex = new VDJSegmentsMapperIndex(species, gene, parameters, segmentLibrary);
     }
 }
@@ -0,0 +1,88 @@
+/*
+ * MiTCR <http://milaboratory.com>
+ *
+ * Copyright (c) 2010-2013:
+ *     Bolotin Dmitriy     <bolotin.dmitriy@gmail.com>
+ *     Chudakov Dmitriy    <chudakovdm@mail.ru>
+ *
+ * MiTCR is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License as published by the Free
+ * Software Foundation, either version 3 of the License, or (at your option)
+ * any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU General Public License for
+ * more details.
+ *
+ * You should have received a copy of the GNU General Public License along
+ * with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.milaboratory.mitcr.cdrextraction;
+
+import cc.redberry.pipe.Processor;
+import cc.redberry.pipe.ProcessorFactory;
+import com.milaboratory.core.sequencing.io.fastq.FastqChunk;
+import com.milaboratory.core.sequencing.io.fastq.FastqChunkParser;
+import com.milaboratory.core.sequencing.io.fastq.FastqChunkReader;
+import com.milaboratory.core.sequencing.read.SSequencingRead;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * A factory to be used in {@link cc.redberry.pipe.blocks.ParallelProcessor}. Created processors parse raw FASTQ chunks
+ * (see {@link com.milaboratory.core.sequencing.io.fastq.FastqChunkReader}) and extract CDR3s from all parsed reads, so
+ * FASTQ parsing is performed in the same worker threads as CDR3 extraction. See {@link CDR3ExtractorFromSRead} for
+ * details.
+ *
+ * @author Bolotin Dmitriy (bolotin.dmitriy@gmail.com)
+ */
+public final class CDR3ExtractorFactoryFromFastqChunk
+        implements ProcessorFactory<FastqChunk, CDR3ExtractionResult<SSequencingRead>[]> {
+    private final FastqChunkParser parser;
+    private final CDR3ExtractorFactoryFromSReadBatch extractorFactory;
+    private final CDR3ExtractorListener listener;
+    //Reads discarded by parser (e.g. by prefilter)
+    private final AtomicLong discarded = new AtomicLong();
+
+    /**
+     * Creates a CDR3 extractor factory for a {@link FastqChunk}. Reads discarded by parser (see {@link
+     * FastqChunkReader#createParser(com.milaboratory.core.sequencing.io.fastq.RawSequenceFilter)}) are reported to
+     * the listener of extractor factory.
+     *
+     * @param parser           chunk parser
+     * @param extractorFactory factory of CDR3 extractors for individual reads
+     */
+    public CDR3ExtractorFactoryFromFastqChunk(FastqChunkParser parser, CDR3ExtractorFactoryFromSRead extractorFactory) {
+        this.parser = parser;
+        this.extractorFactory = new CDR3ExtractorFactoryFromSReadBatch(extractorFactory);
+        this.listener = extractorFactory.listener == null ? null : extractorFactory.listener.getCDR3ExtractorListener();
+    }
+
+    /**
+     * Returns the number of reads discarded by parser.
+     *
+     * @return number of reads discarded by parser
+     */
+    public long getDiscardedCount() {
+        return discarded.get();
+    }
+
+    @Override
+    public Processor<FastqChunk, CDR3ExtractionResult<SSequencingRead>[]> create() {
+        final Processor<SSequencingRead[], CDR3ExtractionResult<SSequencingRead>[]> extractor = extractorFactory.create();
+        return new Processor<FastqChunk, CDR3ExtractionResult<SSequencingRead>[]>() {
+            @Override
+            public CDR3ExtractionResult<SSequencingRead>[] process(FastqChunk input) {
+                final SSequencingRead[] reads = parser.process(input);
+                final int discardedCount = input.getRecordsCount() - reads.length;
+                if (discardedCount != 0) {
+                    discarded.addAndGet(discardedCount);
+                    if (listener != null)
+                        listener.readsDiscarded(discardedCount);
+                }
+                return extractor.process(reads);
+            }
+        };
+    }
+}
@@ -68,7 +68,6 @@ public final class CDR3ExtractorFactoryFromSQPair extends CDR3ExtractorFactory<N
 
     @Override
     public Processor<NucleotideSQPair, CDR3ExtractionResult<NucleotideSQPair>> create() {
-        return new CDR3ExtractorFromSQPair(species, gene, parameters,
-                segmentLibrary, qStrategy, listener);
+        return new CDR3ExtractorFromSQPair(parameters, mapperIndex, qStrategy, listener);
     }
 }
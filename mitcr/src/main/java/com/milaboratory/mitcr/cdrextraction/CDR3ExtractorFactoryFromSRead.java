@@ -68,7 +68,7 @@ public final class CDR3ExtractorFactoryFromSRead extends CDR3ExtractorFactory<SS
 
     @Override
     public Processor<SSequencingRead, CDR3ExtractionResult<SSequencingRead>> create() {
-        return new CDR3ExtractorFromSRead(species, gene, parameters, segmentLibrary, qStrategy, listener);
+        return new CDR3ExtractorFromSRead(parameters, mapperIndex, qStrategy, listener);
     }
 
 }
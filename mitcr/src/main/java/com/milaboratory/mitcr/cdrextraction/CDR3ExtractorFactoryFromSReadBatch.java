@@ -0,0 +1,63 @@
+/*
+ * MiTCR <http://milaboratory.com>
+ *
+ * Copyright (c) 2010-2013:
+ *     Bolotin Dmitriy     <bolotin.dmitriy@gmail.com>
+ *     Chudakov Dmitriy    <chudakovdm@mail.ru>
+ *
+ * MiTCR is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License as published by the Free
+ * Software Foundation, either version 3 of the License, or (at your option)
+ * any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU General Public License for
+ * more details.
+ *
+ * You should have received a copy of the GNU General Public License along
+ * with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.milaboratory.mitcr.cdrextraction;
+
+import cc.redberry.pipe.Processor;
+import cc.redberry.pipe.ProcessorFactory;
+import com.milaboratory.core.sequencing.read.SSequencingRead;
+
+/**
+ * A factory to be used in {@link cc.redberry.pipe.blocks.ParallelProcessor}. Created processors extract CDR3s from
+ * batches of reads (see {@link com.milaboratory.util.BatchingOutputPort}), so pipeline blocks synchronize once per
+ * batch instead of once per read. See {@link CDR3ExtractorFromSRead} for details.
+ *
+ * @author Bolotin Dmitriy (bolotin.dmitriy@gmail.com)
+ */
+public final class CDR3ExtractorFactoryFromSReadBatch
+        implements ProcessorFactory<SSequencingRead[], CDR3ExtractionResult<SSequencingRead>[]> {
+    private final CDR3ExtractorFactoryFromSRead extractorFactory;
+
+    /**
+     * Creates a CDR3 extractor factory for batches of {@link SSequencingRead}s
+     *
+     * @param extractorFactory factory of CDR3 extractors for individual reads
+     */
+    public CDR3ExtractorFactoryFromSReadBatch(CDR3ExtractorFactoryFromSRead extractorFactory) {
+        if (extractorFactory == null)
+            throw new NullPointerException();
+        this.extractorFactory = extractorFactory;
+    }
+
+    @Override
+    public Processor<SSequencingRead[], CDR3ExtractionResult<SSequencingRead>[]> create() {
+        final Processor<SSequencingRead, CDR3ExtractionResult<SSequencingRead>> extractor = extractorFactory.create();
+        return new Processor<SSequencingRead[], CDR3ExtractionResult<SSequencingRead>[]>() {
+            @Override
+            public CDR3ExtractionResult<SSequencingRead>[] process(SSequencingRead[] reads) {
+                @SuppressWarnings("unchecked")
+                final CDR3ExtractionResult<SSequencingRead>[] results = new CDR3ExtractionResult[reads.length];
+                for (int i = 0; i < reads.length; ++i)
+                    results[i] = extractor.process(reads[i]);
+                return results;
+            }
+        };
+    }
+}
@@ -23,12 +23,15 @@ package com.milaboratory.mitcr.cdrextraction;
 import com.milaboratory.core.segment.Gene;
 import com.milaboratory.core.segment.SegmentLibrary;
 import com.milaboratory.core.segment.Species;
+import com.milaboratory.core.sequencing.io.fastq.PairedReadsMerger;
 import com.milaboratory.core.sequencing.read.PSequencingRead;
+import com.milaboratory.core.sequencing.read.SSequencingRead;
 import com.milaboratory.mitcr.pipeline.AnalysisListener;
 import com.milaboratory.mitcr.qualitystrategy.QualityInterpretationStrategy;
 
 public final class CDR3ExtractorFromPRead extends CDR3Extractor<PSequencingRead> {
     private final TargetRead targetRead;
+    private final PairedReadsMerger merger;
 
     /**
      * Creates a CDR3 extractor for a {@link com.milaboratory.core.sequencing.read.SSequencingRead}
@@ -58,13 +61,38 @@ public final class CDR3ExtractorFromPRead extends CDR3Extractor<PSequencingRead>
     public CDR3ExtractorFromPRead(Species species, Gene gene, CDR3ExtractorParameters parameters,
                                   SegmentLibrary segmentLibrary, QualityInterpretationStrategy qStrategy,
                                   TargetRead read, AnalysisListener listener) {
+        this(species, gene, parameters, segmentLibrary, qStrategy, read, null, listener);
+    }
+
+    /**
+     * Creates a CDR3 extractor for a {@link com.milaboratory.core.sequencing.read.SSequencingRead}
+     *
+     * <p>If {@code merger} is not null, overlapping mates are merged before the extraction, so CDR3 is extracted only
+     * once from the merged read. Pairs that can't be merged are processed according to {@code read}.</p>
+     *
+     * @param species        species type (for segment choice)
+     * @param gene           gene type (for segment choice)
+     * @param parameters     parameters
+     * @param segmentLibrary library of segments
+     * @param qStrategy      quality interpretation strategy
+     * @param merger         paired reads merger (may be null)
+     */
+    public CDR3ExtractorFromPRead(Species species, Gene gene, CDR3ExtractorParameters parameters,
+                                  SegmentLibrary segmentLibrary, QualityInterpretationStrategy qStrategy,
+                                  TargetRead read, PairedReadsMerger merger, AnalysisListener listener) {
         super(species, gene, parameters, segmentLibrary, qStrategy,
                 listener);
         this.targetRead = read;
+        this.merger = merger;
     }
 
     @Override
     public CDR3ExtractionResult<PSequencingRead> process(PSequencingRead input) {
+        if (merger != null) {
+            SSequencingRead merged = merger.process(input);
+            if (merged != null)
+                return _process(merged.getData(), input, (byte) 0);
+        }
         switch (targetRead) {
             case Read1:
                 return _process(input.getData(0), input, (byte) 0);
@@ -26,6 +26,7 @@ import com.milaboratory.core.segment.Species;
 import com.milaboratory.core.sequence.NucleotideSQPair;
 import com.milaboratory.mitcr.pipeline.AnalysisListener;
 import com.milaboratory.mitcr.qualitystrategy.QualityInterpretationStrategy;
+import com.milaboratory.mitcr.vdjmapping.VDJSegmentsMapperIndex;
 
 /**
  * A CDR3 extractor for a {@link NucleotideSQPair}
@@ -64,6 +65,14 @@ public final class CDR3ExtractorFromSQPair extends CDR3Extractor<NucleotideSQPai
         super(species, gene, parameters, segmentLibrary, qStrategy, listener);
     }
 
+    /**
+     * Creates a CDR3 extractor using segment mapper index shared with other extractors (used by factory)
+     */
+    CDR3ExtractorFromSQPair(CDR3ExtractorParameters parameters, VDJSegmentsMapperIndex mapperIndex,
+                            QualityInterpretationStrategy qStrategy, AnalysisListener listener) {
+        super(parameters, mapperIndex, qStrategy, listener);
+    }
+
     @Override
     public CDR3ExtractionResult<NucleotideSQPair> process(NucleotideSQPair input) {
         return _process(input, input);
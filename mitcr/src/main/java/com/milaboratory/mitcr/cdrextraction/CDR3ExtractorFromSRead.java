@@ -26,6 +26,7 @@ import com.milaboratory.core.segment.Species;
 import com.milaboratory.core.sequencing.read.SSequencingRead;
 import com.milaboratory.mitcr.pipeline.AnalysisListener;
 import com.milaboratory.mitcr.qualitystrategy.QualityInterpretationStrategy;
+import com.milaboratory.mitcr.vdjmapping.VDJSegmentsMapperIndex;
 
 
 /**
@@ -66,6 +67,14 @@ public final class CDR3ExtractorFromSRead extends CDR3Extractor<SSequencingRead>
                 listener);
     }
 
+    /**
+     * Creates a CDR3 extractor using segment mapper index shared with other extractors (used by factory)
+     */
+    CDR3ExtractorFromSRead(CDR3ExtractorParameters parameters, VDJSegmentsMapperIndex mapperIndex,
+                           QualityInterpretationStrategy qStrategy, AnalysisListener listener) {
+        super(parameters, mapperIndex, qStrategy, listener);
+    }
+
     @Override
     public CDR3ExtractionResult<SSequencingRead> process(SSequencingRead input) {
         return _process(input.getData(), input);
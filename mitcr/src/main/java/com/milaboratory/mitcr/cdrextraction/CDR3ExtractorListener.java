@@ -24,4 +24,11 @@ public interface CDR3ExtractorListener {
     void cdr3Extracted(CDR3ExtractionResult result, Object input);
 
     void cdr3NotExtracted(CDR3ExtractionResult result, Object input);
+
+    /**
+     * Invoked when reads were discarded by a prefilter (see {@link SeedReadFilter}) without CDR3 extraction.
+     *
+     * @param count number of discarded reads
+     */
+    void readsDiscarded(int count);
 }
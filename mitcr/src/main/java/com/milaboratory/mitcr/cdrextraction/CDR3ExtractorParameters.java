@@ -21,6 +21,7 @@
 package com.milaboratory.mitcr.cdrextraction;
 
 import com.milaboratory.mitcr.vdjmapping.DSegmentMapperParameters;
+import com.milaboratory.mitcr.vdjmapping.MappingAnchor;
 import com.milaboratory.mitcr.vdjmapping.VJSegmentMapperParameters;
 import org.jdom.Element;
 
@@ -35,6 +36,7 @@ public final class CDR3ExtractorParameters {
     private int upperCDR3LengthThreshold = 100; //inclusive
     private int lowerCDR3LengthThreshold = 10; //inclusive
     private boolean includeCysPhe = true;
+    private MappingAnchor mappingAnchor = MappingAnchor.None;
     private VJSegmentMapperParameters vMapperParameters, jMapperParameters;
     private DSegmentMapperParameters dMapperParameters;
 
@@ -92,11 +94,18 @@ public final class CDR3ExtractorParameters {
             this.dMapperParameters = new DSegmentMapperParameters(d);
     }*/
     public static CDR3ExtractorParameters fromXML(Element e) {
-        return new CDR3ExtractorParameters(VJSegmentMapperParameters.fromXML(e.getChild("v")),
+        CDR3ExtractorParameters parameters = new CDR3ExtractorParameters(VJSegmentMapperParameters.fromXML(e.getChild("v")),
                 VJSegmentMapperParameters.fromXML(e.getChild("j")),
                 DSegmentMapperParameters.fromXML(e.getChild("d")),
                 Strand.fromXML(e.getChildTextTrim("strand")),
                 e.getChild("includeCysPhe") != null);
+        String anchor = e.getChildTextTrim("mappingAnchor");
+        if (anchor != null) {
+            parameters.mappingAnchor = MappingAnchor.fromXML(anchor);
+            if (parameters.mappingAnchor == null)
+                throw new IllegalArgumentException("Unknown mapping anchor: " + anchor);
+        }
+        return parameters;
     }
 
     /**
@@ -117,6 +126,9 @@ public final class CDR3ExtractorParameters {
 
         if (includeCysPhe)
             e.addContent(new Element("includeCysPhe"));
+
+        if (mappingAnchor != MappingAnchor.None)
+            e.addContent(new Element("mappingAnchor").setText(mappingAnchor.getXmlRepresentation()));
         return e;
     }
 
@@ -128,6 +140,28 @@ public final class CDR3ExtractorParameters {
         this.includeCysPhe = includeCysPhe;
     }
 
+    /**
+     * Gets segment mapped first in joint V-J mapping
+     *
+     * @return segment mapped first in joint V-J mapping, {@link MappingAnchor#None} if V and J segments are mapped
+     *         independently
+     */
+    public MappingAnchor getMappingAnchor() {
+        return mappingAnchor;
+    }
+
+    /**
+     * Sets segment to be mapped first in joint V-J mapping. The other segment is searched only inside the window
+     * allowed by CDR3 length thresholds.
+     *
+     * @param mappingAnchor segment to be mapped first, {@link MappingAnchor#None} to map V and J segments independently
+     */
+    public void setMappingAnchor(MappingAnchor mappingAnchor) {
+        if (mappingAnchor == null)
+            throw new NullPointerException();
+        this.mappingAnchor = mappingAnchor;
+    }
+
     /**
      * Returns D mapper parameters
      *
@@ -215,6 +249,7 @@ public final class CDR3ExtractorParameters {
         if (includeCysPhe != that.includeCysPhe) return false;
         if (lowerCDR3LengthThreshold != that.lowerCDR3LengthThreshold) return false;
         if (upperCDR3LengthThreshold != that.upperCDR3LengthThreshold) return false;
+        if (mappingAnchor != that.mappingAnchor) return false;
         if (dMapperParameters != null ? !dMapperParameters.equals(that.dMapperParameters) : that.dMapperParameters != null)
             return false;
         if (!jMapperParameters.equals(that.jMapperParameters)) return false;
@@ -230,6 +265,7 @@ public final class CDR3ExtractorParameters {
         result = 31 * result + upperCDR3LengthThreshold;
         result = 31 * result + lowerCDR3LengthThreshold;
         result = 31 * result + (includeCysPhe ? 1 : 0);
+        result = 31 * result + mappingAnchor.hashCode();
         result = 31 * result + vMapperParameters.hashCode();
         result = 31 * result + jMapperParameters.hashCode();
         result = 31 * result + (dMapperParameters != null ? dMapperParameters.hashCode() : 0);
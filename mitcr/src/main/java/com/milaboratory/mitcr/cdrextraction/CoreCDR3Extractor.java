@@ -21,6 +21,7 @@
 package com.milaboratory.mitcr.cdrextraction;
 
 import com.milaboratory.core.sequence.NucleotideSQPair;
+import com.milaboratory.core.sequence.NucleotideSQPairView;
 import com.milaboratory.mitcr.vdjmapping.VDJSegmentsMappingResult;
 
 /**
@@ -48,7 +49,7 @@ final class CoreCDR3Extractor {
     }
 
     public NucleotideSQPair extract(VDJSegmentsMappingResult mappingResult,
-                                    NucleotideSQPair data) {
+                                    NucleotideSQPairView data) {
         if (!mappingResult.isGood())
             return null;
         int length = mappingResult.getJResult().getRefPoint() - mappingResult.getVResult().getRefPoint() + 1;
@@ -59,7 +60,9 @@ final class CoreCDR3Extractor {
         if (phe < cys)
             return null;
         try {
-            return data.getRange(cys, phe + 1);
+            //CDR3 is retained by the result, so it is copied from the read; compact quality storage reduces memory
+            //footprint of retained results and spill volume
+            return data.getRange(cys, phe + 1).materializeCompact();
         } catch (IndexOutOfBoundsException ex) {  //Very rear event, so Exception usage in this place does make sense.
             return null;
         }
@@ -0,0 +1,147 @@
+/*
+ * MiTCR <http://milaboratory.com>
+ *
+ * Copyright (c) 2010-2013:
+ *     Bolotin Dmitriy     <bolotin.dmitriy@gmail.com>
+ *     Chudakov Dmitriy    <chudakovdm@mail.ru>
+ *
+ * MiTCR is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License as published by the Free
+ * Software Foundation, either version 3 of the License, or (at your option)
+ * any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU General Public License for
+ * more details.
+ *
+ * You should have received a copy of the GNU General Public License along
+ * with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.milaboratory.mitcr.cdrextraction;
+
+import com.milaboratory.core.segment.*;
+import com.milaboratory.core.sequence.nucleotide.NucleotideAlphabet;
+import com.milaboratory.core.sequencing.io.fastq.RawSequenceFilter;
+import com.milaboratory.mitcr.vdjmapping.VJSegmentMapperParameters;
+import com.milaboratory.mitcr.vdjmapping.trivial.TrivialSegmentMapper;
+
+import java.util.Arrays;
+
+/**
+ * Prefilter that discards reads that can't be mapped neither to V nor to J segments. Read is accepted if it contains
+ * at least one V or J seed k-mer (see {@link TrivialSegmentMapper}) on any of analysed strands, so all reads that can
+ * give a V or J mapping are accepted. Works on raw ASCII encoded sequences, before any objects are created for the
+ * read.
+ *
+ * <p>Seeds are stored in direct-address bit tables (seeds are not longer than 11 nucleotides, so each table is not
+ * larger than 512Kb).</p>
+ *
+ * <p>This class is immutable and thread-safe.</p>
+ *
+ * @author Bolotin Dmitriy (bolotin.dmitriy@gmail.com)
+ */
+public final class SeedReadFilter implements RawSequenceFilter {
+    //Nucleotide codes for ASCII symbols, undefined nucleotides are treated as 'A' (as in parsers), -1 for wrong symbols
+    private static final byte[] CODES = new byte[256];
+
+    static {
+        Arrays.fill(CODES, (byte) -1);
+        for (char c : "ACGTacgt".toCharArray())
+            CODES[c] = NucleotideAlphabet.INSTANCE.codeFromSymbol(c);
+        for (char c : "Nn.".toCharArray())
+            CODES[c] = 0;
+    }
+
+    //Seed lengths
+    private final int[] lengths;
+    //Bit tables of seeds (including reverse complement seeds if needed) for each seed length
+    private final long[][] tables;
+    private final int maxLength;
+
+    /**
+     * Creates seed filter for V and J segment mappers defined by parameters.
+     *
+     * @param species    species type (for segment choice)
+     * @param gene       gene type (for segment choice)
+     * @param parameters CDR3 extraction parameters
+     * @param library    library of segments
+     */
+    public SeedReadFilter(Species species, Gene gene, CDR3ExtractorParameters parameters, SegmentLibrary library) {
+        final VJSegmentMapperParameters[] mapperParameters = {parameters.getVMapperParameters(),
+                parameters.getJMapperParameters()};
+        final SegmentGroupContainer[] groups = {library.getGroup(species, gene, SegmentGroupType.Variable),
+                library.getGroup(species, gene, SegmentGroupType.Joining)};
+        final Strand strand = parameters.getStrand();
+
+        int[] lengths = new int[0];
+        long[][] tables = new long[0][];
+        int length, index, maxLength = 0;
+        for (int i = 0; i < 2; ++i) {
+            length = mapperParameters[i].getSeedTo() - mapperParameters[i].getSeedFrom() + 1;
+            if (length > 11)
+                throw new IllegalArgumentException("Mandatory region is too long.");
+            maxLength = Math.max(maxLength, length);
+
+            //One table for each seed length
+            if ((index = Arrays.binarySearch(lengths, length)) < 0) {
+                index = lengths.length;
+                lengths = Arrays.copyOf(lengths, index + 1);
+                tables = Arrays.copyOf(tables, index + 1);
+                lengths[index] = length;
+                tables[index] = new long[Math.max(1, (1 << (2 * length)) >> 6)];
+            }
+
+            for (Allele allele : groups[i].getAllelesList()) {
+                int seed = TrivialSegmentMapper.getSeed(allele, mapperParameters[i].getSeedFrom(),
+                        mapperParameters[i].getSeedTo());
+                if (strand.isForward())
+                    set(tables[index], seed);
+                if (strand.isReverse())
+                    set(tables[index], reverseComplement(seed, length));
+            }
+        }
+
+        this.lengths = lengths;
+        this.tables = tables;
+        this.maxLength = maxLength;
+    }
+
+    @Override
+    public boolean accept(byte[] buffer, int from, int length) {
+        //Too short reads are not mapped by CDR3 extractor anyway, but they should be counted there
+        if (length < maxLength)
+            return true;
+
+        final int to = from + length;
+        for (int i = 0; i < lengths.length; ++i) {
+            final int seedLength = lengths[i];
+            final long[] table = tables[i];
+            final int mask = 0xFFFFFFFF >>> (32 - seedLength * 2);
+            int kMer = 0, filled = 0, code;
+            for (int p = from; p < to; ++p) {
+                if ((code = CODES[buffer[p] & 0xFF]) == -1)
+                    //Wrong symbol, read will be rejected by parser
+                    return true;
+                kMer = mask & ((kMer << 2) | code);
+                if (++filled >= seedLength && (table[kMer >>> 6] & (1L << (kMer & 63))) != 0)
+                    return true;
+            }
+        }
+
+        return false;
+    }
+
+    private static void set(long[] table, int kMer) {
+        table[kMer >>> 6] |= 1L << (kMer & 63);
+    }
+
+    private static int reverseComplement(int kMer, int length) {
+        int result = 0;
+        for (int i = 0; i < length; ++i) {
+            result = (result << 2) | (~kMer & 3);
+            kMer >>>= 2;
+        }
+        return result;
+    }
+}
@@ -29,7 +29,14 @@ import com.milaboratory.core.segment.Gene;
 import com.milaboratory.core.segment.SegmentLibrary;
 import com.milaboratory.core.segment.Species;
 import com.milaboratory.core.sequence.quality.QualityFormat;
+import com.milaboratory.core.sequencing.io.MergedSSequencingDataReader;
+import com.milaboratory.core.sequencing.io.SSequencingDataReader;
+import com.milaboratory.core.sequencing.io.fastq.FastqChunkReader;
+import com.milaboratory.core.sequencing.io.fastq.MappedFastqReader;
 import com.milaboratory.core.sequencing.io.fastq.SFastqReader;
+import com.milaboratory.core.sequencing.io.packed.PackedReads;
+import com.milaboratory.core.sequencing.io.packed.PackedReadsReader;
+import com.milaboratory.core.sequencing.io.packed.PackedReadsWriter;
 import com.milaboratory.core.sequencing.read.SSequencingRead;
 import com.milaboratory.mitcr.clonegenerator.AccumulatorType;
 import com.milaboratory.mitcr.clonegenerator.BasicCloneGeneratorParameters;
@@ -79,7 +86,8 @@ public class Main {
             PRINT_HELP_OPTION = "h",
             THREADS_OPTION = "t",
             AVERAGE_QUALITY_OPTION = "average",
-            COMPRESSED_OPTION = "compressed";
+            COMPRESSED_OPTION = "compressed",
+            CACHE_OPTION = "cache";
     private static final Map<String, Integer> orderingMap = new HashMap<>();
 
     public static void main(String[] args) {
@@ -105,6 +113,7 @@ public class Main {
         orderingMap.put(PHRED33_OPTION, o++);
         orderingMap.put(PHRED64_OPTION, o++);
         orderingMap.put(THREADS_OPTION, o++);
+        orderingMap.put(CACHE_OPTION, o++);
         orderingMap.put(COMPRESSED_OPTION, o++);
         orderingMap.put(PRINT_HELP_OPTION, o++);
         orderingMap.put(PRINT_VERSION_OPTION, o++);
@@ -189,6 +198,12 @@ public class Main {
                 .hasArg().withDescription("specifies the number of CDR3 extraction threads (default = number of available CPU cores)")
                 .create(THREADS_OPTION));
 
+        options.addOption(OptionBuilder.withArgName("file name")
+                .hasArg().withDescription("converts input reads to a packed binary file (with " + PackedReads.FILE_EXTENSION +
+                        " extension) before analysis; this file can be used as input file in subsequent runs to skip " +
+                        "decompression and parsing of input data")
+                .create(CACHE_OPTION));
+
         if (!isProduction)
             options.addOption(OptionBuilder.hasArg(false).withDescription("use compressed data structures for storing individual " +
                     "clone segments statistics (from which arises the clone segment information). This option reduces required " +
@@ -351,26 +366,18 @@ public class Main {
             } else if (offArgs.length == 1) {
                 err.println("Output file not specified.");
                 return;
-            } else if (offArgs.length > 2) {
-                err.println("Unrecognized argument.");
-                return;
             }
 
-            String inputFileName = offArgs[0];
-            String outputFileName = offArgs[1];
-
-
-            File input = new File(inputFileName);
-
-            if (!input.exists()) {
-                err.println("Input file not found.");
-                return;
-            }
+            //Several input files (e.g. lanes) are analysed as one sample
+            File[] inputs = new File[offArgs.length - 1];
+            for (int i = 0; i < inputs.length; ++i)
+                if (!(inputs[i] = new File(offArgs[i])).exists()) {
+                    err.println("Input file not found: " + offArgs[i]);
+                    return;
+                }
 
-            //TODO This also done inside SFastqReader constructor
-            CompressionType compressionType = CompressionType.None;
-            if (inputFileName.endsWith(".gz"))
-                compressionType = CompressionType.GZIP;
+            String inputFileName = join(offArgs, inputs.length);
+            String outputFileName = offArgs[inputs.length];
 
             QualityFormat format = null; // If variable remains null file format will be detected automatically
             if (cl.hasOption(PHRED33_OPTION))
@@ -383,20 +390,54 @@ public class Main {
                     return;
                 }
 
+            if ((value = cl.getOptionValue(CACHE_OPTION)) != null) {
+                for (File input : inputs)
+                    if (input.getName().endsWith(PackedReads.FILE_EXTENSION)) {
+                        err.println("Input file is already in packed format.");
+                        return;
+                    }
 
-            SFastqReader reads = format == null ?
-                    new SFastqReader(input, compressionType) :
-                    new SFastqReader(input, format, compressionType);
+                //Converting input to packed reads, analysis will be performed using the cache
+                SSequencingDataReader reads = openReads(inputs, format);
+                PackedReadsWriter writer = new PackedReadsWriter(new File(value));
+                SSequencingRead read;
+                while ((read = reads.take()) != null)
+                    writer.write(read);
+                writer.close();
 
-            OutputPort<SSequencingRead> inputToPipeline = reads;
-            if (input_limit >= 0)
-                inputToPipeline = new CountLimitingOutputPort<>(inputToPipeline, input_limit);
+                inputs = new File[]{new File(value)};
+            }
 
             SegmentLibrary library = DefaultSegmentLibrary.load();
 
+            File input = inputs[0];
+
+            //TODO This also done inside SFastqReader constructor
+            CompressionType compressionType = compressionType(input.getName());
+
+            FullPipeline pipeline;
+            if (inputs.length > 1 || input.getName().endsWith(PackedReads.FILE_EXTENSION) || input_limit >= 0) {
+                OutputPort<SSequencingRead> reads = openReads(inputs, format);
+                if (input_limit >= 0)
+                    reads = new CountLimitingOutputPort<>(reads, input_limit);
+
+                pipeline = new FullPipeline(reads, params, false, library);
+            } else if (compressionType == CompressionType.None) {
+                //Each CDR3 extraction thread parses its own range of memory mapped file
+                MappedFastqReader reads = new MappedFastqReader(input, format, 4 * threads);
+
+                pipeline = new FullPipeline(reads, params, false, library);
+            } else {
+                //FASTQ records will be parsed in CDR3 extraction threads
+                FastqChunkReader chunks = format == null ?
+                        new FastqChunkReader(input, compressionType) :
+                        new FastqChunkReader(input, format, compressionType);
+
+                pipeline = new FullPipeline(chunks, params, false, library);
+            }
+
             AnalysisStatisticsAggregator statisticsAggregator = new AnalysisStatisticsAggregator();
 
-            FullPipeline pipeline = new FullPipeline(inputToPipeline, params, false, library);
             pipeline.setThreads(threads);
             pipeline.setAnalysisListener(statisticsAggregator);
 
@@ -426,7 +467,7 @@ public class Main {
             }
 
             if (outputFileName.endsWith(".cls"))
-                ClsExporter.export(pipeline, outputFileName.replace(".cls", "") + " " + new Date().toString(), input.getName(), outputFileName);
+                ClsExporter.export(pipeline, outputFileName.replace(".cls", "") + " " + new Date().toString(), join(inputs, false), outputFileName);
             else {
                 //Dry run
                 if (outputFileName.startsWith("-"))
@@ -437,7 +478,7 @@ public class Main {
                 CompressionType compressionType1 = CompressionType.None;
                 if (outputFileName.endsWith(".gz"))
                     compressionType1 = CompressionType.GZIP;
-                CloneSetIO.exportCloneSet(outputFileName, cloneSet, detalization, params, input.getAbsolutePath(), compressionType1);
+                CloneSetIO.exportCloneSet(outputFileName, cloneSet, detalization, params, join(inputs, true), compressionType1);
             }
         } catch (ParseException | RuntimeException | IOException e) {
             err.println("Error occurred in the analysis pipeline.");
@@ -447,6 +488,42 @@ public class Main {
         }
     }
 
+    private static CompressionType compressionType(String fileName) {
+        return fileName.endsWith(".gz") ? CompressionType.GZIP : CompressionType.None;
+    }
+
+    /**
+     * Opens reader for the input file (packed or FASTQ). Several files are read concurrently and merged into one
+     * stream.
+     */
+    private static SSequencingDataReader openReads(File[] files, QualityFormat format) throws IOException {
+        SSequencingDataReader[] readers = new SSequencingDataReader[files.length];
+        for (int i = 0; i < files.length; ++i)
+            if (files[i].getName().endsWith(PackedReads.FILE_EXTENSION))
+                readers[i] = new PackedReadsReader(files[i]);
+            else {
+                CompressionType compressionType = compressionType(files[i].getName());
+                readers[i] = format == null ?
+                        new SFastqReader(files[i], compressionType) :
+                        new SFastqReader(files[i], format, compressionType);
+            }
+        return readers.length == 1 ? readers[0] : new MergedSSequencingDataReader(readers);
+    }
+
+    private static String join(File[] files, boolean absolutePaths) {
+        String[] values = new String[files.length];
+        for (int i = 0; i < files.length; ++i)
+            values[i] = absolutePaths ? files[i].getAbsolutePath() : files[i].getName();
+        return join(values, values.length);
+    }
+
+    private static String join(String[] values, int count) {
+        StringBuilder builder = new StringBuilder(values[0]);
+        for (int i = 1; i < count; ++i)
+            builder.append(',').append(values[i]);
+        return builder.toString();
+    }
+
     public static void printHelp() {
         HelpFormatter formatter = new HelpFormatter();
         formatter.setOptionComparator(new Comparator<Option>() {
@@ -457,8 +534,8 @@ public class Main {
             }
         });
         final String executable = System.getProperty("executable", "java -jar mitcr.jar");
-        err.println("usage: " + executable + " -pset <preset name> [options] input_file output_file.cls");
-        err.println("       " + executable + " -pset <preset name> [options] input_file output_file.txt");
+        err.println("usage: " + executable + " -pset <preset name> [options] input_file [input_file ...] output_file.cls");
+        err.println("       " + executable + " -pset <preset name> [options] input_file [input_file ...] output_file.txt");
         err.println("       " + executable + " -pset <preset name> [options] -export newPresetName");
         err.println();
 
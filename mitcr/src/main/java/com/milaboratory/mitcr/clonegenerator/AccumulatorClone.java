@@ -5,6 +5,7 @@ import com.milaboratory.core.sequence.NucleotideSQPair;
 import com.milaboratory.core.sequence.nucleotide.NucleotideSequence;
 import com.milaboratory.mitcr.cdrextraction.CDR3ExtractionResult;
 import com.milaboratory.mitcr.vdjmapping.SegmentMappingResult;
+import com.milaboratory.util.BitArrayInterner;
 
 import java.util.ArrayList;
 
@@ -67,6 +68,14 @@ public abstract class AccumulatorClone extends CloneImpl {
         }
     }
 
+    /**
+     * Replaces compiled barcodes with shared instances. Must be called after compilation.
+     */
+    final void internBarcodes(BitArrayInterner interner) {
+        for (int i = 0; i < barcodes.length; ++i)
+            barcodes[i] = interner.intern(barcodes[i]);
+    }
+
     public int id() {
         return id;
     }
@@ -34,7 +34,7 @@ public abstract class AccumulatorCloneAvrg extends AccumulatorClone {
         //Now the quality object is valid
         //convertValues(cdr3.getQuality().getInnerData());
         convertValues(accumulator);
-        cdr3 = new NucleotideSQPair(sequence, new SequenceQualityPhred(accumulator));
+        cdr3 = new NucleotideSQPair(sequence, new SequenceQualityPhred(accumulator).compact());
         accumulator = null;
     }
 }
@@ -26,6 +26,6 @@ public abstract class AccumulatorCloneMax extends AccumulatorClone {
 
     @Override
     void compile(float barcodeAggregationFactor) {
-        cdr3 = new NucleotideSQPair(sequence, new SequenceQualityPhred(quality));
+        cdr3 = new NucleotideSQPair(sequence, new SequenceQualityPhred(quality).compact());
     }
 }
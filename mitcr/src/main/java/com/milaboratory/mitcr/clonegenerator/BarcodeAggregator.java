@@ -42,9 +42,8 @@ final class BarcodeAggregator {
     public void addBarcode(BitArray barcode) {
         if (barcode.size() != counts.length)
             throw new IllegalArgumentException();
-        for (int i = 0; i < barcode.size(); ++i)
-            if (barcode.get(i))
-                counts[i]++;
+        for (int i = barcode.nextSetBit(0); i >= 0; i = barcode.nextSetBit(i + 1))
+            counts[i]++;
     }
 
     public BitArray calculateBarcode(float aggregationFactor) {
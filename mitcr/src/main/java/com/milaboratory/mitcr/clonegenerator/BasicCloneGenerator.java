@@ -29,10 +29,13 @@ import com.milaboratory.core.segment.SegmentGroupContainer;
 import com.milaboratory.core.sequence.nucleotide.NucleotideSequence;
 import com.milaboratory.mitcr.cdrextraction.CDR3ExtractionResult;
 import com.milaboratory.mitcr.vdjmapping.ntree.NTreeNode;
+import com.milaboratory.util.BitArrayInterner;
 
 import java.util.AbstractCollection;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collections;
+import java.util.Comparator;
 import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.concurrent.atomic.AtomicInteger;
 import java.util.concurrent.atomic.AtomicReference;
@@ -96,8 +99,12 @@ public class BasicCloneGenerator implements CloneGenerator, ThreadSafe {
 
     @Override
     public CloneSet getCloneSet() {
-        for (AccumulatorClone clone : COLLECTION_INSTANCE)
+        //Clones with equal barcodes share one instance
+        final BitArrayInterner interner = new BitArrayInterner();
+        for (AccumulatorClone clone : COLLECTION_INSTANCE) {
             clone.compile(barcodeAggregationFactor);
+            clone.internBarcodes(interner);
+        }
         ArrayList<AccumulatorClone> clones = new ArrayList<>(COLLECTION_INSTANCE);
         Collections.sort(clones, CloneComparator.INSTANCE);
         return new CloneSetImpl(clones, gene.get(), segmentContainers.get(0).getSpecies(),
@@ -116,21 +123,97 @@ public class BasicCloneGenerator implements CloneGenerator, ThreadSafe {
         putResult(cdr3ExtractionResult);
     }
 
+    /**
+     * Results with equal CDR3s are grouped (by sorting a copy of the batch), so the clone tree is traversed and the
+     * clone is locked once per group instead of once per result. Subclasses that override {@link
+     * #put(CDR3ExtractionResult)} must override this method too.
+     */
+    @Override
+    public void putAll(CDR3ExtractionResult<?>[] results) {
+        final CDR3ExtractionResult<?>[] sorted = new CDR3ExtractionResult<?>[results.length];
+        int count = 0;
+        for (CDR3ExtractionResult<?> result : results) {
+            if (result == null)
+                throw new NullPointerException();
+            if (result.getCDR3() != null)
+                sorted[count++] = result;
+        }
+
+        //Stable sort, so results are included into clones in the original order
+        Arrays.sort(sorted, 0, count, CDR3_COMPARATOR);
+
+        NucleotideSequence cdr3Sequence;
+        for (int from = 0, to; from < count; from = to) {
+            cdr3Sequence = sorted[from].getCDR3().getSequence();
+            for (to = from + 1; to < count; ++to)
+                if (cdr3Sequence.compareTo(sorted[to].getCDR3().getSequence()) != 0)
+                    break;
+            putResults(sorted, from, to);
+        }
+    }
+
     /**
      * Processes one {@link CDR3ExtractionResult}. Returns true it new clone entry was created.
      *
      * @return true it new clone entry was created
      */
     protected boolean putResult(CDR3ExtractionResult cdr3ExtractionResult) {
-        boolean created = false;
+        final Node node = getNode(cdr3ExtractionResult.getCDR3().getSequence());
+        final boolean created = ensureClone(node, cdr3ExtractionResult);
+
+        //Transmitting result to the found clone
+        node.clone.include(cdr3ExtractionResult, false);
+
+        if (listener != null) {
+            //Firing corresponding event
+            if (created)
+                listener.newCloneCreated(node.clone, cdr3ExtractionResult);
+            //Firing read to clone assignment event
+            listener.assignedToClone(node.clone, cdr3ExtractionResult, false);
+        }
+
+        return created;
+    }
+
+    /**
+     * Processes a group of results with equal CDR3s.
+     */
+    private void putResults(CDR3ExtractionResult<?>[] results, int from, int to) {
+        final Node node = getNode(results[from].getCDR3().getSequence());
+        final boolean created = ensureClone(node, results[from]);
+        final AccumulatorClone clone = node.clone;
+
+        //Accumulators synchronize on themselves, so the monitor is taken once for the whole group
+        synchronized (clone) {
+            for (int i = from; i < to; ++i)
+                clone.include(results[i], false);
+        }
 
-        //Traverse tree...
+        if (listener != null)
+            for (int i = from; i < to; ++i) {
+                //Firing corresponding event
+                if (created && i == from)
+                    listener.newCloneCreated(clone, results[i]);
+                //Firing read to clone assignment event
+                listener.assignedToClone(clone, results[i], false);
+            }
+    }
+
+    /**
+     * Traverses tree (creating nodes if needed) and returns the node of given CDR3.
+     */
+    private Node getNode(NucleotideSequence cdr3Sequence) {
         Node node = root;
-        final NucleotideSequence cdr3Sequence = cdr3ExtractionResult.getCDR3().getSequence();
         final int size = cdr3Sequence.size();
         for (int i = 1; i <= size; ++i)
             node = node.createOrGet(cdr3Sequence.codeAt(((i & 1) == 1) ? i >> 1 : size - (i >> 1)));
+        return node;
+    }
 
+    /**
+     * Creates clone in the node from the result if there is no clone yet. Returns true if new clone was created.
+     */
+    private boolean ensureClone(Node node, CDR3ExtractionResult cdr3ExtractionResult) {
         if (node.clone == null)
             synchronized (node) {
                 //Double checked assignment
@@ -143,22 +226,10 @@ public class BasicCloneGenerator implements CloneGenerator, ThreadSafe {
                             cdr3ExtractionResult.getCDR3(), saveBackwardLinks);
 
                     //The new clone was created
-                    created = true;
+                    return true;
                 }
             }
-
-        //Transmitting result to the found clone
-        node.clone.include(cdr3ExtractionResult, false);
-
-        if (listener != null) {
-            //Firing corresponding event
-            if (created)
-                listener.newCloneCreated(node.clone, cdr3ExtractionResult);
-            //Firing read to clone assignment event
-            listener.assignedToClone(node.clone, cdr3ExtractionResult, false);
-        }
-
-        return created;
+        return false;
     }
 
     @Override
@@ -239,6 +310,13 @@ public class BasicCloneGenerator implements CloneGenerator, ThreadSafe {
         }
     }
 
+    private static final Comparator<CDR3ExtractionResult<?>> CDR3_COMPARATOR = new Comparator<CDR3ExtractionResult<?>>() {
+        @Override
+        public int compare(CDR3ExtractionResult<?> o1, CDR3ExtractionResult<?> o2) {
+            return o1.getCDR3().getSequence().compareTo(o2.getCDR3().getSequence());
+        }
+    };
+
     private final CloneCollection COLLECTION_INSTANCE = new CloneCollection();
 
     private final class CloneCollection extends AbstractCollection<AccumulatorClone> {
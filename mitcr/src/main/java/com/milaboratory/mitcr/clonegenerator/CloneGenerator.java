@@ -43,6 +43,14 @@ public interface CloneGenerator extends InputPortUninterruptible<CDR3ExtractionR
      */
     void preInitialize(SegmentGroupContainer v, SegmentGroupContainer j, SegmentGroupContainer d);
 
+    /**
+     * Puts a batch of extraction results. Equivalent to calling {@link #put(Object)} for each element of the array, but
+     * may be more efficient. Batch must not contain nulls, to close this port use {@code put(null)}.
+     *
+     * @param results batch of extraction results
+     */
+    void putAll(CDR3ExtractionResult<?>[] results);
+
     /**
      * Build and gets the resulting clone set. Should be called after this port is closed (null was put)
      *
@@ -27,6 +27,8 @@ import com.milaboratory.mitcr.qualitystrategy.GoodBadNucleotideSequence;
 import com.milaboratory.mitcr.qualitystrategy.GoodBadNucleotideSequenceProvider;
 import com.milaboratory.mitcr.qualitystrategy.QualityInterpretationStrategy;
 
+import java.util.Arrays;
+
 public class LQFilteringOffCloneGenerator extends BasicCloneGenerator {
     private final QualityInterpretationStrategy strategy;
     //For fast access
@@ -69,4 +71,22 @@ public class LQFilteringOffCloneGenerator extends BasicCloneGenerator {
         } else if (listener != null)
             listener.cdr3Dropped(cdr3ExtractionResult);
     }
+
+    @Override
+    public void putAll(CDR3ExtractionResult<?>[] results) {
+        //Good results are passed to the batched path of basic generator
+        final CDR3ExtractionResult<?>[] good = new CDR3ExtractionResult<?>[results.length];
+        int count = 0;
+        for (CDR3ExtractionResult<?> result : results) {
+            if (result == null)
+                throw new NullPointerException();
+            if (result.getCDR3() == null)
+                continue;
+            if (!GBNSUtils.hasBadNucleotides(goodBadNucleotideSequenceProvider.process(result.getCDR3())))
+                good[count++] = result;
+            else if (listener != null)
+                listener.cdr3Dropped(result);
+        }
+        super.putAll(count == good.length ? good : Arrays.copyOf(good, count));
+    }
 }
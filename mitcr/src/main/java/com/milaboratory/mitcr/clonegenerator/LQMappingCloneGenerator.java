@@ -343,6 +343,16 @@ public class LQMappingCloneGenerator extends BasicCloneGenerator implements Thre
         }
     }
 
+    @Override
+    public void putAll(CDR3ExtractionResult<?>[] results) {
+        //Bad results are mapped asynchronously, so results are processed one by one
+        for (CDR3ExtractionResult<?> result : results) {
+            if (result == null)
+                throw new NullPointerException();
+            put(result);
+        }
+    }
+
     @Override
     public CloneSet getCloneSet() {
         try {
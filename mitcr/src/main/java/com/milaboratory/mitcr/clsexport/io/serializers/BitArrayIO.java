@@ -42,7 +42,7 @@ public class BitArrayIO {
             return;
         }
         outputStream.writeInt(0x80000000 | object.size()); //0x80000000 is a version flag
-        outputStream.write(BitArray.extractRawDataArray(object));
+        outputStream.write(BitArray.toBytes(object));
     }
 
     public static BitArray read(DataInput inputStream) throws IOException {
@@ -59,6 +59,6 @@ public class BitArrayIO {
         data = new byte[(size + 7) >> 3];
         inputStream.readFully(data);
         //}
-        return BitArray.construct(data, size);
+        return BitArray.fromBytes(data, size);
     }
 }
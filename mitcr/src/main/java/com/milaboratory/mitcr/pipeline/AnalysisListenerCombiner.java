@@ -129,6 +129,12 @@ public class AnalysisListenerCombiner implements AnalysisListener {
             for (CDR3ExtractorListener listener : listeners)
                 listener.cdr3NotExtracted(result, input);
         }
+
+        @Override
+        public void readsDiscarded(int count) {
+            for (CDR3ExtractorListener listener : listeners)
+                listener.readsDiscarded(count);
+        }
     }
 
     @Override
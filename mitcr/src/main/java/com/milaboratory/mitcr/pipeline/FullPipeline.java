@@ -27,21 +27,32 @@ import cc.redberry.pipe.blocks.ParallelProcessor;
 import cc.redberry.pipe.util.CountingOutputPort;
 import com.milaboratory.core.clone.CloneSet;
 import com.milaboratory.core.clone.CloneSetClustered;
+import com.milaboratory.core.clone.CloneSetUtils;
 import com.milaboratory.core.segment.DefaultSegmentLibrary;
 import com.milaboratory.core.segment.SegmentGroupType;
 import com.milaboratory.core.segment.SegmentLibrary;
+import com.milaboratory.core.sequencing.io.AbstractBlockParsingReader;
+import com.milaboratory.core.sequencing.io.MergedSSequencingDataReader;
+import com.milaboratory.core.sequencing.io.fastq.FastqChunk;
+import com.milaboratory.core.sequencing.io.fastq.FastqChunkReader;
+import com.milaboratory.core.sequencing.io.fastq.MappedFastqReader;
 import com.milaboratory.core.sequencing.read.SSequencingRead;
 import com.milaboratory.mitcr.cdrextraction.CDR3ExtractionResult;
+import com.milaboratory.mitcr.cdrextraction.CDR3ExtractorFactoryFromFastqChunk;
 import com.milaboratory.mitcr.cdrextraction.CDR3ExtractorFactoryFromSRead;
+import com.milaboratory.mitcr.cdrextraction.CDR3ExtractorFactoryFromSReadBatch;
+import com.milaboratory.mitcr.cdrextraction.SeedReadFilter;
 import com.milaboratory.mitcr.clonegenerator.CloneGenerator;
 import com.milaboratory.mitcr.clonegenerator.CloneGeneratorFactory;
 import com.milaboratory.mitcr.clusterization.CloneClusterizer;
 import com.milaboratory.mitcr.clusterization.CloneClusterizerFactory;
 import com.milaboratory.mitcr.statistics.CloneSetQualityControl;
+import com.milaboratory.util.BatchingOutputPort;
 import com.milaboratory.util.CanReportProgress;
 import com.milaboratory.util.CanReportProgressAndStage;
 import com.milaboratory.util.ProgressReporterFactory;
 
+import java.util.List;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
 
@@ -55,9 +66,11 @@ public final class FullPipeline implements Runnable, CanReportProgressAndStage {
     private final Parameters parameters;
     private final SegmentLibrary library;
     private CloneSetQualityControl qc;
-    private boolean saveBackwardLinks, inputBuffering = true;
+    private boolean saveBackwardLinks, inputBuffering = true, readsPrefiltering = false;
+    private int batchSize = BatchingOutputPort.DEFAULT_BATCH_SIZE;
     private AnalysisListener listener;
     private final OutputPort<SSequencingRead> input;
+    private final FastqChunkReader chunkedInput;
     private int threads = Runtime.getRuntime().availableProcessors();
     private long total;
     private CloneSetClustered result;
@@ -75,7 +88,66 @@ public final class FullPipeline implements Runnable, CanReportProgressAndStage {
      * @param library           a custom receptor segment library
      */
     public FullPipeline(OutputPort<SSequencingRead> input, Parameters parameters, boolean saveBackwardLinks, SegmentLibrary library) {
+        this(input, null, parameters, saveBackwardLinks, library);
+    }
+
+    /**
+     * Creates a basic miTCR analysis pipeline for a sample split into several inputs (e.g. per-lane files). Each input
+     * is read in its own thread, reads are merged into one stream with globally unique ids (see {@link
+     * MergedSSequencingDataReader}).
+     *
+     * @param inputs            input streams of reads
+     * @param parameters        bulk parameters for pipeline
+     * @param saveBackwardLinks save backward links from assembled clones to their parent reads
+     * @param library           a custom receptor segment library
+     */
+    public FullPipeline(List<? extends OutputPort<SSequencingRead>> inputs, Parameters parameters,
+                        boolean saveBackwardLinks, SegmentLibrary library) {
+        this(merge(inputs), parameters, saveBackwardLinks, library);
+    }
+
+    /**
+     * Creates a basic miTCR analysis pipeline for a sample split into several inputs (e.g. per-lane files), uses
+     * default segment library and doesn't save backward links from assembled clones to to reads.
+     *
+     * @param inputs     input streams of reads
+     * @param parameters bulk parameters for pipeline
+     */
+    public FullPipeline(List<? extends OutputPort<SSequencingRead>> inputs, Parameters parameters) {
+        this(inputs, parameters, false, DefaultSegmentLibrary.load());
+    }
+
+    /**
+     * Creates a basic miTCR analysis pipeline for raw FASTQ data. Input is sliced into chunks in a single thread,
+     * while parsing of FASTQ records is performed in CDR3 extraction threads.
+     *
+     * @param input             reader of raw FASTQ chunks
+     * @param parameters        bulk parameters for pipeline
+     * @param saveBackwardLinks save backward links from assembled clones to their parent reads
+     * @param library           a custom receptor segment library
+     */
+    public FullPipeline(FastqChunkReader input, Parameters parameters, boolean saveBackwardLinks, SegmentLibrary library) {
+        this(null, input, parameters, saveBackwardLinks, library);
+    }
+
+    /**
+     * Creates a basic miTCR analysis pipeline for raw FASTQ data, uses default segment library and doesn't save
+     * backward links from assembled clones to to reads. Input is sliced into chunks in a single thread, while parsing
+     * of FASTQ records is performed in CDR3 extraction threads.
+     *
+     * @param input      reader of raw FASTQ chunks
+     * @param parameters bulk parameters for pipeline
+     */
+    public FullPipeline(FastqChunkReader input, Parameters parameters) {
+        this(input, parameters, false, DefaultSegmentLibrary.load());
+    }
+
+    private FullPipeline(OutputPort<SSequencingRead> input, FastqChunkReader chunkedInput, Parameters parameters,
+                         boolean saveBackwardLinks, SegmentLibrary library) {
+        if ((input == null) == (chunkedInput == null))
+            throw new NullPointerException();
         this.input = input;
+        this.chunkedInput = chunkedInput;
         this.parameters = parameters;
         this.library = library;
         this.saveBackwardLinks = saveBackwardLinks;
@@ -113,30 +185,55 @@ public final class FullPipeline implements Runnable, CanReportProgressAndStage {
             executorService = Executors.newCachedThreadPool();
 
         try {
-            OutputPort<SSequencingRead> inputReads;
-
-            if (inputBuffering) {
-                //Buffering reads in separate thread
-                final Merger<SSequencingRead> bufferedInput = new Merger<>();
-                bufferedInput.merge(input, executorService);
-                bufferedInput.start();
-                inputReads = bufferedInput;
-            } else
-                inputReads = input;
-
-            //To count input sequences
-            final CountingOutputPort<SSequencingRead> countingInput = new CountingOutputPort<SSequencingRead>(inputReads);
-
             //Extraction of CDR3s
             final CDR3ExtractorFactoryFromSRead extractorFactory =
                     new CDR3ExtractorFactoryFromSRead(parameters.getSpecies(), parameters.getGene(),
                             parameters.getCDR3ExtractorParameters(), library,
                             parameters.getQualityInterpretationStrategy(), listener);
 
+            //Buffered input (to be joined after processing)
+            final OutputPort<?> inputPort;
+
+            //To count input sequences
+            CountingOutputPort<SSequencingRead> countingInput = null;
+            CDR3ExtractorFactoryFromFastqChunk chunkExtractorFactory = null;
+
             //Setting up cdr3 extraction results port
-            final OutputPort<CDR3ExtractionResult<SSequencingRead>> extractionResults =
-                    new ParallelProcessor<>(countingInput, extractorFactory,
-                            threads, executorService);
+            final OutputPort<CDR3ExtractionResult<SSequencingRead>> extractionResults;
+            final OutputPort<CDR3ExtractionResult<SSequencingRead>[]> extractionResultsBatches;
+            if (input != null && batchSize > 1 && !parsesInCallingThread(input)) {
+                //Reads are moved through the pipeline in batches
+                final OutputPort<SSequencingRead[]> batches =
+                        new BatchingOutputPort<>(input, SSequencingRead.class, batchSize);
+                final OutputPort<SSequencingRead[]> inputBatches =
+                        inputBuffering ? buffer(batches, executorService) : batches;
+                extractionResultsBatches = new ParallelProcessor<>(inputBatches,
+                        new CDR3ExtractorFactoryFromSReadBatch(extractorFactory), threads, executorService);
+                extractionResults = null;
+                inputPort = inputBatches;
+            } else if (input != null) {
+                //Readers parsing records in calling threads are read directly by extraction threads, so records are
+                //decoded in parallel
+                final OutputPort<SSequencingRead> inputReads =
+                        inputBuffering && !parsesInCallingThread(input) ? buffer(input, executorService) : input;
+                countingInput = new CountingOutputPort<>(inputReads);
+                extractionResults = new ParallelProcessor<>(countingInput, extractorFactory,
+                        threads, executorService);
+                extractionResultsBatches = null;
+                inputPort = inputReads;
+            } else {
+                final OutputPort<FastqChunk> inputChunks =
+                        inputBuffering ? buffer(chunkedInput, executorService) : chunkedInput;
+                //FASTQ records are parsed in extraction threads
+                chunkExtractorFactory = new CDR3ExtractorFactoryFromFastqChunk(readsPrefiltering ?
+                        chunkedInput.createParser(new SeedReadFilter(parameters.getSpecies(), parameters.getGene(),
+                                parameters.getCDR3ExtractorParameters(), library)) :
+                        chunkedInput.createParser(), extractorFactory);
+                extractionResultsBatches = new ParallelProcessor<>(inputChunks, chunkExtractorFactory,
+                        threads, executorService);
+                extractionResults = null;
+                inputPort = inputChunks;
+            }
 
             //This event is mainly used for performance measurements
             if (listener != null)
@@ -155,16 +252,26 @@ public final class FullPipeline implements Runnable, CanReportProgressAndStage {
             //Setting progress reporter
             stage = "Individual sequence analysis & clone generation";
 
-            progressReporter = ProgressReporterFactory.create(input);
+            progressReporter = ProgressReporterFactory.create(input == null ? chunkedInput : input);
 
             //Generate clones (in current thread)
-            CUtils.drain(extractionResults, generator);
+            long readsCount = 0;
+            if (extractionResults != null)
+                CUtils.drain(extractionResults, generator);
+            else {
+                CDR3ExtractionResult<SSequencingRead>[] batch;
+                while ((batch = extractionResultsBatches.take()) != null) {
+                    generator.putAll(batch);
+                    readsCount += batch.length;
+                }
+                generator.put(null);
+            }
 
             //Just in case (exceptions will be thrown here if something goes wrong)
             //[architecture of redberry-pipe will be change to avoid such patterns]
-            if (inputReads instanceof Merger)
-                ((Merger) inputReads).join();
-            ((ParallelProcessor) extractionResults).join();
+            if (inputPort instanceof Merger)
+                ((Merger) inputPort).join();
+            ((ParallelProcessor) (extractionResults != null ? extractionResults : extractionResultsBatches)).join();
 
             //This event is mainly used for performance measurements
             if (listener != null)
@@ -205,8 +312,13 @@ public final class FullPipeline implements Runnable, CanReportProgressAndStage {
             if (result.getTotalCount() != cloneSet.getTotalCount())
                 throw new RuntimeException("Clusterization assertion failed.");
 
+            //Amino acid sequences are used by export and quality control, so they are calculated here in parallel
+            CloneSetUtils.translateCDR3s(result, threads, executorService);
+
             //Setting
-            total = countingInput.getCount();
+            total = countingInput == null ? readsCount : countingInput.getCount();
+            if (chunkExtractorFactory != null)
+                total += chunkExtractorFactory.getDiscardedCount();
 
         } catch (InterruptedException ie) {
         } finally {
@@ -215,6 +327,28 @@ public final class FullPipeline implements Runnable, CanReportProgressAndStage {
         }
     }
 
+    @SuppressWarnings("unchecked")
+    private static OutputPort<SSequencingRead> merge(List<? extends OutputPort<SSequencingRead>> inputs) {
+        if (inputs.size() == 1)
+            return inputs.get(0);
+        return new MergedSSequencingDataReader(inputs.toArray(new OutputPort[inputs.size()]));
+    }
+
+    /**
+     * Returns true if reader parses records in threads calling {@code take()} (such readers must not be wrapped into
+     * a single consuming thread)
+     */
+    private static boolean parsesInCallingThread(OutputPort<SSequencingRead> input) {
+        return input instanceof MappedFastqReader || input instanceof AbstractBlockParsingReader;
+    }
+
+    private static <T> OutputPort<T> buffer(OutputPort<T> input, ExecutorService executorService) {
+        final Merger<T> bufferedInput = new Merger<>();
+        bufferedInput.merge(input, executorService);
+        bufferedInput.start();
+        return bufferedInput;
+    }
+
     @Override
     public String getStage() {
         return stage;
@@ -244,6 +378,33 @@ public final class FullPipeline implements Runnable, CanReportProgressAndStage {
         this.inputBuffering = inputBuffering;
     }
 
+    /**
+     * If {@code true} reads that contain no V or J seed on any strand are discarded before parsing (see {@link
+     * SeedReadFilter}). Such reads can't give any V or J mapping, so results are not affected. Discarded reads are
+     * counted in {@link #getTotal()} and reported to analysis listener. Works only for raw FASTQ input ({@link
+     * FastqChunkReader}).
+     *
+     * <p>Default value is {@code false}.</p>
+     *
+     * @param readsPrefiltering whether to discard reads without V or J seeds before parsing
+     */
+    public void setReadsPrefiltering(boolean readsPrefiltering) {
+        this.readsPrefiltering = readsPrefiltering;
+    }
+
+    /**
+     * Sets the number of reads moved between pipeline blocks at once. Values less than 2 turn batching off. Readers
+     * parsing records in calling threads ({@link MappedFastqReader}, {@link AbstractBlockParsingReader}) are never
+     * batched, as they are read directly by CDR3 extraction threads.
+     *
+     * <p>Default value is {@link BatchingOutputPort#DEFAULT_BATCH_SIZE}.</p>
+     *
+     * @param batchSize number of reads moved between pipeline blocks at once
+     */
+    public void setBatchSize(int batchSize) {
+        this.batchSize = batchSize;
+    }
+
     /**
      * Gets total number of sequences from which CDR3 was successfully extracted
      *
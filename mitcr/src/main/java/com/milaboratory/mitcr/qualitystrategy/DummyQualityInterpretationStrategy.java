@@ -21,6 +21,7 @@
 package com.milaboratory.mitcr.qualitystrategy;
 
 import com.milaboratory.core.sequence.NucleotideSQPair;
+import com.milaboratory.core.sequence.NucleotideSQPairView;
 import com.milaboratory.core.sequencing.read.SSequencingRead;
 import com.milaboratory.mitcr.vdjmapping.ntree.NTreeNodeGenerator;
 import com.milaboratory.mitcr.vdjmapping.ntree.NTreeNodeGeneratorMatchOnly;
@@ -46,6 +47,11 @@ public final class DummyQualityInterpretationStrategy implements QualityInterpre
         return createForNucleotideSQPair();
     }
 
+    @Override
+    public GoodBadNucleotideSequenceProvider<NucleotideSQPairView> getProviderForNucleotideSQPairView() {
+        return createForNucleotideSQPairView();
+    }
+
     @Override
     public GoodBadNucleotideSequenceProvider<SSequencingRead> getProviderForSRead() {
         return createForSSequencingRead();
@@ -92,6 +98,30 @@ public final class DummyQualityInterpretationStrategy implements QualityInterpre
         };
     }
 
+    public static GoodBadNucleotideSequenceProvider<NucleotideSQPairView> createForNucleotideSQPairView() {
+        return new GoodBadNucleotideSequenceProvider<NucleotideSQPairView>() {
+            @Override
+            public GoodBadNucleotideSequence process(final NucleotideSQPairView view) {
+                return new GoodBadNucleotideSequence() {
+                    @Override
+                    public byte codeAt(int position) {
+                        return view.codeAt(position);
+                    }
+
+                    @Override
+                    public int size() {
+                        return view.size();
+                    }
+
+                    @Override
+                    public boolean isBad(int position) {
+                        return false;
+                    }
+                };
+            }
+        };
+    }
+
     public static GoodBadNucleotideSequenceProvider<SSequencingRead> createForSSequencingRead() {
         return new GoodBadNucleotideSequenceProvider<SSequencingRead>() {
             @Override
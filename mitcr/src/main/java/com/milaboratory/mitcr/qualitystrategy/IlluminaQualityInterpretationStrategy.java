@@ -21,6 +21,7 @@
 package com.milaboratory.mitcr.qualitystrategy;
 
 import com.milaboratory.core.sequence.NucleotideSQPair;
+import com.milaboratory.core.sequence.NucleotideSQPairView;
 import com.milaboratory.core.sequencing.read.SSequencingRead;
 import com.milaboratory.mitcr.vdjmapping.ntree.NTreeNodeGenerator;
 import com.milaboratory.mitcr.vdjmapping.ntree.NTreeNodeGeneratorBadMismatch3B;
@@ -53,6 +54,11 @@ public final class IlluminaQualityInterpretationStrategy implements QualityInter
         return createForNucleotideSQPair(qualityThreshold);
     }
 
+    @Override
+    public GoodBadNucleotideSequenceProvider<NucleotideSQPairView> getProviderForNucleotideSQPairView() {
+        return createForNucleotideSQPairView(qualityThreshold);
+    }
+
     @Override
     public GoodBadNucleotideSequenceProvider<SSequencingRead> getProviderForSRead() {
         return createForSSequencingRead(qualityThreshold);
@@ -104,6 +110,30 @@ public final class IlluminaQualityInterpretationStrategy implements QualityInter
         };
     }
 
+    public static GoodBadNucleotideSequenceProvider<NucleotideSQPairView> createForNucleotideSQPairView(final byte threshold) {
+        return new GoodBadNucleotideSequenceProvider<NucleotideSQPairView>() {
+            @Override
+            public GoodBadNucleotideSequence process(final NucleotideSQPairView view) {
+                return new GoodBadNucleotideSequence() {
+                    @Override
+                    public byte codeAt(int position) {
+                        return view.codeAt(position);
+                    }
+
+                    @Override
+                    public int size() {
+                        return view.size();
+                    }
+
+                    @Override
+                    public boolean isBad(int position) {
+                        return view.qualityAt(position) < threshold;
+                    }
+                };
+            }
+        };
+    }
+
     public static GoodBadNucleotideSequenceProvider<SSequencingRead> createForSSequencingRead(final byte threshold) {
         return new GoodBadNucleotideSequenceProvider<SSequencingRead>() {
             @Override
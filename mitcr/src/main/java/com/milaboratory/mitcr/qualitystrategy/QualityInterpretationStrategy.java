@@ -21,6 +21,7 @@
 package com.milaboratory.mitcr.qualitystrategy;
 
 import com.milaboratory.core.sequence.NucleotideSQPair;
+import com.milaboratory.core.sequence.NucleotideSQPairView;
 import com.milaboratory.core.sequencing.read.SSequencingRead;
 import com.milaboratory.mitcr.vdjmapping.ntree.NTreeNodeGenerator;
 import org.jdom.Element;
@@ -49,6 +50,13 @@ public interface QualityInterpretationStrategy {
      */
     GoodBadNucleotideSequenceProvider<NucleotideSQPair> getProviderForNucleotideSQPair();
 
+    /**
+     * Gets an object that provides good/bad quality marks to {@link NucleotideSQPairView}
+     *
+     * @return good/bad quality provider
+     */
+    GoodBadNucleotideSequenceProvider<NucleotideSQPairView> getProviderForNucleotideSQPairView();
+
     /**
      * Gets an object that provides good/bad quality marks to {@link SSequencingRead}
      *
@@ -62,7 +62,8 @@ public class AnalysisStatisticsAggregator implements AnalysisListener {
     }
 
     public long getTotalReadsProcessed() {
-        return cdr3ExtractorListener.notExtracted.get() + cdr3ExtractorListener.extracted.get();
+        return cdr3ExtractorListener.notExtracted.get() + cdr3ExtractorListener.extracted.get() +
+                cdr3ExtractorListener.discarded.get();
     }
 
     public long getTotalBasesProcessed() {
@@ -118,6 +119,17 @@ public class AnalysisStatisticsAggregator implements AnalysisListener {
         return cdr3ExtractorListener.notExtracted.get();
     }
 
+    /**
+     * Returns number of reads discarded by prefilter (see {@link com.milaboratory.mitcr.cdrextraction.SeedReadFilter})
+     * without CDR3 extraction. Such reads are also counted in {@link #getTotalReadsProcessed()}, but not in {@link
+     * #getCDR3NotExtracted()}.
+     *
+     * @return number of reads discarded by prefilter
+     */
+    public long getReadsDiscarded() {
+        return cdr3ExtractorListener.discarded.get();
+    }
+
     public long getClonesCreated() {
         return cloneGeneratorListener.createdClones.get();
     }
@@ -207,7 +219,8 @@ public class AnalysisStatisticsAggregator implements AnalysisListener {
 
     private final class CDR3ExtractorListenerImpl implements CDR3ExtractorListener {
         final AtomicLong extracted = new AtomicLong(),
-                notExtracted = new AtomicLong();
+                notExtracted = new AtomicLong(),
+                discarded = new AtomicLong();
 
         @Override
         public void cdr3Extracted(CDR3ExtractionResult result, Object input) {
@@ -226,6 +239,11 @@ public class AnalysisStatisticsAggregator implements AnalysisListener {
             else if (input instanceof SSequencingRead)
                 analysedBases.addAndGet(((SSequencingRead) input).getData().size());
         }
+
+        @Override
+        public void readsDiscarded(int count) {
+            discarded.addAndGet(count);
+        }
     }
 
     private final class CloneGeneratorListenerImpl implements CloneGeneratorListener {
@@ -28,6 +28,7 @@ import com.milaboratory.core.segment.Gene;
 import com.milaboratory.core.segment.SegmentGroupType;
 import com.milaboratory.core.segment.SegmentLibrary;
 import com.milaboratory.core.segment.Species;
+import com.milaboratory.core.sequence.aminoacid.CDRAminoAcidSequence;
 import com.milaboratory.util.BitArray;
 
 import java.util.Collections;
@@ -100,8 +101,14 @@ public final class CloneSetQualityControl {
         int m1c = 0, p1c = 0;
         this.clones = cloneSet.getClones().size();
         this.totalGoodReads = cloneSet.getTotalCount();
+        CDRAminoAcidSequence cdr3AA;
         for (Clone clone : cloneSet.getClones()) {
-            int rem = clone.getCDR3().size() % 3;
+            //Both frame and stops are determined during translation
+            cdr3AA = clone.getCDR3AA();
+            int rem = cdr3AA.getFrameRemainder();
+            //Amino acid sequence may be created without nucleotide sequence
+            if (rem < 0)
+                rem = clone.getCDR3().size() % 3;
             if (rem != 0) {
                 oofClones++;
                 oofSequences += clone.getCount();
@@ -114,7 +121,7 @@ public final class CloneSetQualityControl {
                 m1 += clone.getCount();
                 m1c++;
             }
-            if (clone.getCDR3AA().containStops()) {
+            if (cdr3AA.containStops()) {
                 withStopsClones++;
                 withStopsSequences += clone.getCount();
             }
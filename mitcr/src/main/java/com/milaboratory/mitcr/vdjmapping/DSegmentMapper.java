@@ -24,15 +24,34 @@ import com.milaboratory.core.segment.Allele;
 import com.milaboratory.core.segment.SegmentGroupContainer;
 import com.milaboratory.core.sequence.NucleotideSQPair;
 import com.milaboratory.core.sequence.nucleotide.NucleotideSequence;
+import com.milaboratory.mitcr.vdjmapping.trivial.KmerTable;
 import com.milaboratory.util.BitArray;
+import gnu.trove.list.array.TIntArrayList;
+import gnu.trove.map.TIntObjectMap;
+import gnu.trove.map.hash.TIntObjectHashMap;
 
 import java.util.ArrayList;
 import java.util.List;
 
+/**
+ * Searches for the longest exact match between a sequence and D segments (and their reverse complements if {@code
+ * searchRC} is set).
+ *
+ * <p>All k-mers of length {@code minLength} of D segments are stored in an index, so only diagonals containing a
+ * common k-mer are extended. Results are the same as of exhaustive search with {@link SimplestAlignment}.</p>
+ *
+ * <p>Mapper is immutable and can be shared between threads.</p>
+ */
 public final class DSegmentMapper implements SegmentMapper {
+    /**
+     * Max length of k-mer that can be packed into int
+     */
+    private static final int MAX_INDEXED_LENGTH = 16;
     private final SegmentGroupContainer group;
     private final SegmentSequenceWrapper[] wrappers;
     private final int minLength;
+    //Map from k-mer to array of (wrapper index, position in wrapper sequence) pairs, null if minLength is not supported
+    private final KmerTable<int[]> index;
     /**
      * If true also search for reverse-complement sequence of D segments
      */
@@ -53,6 +72,36 @@ public final class DSegmentMapper implements SegmentMapper {
                         al.getSequence().getReverseComplement(), al));
         }
         this.wrappers = wrappers.toArray(new SegmentSequenceWrapper[wrappers.size()]);
+
+        if (minLength < 1 || minLength > MAX_INDEXED_LENGTH) {
+            this.index = null;
+            return;
+        }
+
+        //Building index
+        TIntObjectMap<TIntArrayList> preMap = new TIntObjectHashMap<>();
+        final int mask = 0xFFFFFFFF >>> (32 - minLength * 2);
+        NucleotideSequence sequence;
+        TIntArrayList hits;
+        int kmer, position;
+        for (int w = 0; w < this.wrappers.length; ++w) {
+            sequence = this.wrappers[w].sequence;
+            kmer = 0;
+            for (position = 0; position < sequence.size(); ++position) {
+                kmer = mask & ((kmer << 2) | sequence.codeAt(position));
+                if (position < minLength - 1)
+                    continue;
+                if ((hits = preMap.get(kmer)) == null)
+                    preMap.put(kmer, hits = new TIntArrayList());
+                hits.add(w);
+                hits.add(position - minLength + 1);
+            }
+        }
+
+        TIntObjectMap<int[]> map = new TIntObjectHashMap<>();
+        for (int key : preMap.keys())
+            map.put(key, preMap.get(key).toArray());
+        this.index = new KmerTable<>(minLength, map);
     }
 
     public SegmentMappingResult map(NucleotideSQPair sequence) {
@@ -60,6 +109,74 @@ public final class DSegmentMapper implements SegmentMapper {
     }
 
     public SegmentMappingResult map(NucleotideSequence sequence) {
+        if (index == null)
+            return mapExhaustive(sequence);
+
+        final int size = sequence.size();
+        if (size < minLength)
+            return null;
+
+        //Best match for each wrapper
+        final int[] bestLength = new int[wrappers.length], bestShift = new int[wrappers.length],
+                bestFrom = new int[wrappers.length];
+        final int mask = 0xFFFFFFFF >>> (32 - minLength * 2);
+        int kmer = 0, from, w, queryFrom, length, shift, i;
+        int[] hits;
+        NucleotideSequence query;
+        for (int position = 0; position < size; ++position) {
+            kmer = mask & ((kmer << 2) | sequence.codeAt(position));
+            if (position < minLength - 1 || (hits = index.get(kmer)) == null)
+                continue;
+
+            from = position - minLength + 1;
+            for (i = 0; i < hits.length; i += 2) {
+                w = hits[i];
+                queryFrom = hits[i + 1];
+                query = wrappers[w].sequence;
+
+                //Match was already processed starting from one of the previous positions
+                if (from > 0 && queryFrom > 0 && sequence.codeAt(from - 1) == query.codeAt(queryFrom - 1))
+                    continue;
+
+                length = minLength;
+                while (from + length < size && queryFrom + length < query.size()
+                        && sequence.codeAt(from + length) == query.codeAt(queryFrom + length))
+                    ++length;
+
+                //Same tie-breaking as in SimplestAlignment: diagonals are iterated in ascending shift order,
+                //positions inside diagonal in ascending order
+                shift = queryFrom - from;
+                if (length > bestLength[w] || (length == bestLength[w]
+                        && (shift < bestShift[w] || (shift == bestShift[w] && from < bestFrom[w])))) {
+                    bestLength[w] = length;
+                    bestShift[w] = shift;
+                    bestFrom[w] = from;
+                }
+            }
+        }
+
+        int best = -1;
+        for (w = 0; w < wrappers.length; ++w)
+            if (bestLength[w] != 0 && (best == -1 || bestLength[w] > bestLength[best]))
+                best = w;
+
+        if (best == -1)
+            return null;
+
+        BitArray barcode = new BitArray(group.getAllelesCount());
+        for (w = 0; w < wrappers.length; ++w)
+            if (bestLength[w] == bestLength[best])
+                barcode.set(wrappers[w].allele.getIndex());
+
+        return new SegmentMappingResult(barcode, group, bestFrom[best], bestFrom[best] + bestLength[best] - 1,
+                bestLength[best]);
+    }
+
+    /**
+     * Searches for the best match trying all alignments of all D segments. Used if {@code minLength} is too long for
+     * index.
+     */
+    private SegmentMappingResult mapExhaustive(NucleotideSequence sequence) {
         SimplestAlignment bestAlignment = null, alignment;
         BitArray barcode = new BitArray(group.getAllelesCount());
         for (SegmentSequenceWrapper wrapper : wrappers)
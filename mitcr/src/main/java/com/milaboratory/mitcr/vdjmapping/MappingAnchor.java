@@ -0,0 +1,72 @@
+/*
+ * MiTCR <http://milaboratory.com>
+ *
+ * Copyright (c) 2010-2013:
+ *     Bolotin Dmitriy     <bolotin.dmitriy@gmail.com>
+ *     Chudakov Dmitriy    <chudakovdm@mail.ru>
+ *
+ * MiTCR is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License as published by the Free
+ * Software Foundation, either version 3 of the License, or (at your option)
+ * any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU General Public License for
+ * more details.
+ *
+ * You should have received a copy of the GNU General Public License along
+ * with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.milaboratory.mitcr.vdjmapping;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Defines which segment is mapped first in joint V-J mapping. Second segment is searched only inside the window
+ * allowed by CDR3 length thresholds.
+ *
+ * @author Bolotin Dmitriy (bolotin.dmitriy@gmail.com)
+ */
+public enum MappingAnchor {
+    /**
+     * V and J segments are mapped independently over the whole read
+     */
+    None("none", "Independent"),
+    /**
+     * V segment is mapped first, J segment is searched inside the window defined by V reference point
+     */
+    V("v", "V segment"),
+    /**
+     * J segment is mapped first, V segment is searched inside the window defined by J reference point
+     */
+    J("j", "J segment");
+    private static Map<String, MappingAnchor> xmlMap;
+    private final String xmlRepresentation;
+    private final String name;
+
+    private MappingAnchor(String xmlRepresentation, String name) {
+        this.xmlRepresentation = xmlRepresentation;
+        this.name = name;
+    }
+
+    public String getXmlRepresentation() {
+        return xmlRepresentation;
+    }
+
+    public static MappingAnchor fromXML(String xml) {
+        return xmlMap.get(xml);
+    }
+
+    @Override
+    public String toString() {
+        return name;
+    }
+
+    static {
+        xmlMap = new HashMap<>();
+        for (MappingAnchor a : values())
+            xmlMap.put(a.xmlRepresentation, a);
+    }
+}
@@ -21,6 +21,7 @@
 package com.milaboratory.mitcr.vdjmapping;
 
 import com.milaboratory.core.sequence.NucleotideSQPair;
+import com.milaboratory.core.sequence.NucleotideSQPairView;
 
 /**
  * A joint mapper for V, J and D(optional)  segments.
@@ -29,33 +30,60 @@ import com.milaboratory.core.sequence.NucleotideSQPair;
  * @author Shugay Mikhail (mikhail.shugay@gmail.com)
  */
 public class VDJSegmentsMapper {
-    private final VJSegmentMapper<NucleotideSQPair>[] mappers = new VJSegmentMapper[2];
+    private final VJSegmentMapper<NucleotideSQPairView>[] mappers = new VJSegmentMapper[2];
     private final DSegmentMapper dMapper;
+    //Index of segment mapped first (-1 if segments are mapped independently)
+    private final int anchor;
+    private final int lowerCDR3Length, upperCDR3Length;
 
     /**
-     * Creates a joint mapper for V, J and D(optional) segments
+     * Creates a joint mapper for V, J and D(optional) segments. V and J segments are mapped independently.
      *
      * @param v v segment mapper
      * @param j j segment mapper
      * @param d d segment mapper, could be null if no need to search fo D gene
      */
-    public VDJSegmentsMapper(VJSegmentMapper<NucleotideSQPair> v,
-                             VJSegmentMapper<NucleotideSQPair> j,
+    public VDJSegmentsMapper(VJSegmentMapper<NucleotideSQPairView> v,
+                             VJSegmentMapper<NucleotideSQPairView> j,
                              DSegmentMapper d) {
+        this(v, j, d, MappingAnchor.None, 0, 0);
+    }
+
+    /**
+     * Creates a joint mapper for V, J and D(optional) segments. If anchor is specified, anchor segment is mapped over
+     * the whole read, and the other segment is searched only at positions where resulting CDR3 length (from V
+     * reference point to J reference point, inclusive) is inside the specified range.
+     *
+     * @param v               v segment mapper
+     * @param j               j segment mapper
+     * @param d               d segment mapper, could be null if no need to search fo D gene
+     * @param anchor          segment to be mapped first
+     * @param lowerCDR3Length lower limit on CDR3 length (inclusive)
+     * @param upperCDR3Length upper limit on CDR3 length (inclusive)
+     */
+    public VDJSegmentsMapper(VJSegmentMapper<NucleotideSQPairView> v,
+                             VJSegmentMapper<NucleotideSQPairView> j,
+                             DSegmentMapper d, MappingAnchor anchor,
+                             int lowerCDR3Length, int upperCDR3Length) {
+        if (anchor != MappingAnchor.None && lowerCDR3Length > upperCDR3Length)
+            throw new IllegalArgumentException("Lower CDR3 length threshold is greater than upper.");
         mappers[0] = v;
         mappers[1] = j;
         dMapper = d;
+        this.anchor = anchor == MappingAnchor.V ? 0 : (anchor == MappingAnchor.J ? 1 : -1);
+        this.lowerCDR3Length = lowerCDR3Length;
+        this.upperCDR3Length = upperCDR3Length;
     }
 
-    public VJSegmentMapper<NucleotideSQPair> getVMapper() {
+    public VJSegmentMapper<NucleotideSQPairView> getVMapper() {
         return mappers[0];
     }
 
-    public VJSegmentMapper<NucleotideSQPair> getJMapper() {
+    public VJSegmentMapper<NucleotideSQPairView> getJMapper() {
         return mappers[1];
     }
 
-    public VJSegmentMapper<NucleotideSQPair>[] getMappers() {
+    public VJSegmentMapper<NucleotideSQPairView>[] getMappers() {
         return mappers;
     }
 
@@ -70,9 +98,89 @@ public class VDJSegmentsMapper {
      * @return mapping result
      */
     public VDJSegmentsMappingResult map(NucleotideSQPair wrapper) {
+        return map(wrapper.asView());
+    }
+
+    /**
+     * Marks V, D and J regions on a read view (e.g. on a reverse complement of a read, without copying it).
+     *
+     * @param wrapper a read to map
+     * @return mapping result
+     */
+    public VDJSegmentsMappingResult map(NucleotideSQPairView wrapper) {
         VJSegmentMappingResult[] results = new VJSegmentMappingResult[2];
-        results[0] = mappers[0].map(wrapper);
-        results[1] = mappers[1].map(wrapper);
+        if (anchor == -1) {
+            results[0] = mappers[0].map(wrapper);
+            results[1] = mappers[1].map(wrapper);
+        } else {
+            results[anchor] = mappers[anchor].map(wrapper);
+            results[1 - anchor] = mapInWindow(1 - anchor, wrapper, results[anchor]);
+        }
+        return createResult(wrapper, results);
+    }
+
+    /**
+     * Marks V, D and J regions on both strands of a read. V and J seeds (anchor segment seeds in joint mode) are
+     * searched on both strands in a single pass where underlying mappers support it. Results are the same as returned
+     * by {@link #map(NucleotideSQPairView)} for each strand.
+     *
+     * @param forward read
+     * @param reverse reverse complement of the read
+     * @return array with mapping result for forward strand and mapping result for reverse complement strand
+     */
+    public VDJSegmentsMappingResult[] mapBothStrands(NucleotideSQPairView forward, NucleotideSQPairView reverse) {
+        final VJSegmentMappingResult[] forwardResults = new VJSegmentMappingResult[2],
+                reverseResults = new VJSegmentMappingResult[2];
+        if (anchor == -1)
+            for (int i = 0; i < 2; ++i)
+                mapBothStrands(i, forward, reverse, forwardResults, reverseResults);
+        else {
+            mapBothStrands(anchor, forward, reverse, forwardResults, reverseResults);
+            forwardResults[1 - anchor] = mapInWindow(1 - anchor, forward, forwardResults[anchor]);
+            reverseResults[1 - anchor] = mapInWindow(1 - anchor, reverse, reverseResults[anchor]);
+        }
+        return new VDJSegmentsMappingResult[]{createResult(forward, forwardResults),
+                createResult(reverse, reverseResults)};
+    }
+
+    @SuppressWarnings("unchecked")
+    private void mapBothStrands(int i, NucleotideSQPairView forward, NucleotideSQPairView reverse,
+                                VJSegmentMappingResult[] forwardResults, VJSegmentMappingResult[] reverseResults) {
+        if (mappers[i] instanceof VJSegmentsMapperAdapter) {
+            final VJSegmentMappingResult[] strandResults = new VJSegmentMappingResult[2];
+            ((VJSegmentsMapperAdapter<NucleotideSQPairView>) mappers[i]).mapBothStrands(forward, reverse,
+                    strandResults);
+            forwardResults[i] = strandResults[0];
+            reverseResults[i] = strandResults[1];
+        } else {
+            forwardResults[i] = mappers[i].map(forward);
+            reverseResults[i] = mappers[i].map(reverse);
+        }
+    }
+
+    /**
+     * Maps V (i = 0) or J (i = 1) segment inside the window allowed by CDR3 length thresholds relative to the anchor
+     * segment. The whole read is mapped if anchor segment was not found.
+     */
+    @SuppressWarnings("unchecked")
+    private VJSegmentMappingResult mapInWindow(int i, NucleotideSQPairView wrapper,
+                                               VJSegmentMappingResult anchorResult) {
+        if (anchorResult == null || !(mappers[i] instanceof VJSegmentsMapperAdapter))
+            return mappers[i].map(wrapper);
+        //CDR3 length = J reference point - V reference point + 1
+        final int refPoint = anchorResult.getRefPoint();
+        final int from, to;
+        if (i == 1) {
+            from = refPoint + lowerCDR3Length - 1;
+            to = refPoint + upperCDR3Length - 1;
+        } else {
+            from = refPoint - upperCDR3Length + 1;
+            to = refPoint - lowerCDR3Length + 1;
+        }
+        return ((VJSegmentsMapperAdapter<NucleotideSQPairView>) mappers[i]).map(wrapper, from, to);
+    }
+
+    private VDJSegmentsMappingResult createResult(NucleotideSQPairView wrapper, VJSegmentMappingResult[] results) {
         SegmentMappingResult dResult = null;
         if (dMapper != null)
             if (results[0] != null && results[1] != null) {
@@ -80,7 +188,7 @@ public class VDJSegmentsMapper {
                 int to = results[1].getSegmentBorderFrom() - 1;
                 if (from < to) {
                     //search for d gene between v end and j start
-                    dResult = dMapper.map(wrapper.getSequence().getRange(from, to + 1));
+                    dResult = dMapper.map(wrapper.getRange(from, to + 1).getSequence());
                     if (dResult != null) {
                         dResult.segmentBorderFrom += from;
                         dResult.segmentBorderTo += from;
@@ -21,7 +21,6 @@
 package com.milaboratory.mitcr.vdjmapping;
 
 import com.milaboratory.core.segment.Gene;
-import com.milaboratory.core.segment.SegmentGroupType;
 import com.milaboratory.core.segment.SegmentLibrary;
 import com.milaboratory.core.segment.Species;
 import com.milaboratory.mitcr.cdrextraction.CDR3ExtractorParameters;
@@ -74,15 +73,6 @@ public class VDJSegmentsMapperFactory {
                                                     SegmentLibrary library,
                                                     QualityInterpretationStrategy qStrategy,
                                                     AnalysisListener listener) {
-        return new VDJSegmentsMapper(
-                VJSegmentMapperFactory.createMapperForNucleotideSQPair(
-                        library.getGroup(species, gene, SegmentGroupType.Variable), parameters.getVMapperParameters(),
-                        qStrategy, listener == null ? null : listener.getVListener()),
-                VJSegmentMapperFactory.createMapperForNucleotideSQPair(
-                        library.getGroup(species, gene, SegmentGroupType.Joining), parameters.getJMapperParameters(),
-                        qStrategy, listener == null ? null : listener.getJListener()),
-                DSegmentMapperFactory.createForNucleotideSQPair(
-                        library.getGroup(species, gene, SegmentGroupType.Diversity), parameters.getDMapperParameters())
-        );
+        return new VDJSegmentsMapperIndex(species, gene, parameters, library).createMapper(qStrategy, listener);
     }
 }
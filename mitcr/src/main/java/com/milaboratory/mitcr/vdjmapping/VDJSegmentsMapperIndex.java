@@ -0,0 +1,110 @@
+/*
+ * MiTCR <http://milaboratory.com>
+ *
+ * Copyright (c) 2010-2013:
+ *     Bolotin Dmitriy     <bolotin.dmitriy@gmail.com>
+ *     Chudakov Dmitriy    <chudakovdm@mail.ru>
+ *
+ * MiTCR is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License as published by the Free
+ * Software Foundation, either version 3 of the License, or (at your option)
+ * any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU General Public License for
+ * more details.
+ *
+ * You should have received a copy of the GNU General Public License along
+ * with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.milaboratory.mitcr.vdjmapping;
+
+import com.milaboratory.core.segment.Gene;
+import com.milaboratory.core.segment.SegmentGroupType;
+import com.milaboratory.core.segment.SegmentLibrary;
+import com.milaboratory.core.segment.Species;
+import com.milaboratory.mitcr.cdrextraction.CDR3ExtractorParameters;
+import com.milaboratory.mitcr.pipeline.AnalysisListener;
+import com.milaboratory.mitcr.qualitystrategy.QualityInterpretationStrategy;
+import com.milaboratory.mitcr.vdjmapping.trivial.TrivialSegmentMapper;
+
+/**
+ * Immutable part of {@link VDJSegmentsMapper}: indices of V and J segment mappers and D segment mapper. Index is built
+ * once (e.g. by a CDR3 extractor factory) and shared by mappers of all threads, so segment library is indexed only
+ * once per pipeline. Index doesn't outlive its owner, as it is not cached anywhere.
+ *
+ * <p>Index is built for the values of parameters at the moment of creation.</p>
+ *
+ * @author Bolotin Dmitriy (bolotin.dmitriy@gmail.com)
+ */
+public final class VDJSegmentsMapperIndex {
+    private final TrivialSegmentMapper.Index vIndex, jIndex;
+    private final DSegmentMapper dMapper;
+    private final MappingAnchor anchor;
+    private final int lowerCDR3Length, upperCDR3Length;
+
+    /**
+     * Builds index.
+     *
+     * @param species    species type (for segment choice)
+     * @param gene       gene type (for segment choice)
+     * @param parameters parameters
+     * @param library    library of segments
+     */
+    public VDJSegmentsMapperIndex(Species species, Gene gene, CDR3ExtractorParameters parameters,
+                                  SegmentLibrary library) {
+        this.vIndex = VJSegmentMapperFactory.createIndex(library.getGroup(species, gene, SegmentGroupType.Variable),
+                parameters.getVMapperParameters());
+        this.jIndex = VJSegmentMapperFactory.createIndex(library.getGroup(species, gene, SegmentGroupType.Joining),
+                parameters.getJMapperParameters());
+        this.dMapper = DSegmentMapperFactory.createForNucleotideSQPair(
+                library.getGroup(species, gene, SegmentGroupType.Diversity), parameters.getDMapperParameters());
+        this.anchor = parameters.getMappingAnchor();
+        this.lowerCDR3Length = parameters.getLowerCDR3LengthThreshold();
+        this.upperCDR3Length = parameters.getUpperCDR3LengthThreshold();
+    }
+
+    /**
+     * Returns index of V segment mapper.
+     *
+     * @return index of V segment mapper
+     */
+    public TrivialSegmentMapper.Index getVIndex() {
+        return vIndex;
+    }
+
+    /**
+     * Returns index of J segment mapper.
+     *
+     * @return index of J segment mapper
+     */
+    public TrivialSegmentMapper.Index getJIndex() {
+        return jIndex;
+    }
+
+    /**
+     * Returns D segment mapper (it is immutable, so it is shared itself).
+     *
+     * @return D segment mapper or {@code null} if there are no D segments
+     */
+    public DSegmentMapper getDMapper() {
+        return dMapper;
+    }
+
+    /**
+     * Creates a mapper using this index. Creation of mapper is cheap, each thread should use its own mapper.
+     *
+     * @param qStrategy quality interpretation strategy
+     * @param listener  listener (may be null)
+     * @return VDJ segments mapper
+     */
+    public VDJSegmentsMapper createMapper(QualityInterpretationStrategy qStrategy, AnalysisListener listener) {
+        return new VDJSegmentsMapper(
+                VJSegmentMapperFactory.createMapperForNucleotideSQPairView(vIndex, qStrategy,
+                        listener == null ? null : listener.getVListener()),
+                VJSegmentMapperFactory.createMapperForNucleotideSQPairView(jIndex, qStrategy,
+                        listener == null ? null : listener.getJListener()),
+                dMapper, anchor, lowerCDR3Length, upperCDR3Length);
+    }
+}
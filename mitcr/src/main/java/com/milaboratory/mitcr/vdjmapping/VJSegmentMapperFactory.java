@@ -23,6 +23,7 @@ package com.milaboratory.mitcr.vdjmapping;
 import com.milaboratory.core.segment.SegmentGroupContainer;
 import com.milaboratory.core.segment.SegmentGroupType;
 import com.milaboratory.core.sequence.NucleotideSQPair;
+import com.milaboratory.core.sequence.NucleotideSQPairView;
 import com.milaboratory.core.sequencing.read.SSequencingRead;
 import com.milaboratory.mitcr.qualitystrategy.QualityInterpretationStrategy;
 import com.milaboratory.mitcr.vdjmapping.ntree.NTreeNodeGenerator;
@@ -42,15 +43,7 @@ public class VJSegmentMapperFactory {
     private static CoreVJSegmentMapper createCoreMapper(SegmentGroupContainer group, NTreeNodeGenerator generator,
                                                         VJSegmentMapperParameters parameters,
                                                         VJMapperListener listener) {
-        switch (parameters.getAlignmentDirection()) {
-            case Both:
-            case InsideCDR3:
-            case OutsideCDR3:
-                return new TrivialSegmentMapper(group, parameters.getSeedFrom(), parameters.getSeedTo(), parameters.getMinAlignmentMatches(),
-                        parameters.getLengthTolerance(), parameters.getAlignmentDirection(), listener);
-            default:
-                throw new IllegalArgumentException(parameters.getAlignmentDirection() + " is not supported.");
-        }
+        return new TrivialSegmentMapper(createIndex(group, parameters), listener);
         /*if (parameters.getAlignmentDirection() == AlignmentDirection.Both)
             return new UniDirectionSegmentMapper(generator, group, parameters.getSeedFrom(),
                     parameters.getSeedTo(),
@@ -76,6 +69,26 @@ public class VJSegmentMapperFactory {
                 selectSearchDirection(group.getGroup().getType()));*/
     }
 
+    /**
+     * Creates an immutable index of V or J segment mapper, that can be shared by mappers of several threads
+     *
+     * @param group      container of segments that will be mapped
+     * @param parameters mapping parameters
+     * @return index of segment mapper
+     */
+    public static TrivialSegmentMapper.Index createIndex(SegmentGroupContainer group, VJSegmentMapperParameters parameters) {
+        switch (parameters.getAlignmentDirection()) {
+            case Both:
+            case InsideCDR3:
+            case OutsideCDR3:
+                return new TrivialSegmentMapper.Index(group, parameters.getSeedFrom(), parameters.getSeedTo(),
+                        parameters.getMinAlignmentMatches(), parameters.getLengthTolerance(),
+                        parameters.getAlignmentDirection());
+            default:
+                throw new IllegalArgumentException(parameters.getAlignmentDirection() + " is not supported.");
+        }
+    }
+
     private static SearchDirection selectSearchDirection(SegmentGroupType type) {
         switch (type) {
             case Variable:
@@ -128,4 +141,32 @@ public class VJSegmentMapperFactory {
         return new VJSegmentsMapperAdapter<NucleotideSQPair>(strategy.getProviderForNucleotideSQPair(),
                 createCoreMapper(group, strategy.getGenerator(), parameters, listener));
     }
+
+    /**
+     * Creates a {@link VJSegmentMapper} for {@link NucleotideSQPairView}s
+     *
+     * @param group      container of segments that will be mapped
+     * @param parameters mapping parameters
+     * @param strategy   sequence quality interpretation strategy
+     * @return a {@link VJSegmentMapper} for {@link NucleotideSQPairView}s with defined parameters
+     */
+    public static VJSegmentMapper<NucleotideSQPairView> createMapperForNucleotideSQPairView(SegmentGroupContainer group, VJSegmentMapperParameters parameters,
+                                                                                            QualityInterpretationStrategy strategy, VJMapperListener listener) {
+        return new VJSegmentsMapperAdapter<NucleotideSQPairView>(strategy.getProviderForNucleotideSQPairView(),
+                createCoreMapper(group, strategy.getGenerator(), parameters, listener));
+    }
+
+    /**
+     * Creates a {@link VJSegmentMapper} for {@link NucleotideSQPairView}s from a prebuilt index
+     *
+     * @param index    index of segment mapper (see {@link #createIndex(SegmentGroupContainer,
+     *                 VJSegmentMapperParameters)})
+     * @param strategy sequence quality interpretation strategy
+     * @return a {@link VJSegmentMapper} for {@link NucleotideSQPairView}s using shared index
+     */
+    public static VJSegmentMapper<NucleotideSQPairView> createMapperForNucleotideSQPairView(TrivialSegmentMapper.Index index,
+                                                                                            QualityInterpretationStrategy strategy, VJMapperListener listener) {
+        return new VJSegmentsMapperAdapter<NucleotideSQPairView>(strategy.getProviderForNucleotideSQPairView(),
+                new TrivialSegmentMapper(index, listener));
+    }
 }
@@ -22,6 +22,8 @@ package com.milaboratory.mitcr.vdjmapping;
 
 import com.milaboratory.mitcr.qualitystrategy.GoodBadNucleotideSequenceProvider;
 import com.milaboratory.mitcr.vdjmapping.tree.CoreVJSegmentMapper;
+import com.milaboratory.mitcr.vdjmapping.tree.DualStrandCoreVJSegmentMapper;
+import com.milaboratory.mitcr.vdjmapping.tree.RangedCoreVJSegmentMapper;
 
 /**
  * Adapter to core segment mappers. Preprocesser read to good/bad markup before alignment
@@ -43,4 +45,36 @@ class VJSegmentsMapperAdapter<T> implements VJSegmentMapper<T> {
     public VJSegmentMappingResult map(T sequence) {
         return coreMapper.map(provider.process(sequence));
     }
+
+    /**
+     * Maps a read considering only hits with reference point inside the specified range. If core mapper doesn't
+     * support restricted search the whole read is mapped.
+     *
+     * @param sequence     read
+     * @param refPointFrom minimal position of reference point (inclusive)
+     * @param refPointTo   maximal position of reference point (inclusive)
+     * @return mapping result
+     */
+    public VJSegmentMappingResult map(T sequence, int refPointFrom, int refPointTo) {
+        if (coreMapper instanceof RangedCoreVJSegmentMapper)
+            return ((RangedCoreVJSegmentMapper) coreMapper).map(provider.process(sequence), refPointFrom, refPointTo);
+        return map(sequence);
+    }
+
+    /**
+     * Maps a read and its reverse complement, in a single pass if core mapper supports it.
+     *
+     * @param forward read
+     * @param reverse reverse complement of the read
+     * @param results array to put results to (forward strand result first)
+     */
+    public void mapBothStrands(T forward, T reverse, VJSegmentMappingResult[] results) {
+        if (coreMapper instanceof DualStrandCoreVJSegmentMapper)
+            ((DualStrandCoreVJSegmentMapper) coreMapper).mapBothStrands(provider.process(forward),
+                    provider.process(reverse), results);
+        else {
+            results[0] = map(forward);
+            results[1] = map(reverse);
+        }
+    }
 }
@@ -0,0 +1,41 @@
+/*
+ * MiTCR <http://milaboratory.com>
+ *
+ * Copyright (c) 2010-2013:
+ *     Bolotin Dmitriy     <bolotin.dmitriy@gmail.com>
+ *     Chudakov Dmitriy    <chudakovdm@mail.ru>
+ *
+ * MiTCR is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License as published by the Free
+ * Software Foundation, either version 3 of the License, or (at your option)
+ * any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU General Public License for
+ * more details.
+ *
+ * You should have received a copy of the GNU General Public License along
+ * with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.milaboratory.mitcr.vdjmapping.tree;
+
+import com.milaboratory.mitcr.qualitystrategy.GoodBadNucleotideSequence;
+import com.milaboratory.mitcr.vdjmapping.VJSegmentMappingResult;
+
+/**
+ * Internal interface of mappers able to map a read and its reverse complement in a single pass.
+ */
+public interface DualStrandCoreVJSegmentMapper extends CoreVJSegmentMapper {
+    /**
+     * Maps a read and its reverse complement. Results must be the same as returned by two calls of {@link
+     * #map(Object)}.
+     *
+     * @param forward read
+     * @param reverse reverse complement of the read
+     * @param results array to put results to: result for forward strand is put to the first element, result for
+     *                reverse complement strand to the second
+     */
+    void mapBothStrands(GoodBadNucleotideSequence forward, GoodBadNucleotideSequence reverse,
+                        VJSegmentMappingResult[] results);
+}
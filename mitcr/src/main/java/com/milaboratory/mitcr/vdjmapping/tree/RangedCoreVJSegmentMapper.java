@@ -0,0 +1,40 @@
+/*
+ * MiTCR <http://milaboratory.com>
+ *
+ * Copyright (c) 2010-2013:
+ *     Bolotin Dmitriy     <bolotin.dmitriy@gmail.com>
+ *     Chudakov Dmitriy    <chudakovdm@mail.ru>
+ *
+ * MiTCR is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License as published by the Free
+ * Software Foundation, either version 3 of the License, or (at your option)
+ * any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU General Public License for
+ * more details.
+ *
+ * You should have received a copy of the GNU General Public License along
+ * with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.milaboratory.mitcr.vdjmapping.tree;
+
+import com.milaboratory.mitcr.qualitystrategy.GoodBadNucleotideSequence;
+import com.milaboratory.mitcr.vdjmapping.VJSegmentMappingResult;
+
+/**
+ * Internal interface of mappers able to restrict search to a range of reference point positions.
+ */
+public interface RangedCoreVJSegmentMapper extends CoreVJSegmentMapper {
+    /**
+     * Maps a read considering only hits with reference point inside the specified range. Result must be the same as
+     * returned by {@link #map(Object)} for a read where all hits outside the range are absent.
+     *
+     * @param sequence     read
+     * @param refPointFrom minimal position of reference point (inclusive)
+     * @param refPointTo   maximal position of reference point (inclusive)
+     * @return mapping result
+     */
+    VJSegmentMappingResult map(GoodBadNucleotideSequence sequence, int refPointFrom, int refPointTo);
+}
@@ -137,19 +137,17 @@ public class STreeResultHolder {
         currentNodesList.clear();
         for (NTreeSlider<STree.Node> slider : sliders) {
             currentNodesList.add(slider.node);
-            for (int i = 0; i < width; ++i)
-                if (slider.node.barcode.get(i))
-                    alignmentsScore[i] = slider.goodSlides;
+            for (int i = slider.node.barcode.nextSetBit(0); i >= 0; i = slider.node.barcode.nextSetBit(i + 1))
+                alignmentsScore[i] = slider.goodSlides;
             if (slider.node.coord >= 0)
                 lastOccuredCoord[slider.node.coord] = size;
         }
         current.loadValueFrom(bitArray);
         current.xor(previous);
-        for (int i = 0; i < width; ++i)
-            if (current.get(i)) {
-                assert (alignmentsLengths[i] == -1);
-                alignmentsLengths[i] = size;
-            }
+        for (int i = current.nextSetBit(0); i >= 0; i = current.nextSetBit(i + 1)) {
+            assert (alignmentsLengths[i] == -1);
+            alignmentsLengths[i] = size;
+        }
         current.loadValueFrom(bitArray);
         size++;
     }
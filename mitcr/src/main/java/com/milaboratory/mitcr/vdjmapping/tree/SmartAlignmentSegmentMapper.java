@@ -36,6 +36,7 @@ import java.util.concurrent.atomic.AtomicInteger;
 public final class SmartAlignmentSegmentMapper implements CoreVJSegmentMapper {
     private final OneDirectionSegmentMapper innerMapper;
     private final OneSideAligner oneSideAligner;
+    private final OneSideAligner.State oneSideAlignerState;
     private final int minLength;
     private AtomicInteger counter = null;
 
@@ -52,6 +53,7 @@ public final class SmartAlignmentSegmentMapper implements CoreVJSegmentMapper {
             throw new RuntimeException();
         offset -= group.getGroup().getType().cdr3Site();
         oneSideAligner = null; //new OneSideAligner(group, -group.getGroup().getType().cdr3Site(), offset, 0);
+        oneSideAlignerState = null; //oneSideAligner.createState();
     }
 
     @Override
@@ -60,13 +62,13 @@ public final class SmartAlignmentSegmentMapper implements CoreVJSegmentMapper {
         if (result == null)
             return null;
         BitArray oneSideBa = null; //oneSideAligner.build(sequence, result.getRefPoint());
-        if (result.getScore() + oneSideAligner.getLastScore() < minLength)
+        if (result.getScore() + oneSideAlignerState.getLastScore() < minLength)
             return null;
 
         if (!result.getBarcode().intersects(oneSideBa))
             oneSideBa = null; // oneSideAligner.build(result.getBarcode(), sequence, result.getRefPoint());
 
-        if (result.getScore() + oneSideAligner.getLastScore() < minLength)
+        if (result.getScore() + oneSideAlignerState.getLastScore() < minLength)
             return null;
 
         result.getBarcode().and(oneSideBa);
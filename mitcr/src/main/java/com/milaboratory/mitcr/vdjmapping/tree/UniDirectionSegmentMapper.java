@@ -24,6 +24,7 @@ import com.milaboratory.core.segment.Allele;
 import com.milaboratory.core.segment.SegmentGroupContainer;
 import com.milaboratory.core.sequence.motif.NucleotideMotif;
 import com.milaboratory.core.sequence.motif.NucleotideMotifBuilder;
+import com.milaboratory.core.sequence.motif.NucleotideMotifMatcher;
 import com.milaboratory.core.sequence.nucleotide.NucleotideSequence;
 import com.milaboratory.mitcr.qualitystrategy.GBNSNucleotideInfoProvider;
 import com.milaboratory.mitcr.qualitystrategy.GoodBadNucleotideSequence;
@@ -47,6 +48,9 @@ public final class UniDirectionSegmentMapper implements CoreVJSegmentMapper {
     private final int mandatoryFrom, mandatoryTo;
     private final int[] scores, permutation;
     private final NucleotideMotif motif;
+    //Bit-parallel early termination filter (null for too long mandatory regions)
+    private final NucleotideMotifMatcher matcher;
+    private final NucleotideMotifMatcher.State matcherState;
     private final int reference;
     private final boolean improved = false;
     //private AtomicInteger counter = null;
@@ -107,6 +111,13 @@ public final class UniDirectionSegmentMapper implements CoreVJSegmentMapper {
                 builder.set(i, sequence.codeAt(position++));
         }
         this.motif = builder.build();
+        if (NucleotideMotifMatcher.isSupported(motif)) {
+            this.matcher = new NucleotideMotifMatcher(motif, 1);
+            this.matcherState = matcher.createState();
+        } else {
+            this.matcher = null;
+            this.matcherState = null;
+        }
     }
 
     @Override
@@ -121,15 +132,26 @@ public final class UniDirectionSegmentMapper implements CoreVJSegmentMapper {
                 reverseInfoProvider = new GBNSNucleotideInfoProvider(sequence, -1);
         BitArray barcode = new BitArray(treeForward.getGroup().getAllelesCount());
 
+        if (matcher != null) {
+            matcherState.reset();
+            for (int i = 0; i < mandatoryRegionLength - 1 && i < sequence.size(); ++i)
+                matcher.next(matcherState, sequence.codeAt(i));
+        }
+
         int mm;
         OUTER:
         for (int position = 0; position < cTo; ++position) {
             //Early termination
-            mm = 0;
-            for (int i = 0; i < motif.size(); ++i)
-                if (!motif.get(i, sequence.codeAt(position + i)))
-                    if (++mm == 2)
-                        continue OUTER;
+            if (matcher != null) {
+                if (matcher.next(matcherState, sequence.codeAt(position + mandatoryRegionLength - 1)) >= 2)
+                    continue;
+            } else {
+                mm = 0;
+                for (int i = 0; i < motif.size(); ++i)
+                    if (!motif.get(i, sequence.codeAt(position + i)))
+                        if (++mm == 2)
+                            continue OUTER;
+            }
 
             reverseInfoProvider.resetPosition(position);
             treeReverse.performSearch(reverseInfoProvider, resultReverse);
@@ -0,0 +1,99 @@
+/*
+ * MiTCR <http://milaboratory.com>
+ *
+ * Copyright (c) 2010-2013:
+ *     Bolotin Dmitriy     <bolotin.dmitriy@gmail.com>
+ *     Chudakov Dmitriy    <chudakovdm@mail.ru>
+ *
+ * MiTCR is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License as published by the Free
+ * Software Foundation, either version 3 of the License, or (at your option)
+ * any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU General Public License for
+ * more details.
+ *
+ * You should have received a copy of the GNU General Public License along
+ * with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.milaboratory.mitcr.vdjmapping.trivial;
+
+import gnu.trove.iterator.TIntObjectIterator;
+import gnu.trove.map.TIntObjectMap;
+
+/**
+ * Immutable map from k-mers (two bits per nucleotide) to objects, optimized for lookups.
+ *
+ * <p>Short k-mers are used directly as indices in array of 4^k elements, so lookup is a single array load. For longer
+ * k-mers (direct table would take several megabytes) open addressing table with linear probing and load factor not
+ * greater than 0.5 is used.</p>
+ *
+ * @param <T> value type
+ * @author Bolotin Dmitriy (bolotin.dmitriy@gmail.com)
+ */
+public final class KmerTable<T> {
+    /**
+     * Max length of k-mers stored in direct-address table (4^8 = 65536 elements).
+     */
+    public static final int MAX_DIRECT_KMER_LENGTH = 8;
+    //Null for direct-address table
+    private final int[] keys;
+    private final Object[] values;
+    private final int mask, shift;
+
+    public KmerTable(int kmerLength, TIntObjectMap<T> map) {
+        TIntObjectIterator<T> iterator;
+        if (kmerLength <= MAX_DIRECT_KMER_LENGTH) {
+            this.keys = null;
+            this.values = new Object[1 << (2 * kmerLength)];
+            this.mask = values.length - 1;
+            this.shift = 0;
+            for (iterator = map.iterator(); iterator.hasNext(); ) {
+                iterator.advance();
+                values[iterator.key()] = iterator.value();
+            }
+        } else {
+            int capacity = Integer.highestOneBit(java.lang.Math.max(map.size(), 1)) << 2;
+            this.keys = new int[capacity];
+            this.values = new Object[capacity];
+            this.mask = capacity - 1;
+            this.shift = 32 - Integer.numberOfTrailingZeros(capacity);
+            int index;
+            for (iterator = map.iterator(); iterator.hasNext(); ) {
+                iterator.advance();
+                index = index(iterator.key());
+                while (values[index] != null)
+                    index = (index + 1) & mask;
+                keys[index] = iterator.key();
+                values[index] = iterator.value();
+            }
+        }
+    }
+
+    private int index(int kmer) {
+        //Fibonacci hashing
+        return (kmer * 0x9E3779B9) >>> shift;
+    }
+
+    /**
+     * Returns value for k-mer or null if there is no such k-mer in table.
+     *
+     * @param kmer k-mer
+     * @return value or null
+     */
+    @SuppressWarnings("unchecked")
+    public T get(int kmer) {
+        if (keys == null)
+            return (T) values[kmer];
+        int index = index(kmer);
+        Object value;
+        while ((value = values[index]) != null) {
+            if (keys[index] == kmer)
+                return (T) value;
+            index = (index + 1) & mask;
+        }
+        return null;
+    }
+}
@@ -31,6 +31,14 @@ import java.util.Arrays;
 /**
  * Continues alignment till the end of the sequence
  *
+ * <p>Alleles are raced in bit-parallel manner: for each position relative to the reference point and each nucleotide
+ * a mask of alleles having this nucleotide at this position is precomputed, so matching alleles are found with one
+ * word operation per 64 alleles. Scores are stored relative to the score of an allele that mismatches at every
+ * position, so only matching alleles need individual updates.</p>
+ *
+ * <p>Aligner is immutable and can be shared between threads. All mutable data (scores, race state and alignment
+ * borders) is kept in {@link State}, which must not be shared.</p>
+ *
  * @author Bolotin Dmitriy (bolotin.dmitriy@gmail.com)
  * @author Shugay Mikhail (mikhail.shugay@gmail.com)
  */
@@ -42,9 +50,10 @@ public final class OneSideAligner {
     private final Allele[] alleles;
     private final int offset;
     private final int tolerance;
-    private final int[] cache;
-    private int lastScore;
-    private int lastMatch, lastForwardMatch, lastBackwardMatch;
+    //Match masks: word w of mask for position coord (relative to reference point) and nucleotide nuc has index
+    //((coord - minCoord) * 4 + nuc) * words + w; bit i is set if alleles[i] has nuc at coord
+    private final long[] matchMasks;
+    private final int words, minCoord, maxCoord;
 
     public OneSideAligner(SegmentGroupContainer group, Allele[] alleles, int offset, int tolerance,
                           int goodCost, int badCost) {
@@ -52,36 +61,58 @@ public final class OneSideAligner {
         this.group = group;
         this.offset = offset;
         this.tolerance = tolerance;
-        this.cache = new int[alleles.length];
         this.goodCost = goodCost;
         this.badCost = badCost;
+
+        //Building match masks
+        int minCoord = Integer.MAX_VALUE, maxCoord = Integer.MIN_VALUE;
+        for (Allele allele : alleles) {
+            minCoord = Math.min(minCoord, -allele.getReferencePointPosition());
+            maxCoord = Math.max(maxCoord, allele.getSequence().size() - allele.getReferencePointPosition() - 1);
+        }
+        this.minCoord = minCoord;
+        this.maxCoord = maxCoord;
+        this.words = (alleles.length + 63) >> 6;
+        this.matchMasks = new long[minCoord > maxCoord ? 0 : (maxCoord - minCoord + 1) * 4 * words];
+        Allele allele;
+        for (int i = 0; i < alleles.length; ++i) {
+            allele = alleles[i];
+            for (int alleleCoord = 0; alleleCoord < allele.getSequence().size(); ++alleleCoord)
+                matchMasks[((alleleCoord - allele.getReferencePointPosition() - minCoord) * 4
+                        + allele.getSequence().codeAt(alleleCoord)) * words + (i >> 6)] |= 1L << i;
+        }
     }
 
-    public int getLastScore() {
-        return lastScore;
+    /**
+     * Creates scratch state for this aligner.
+     *
+     * @return scratch state
+     */
+    public State createState() {
+        return new State(alleles.length);
     }
 
-    public OneSideAlignmentResult buildResult(GoodBadNucleotideSequence sequence, int refPoint,
+    public OneSideAlignmentResult buildResult(State state, GoodBadNucleotideSequence sequence, int refPoint,
                                               int alignmentDirection) {
-        final BitArray set = build(sequence, refPoint, alignmentDirection);
+        final BitArray set = build(state, sequence, refPoint, alignmentDirection);
         int startPoint = refPoint + getCorrectedOffset(alignmentDirection);
         if (alignmentDirection == +1)
-            return new OneSideAlignmentResult(refPoint, startPoint, lastMatch, startPoint,
+            return new OneSideAlignmentResult(refPoint, startPoint, state.lastMatch, startPoint,
                     determineContinuousBorder(set, sequence, refPoint, alignmentDirection),
-                    lastScore, set);
+                    state.lastScore, set);
         else if (alignmentDirection == -1)
-            return new OneSideAlignmentResult(refPoint, lastMatch, startPoint, determineContinuousBorder(set, sequence,
-                    refPoint, alignmentDirection), startPoint,
-                    lastScore, set);
+            return new OneSideAlignmentResult(refPoint, state.lastMatch, startPoint, determineContinuousBorder(set,
+                    sequence, refPoint, alignmentDirection), startPoint,
+                    state.lastScore, set);
         else
             throw new RuntimeException();
     }
 
-    public BitArray build(GoodBadNucleotideSequence sequence, int refPoint,
+    public BitArray build(State state, GoodBadNucleotideSequence sequence, int refPoint,
                           int alignmentDirection) {
-        int[] score = cache;
+        int[] score = state.score;
         Arrays.fill(score, INITIAL_SCORE);
-        return build(score, sequence, refPoint, alignmentDirection);
+        return build(state, score, sequence, refPoint, alignmentDirection);
     }
 
     /*public BitArray build(BitArray initialBa, GoodBadNucleotideSequence sequence, int refPoint,
@@ -93,63 +124,63 @@ public final class OneSideAligner {
         return build(score, sequence, refPoint, alignmentDirection);
     }*/
 
-    public OneSideAlignmentResult doubleSidedAlignmentResult(GoodBadNucleotideSequence sequence, int refPoint,
-                                                             int masterAlignmentDirection) {
-        final BitArray set = doubleSidedAlignment(sequence, refPoint, masterAlignmentDirection);
-        return new OneSideAlignmentResult(refPoint, lastBackwardMatch, lastForwardMatch,
+    public OneSideAlignmentResult doubleSidedAlignmentResult(State state, GoodBadNucleotideSequence sequence,
+                                                             int refPoint, int masterAlignmentDirection) {
+        final BitArray set = doubleSidedAlignment(state, sequence, refPoint, masterAlignmentDirection);
+        return new OneSideAlignmentResult(refPoint, state.lastBackwardMatch, state.lastForwardMatch,
                 determineContinuousBorder(set, sequence, refPoint, -1),
                 determineContinuousBorder(set, sequence, refPoint, +1),
-                lastScore, set);
+                state.lastScore, set);
     }
 
-    public BitArray doubleSidedAlignment(GoodBadNucleotideSequence sequence, int refPoint,
+    public BitArray doubleSidedAlignment(State state, GoodBadNucleotideSequence sequence, int refPoint,
                                          int masterAlignmentDirection) {
         //Initializing scores
-        int[] score = cache;
+        int[] score = state.score;
         Arrays.fill(score, INITIAL_SCORE);
 
         //Forward pass (outside CDR3)
-        buildScores(score, sequence, refPoint, masterAlignmentDirection);
+        buildScores(state, score, sequence, refPoint, masterAlignmentDirection);
 
         //Saving alignment-driven border
         if (masterAlignmentDirection == -1)
-            lastBackwardMatch = lastMatch;
+            state.lastBackwardMatch = state.lastMatch;
         else
-            lastForwardMatch = lastMatch;
+            state.lastForwardMatch = state.lastMatch;
 
         //Backward pass (inside CDR3)
-        buildScores(score, sequence, refPoint, -masterAlignmentDirection);
+        buildScores(state, score, sequence, refPoint, -masterAlignmentDirection);
 
         //Saving alignment-driven border
         if (masterAlignmentDirection == 1)
-            lastBackwardMatch = lastMatch;
+            state.lastBackwardMatch = state.lastMatch;
         else
-            lastForwardMatch = lastMatch;
+            state.lastForwardMatch = state.lastMatch;
 
         //Creating result
         BitArray ba = new BitArray(group.getAllelesCount());
-        for (int i = 0; i < score.length; ++i)
+        for (int i = 0; i < alleles.length; ++i)
             if (score[i] >= 0)
                 ba.set(alleles[i].getIndex());
 
         return ba;
     }
 
-    public BitArray build(int[] score, GoodBadNucleotideSequence sequence, int refPoint,
+    public BitArray build(State state, int[] score, GoodBadNucleotideSequence sequence, int refPoint,
                           int alignmentDirection) {
         //SegmentGroupContainer group = this.group; //for performance
-        buildScores(score, sequence, refPoint, alignmentDirection);
+        buildScores(state, score, sequence, refPoint, alignmentDirection);
         BitArray ba = new BitArray(group.getAllelesCount());
-        for (int i = 0; i < score.length; ++i)
+        for (int i = 0; i < alleles.length; ++i)
             if (score[i] >= 0)
                 ba.set(alleles[i].getIndex());
         int startPoint = refPoint + getCorrectedOffset(alignmentDirection);
         if (alignmentDirection == -1) {
-            lastForwardMatch = startPoint;
-            lastBackwardMatch = lastMatch;
+            state.lastForwardMatch = startPoint;
+            state.lastBackwardMatch = state.lastMatch;
         } else {
-            lastForwardMatch = lastMatch;
-            lastBackwardMatch = startPoint;
+            state.lastForwardMatch = state.lastMatch;
+            state.lastBackwardMatch = startPoint;
         }
         return ba;
     }
@@ -157,25 +188,36 @@ public final class OneSideAligner {
     /**
      * Performs a race between alleles.
      *
-     * @param score    initial score
+     * @param state    scratch state, receives score and last match position
+     * @param score    initial score (only first {@code getAlleles().length} elements are used)
      * @param sequence sequence
      * @param refPoint reference point in sequence coords
      */
-    public void buildScores(int[] score, GoodBadNucleotideSequence sequence, int refPoint,
+    public void buildScores(State state, int[] score, GoodBadNucleotideSequence sequence, int refPoint,
                             int alignmentDirection) {
-        final Allele[] alleles = this.alleles;
+        if (score.length < alleles.length || state.active.length < words)
+            throw new IllegalArgumentException("Score array or state is too small for this aligner.");
+        final long[] active = state.active, matchMasks = this.matchMasks;
+        final int words = this.words;
         byte nuc;
-        boolean isBad;
-        int i, alleleCoord;
-        Allele allele;
+        int i, w, cost, maskOffset, current;
+        long hits, word;
         //This variable is always positive
         //At the end of the race (coordinate iteration) it contains maximum seen score
         int maxScore = 0;
         //Calculating initial max score
         //If run is initial maxScore == INITIAL_SCORE
-        for (int s : score)
-            if (maxScore < s)
-                maxScore = s;
+        for (i = 0; i < alleles.length; ++i)
+            if (maxScore < score[i])
+                maxScore = score[i];
+
+        //During the race score[i] + base is the real score of i-th allele, where base is the sum of penalties
+        //for all passed positions
+        int base = 0;
+        Arrays.fill(active, 0, words, 0);
+        for (i = 0; i < alleles.length; ++i)
+            if (score[i] >= 0)
+                active[i >> 6] |= 1L << i;
 
         //Flag to catch end of iteration
         boolean positivesExists = true,
@@ -190,57 +232,71 @@ public final class OneSideAligner {
 
             //Sequence nucleotide
             nuc = sequence.codeAt(coord + refPoint);
-            isBad = sequence.isBad(coord + refPoint);
+            cost = sequence.isBad(coord + refPoint) ? badCost : goodCost;
 
             //Clear flag
             positivesExists = false;
             recalculatePositivesExists = false;
 
-            //Iteration through alleles
-            for (i = 0; i < alleles.length; ++i) {
-                //If this allele lose race it gets additional penalty for each
-                //iteration where somebody collects points
-                if (score[i] < 0) {
-                    score[i] -= isBad ? badCost : goodCost;
-                    continue;
-                }
+            //Everybody gets penalty (alleles that lose race get additional penalty for each iteration where
+            //somebody collects points), matching alleles get 2 * cost back
+            base -= cost;
 
-                //There are alleles in the play!
-                positivesExists = true;
-                allele = alleles[i];
-
-                //Coord in allele
-                alleleCoord = allele.getReferencePointPosition() + coord;
-                if ((alleleCoord >= 0 && alleleCoord < allele.getSequence().size()) &&
-                        (nuc == allele.getSequence().codeAt(alleleCoord))) {
-                    lastMatch = coord + refPoint;
-                    score[i] += isBad ? badCost : goodCost; //Nucleotide match!
-                } else
-                    score[i] -= isBad ? badCost : goodCost; //Mismatch!
-
-                //Increasing max score
-                if (maxScore < score[i])
-                    maxScore = score[i];
-            }
+            for (w = 0; w < words; ++w)
+                if (active[w] != 0) {
+                    //There are alleles in the play!
+                    positivesExists = true;
+                    break;
+                }
 
             //If all alleles lose
             if (!positivesExists)
                 break;
 
-            //Some alleles are totally behind others
-            for (i = 0; i < alleles.length; ++i)
-                if (score[i] >= 0 && maxScore - MAX_LAG > score[i]) {
-                    score[i] = -1; //This one looses.
-                    recalculatePositivesExists = true;
+            //Nucleotide match!
+            if (coord >= minCoord && coord <= maxCoord) {
+                maskOffset = ((coord - minCoord) * 4 + nuc) * words;
+                for (w = 0; w < words; ++w) {
+                    hits = active[w] & matchMasks[maskOffset + w];
+                    if (hits != 0)
+                        lastMatch = coord + refPoint;
+                    for (; hits != 0; hits &= hits - 1) {
+                        i = (w << 6) + Long.numberOfTrailingZeros(hits);
+                        score[i] += 2 * cost;
+                        //Increasing max score
+                        if (maxScore < (current = score[i] + base))
+                            maxScore = current;
+                    }
+                }
+            }
+
+            for (w = 0; w < words; ++w)
+                for (word = active[w]; word != 0; word &= word - 1) {
+                    i = (w << 6) + Long.numberOfTrailingZeros(word);
+                    current = score[i] + base;
+                    if (current < 0)
+                        //Lost race by mismatches
+                        active[w] &= ~(1L << i);
+                    else if (maxScore - MAX_LAG > current) {
+                        //Some alleles are totally behind others
+                        score[i] = -1 - base; //This one looses.
+                        active[w] &= ~(1L << i);
+                        recalculatePositivesExists = true;
+                    }
                 }
         }
+
+        //Real scores
+        for (i = 0; i < alleles.length; ++i)
+            score[i] += base;
+
         //Race finished.
 
         //Very rare event
         if (recalculatePositivesExists) {
             positivesExists = false;
-            for (int s : score)
-                if (s > 0) {
+            for (i = 0; i < alleles.length; ++i)
+                if (score[i] > 0) {
                     positivesExists = true;
                     break;
                 }
@@ -250,9 +306,9 @@ public final class OneSideAligner {
             //Reward:
             //Calculate rewardAmount
             int rewardAmount = Integer.MIN_VALUE;
-            for (int s : score)
-                if (rewardAmount < s)
-                    rewardAmount = s;
+            for (i = 0; i < alleles.length; ++i)
+                if (rewardAmount < score[i])
+                    rewardAmount = score[i];
             rewardAmount = maxScore - rewardAmount;
 
             for (i = 0; i < alleles.length; ++i)
@@ -271,25 +327,13 @@ public final class OneSideAligner {
         //Subtracting tolerance.
         treshold -= tolerance;
 
-        for (i = 0; i < score.length; ++i) {
+        for (i = 0; i < alleles.length; ++i) {
             if (score[i] < treshold && score[i] >= 0) //Positive, but not enough
                 score[i] -= maxScore;
         }
 
-        lastScore = maxScore;
-        this.lastMatch = lastMatch;
-    }
-
-    public int getLastMatch() {
-        return lastMatch;
-    }
-
-    public int getLastForwardMatch() {
-        return lastForwardMatch;
-    }
-
-    public int getLastBackwardMatch() {
-        return lastBackwardMatch;
+        state.lastScore = maxScore;
+        state.lastMatch = lastMatch;
     }
 
     public Allele[] getAlleles() {
@@ -353,4 +397,42 @@ public final class OneSideAligner {
 
         return border + refPoint - alignmentDirection;
     }
-}
\ No newline at end of file
+
+    /**
+     * Scratch state of aligners. One state can be used with any aligner with not more alleles than the state was
+     * created for. State must be used by one thread at a time.
+     */
+    public static final class State {
+        final int[] score;
+        //Alleles still in the race
+        final long[] active;
+        int lastScore;
+        int lastMatch, lastForwardMatch, lastBackwardMatch;
+
+        /**
+         * Creates scratch state.
+         *
+         * @param maxAlleles max number of alleles in aligners this state will be used with
+         */
+        public State(int maxAlleles) {
+            this.score = new int[maxAlleles];
+            this.active = new long[(maxAlleles + 63) >> 6];
+        }
+
+        public int getLastScore() {
+            return lastScore;
+        }
+
+        public int getLastMatch() {
+            return lastMatch;
+        }
+
+        public int getLastForwardMatch() {
+            return lastForwardMatch;
+        }
+
+        public int getLastBackwardMatch() {
+            return lastBackwardMatch;
+        }
+    }
+}
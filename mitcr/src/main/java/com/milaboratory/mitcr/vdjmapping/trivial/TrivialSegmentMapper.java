@@ -27,8 +27,8 @@ import com.milaboratory.mitcr.qualitystrategy.GoodBadNucleotideSequence;
 import com.milaboratory.mitcr.vdjmapping.AlignmentDirection;
 import com.milaboratory.mitcr.vdjmapping.VJMapperListener;
 import com.milaboratory.mitcr.vdjmapping.VJSegmentMappingResult;
-import com.milaboratory.mitcr.vdjmapping.tree.CoreVJSegmentMapper;
-import com.milaboratory.util.BitArray;
+import com.milaboratory.mitcr.vdjmapping.tree.DualStrandCoreVJSegmentMapper;
+import com.milaboratory.mitcr.vdjmapping.tree.RangedCoreVJSegmentMapper;
 import gnu.trove.iterator.TIntObjectIterator;
 import gnu.trove.map.TIntObjectMap;
 import gnu.trove.map.hash.TIntObjectHashMap;
@@ -37,9 +37,18 @@ import java.util.ArrayList;
 import java.util.List;
 
 /**
- * A mapper that searches for segment's reference point by sliding with a short seed region
+ * A mapper that searches for segment's reference point by sliding with a short seed region.
+ *
+ * <p>Seeds are looked up in a {@link KmerTable}. Forward and reverse complement seeds are rolled simultaneously, so
+ * both strands of a read are seeded in a single pass (see {@link #mapBothStrands(GoodBadNucleotideSequence,
+ * GoodBadNucleotideSequence, VJSegmentMappingResult[])}). Search can also be restricted to a range of reference
+ * point positions (see {@link #map(GoodBadNucleotideSequence, int, int)}), only seeds inside the range are looked
+ * up.</p>
+ *
+ * <p>Seed table and aligners are stored in immutable {@link Index}, which can be shared between threads. Mapper itself
+ * holds only scratch state and must be used by one thread at a time.</p>
  */
-public final class TrivialSegmentMapper implements CoreVJSegmentMapper {
+public final class TrivialSegmentMapper implements DualStrandCoreVJSegmentMapper, RangedCoreVJSegmentMapper {
     private final int mandatoryFrom, mandatoryRegionLength;
     private final int minLength;
     private final int lengthTolerance;
@@ -48,7 +57,10 @@ public final class TrivialSegmentMapper implements CoreVJSegmentMapper {
     private final SegmentGroupContainer container;
     private final VJMapperListener listener;
     //Map from nmer to aligners
-    private final TIntObjectMap<OneSideAligner> alleles;
+    private final KmerTable<OneSideAligner> alleles;
+    private final Index index;
+    //Scratch state for aligners
+    private final OneSideAligner.State state;
 
     /**
      * Creates uni-direction segment mapper.
@@ -84,113 +96,173 @@ public final class TrivialSegmentMapper implements CoreVJSegmentMapper {
                                 int mandatoryTo, int minLength, int lengthTolerance,
                                 AlignmentDirection direction,
                                 VJMapperListener listener) {
-        if (group == null)
-            throw new NullPointerException();
-
-        if (direction != AlignmentDirection.Both && direction != AlignmentDirection.InsideCDR3 && direction != AlignmentDirection.OutsideCDR3)
-            throw new IllegalArgumentException();
-
-        if (mandatoryFrom > mandatoryTo)
-            throw new IllegalArgumentException();
-
-        if (lengthTolerance < 0)
-            throw new IllegalArgumentException("LengthTolerance must be positive.");
+        this(new Index(group, mandatoryFrom, mandatoryTo, minLength, lengthTolerance, direction), listener);
+    }
 
-        this.container = group;
-        this.segmentDirection = group.getGroup().getType().cdr3Site();
-        this.direction = direction;
+    /**
+     * Creates segment mapper using prebuilt index. Creation of mapper from index is cheap, so each thread should use
+     * its own mapper created from shared index.
+     *
+     * @param index    index
+     * @param listener listener
+     */
+    public TrivialSegmentMapper(Index index, VJMapperListener listener) {
+        this.index = index;
+        this.container = index.container;
+        this.segmentDirection = index.segmentDirection;
+        this.direction = index.direction;
+        this.minLength = index.minLength;
+        this.lengthTolerance = index.lengthTolerance;
+        this.mandatoryRegionLength = index.mandatoryRegionLength;
+        this.mandatoryFrom = index.mandatoryFrom;
+        this.alleles = index.alleles;
         this.listener = listener;
-        //this.scores = new int[group.getAllelesCount()];
-        //this.permutation = new int[group.getAllelesCount()];
-        this.minLength = minLength;
-        this.lengthTolerance = lengthTolerance;
-        this.mandatoryRegionLength = mandatoryTo - mandatoryFrom + 1;
-        if (this.mandatoryRegionLength <= 3)
-            throw new IllegalArgumentException("Too short mandatory region.");
-        if (this.mandatoryRegionLength >= 12)
-            throw new IllegalArgumentException("Mandatory region is too long.");
-        this.mandatoryFrom = mandatoryFrom;
-        //Building map
-        TIntObjectMap<List<Allele>> preMap = new TIntObjectHashMap<>();
-        List<Allele> list;
-        NucleotideSequence sequence;
-        int position, kMer;
-        for (Allele allele : group.getAllelesList()) {
-            sequence = allele.getSequence();
-            kMer = 0;
-            for (position = mandatoryFrom; position <= mandatoryTo; ++position)
-                kMer = (kMer << 2) |
-                        (0x3 & sequence.codeAt(position + allele.getReferencePointPosition()));
-
-            if ((list = preMap.get(kMer)) == null)
-                preMap.put(kMer, list = new ArrayList<>());
-            list.add(allele);
-        }
-
-        TIntObjectMap<OneSideAligner> map = new TIntObjectHashMap<>();
-        for (TIntObjectIterator<List<Allele>> iterator = preMap.iterator();
-             iterator.hasNext(); ) {
-            iterator.advance();
-            map.put(iterator.key(),
-                    createAligner(iterator.value().toArray(new Allele[iterator.value().size()])));
-            //new OneSideAligner(group,
-            //       iterator.value().toArray(new Allele[iterator.value().size()]),
-            //        -2 * segmentDirection, lengthTolerance * 2, 2, 1));
-        }
+        this.state = new OneSideAligner.State(index.maxAlleles);
+    }
 
-        alleles = map;
+    /**
+     * Returns index used by this mapper.
+     *
+     * @return index used by this mapper
+     */
+    public Index getIndex() {
+        return index;
     }
 
-    public OneSideAligner createAligner(Allele[] alleles) {
-        if (direction == AlignmentDirection.Both)
-            return new OneSideAligner(container,
-                    alleles,
-                    -2 * segmentDirection, lengthTolerance * 2, 2, 1); //Alignment offset set to the central nucleotide in Cys/Phe codone
-        else {
-            return new OneSideAligner(container,
-                    alleles,
-                    direction.getDirectionFactor() * segmentDirection == 1 ? mandatoryFrom : mandatoryFrom + mandatoryRegionLength, //no -1 !!!
-                    lengthTolerance * 2, 2, 1);
-        }
+    /**
+     * Returns seed k-mer (mandatory region of the allele packed into int, two bits per nucleotide, first nucleotide in
+     * the highest bits) used to search for the allele.
+     *
+     * @param allele        allele
+     * @param mandatoryFrom position of first nucleotide of the mandatory region, relative to reference point
+     * @param mandatoryTo   position of last nucleotide of the mandatory region, relative to reference point
+     * @return seed k-mer
+     */
+    public static int getSeed(Allele allele, int mandatoryFrom, int mandatoryTo) {
+        final NucleotideSequence sequence = allele.getSequence();
+        int kMer = 0;
+        for (int position = mandatoryFrom; position <= mandatoryTo; ++position)
+            kMer = (kMer << 2) |
+                    (0x3 & sequence.codeAt(position + allele.getReferencePointPosition()));
+        return kMer;
     }
 
     @Override
     public VJSegmentMappingResult map(GoodBadNucleotideSequence sequence) {
-        final int cTo = sequence.size();
+        return mapPositions(sequence, mandatoryRegionLength - 1, sequence.size());
+    }
+
+    @Override
+    public VJSegmentMappingResult map(GoodBadNucleotideSequence sequence, int refPointFrom, int refPointTo) {
+        //Seed ending at position corresponds to reference point at position - mandatoryRegionLength - mandatoryFrom + 1
+        final long shift = mandatoryRegionLength + mandatoryFrom - 1;
+        return mapPositions(sequence,
+                (int) Math.max(mandatoryRegionLength - 1, refPointFrom + shift),
+                (int) Math.min(sequence.size(), refPointTo + shift + 1));
+    }
+
+    /**
+     * Maps a read using seeds ending at positions from the specified range.
+     *
+     * @param sequence     read
+     * @param positionFrom position of last nucleotide of the first seed (inclusive), must be not less than {@code
+     *                     mandatoryRegionLength - 1}
+     * @param positionTo   position of last nucleotide of the last seed (exclusive)
+     * @return mapping result
+     */
+    private VJSegmentMappingResult mapPositions(GoodBadNucleotideSequence sequence, int positionFrom, int positionTo) {
         VJSegmentMappingResult mappingResult = null;
-        //int maxScore = -1;
+        OneSideAlignmentResult result;
 
         final int mask = 0xFFFFFFFF >>> (32 - mandatoryRegionLength * 2);
         int kmer = 0;
-        int position;
+        int position, refPoint;
+
+        if (positionFrom < positionTo) {
+            //Prepare kMer
+            for (position = positionFrom - mandatoryRegionLength + 1; position < positionFrom; ++position)
+                kmer = mask & ((kmer << 2) | sequence.codeAt(position));
+
+            OneSideAligner candidates;
+            for (; position < positionTo; ++position) {
+                //Calculating kMer for the next position
+                kmer = mask & ((kmer << 2) | sequence.codeAt(position));
+
+                if ((candidates = alleles.get(kmer)) != null) {
+                    refPoint = position - mandatoryRegionLength - mandatoryFrom + 1;
+                    result = align(candidates, sequence, refPoint);
+                    if (mappingResult == null || mappingResult.getScore() < result.score)
+                        mappingResult = createResult(result, refPoint);
+                }
+            }
+        }
 
-        //Prepare kMer
-        for (position = 0; position < mandatoryRegionLength - 1; ++position)
-            kmer = mask & ((kmer << 2) | sequence.codeAt(position));
+        return finish(mappingResult, sequence);
+    }
 
-        BitArray possibleSegments;
+    @Override
+    public void mapBothStrands(GoodBadNucleotideSequence forward, GoodBadNucleotideSequence reverse,
+                               VJSegmentMappingResult[] results) {
+        final int cTo = forward.size();
+        if (reverse.size() != cTo)
+            throw new IllegalArgumentException();
+        VJSegmentMappingResult forwardResult = null, reverseResult = null;
         OneSideAlignmentResult result;
-        int refPoint;
-        //int from, to;
+
+        final int mask = 0xFFFFFFFF >>> (32 - mandatoryRegionLength * 2);
+        final int rcShift = 2 * (mandatoryRegionLength - 1);
+        int kmer = 0, rcKmer = 0, code;
+        int position, refPoint;
+
+        //Prepare kMers. Reverse complement k-mer is a k-mer of reverse strand starting at position
+        //cTo - 1 - position of reverse strand.
+        for (position = 0; position < mandatoryRegionLength - 1; ++position) {
+            code = forward.codeAt(position);
+            kmer = mask & ((kmer << 2) | code);
+            rcKmer = (rcKmer >>> 2) | ((3 ^ code) << rcShift);
+        }
+
         OneSideAligner candidates;
         for (; position < cTo; ++position) {
-            //Calculating kMer for the next position
-            kmer = mask & ((kmer << 2) | sequence.codeAt(position));
+            code = forward.codeAt(position);
+            kmer = mask & ((kmer << 2) | code);
+            rcKmer = (rcKmer >>> 2) | ((3 ^ code) << rcShift);
 
             if ((candidates = alleles.get(kmer)) != null) {
                 refPoint = position - mandatoryRegionLength - mandatoryFrom + 1;
-                if (direction == AlignmentDirection.Both)
-                    result = candidates.doubleSidedAlignmentResult(sequence, refPoint, -1 * segmentDirection); //Firstly align part that is outside CDR3
-                else
-                    result = candidates.buildResult(sequence, refPoint, direction.getDirectionFactor() * segmentDirection);
-
-                if (mappingResult == null || mappingResult.getScore() < result.score)
-                    mappingResult = new VJSegmentMappingResult(result.possibleSegments, container,
-                            refPoint, result.continuousAlignmentFrom, result.continuousAlignmentTo,
-                            result.score);
+                result = align(candidates, forward, refPoint);
+                if (forwardResult == null || forwardResult.getScore() < result.score)
+                    forwardResult = createResult(result, refPoint);
+            }
+
+            if ((candidates = alleles.get(rcKmer)) != null) {
+                refPoint = cTo - 1 - position - mandatoryFrom;
+                result = align(candidates, reverse, refPoint);
+                //Reverse strand positions are visited in descending order, so "<=" selects the same result as
+                //forward pass over reverse strand with "<"
+                if (reverseResult == null || reverseResult.getScore() <= result.score)
+                    reverseResult = createResult(result, refPoint);
             }
         }
 
+        results[0] = finish(forwardResult, forward);
+        results[1] = finish(reverseResult, reverse);
+    }
+
+    private OneSideAlignmentResult align(OneSideAligner candidates, GoodBadNucleotideSequence sequence, int refPoint) {
+        if (direction == AlignmentDirection.Both)
+            return candidates.doubleSidedAlignmentResult(state, sequence, refPoint, -1 * segmentDirection); //Firstly align part that is outside CDR3
+        else
+            return candidates.buildResult(state, sequence, refPoint, direction.getDirectionFactor() * segmentDirection);
+    }
+
+    private VJSegmentMappingResult createResult(OneSideAlignmentResult result, int refPoint) {
+        return new VJSegmentMappingResult(result.possibleSegments, container,
+                refPoint, result.continuousAlignmentFrom, result.continuousAlignmentTo,
+                result.score);
+    }
+
+    private VJSegmentMappingResult finish(VJSegmentMappingResult mappingResult, GoodBadNucleotideSequence sequence) {
         if (mappingResult != null && mappingResult.getScore() < minLength * 2) {
             if (listener != null)
                 listener.mappingDropped(mappingResult, sequence);
@@ -205,4 +277,101 @@ public final class TrivialSegmentMapper implements CoreVJSegmentMapper {
 
         return mappingResult;
     }
+
+    /**
+     * Immutable part of {@link TrivialSegmentMapper}: seed table and aligners. Index is thread-safe and can be shared
+     * by mappers of all threads.
+     */
+    public static final class Index {
+        private final int mandatoryFrom, mandatoryRegionLength;
+        private final int minLength;
+        private final int lengthTolerance;
+        private final AlignmentDirection direction;
+        private final int segmentDirection;
+        private final SegmentGroupContainer container;
+        private final KmerTable<OneSideAligner> alleles;
+        //Max number of alleles in one aligner
+        private final int maxAlleles;
+
+        /**
+         * Builds index for uni-direction segment mapper.
+         *
+         * @param group           container of segments
+         * @param mandatoryFrom   position of first nucleotide of the region that has to be aligned, relative to
+         *                        reference point (0 = reference point)
+         * @param mandatoryTo     position of last nucleotide of the region that has to be aligned, relative to
+         *                        reference point (0 = reference point)
+         * @param minLength       minimal length of alignment
+         * @param lengthTolerance maximal allowed difference from best alignment length for a segment to be included
+         *                        in result
+         */
+        public Index(SegmentGroupContainer group, int mandatoryFrom,
+                     int mandatoryTo, int minLength, int lengthTolerance,
+                     AlignmentDirection direction) {
+            if (group == null)
+                throw new NullPointerException();
+
+            if (direction != AlignmentDirection.Both && direction != AlignmentDirection.InsideCDR3 && direction != AlignmentDirection.OutsideCDR3)
+                throw new IllegalArgumentException();
+
+            if (mandatoryFrom > mandatoryTo)
+                throw new IllegalArgumentException();
+
+            if (lengthTolerance < 0)
+                throw new IllegalArgumentException("LengthTolerance must be positive.");
+
+            this.container = group;
+            this.segmentDirection = group.getGroup().getType().cdr3Site();
+            this.direction = direction;
+            this.minLength = minLength;
+            this.lengthTolerance = lengthTolerance;
+            this.mandatoryRegionLength = mandatoryTo - mandatoryFrom + 1;
+            if (this.mandatoryRegionLength <= 3)
+                throw new IllegalArgumentException("Too short mandatory region.");
+            if (this.mandatoryRegionLength >= 12)
+                throw new IllegalArgumentException("Mandatory region is too long.");
+            this.mandatoryFrom = mandatoryFrom;
+            //Building map
+            TIntObjectMap<List<Allele>> preMap = new TIntObjectHashMap<>();
+            List<Allele> list;
+            int kMer;
+            for (Allele allele : group.getAllelesList()) {
+                kMer = getSeed(allele, mandatoryFrom, mandatoryTo);
+
+                if ((list = preMap.get(kMer)) == null)
+                    preMap.put(kMer, list = new ArrayList<>());
+                list.add(allele);
+            }
+
+            TIntObjectMap<OneSideAligner> map = new TIntObjectHashMap<>();
+            int maxAlleles = 0;
+            for (TIntObjectIterator<List<Allele>> iterator = preMap.iterator();
+                 iterator.hasNext(); ) {
+                iterator.advance();
+                map.put(iterator.key(),
+                        createAligner(iterator.value().toArray(new Allele[iterator.value().size()])));
+                maxAlleles = Math.max(maxAlleles, iterator.value().size());
+            }
+
+            this.maxAlleles = maxAlleles;
+            this.alleles = new KmerTable<>(mandatoryRegionLength, map);
+        }
+
+        private OneSideAligner createAligner(Allele[] alleles) {
+            if (direction == AlignmentDirection.Both)
+                return new OneSideAligner(container,
+                        alleles,
+                        -2 * segmentDirection, lengthTolerance * 2, 2, 1); //Alignment offset set to the central nucleotide in Cys/Phe codone
+            else {
+                return new OneSideAligner(container,
+                        alleles,
+                        direction.getDirectionFactor() * segmentDirection == 1 ? mandatoryFrom : mandatoryFrom + mandatoryRegionLength, //no -1 !!!
+                        lengthTolerance * 2, 2, 1);
+            }
+        }
+
+        public SegmentGroupContainer getContainer() {
+            return container;
+        }
+    }
 }
@@ -36,15 +36,19 @@ import com.milaboratory.core.sequencing.read.SSequencingRead;
 import com.milaboratory.mitcr.pipeline.ParameterPresets;
 import com.milaboratory.mitcr.qualitystrategy.DummyQualityInterpretationStrategy;
 import com.milaboratory.mitcr.vdjmapping.AbstractMapperTest;
+import com.milaboratory.mitcr.vdjmapping.MappingAnchor;
 import com.milaboratory.util.CompressionType;
 import org.junit.Assert;
 import org.junit.Test;
 
 import java.io.IOException;
 import java.net.URISyntaxException;
+import java.util.ArrayList;
+import java.util.List;
 
 import static com.milaboratory.mitcr.MiTCRTestUtils.getFlexCDR3ExtractionParameters;
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
 
 public class CDR3ExtractorFactoryTest extends AbstractMapperTest {
     @Test
@@ -88,4 +92,37 @@ public class CDR3ExtractorFactoryTest extends AbstractMapperTest {
 
         assertEquals(194, count);
     }
+
+    @Test
+    public void testJointMapping() throws Exception {
+        List<SSequencingRead> reads = new ArrayList<>();
+        SSequencingDataReader reader =
+                new SFastqReader(ClassLoader.getSystemResourceAsStream("cdr3_sample.fastq.gz"),
+                        QualityFormat.Phred33, CompressionType.GZIP);
+        SSequencingRead read;
+        while ((read = reader.take()) != null)
+            reads.add(read);
+
+        CDR3ExtractorFromSRead independent = new CDR3ExtractorFromSRead(Species.HomoSapiens, Gene.TRB,
+                getFlexCDR3ExtractionParameters(), library, new DummyQualityInterpretationStrategy());
+        for (MappingAnchor anchor : new MappingAnchor[]{MappingAnchor.V, MappingAnchor.J}) {
+            CDR3ExtractorParameters parameters = getFlexCDR3ExtractionParameters();
+            parameters.setMappingAnchor(anchor);
+            CDR3ExtractorFromSRead joint = new CDR3ExtractorFromSRead(Species.HomoSapiens, Gene.TRB,
+                    parameters, library, new DummyQualityInterpretationStrategy());
+            int count = 0;
+            for (SSequencingRead r : reads) {
+                CDR3ExtractionResult<SSequencingRead> expected = independent.process(r),
+                        actual = joint.process(r);
+                if (actual.getCDR3() != null)
+                    ++count;
+                //CDR3s with length inside thresholds are the same in both modes
+                if (expected.getCDR3() != null) {
+                    assertEquals(expected.getCDR3(), actual.getCDR3());
+                    assertEquals(expected.isFoundInReverseComplement(), actual.isFoundInReverseComplement());
+                }
+            }
+            assertTrue(count >= 194);
+        }
+    }
 }
@@ -41,6 +41,8 @@ import org.junit.Test;
 import java.io.File;
 import java.io.IOException;
 import java.net.URISyntaxException;
+import java.util.ArrayList;
+import java.util.List;
 
 import static com.milaboratory.mitcr.MiTCRTestUtils.getFlexCDR3ExtractionParameters;
 import static org.junit.Assert.assertEquals;
@@ -97,6 +99,44 @@ public class BasicCloneGeneratorTest extends AbstractMapperTest {
         assertEquals(0, count);
     }
 
+    @Test
+    public void testBatched() throws URISyntaxException, IOException, InterruptedException {
+        File sample = new File(ClassLoader.getSystemResource("cdr3_sample.fastq.gz").toURI());
+        SSequencingDataReader reader = new SFastqReader(sample, QualityFormat.Phred33, CompressionType.GZIP);
+
+        TestCGListener listener = new TestCGListener();
+
+        CDR3ExtractorFromSRead extractor = new CDR3ExtractorFromSRead(Species.HomoSapiens, Gene.TRB,
+                getFlexCDR3ExtractionParameters(), library,
+                new IlluminaQualityInterpretationStrategy((byte) 25));
+
+        OutputPort<CDR3ExtractionResult<SSequencingRead>> results = CUtils.wrap(reader, extractor);
+
+        BasicCloneGenerator generator = new BasicCloneGenerator(AccumulatorCloneMaxStrict.FACTORY, 0.7f, false, listener);
+
+        //Results without CDR3 are also put into batches
+        List<CDR3ExtractionResult<?>> batch = new ArrayList<>();
+        CDR3ExtractionResult<SSequencingRead> result;
+        while ((result = results.take()) != null) {
+            batch.add(result);
+            if (batch.size() == 64) {
+                generator.putAll(batch.toArray(new CDR3ExtractionResult<?>[batch.size()]));
+                batch.clear();
+            }
+        }
+        generator.putAll(batch.toArray(new CDR3ExtractionResult<?>[batch.size()]));
+        generator.put(null);
+
+        CloneSet cloneSet = generator.getCloneSet();
+        assertEquals(131, cloneSet.getClones().size());
+        assertEquals(131, listener.getClonesCreated());
+        assertEquals(193, listener.getReadsAssignedTotal());
+        long count = 0;
+        for (Clone c : cloneSet.getClones())
+            count += c.getCount();
+        assertEquals(193, count);
+    }
+
     @Test
     public void testCompressed() throws URISyntaxException, IOException, InterruptedException {
         CloneSet csStrict = getCloneSet(AccumulatorCloneMaxStrict.FACTORY),
@@ -1,13 +1,35 @@
 package com.milaboratory.mitcr.pipeline;
 
+import cc.redberry.pipe.OutputPort;
 import com.milaboratory.core.clone.CloneSet;
 import com.milaboratory.core.io.CloneSetIO;
+import com.milaboratory.core.sequencing.io.fasta.FastaReader;
+import com.milaboratory.core.sequencing.io.fastq.FastqChunkReader;
+import com.milaboratory.core.sequencing.io.fastq.MappedFastqReader;
 import com.milaboratory.core.sequencing.io.fastq.SFastqReader;
+import com.milaboratory.core.sequencing.read.SSequencingRead;
 import com.milaboratory.core.util.CloneSetsComparator;
+import com.milaboratory.mitcr.statistics.AnalysisStatisticsAggregator;
+import com.milaboratory.util.BatchingOutputPort;
 import com.milaboratory.util.CompressionType;
 import org.junit.Assert;
 import org.junit.Test;
 
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
 public class FullPipelineTest {
     private CloneSet loadCloneSet(String fileName) throws Exception {
         return CloneSetIO.importCloneSet(
@@ -16,20 +38,167 @@ public class FullPipelineTest {
     }
 
     private void test(Parameters params, String referenceName) throws Exception {
+        test(params, referenceName, BatchingOutputPort.DEFAULT_BATCH_SIZE);
+    }
+
+    private void test(Parameters params, String referenceName, int batchSize) throws Exception {
         FullPipeline pipeline = new FullPipeline(new SFastqReader(this.getClass().getClassLoader().
                 getResourceAsStream("good_ds_test.fastq.gz"), CompressionType.GZIP), params);
+        pipeline.setBatchSize(batchSize);
         pipeline.run();
         CloneSet csResult = pipeline.getResult();
         Assert.assertEquals(0.0, CloneSetsComparator.compare(csResult, loadCloneSet(referenceName)).difference, 0.005);
     }
 
+    @Test
+    public void testMappedInput() throws Exception {
+        File file = File.createTempFile("pipeline", ".fastq");
+        file.deleteOnExit();
+        InputStream is = CompressionType.GZIP.createInputStream(this.getClass().getClassLoader().
+                getResourceAsStream("good_ds_test.fastq.gz"));
+        OutputStream os = new FileOutputStream(file);
+        byte[] buffer = new byte[65536];
+        int read;
+        while ((read = is.read(buffer)) != -1)
+            os.write(buffer, 0, read);
+        os.close();
+        is.close();
+
+        MappedFastqReader reader = new MappedFastqReader(file, null, 13);
+        FullPipeline pipeline = new FullPipeline(reader, ParameterPresets.getFlex());
+        pipeline.run();
+        reader.close();
+        file.delete();
+        CloneSet csResult = pipeline.getResult();
+        Assert.assertEquals(0.0, CloneSetsComparator.compare(csResult, loadCloneSet("o_good_flex1.txt.gz")).difference, 0.005);
+    }
+
+    @Test
+    public void testBlockParsingInput() throws Exception {
+        //Converting reads to FASTA
+        ByteArrayOutputStream fasta = new ByteArrayOutputStream();
+        SFastqReader reader = new SFastqReader(this.getClass().getClassLoader().
+                getResourceAsStream("good_ds_test.fastq.gz"), CompressionType.GZIP);
+        SSequencingRead read;
+        int count = 0;
+        while ((read = reader.take()) != null) {
+            fasta.write(('>' + read.getDescription() + '\n' + read.getData().getSequence() + '\n').getBytes());
+            ++count;
+        }
+
+        final Set<Thread> decodingThreads = Collections.newSetFromMap(new ConcurrentHashMap<Thread, Boolean>());
+        final CountDownLatch twoThreads = new CountDownLatch(2);
+        FastaReader input = new FastaReader(new ByteArrayInputStream(fasta.toByteArray()), CompressionType.None,
+                4096) {
+            @Override
+            protected SSequencingRead parse(Block block) {
+                if (decodingThreads.add(Thread.currentThread())) {
+                    //Waiting for another thread to decode concurrently (never happens if input is consumed by a
+                    //single thread)
+                    twoThreads.countDown();
+                    try {
+                        twoThreads.await(10, TimeUnit.SECONDS);
+                    } catch (InterruptedException e) {
+                        throw new RuntimeException(e);
+                    }
+                }
+                return super.parse(block);
+            }
+        };
+
+        FullPipeline pipeline = new FullPipeline(input, ParameterPresets.getFlex());
+        pipeline.setThreads(4);
+        pipeline.run();
+        Assert.assertEquals(count, pipeline.getTotal());
+        Assert.assertTrue(decodingThreads.size() > 1);
+    }
+
+    @Test
+    public void testMultipleInputs() throws Exception {
+        //Splitting input into three "lanes"
+        final List<List<SSequencingRead>> lanes = new ArrayList<>();
+        for (int i = 0; i < 3; ++i)
+            lanes.add(new ArrayList<SSequencingRead>());
+        SFastqReader reader = new SFastqReader(this.getClass().getClassLoader().
+                getResourceAsStream("good_ds_test.fastq.gz"), CompressionType.GZIP);
+        SSequencingRead read;
+        int count = 0;
+        while ((read = reader.take()) != null)
+            lanes.get(count++ % 3).add(read);
+
+        List<OutputPort<SSequencingRead>> inputs = new ArrayList<>();
+        for (List<SSequencingRead> lane : lanes)
+            inputs.add(new ListOutputPort(lane));
+
+        FullPipeline pipeline = new FullPipeline(inputs, ParameterPresets.getFlex());
+        pipeline.run();
+        Assert.assertEquals(count, pipeline.getTotal());
+        CloneSet csResult = pipeline.getResult();
+        Assert.assertEquals(0.0, CloneSetsComparator.compare(csResult, loadCloneSet("o_good_flex1.txt.gz")).difference, 0.005);
+    }
+
+    @Test
+    public void testChunkedInput() throws Exception {
+        FullPipeline pipeline = new FullPipeline(new FastqChunkReader(this.getClass().getClassLoader().
+                getResourceAsStream("good_ds_test.fastq.gz"), null, CompressionType.GZIP, true, 1 << 16),
+                ParameterPresets.getFlex());
+        pipeline.run();
+        CloneSet csResult = pipeline.getResult();
+        Assert.assertEquals(0.0, CloneSetsComparator.compare(csResult, loadCloneSet("o_good_flex1.txt.gz")).difference, 0.005);
+    }
+
+    @Test
+    public void testReadsPrefiltering() throws Exception {
+        long[] totals = new long[2];
+        CloneSet[] results = new CloneSet[2];
+        for (int i = 0; i < 2; ++i) {
+            FullPipeline pipeline = new FullPipeline(new FastqChunkReader(this.getClass().getClassLoader().
+                    getResourceAsStream("good_ds_test.fastq.gz"), null, CompressionType.GZIP, true, 1 << 16),
+                    ParameterPresets.getFlex());
+            AnalysisStatisticsAggregator statistics = new AnalysisStatisticsAggregator();
+            pipeline.setAnalysisListener(statistics);
+            pipeline.setReadsPrefiltering(i == 1);
+            pipeline.run();
+            totals[i] = pipeline.getTotal();
+            results[i] = pipeline.getResult();
+            Assert.assertEquals(pipeline.getTotal(), statistics.getTotalReadsProcessed());
+            if (i == 1)
+                Assert.assertTrue(statistics.getReadsDiscarded() > 0);
+        }
+        Assert.assertEquals(totals[0], totals[1]);
+        Assert.assertEquals(0.0, CloneSetsComparator.compare(results[0], results[1]).difference, 0.0);
+        Assert.assertEquals(0.0, CloneSetsComparator.compare(results[1], loadCloneSet("o_good_flex1.txt.gz")).difference, 0.005);
+    }
+
     @Test
     public void testFlex1() throws Exception {
         test(ParameterPresets.getFlex(), "o_good_flex1.txt.gz");
     }
 
+    @Test
+    public void testFlex1NoBatching() throws Exception {
+        test(ParameterPresets.getFlex(), "o_good_flex1.txt.gz", 1);
+    }
+
     @Test
     public void testJPrimer1() throws Exception {
         test(ParameterPresets.getJPrimer(), "o_good_jprimer1.txt.gz");
     }
+
+    private static final class ListOutputPort implements OutputPort<SSequencingRead> {
+        private final Iterator<SSequencingRead> iterator;
+
+        private ListOutputPort(List<SSequencingRead> list) {
+            this.iterator = list.iterator();
+        }
+
+        @Override
+        public synchronized SSequencingRead take() {
+            return iterator.hasNext() ? iterator.next() : null;
+        }
+
+        @Override
+        public void close() {
+        }
+    }
 }
@@ -1,13 +1,19 @@
 package com.milaboratory.mitcr.vdjmapping;
 
+import com.milaboratory.core.segment.Allele;
 import com.milaboratory.core.segment.DefaultSegmentLibrary;
 import com.milaboratory.core.segment.Gene;
+import com.milaboratory.core.segment.SegmentGroupContainer;
 import com.milaboratory.core.segment.SegmentGroupType;
 import com.milaboratory.core.segment.Species;
 import com.milaboratory.core.sequence.nucleotide.NucleotideSequence;
+import com.milaboratory.util.BitArray;
 import org.junit.Test;
 
-import static org.junit.Assert.assertEquals;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.Assert.*;
 
 public class DSegmentMapperTest {
     @Test
@@ -32,4 +38,69 @@ public class DSegmentMapperTest {
         assertEquals(seq0str.length() - 1 - smrTR.getSegmentBorderTo(), smrTF.getSegmentBorderFrom());
         assertEquals(seq0str.length() - 1 - smrTR.getSegmentBorderFrom(), smrTF.getSegmentBorderTo());
     }
+
+    @Test
+    public void testIndexEquivalence() throws Exception {
+        SegmentGroupContainer group = DefaultSegmentLibrary.load().getGroup(Species.HomoSapiens, Gene.TRB,
+                SegmentGroupType.Diversity);
+        List<Allele> alleles = group.getAllelesList();
+        Random random = new Random(2014);
+        int found = 0;
+        for (int minLength : new int[]{3, 5, 6, 9})
+            for (boolean searchRC : new boolean[]{false, true}) {
+                DSegmentMapper mapper = new DSegmentMapper(group, minLength, searchRC);
+                for (int t = 0; t < 1000; ++t) {
+                    //Random sequence with a mutated fragment of D segment
+                    char[] chars = new char[random.nextInt(30)];
+                    for (int i = 0; i < chars.length; ++i)
+                        chars[i] = "ACGT".charAt(random.nextInt(4));
+                    NucleotideSequence d = alleles.get(random.nextInt(alleles.size())).getSequence();
+                    if (random.nextBoolean())
+                        d = d.getReverseComplement();
+                    int from = random.nextInt(d.size()), to = from + random.nextInt(d.size() - from + 1);
+                    int offset = random.nextInt(chars.length + 1);
+                    StringBuilder builder = new StringBuilder(new String(chars, 0, offset));
+                    for (int i = from; i < to; ++i)
+                        builder.append(random.nextInt(8) == 0 ? "ACGT".charAt(random.nextInt(4)) : d.charFromCodeAt(i));
+                    builder.append(chars, offset, chars.length - offset);
+                    NucleotideSequence sequence = new NucleotideSequence(builder.toString());
+
+                    SegmentMappingResult expected = mapExhaustive(group, minLength, searchRC, sequence),
+                            actual = mapper.map(sequence);
+                    if (expected == null) {
+                        assertNull(actual);
+                        continue;
+                    }
+                    ++found;
+                    assertNotNull(actual);
+                    assertEquals(expected.getSegmentBorderFrom(), actual.getSegmentBorderFrom());
+                    assertEquals(expected.getSegmentBorderTo(), actual.getSegmentBorderTo());
+                    assertEquals(expected.getScore(), actual.getScore(), 0.0);
+                    assertEquals(expected.getBarcode(), actual.getBarcode());
+                }
+            }
+        assertTrue(found > 1000);
+    }
+
+    //Exhaustive search over all alleles and shifts
+    private static SegmentMappingResult mapExhaustive(SegmentGroupContainer group, int minLength, boolean searchRC,
+                                                      NucleotideSequence sequence) {
+        SimplestAlignment bestAlignment = null, alignment;
+        BitArray barcode = new BitArray(group.getAllelesCount());
+        for (Allele allele : group.getAllelesList())
+            for (int rc = 0; rc < (searchRC ? 2 : 1); ++rc)
+                if ((alignment = SimplestAlignment.build(sequence, rc == 0 ? allele.getSequence() :
+                        allele.getSequence().getReverseComplement(), minLength)) != null) {
+                    if (bestAlignment == null || alignment.length > bestAlignment.length) {
+                        barcode.clearAll();
+                        barcode.set(allele.getIndex());
+                        bestAlignment = alignment;
+                    } else if (alignment.length == bestAlignment.length)
+                        barcode.set(allele.getIndex());
+                }
+        if (bestAlignment == null)
+            return null;
+        return new SegmentMappingResult(barcode, group, bestAlignment.targetFrom,
+                bestAlignment.targetFrom + bestAlignment.length - 1, bestAlignment.length);
+    }
 }
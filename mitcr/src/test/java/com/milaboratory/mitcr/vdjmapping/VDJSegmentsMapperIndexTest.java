@@ -0,0 +1,58 @@
+/*
+ * MiTCR <http://milaboratory.com>
+ *
+ * Copyright (c) 2010-2013:
+ *     Bolotin Dmitriy     <bolotin.dmitriy@gmail.com>
+ *     Chudakov Dmitriy    <chudakovdm@mail.ru>
+ *
+ * MiTCR is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License as published by the Free
+ * Software Foundation, either version 3 of the License, or (at your option)
+ * any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU General Public License for
+ * more details.
+ *
+ * You should have received a copy of the GNU General Public License along
+ * with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.milaboratory.mitcr.vdjmapping;
+
+import com.milaboratory.core.segment.Gene;
+import com.milaboratory.core.segment.Species;
+import com.milaboratory.core.sequencing.read.SSequencingRead;
+import com.milaboratory.mitcr.cdrextraction.CDR3ExtractorParameters;
+import com.milaboratory.mitcr.pipeline.ParameterPresets;
+import com.milaboratory.mitcr.qualitystrategy.DummyQualityInterpretationStrategy;
+import com.milaboratory.mitcr.qualitystrategy.QualityInterpretationStrategy;
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class VDJSegmentsMapperIndexTest extends AbstractMapperTest {
+    @Test
+    public void testSharing() throws Exception {
+        CDR3ExtractorParameters parameters = ParameterPresets.getFlex().getCDR3ExtractorParameters();
+        QualityInterpretationStrategy qStrategy = new DummyQualityInterpretationStrategy();
+        VDJSegmentsMapperIndex index = new VDJSegmentsMapperIndex(Species.HomoSapiens, Gene.TRB, parameters, library);
+        assertNotSame(index.getVIndex(), index.getJIndex());
+
+        //Mappers created for different threads share the index
+        VDJSegmentsMapper mapper1 = index.createMapper(qStrategy, null),
+                mapper2 = index.createMapper(qStrategy, null),
+                standalone = VDJSegmentsMapperFactory.createVDJMapper(Species.HomoSapiens, Gene.TRB,
+                        parameters, library, qStrategy);
+        assertNotSame(mapper1.getVMapper(), mapper2.getVMapper());
+        assertSame(index.getDMapper(), mapper1.getDMapper());
+        assertSame(index.getDMapper(), mapper2.getDMapper());
+        assertNotSame(index.getDMapper(), standalone.getDMapper());
+
+        for (SSequencingRead read : reads) {
+            VDJSegmentsMappingResult expected = standalone.map(read.getData().asView());
+            assertEquals(expected.score(), mapper1.map(read.getData().asView()).score(), 0.0);
+            assertEquals(expected.score(), mapper2.map(read.getData().asView()).score(), 0.0);
+        }
+    }
+}
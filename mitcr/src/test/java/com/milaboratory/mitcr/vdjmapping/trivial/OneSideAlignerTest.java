@@ -0,0 +1,165 @@
+/*
+ * MiTCR <http://milaboratory.com>
+ *
+ * Copyright (c) 2010-2013:
+ *     Bolotin Dmitriy     <bolotin.dmitriy@gmail.com>
+ *     Chudakov Dmitriy    <chudakovdm@mail.ru>
+ *
+ * MiTCR is free software: you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License as published by the Free
+ * Software Foundation, either version 3 of the License, or (at your option)
+ * any later version.
+ *
+ * This program is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE. See the GNU General Public License for
+ * more details.
+ *
+ * You should have received a copy of the GNU General Public License along
+ * with this program. If not, see <http://www.gnu.org/licenses/>.
+ */
+package com.milaboratory.mitcr.vdjmapping.trivial;
+
+import com.milaboratory.core.segment.Allele;
+import com.milaboratory.core.sequence.NucleotideSQPair;
+import com.milaboratory.core.sequence.nucleotide.NucleotideSequence;
+import com.milaboratory.core.sequence.quality.SequenceQualityPhred;
+import com.milaboratory.mitcr.qualitystrategy.GoodBadNucleotideSequence;
+import com.milaboratory.mitcr.qualitystrategy.IlluminaQualityInterpretationStrategy;
+import com.milaboratory.mitcr.vdjmapping.tree.AbstractSingleMapperTest;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+
+/**
+ * @author Bolotin Dmitriy (bolotin.dmitriy@gmail.com)
+ */
+public class OneSideAlignerTest extends AbstractSingleMapperTest {
+    @Test
+    public void testBitParallelRace() throws Exception {
+        IlluminaQualityInterpretationStrategy ill = new IlluminaQualityInterpretationStrategy((byte) 25);
+        Random random = new Random(7);
+        List<Allele> allAlleles = new ArrayList<>(container.getAllelesList());
+        //More than 64 alleles to test multi-word masks
+        List<Allele> doubled = new ArrayList<>(allAlleles);
+        doubled.addAll(allAlleles);
+        //Single scratch state is shared by all aligners
+        OneSideAligner.State state = new OneSideAligner.State(doubled.size());
+        for (int t = 0; t < 2000; ++t) {
+            List<Allele> candidates = new ArrayList<>(t % 10 == 0 ? doubled : allAlleles);
+            Collections.shuffle(candidates, random);
+            Allele[] alleles = candidates.subList(0, 1 + random.nextInt(candidates.size())).toArray(new Allele[0]);
+            int goodCost = 2, badCost = 1, tolerance = random.nextInt(5), offset = random.nextInt(7) - 3;
+            OneSideAligner aligner = new OneSideAligner(container, alleles, offset, tolerance, goodCost, badCost);
+
+            //Read from the first allele with mutations
+            Allele source = alleles[0];
+            NucleotideSequence allele = source.getSequence();
+            int from = random.nextInt(source.getReferencePointPosition() + 1),
+                    to = source.getReferencePointPosition() + random.nextInt(allele.size() - source.getReferencePointPosition());
+            char[] read = allele.getRange(from, to + 1).toString().toCharArray();
+            for (int i = random.nextInt(5); i > 0; --i)
+                read[random.nextInt(read.length)] = "ACGT".charAt(random.nextInt(4));
+            byte[] quality = new byte[read.length];
+            for (int i = 0; i < read.length; ++i)
+                quality[i] = (byte) (10 + random.nextInt(30));
+            GoodBadNucleotideSequence sequence = ill.getProviderForNucleotideSQPair().process(
+                    new NucleotideSQPair(new NucleotideSequence(new String(read)), new SequenceQualityPhred(quality)));
+            int refPoint = source.getReferencePointPosition() - from;
+            int direction = random.nextBoolean() ? 1 : -1;
+
+            int[] expected = new int[alleles.length], actual = new int[alleles.length];
+            Arrays.fill(expected, OneSideAligner.INITIAL_SCORE);
+            Arrays.fill(actual, OneSideAligner.INITIAL_SCORE);
+            //Two passes as in double sided alignment
+            for (int pass = 0; pass < 2; ++pass, direction = -direction) {
+                int[] expectedResult = referenceBuildScores(alleles, goodCost, badCost, tolerance, offset,
+                        expected, sequence, refPoint, direction);
+                aligner.buildScores(state, actual, sequence, refPoint, direction);
+                assertArrayEquals(expected, actual);
+                assertEquals(expectedResult[0], state.getLastScore());
+                assertEquals(expectedResult[1], state.getLastMatch());
+            }
+        }
+    }
+
+    /**
+     * Position by position race (initial implementation), returns {lastScore, lastMatch}.
+     */
+    private static int[] referenceBuildScores(Allele[] alleles, int goodCost, int badCost, int tolerance, int offset,
+                                              int[] score, GoodBadNucleotideSequence sequence, int refPoint,
+                                              int alignmentDirection) {
+        final int maxLag = 3;
+        byte nuc;
+        boolean isBad;
+        int i, alleleCoord;
+        Allele allele;
+        int maxScore = 0;
+        for (int s : score)
+            if (maxScore < s)
+                maxScore = s;
+        boolean positivesExists = true, recalculatePositivesExists = false;
+        int lastMatch = -1;
+        for (int coord = offset - (1 - alignmentDirection) / 2;
+             coord >= -refPoint && coord < sequence.size() - refPoint;
+             coord += alignmentDirection) {
+            nuc = sequence.codeAt(coord + refPoint);
+            isBad = sequence.isBad(coord + refPoint);
+            positivesExists = false;
+            recalculatePositivesExists = false;
+            for (i = 0; i < alleles.length; ++i) {
+                if (score[i] < 0) {
+                    score[i] -= isBad ? badCost : goodCost;
+                    continue;
+                }
+                positivesExists = true;
+                allele = alleles[i];
+                alleleCoord = allele.getReferencePointPosition() + coord;
+                if ((alleleCoord >= 0 && alleleCoord < allele.getSequence().size()) &&
+                        (nuc == allele.getSequence().codeAt(alleleCoord))) {
+                    lastMatch = coord + refPoint;
+                    score[i] += isBad ? badCost : goodCost;
+                } else
+                    score[i] -= isBad ? badCost : goodCost;
+                if (maxScore < score[i])
+                    maxScore = score[i];
+            }
+            if (!positivesExists)
+                break;
+            for (i = 0; i < alleles.length; ++i)
+                if (score[i] >= 0 && maxScore - maxLag > score[i]) {
+                    score[i] = -1;
+                    recalculatePositivesExists = true;
+                }
+        }
+        if (recalculatePositivesExists) {
+            positivesExists = false;
+            for (int s : score)
+                if (s > 0) {
+                    positivesExists = true;
+                    break;
+                }
+        }
+        if (!positivesExists) {
+            int rewardAmount = Integer.MIN_VALUE;
+            for (int s : score)
+                if (rewardAmount < s)
+                    rewardAmount = s;
+            rewardAmount = maxScore - rewardAmount;
+            for (i = 0; i < alleles.length; ++i)
+                score[i] += rewardAmount;
+        }
+        int treshold = maxScore - tolerance;
+        for (i = 0; i < score.length; ++i)
+            if (score[i] < treshold && score[i] >= 0)
+                score[i] -= maxScore;
+        return new int[]{maxScore, lastMatch};
+    }
+}
@@ -20,11 +20,13 @@
  */
 package com.milaboratory.mitcr.vdjmapping.trivial;
 
+import com.milaboratory.core.segment.Allele;
 import com.milaboratory.core.segment.SegmentGroup;
 import com.milaboratory.core.segment.SegmentGroupContainer;
 import com.milaboratory.core.segment.Species;
 import com.milaboratory.core.sequence.NucleotideSQPair;
 import com.milaboratory.core.sequence.nucleotide.NucleotideSequence;
+import com.milaboratory.core.sequence.quality.SequenceQualityPhred;
 import com.milaboratory.mitcr.pipeline.ParameterPresets;
 import com.milaboratory.mitcr.pipeline.Parameters;
 import com.milaboratory.mitcr.qualitystrategy.DummyQualityInterpretationStrategy;
@@ -36,9 +38,11 @@ import com.milaboratory.mitcr.vdjmapping.VJSegmentMappingResultFormatter;
 import com.milaboratory.mitcr.vdjmapping.tree.AbstractSingleMapperTest;
 import org.junit.Test;
 
+import java.util.List;
+import java.util.Random;
+
 import static org.hamcrest.CoreMatchers.is;
-import static org.junit.Assert.assertEquals;
-import static org.junit.Assert.assertThat;
+import static org.junit.Assert.*;
 
 public class TrivialSegmentMapperTest extends AbstractSingleMapperTest {
     @Test
@@ -263,4 +267,93 @@ public class TrivialSegmentMapperTest extends AbstractSingleMapperTest {
         resultVJ = mapper.map(ill.getProviderForNucleotideSQPair().process(jCDR3Chimera4));
         assertEquals(46, resultVJ.getSegmentBorderFrom());
     }
+
+    @Test
+    public void testBothStrands() throws Exception {
+        IlluminaQualityInterpretationStrategy ill = new IlluminaQualityInterpretationStrategy((byte) 25);
+        Random random = new Random(2013);
+        for (SegmentGroup group : new SegmentGroup[]{SegmentGroup.TRBV, SegmentGroup.TRBJ}) {
+            SegmentGroupContainer container = library.getGroup(Species.HomoSapiens, group);
+            List<Allele> alleles = container.getAllelesList();
+            //Direct-address and hashed seed tables
+            TrivialSegmentMapper[] mappers = {
+                    new TrivialSegmentMapper(container, -1, 4, 12, 2, AlignmentDirection.Both),
+                    new TrivialSegmentMapper(container, -4, 5, 7, 1, AlignmentDirection.InsideCDR3)};
+            for (TrivialSegmentMapper mapper : mappers)
+                for (int t = 0; t < 500; ++t) {
+                    NucleotideSQPair pair = randomRead(random, alleles);
+                    if (random.nextBoolean())
+                        pair = pair.getRC();
+
+                    GoodBadNucleotideSequence forward = ill.getProviderForNucleotideSQPair().process(pair),
+                            reverse = ill.getProviderForNucleotideSQPair().process(pair.getRC());
+                    VJSegmentMappingResult[] results = new VJSegmentMappingResult[2];
+                    mapper.mapBothStrands(forward, reverse, results);
+                    assertSameResult(mapper.map(forward), results[0]);
+                    assertSameResult(mapper.map(reverse), results[1]);
+                }
+        }
+    }
+
+    @Test
+    public void testRefPointRange() throws Exception {
+        IlluminaQualityInterpretationStrategy ill = new IlluminaQualityInterpretationStrategy((byte) 25);
+        Random random = new Random(2014);
+        for (SegmentGroup group : new SegmentGroup[]{SegmentGroup.TRBV, SegmentGroup.TRBJ}) {
+            SegmentGroupContainer container = library.getGroup(Species.HomoSapiens, group);
+            List<Allele> alleles = container.getAllelesList();
+            TrivialSegmentMapper mapper = new TrivialSegmentMapper(container, -1, 4, 12, 2, AlignmentDirection.Both);
+            int inRange = 0;
+            for (int t = 0; t < 500; ++t) {
+                GoodBadNucleotideSequence sequence = ill.getProviderForNucleotideSQPair().process(
+                        randomRead(random, alleles));
+                VJSegmentMappingResult full = mapper.map(sequence);
+
+                //Whole read
+                assertSameResult(full, mapper.map(sequence, -1000, 1000));
+
+                int from = random.nextInt(sequence.size() + 20) - 10,
+                        to = from + random.nextInt(sequence.size());
+                VJSegmentMappingResult ranged = mapper.map(sequence, from, to);
+                if (ranged != null)
+                    assertTrue(from <= ranged.getRefPoint() && ranged.getRefPoint() <= to);
+                if (full != null && from <= full.getRefPoint() && full.getRefPoint() <= to) {
+                    assertSameResult(full, ranged);
+                    ++inRange;
+                }
+            }
+            assertTrue(inRange > 0);
+        }
+    }
+
+    private static NucleotideSQPair randomRead(Random random, List<Allele> alleles) {
+        NucleotideSequence allele = alleles.get(random.nextInt(alleles.size())).getSequence();
+        int from = random.nextInt(allele.size() / 2);
+        NucleotideSequence fragment = allele.getRange(from,
+                from + random.nextInt(allele.size() - from));
+        char[] read = new char[fragment.size() + 20 + random.nextInt(40)];
+        for (int i = 0; i < read.length; ++i)
+            read[i] = "ACGT".charAt(random.nextInt(4));
+        int offset = random.nextInt(read.length - fragment.size() + 1);
+        for (int i = 0; i < fragment.size(); ++i)
+            read[offset + i] = fragment.charFromCodeAt(i);
+        byte[] quality = new byte[read.length];
+        for (int i = 0; i < read.length; ++i)
+            quality[i] = (byte) (10 + random.nextInt(30));
+        return new NucleotideSQPair(new NucleotideSequence(new String(read)),
+                new SequenceQualityPhred(quality));
+    }
+
+    private static void assertSameResult(VJSegmentMappingResult expected, VJSegmentMappingResult actual) {
+        if (expected == null) {
+            assertNull(actual);
+            return;
+        }
+        assertNotNull(actual);
+        assertEquals(expected.getRefPoint(), actual.getRefPoint());
+        assertEquals(expected.getSegmentBorderFrom(), actual.getSegmentBorderFrom());
+        assertEquals(expected.getSegmentBorderTo(), actual.getSegmentBorderTo());
+        assertEquals(expected.getScore(), actual.getScore(), 0.0);
+        assertEquals(expected.getBarcode(), actual.getBarcode());
+    }
 }